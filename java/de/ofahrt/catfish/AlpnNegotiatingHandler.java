@@ -4,13 +4,8 @@ import de.ofahrt.catfish.http2.Http2ServerStage;
 import de.ofahrt.catfish.internal.network.NetworkEngine.NetworkHandler;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
-import de.ofahrt.catfish.model.HttpRequest;
-import de.ofahrt.catfish.model.network.Connection;
 import de.ofahrt.catfish.model.server.ConnectHandler;
-import de.ofahrt.catfish.model.server.HttpHandler;
-import de.ofahrt.catfish.model.server.HttpResponseWriter;
 import de.ofahrt.catfish.model.server.HttpServerListener;
-import java.nio.ByteBuffer;
 import java.util.concurrent.Executor;
 import javax.net.ssl.SSLSocketFactory;
 
@@ -30,6 +25,7 @@ final class AlpnNegotiatingHandler implements NetworkHandler {
   private final SslServerStage.SSLContextProvider sslContextProvider;
   private final HttpServerListener serverListener;
   private final AlpnProtocol[] protocols;
+  private final HttpTimeouts timeouts;
   private final String[] alpnProtocols;
   private final SslInfoCache sslInfoCache = new SslInfoCache();
 
@@ -40,7 +36,8 @@ final class AlpnNegotiatingHandler implements NetworkHandler {
       SSLSocketFactory originSocketFactory,
       SslServerStage.SSLContextProvider sslContextProvider,
       HttpServerListener serverListener,
-      AlpnProtocol[] protocols) {
+      AlpnProtocol[] protocols,
+      HttpTimeouts timeouts) {
     if (protocols.length == 0) {
       throw new IllegalArgumentException("at least one protocol must be configured");
     }
@@ -51,6 +48,7 @@ final class AlpnNegotiatingHandler implements NetworkHandler {
     this.sslContextProvider = sslContextProvider;
     this.serverListener = serverListener;
     this.protocols = protocols.clone();
+    this.timeouts = timeouts;
     this.alpnProtocols = new String[protocols.length];
     for (int i = 0; i < protocols.length; i++) {
       this.alpnProtocols[i] = protocols[i].alpnId();
@@ -63,35 +61,39 @@ final class AlpnNegotiatingHandler implements NetworkHandler {
   }
 
   @Override
-  public Stage connect(Pipeline pipeline, ByteBuffer inputBuffer, ByteBuffer outputBuffer) {
+  public Stage connect(Pipeline pipeline) {
     return new SslServerStage(
         pipeline,
-        (innerPipeline, plainIn, plainOut, negotiatedProtocol) ->
-            createInnerStage(innerPipeline, plainIn, plainOut, negotiatedProtocol),
+        this::createInnerStage,
         alpnProtocols,
         sslContextProvider,
-        executor,
-        inputBuffer,
-        outputBuffer);
+        pipeline.workerExecutor(executor),
+        timeouts.headerRead());
   }
 
-  private Stage createInnerStage(
-      Pipeline innerPipeline, ByteBuffer plainIn, ByteBuffer plainOut, String negotiatedProtocol) {
+  private Stage createInnerStage(Pipeline innerPipeline, String negotiatedProtocol) {
     AlpnProtocol selected = select(negotiatedProtocol);
+    Executor connectionExecutor = innerPipeline.workerExecutor(executor);
     if (selected == AlpnProtocol.HTTP_2) {
       return new Http2ServerStage(
-          innerPipeline, this::queueRequest, connectHandler, executor, plainIn, plainOut);
+          innerPipeline,
+          (httpHandler, connection, request, responseWriter) ->
+              RequestQueueDispatcher.dispatch(
+                  connectionExecutor, httpHandler, connection, request, responseWriter),
+          connectHandler,
+          connectionExecutor);
     }
     return new HttpServerStage(
         innerPipeline,
-        this::queueRequest,
+        (httpHandler, connection, request, responseWriter) ->
+            RequestQueueDispatcher.dispatch(
+                connectionExecutor, httpHandler, connection, request, responseWriter),
         connectHandler,
         serverListener,
         originSocketFactory,
         sslInfoCache,
-        needsExecutor ? executor : null,
-        plainIn,
-        plainOut);
+        needsExecutor ? connectionExecutor : null,
+        timeouts);
   }
 
   /**
@@ -114,12 +116,4 @@ final class AlpnNegotiatingHandler implements NetworkHandler {
     }
     return protocols[protocols.length - 1];
   }
-
-  void queueRequest(
-      HttpHandler httpHandler,
-      Connection connection,
-      HttpRequest request,
-      HttpResponseWriter responseWriter) {
-    RequestQueueDispatcher.dispatch(executor, httpHandler, connection, request, responseWriter);
-  }
 }
@@ -12,14 +12,41 @@ public sealed interface Binding {
 
   record UnixSocket(Path path) implements Binding {}
 
+  /** An in-memory address for clients in the same JVM; see {@link NetworkEngine#listenInMemory}. */
+  record InMemory(String name) implements Binding {}
+
   default void listen(NetworkEngine engine, NetworkEngine.NetworkHandler handler)
       throws IOException, InterruptedException {
+    listen(engine, handler, false);
+  }
+
+  /**
+   * Starts listening. {@code reusePort} requests one SO_REUSEPORT listener per selector thread for
+   * TCP bindings; it is ignored for Unix domain sockets and in-memory bindings.
+   */
+  default void listen(NetworkEngine engine, NetworkEngine.NetworkHandler handler, boolean reusePort)
+      throws IOException, InterruptedException {
+    listen(engine, handler, reusePort, 0);
+  }
+
+  /**
+   * Starts listening, accepting at most {@code maxConnections} concurrent connections (0 means
+   * unlimited); see {@link #listen(NetworkEngine, NetworkEngine.NetworkHandler, boolean)}.
+   */
+  default void listen(
+      NetworkEngine engine,
+      NetworkEngine.NetworkHandler handler,
+      boolean reusePort,
+      int maxConnections)
+      throws IOException, InterruptedException {
     if (this instanceof AnyPort b) {
-      engine.listenAll(b.port(), handler);
+      engine.listenAll(b.port(), handler, reusePort, maxConnections);
     } else if (this instanceof LocalhostPort b) {
-      engine.listenLocalhost(b.port(), handler);
+      engine.listenLocalhost(b.port(), handler, reusePort, maxConnections);
     } else if (this instanceof UnixSocket b) {
-      engine.listenUnixSocket(b.path(), handler);
+      engine.listenUnixSocket(b.path(), handler, maxConnections);
+    } else if (this instanceof InMemory b) {
+      engine.listenInMemory(b.name(), handler, maxConnections);
     } else {
       throw new AssertionError("Unknown binding type: " + this);
     }
@@ -1,8 +1,12 @@
 package de.ofahrt.catfish;
 
 import de.ofahrt.catfish.internal.network.NetworkEngine;
+import de.ofahrt.catfish.model.network.Connection;
+import de.ofahrt.catfish.model.network.DrainReport;
 import de.ofahrt.catfish.model.network.NetworkEventListener;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
@@ -49,10 +53,29 @@ public final class CatfishHttpServer {
    */
   public CatfishHttpServer(NetworkEventListener serverListener, Executor executor)
       throws IOException {
+    this(serverListener, executor, NetworkEngine.builder());
+  }
+
+  /**
+   * Creates a server that runs application handlers on the given {@link Executor}, with the network
+   * layer (selector threads, buffer sizes, listen backlog, socket options, connection limit)
+   * configured by {@code network}:
+   *
+   * <pre>{@code
+   * CatfishHttpServer server =
+   *     new CatfishHttpServer(
+   *         listener,
+   *         executor,
+   *         NetworkEngine.builder().selectorThreads(2).receiveBufferSize(4 << 20));
+   * }</pre>
+   */
+  public CatfishHttpServer(
+      NetworkEventListener serverListener, Executor executor, NetworkEngine.Builder network)
+      throws IOException {
     Objects.requireNonNull(serverListener, "serverListener");
     Objects.requireNonNull(executor, "executor");
     this.executor = executor;
-    this.engine = new NetworkEngine(serverListener);
+    this.engine = network.build(serverListener);
   }
 
   /**
@@ -82,11 +105,15 @@ public final class CatfishHttpServer {
   }
 
   public void listen(HttpEndpoint endpoint) throws IOException, InterruptedException {
-    endpoint.binding().listen(engine, endpoint.build(executor));
+    endpoint
+        .binding()
+        .listen(engine, endpoint.build(executor), endpoint.reusePort(), endpoint.maxConnections());
   }
 
   public void listen(HttpsEndpoint endpoint) throws IOException, InterruptedException {
-    endpoint.binding().listen(engine, endpoint.build(executor));
+    endpoint
+        .binding()
+        .listen(engine, endpoint.build(executor), endpoint.reusePort(), endpoint.maxConnections());
   }
 
   /**
@@ -103,7 +130,27 @@ public final class CatfishHttpServer {
     engine.shutdown();
   }
 
+  /**
+   * Stops the server gracefully, e.g., for a rolling deploy. Listeners close immediately, so new
+   * clients are refused. Requests in flight complete, but their responses carry {@code Connection:
+   * close}; idle keep-alive connections close right away, and HTTP/2 clients receive a GOAWAY with
+   * the last processed stream. Connections still open after {@code timeout} are closed forcibly.
+   *
+   * @return how many connections closed on their own and how many had to be killed
+   */
+  public DrainReport stop(Duration timeout) throws InterruptedException {
+    return engine.shutdownGracefully(timeout);
+  }
+
   public int getOpenConnections() {
     return engine.getOpenConnections();
   }
+
+  /**
+   * Returns the recent network events of every open connection, formatted one per line, e.g., for
+   * an admin page that diagnoses stalled connections.
+   */
+  public Map<Connection, String> dumpFlightRecords() throws InterruptedException {
+    return engine.dumpFlightRecords();
+  }
 }
@@ -0,0 +1,26 @@
+package de.ofahrt.catfish;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * JFR event for minting a certificate to intercept a CONNECT tunnel. Minting runs on a worker
+ * thread, but a slow CA still delays the tunnel, and cache misses show up as a burst of events.
+ */
+@Name("de.ofahrt.catfish.CertificateMint")
+@Label("Certificate Mint")
+@Category({"Catfish", "TLS"})
+@Description("A certificate was minted for an intercepted CONNECT tunnel")
+final class CertificateMintEvent extends jdk.jfr.Event {
+  @Label("Host")
+  @Nullable String host;
+
+  @Label("Port")
+  int port;
+
+  @Label("Success")
+  boolean success;
+}
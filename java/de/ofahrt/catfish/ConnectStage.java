@@ -13,6 +13,7 @@ import java.io.IOException;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.Executor;
@@ -37,8 +38,6 @@ final class ConnectStage implements Stage {
   interface LocalStageFactory {
     Stage create(
         Pipeline parent,
-        ByteBuffer inputBuffer,
-        ByteBuffer outputBuffer,
         ConnectHandler connectHandler,
         Executor executor,
         String connectHost,
@@ -58,8 +57,6 @@ final class ConnectStage implements Stage {
       "HTTP/1.1 502 Bad Gateway\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.UTF_8);
 
   private final Pipeline parent;
-  private final ByteBuffer inputBuffer;
-  private final ByteBuffer outputBuffer;
   private final Executor executor;
   private final UUID connectId;
   private final String host;
@@ -85,8 +82,6 @@ final class ConnectStage implements Stage {
 
   ConnectStage(
       Pipeline parent,
-      ByteBuffer inputBuffer,
-      ByteBuffer outputBuffer,
       Executor executor,
       UUID connectId,
       String host,
@@ -96,8 +91,6 @@ final class ConnectStage implements Stage {
       SslInfoCache sslInfoCache,
       LocalStageFactory localStageFactory) {
     this.parent = parent;
-    this.inputBuffer = inputBuffer;
-    this.outputBuffer = outputBuffer;
     this.executor = executor;
     this.connectId = connectId;
     this.host = host;
@@ -157,13 +150,17 @@ final class ConnectStage implements Stage {
         ctx = cached.sslContext();
       } else {
         SSLInfo info;
+        CertificateMintEvent event = new CertificateMintEvent();
+        event.begin();
         try {
           info = i.ca().create(connectHost, connectPort);
         } catch (Exception e) {
+          commitMintEvent(event, connectHost, connectPort, /* success= */ false);
           notifyConnectFailed(connectHost, connectPort, e);
           parent.queue(() -> startResponse(RESPONSE_502, /* closeAfterSend= */ true));
           return;
         }
+        commitMintEvent(event, connectHost, connectPort, /* success= */ true);
         sslInfoCache.put(cacheKey, info);
         ctx = info.sslContext();
       }
@@ -199,6 +196,17 @@ final class ConnectStage implements Stage {
     }
   }
 
+  private static void commitMintEvent(
+      CertificateMintEvent event, String host, int port, boolean success) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.host = host;
+      event.port = port;
+      event.success = success;
+      event.commit();
+    }
+  }
+
   private void startResponse(byte[] bytes, boolean closeAfterSend) {
     this.pendingResponseBytes = bytes;
     this.closeAfterSend = closeAfterSend;
@@ -219,6 +227,7 @@ final class ConnectStage implements Stage {
       case SENDING_RESPONSE -> {
         byte[] responseBytes =
             Objects.requireNonNull(this.pendingResponseBytes, "pendingResponseBytes");
+        ByteBuffer outputBuffer = parent.outputBuffer();
         outputBuffer.compact();
         int toCopy = Math.min(outputBuffer.remaining(), responseBytes.length - responseOffset);
         outputBuffer.put(responseBytes, responseOffset, toCopy);
@@ -243,8 +252,7 @@ final class ConnectStage implements Stage {
   private void setupTunnel() throws IOException {
     Socket sock = Objects.requireNonNull(this.tunnelSocket, "tunnelSocket");
     Runnable closeCallback = Objects.requireNonNull(this.onClose, "onClose");
-    TunnelForwardStage tunnelStage =
-        new TunnelForwardStage(parent, inputBuffer, outputBuffer, executor, sock, closeCallback);
+    TunnelForwardStage tunnelStage = new TunnelForwardStage(parent, executor, sock, closeCallback);
     tunnelSocket = null; // ownership transferred to tunnelStage
     parent.replaceWith(tunnelStage);
   }
@@ -275,16 +283,10 @@ final class ConnectStage implements Stage {
           }
         };
     SslServerStage.InnerStageFactory innerFactory =
-        (innerPipeline, plainIn, plainOut, negotiatedProtocol) ->
+        (innerPipeline, negotiatedProtocol) ->
             wrapWithOnClose(
                 localStageFactory.create(
-                    innerPipeline,
-                    plainIn,
-                    plainOut,
-                    mitmHandler,
-                    executor,
-                    capturedOriginHost,
-                    capturedOriginPort),
+                    innerPipeline, mitmHandler, executor, capturedOriginHost, capturedOriginPort),
                 closeCallback);
 
     SSLContext capturedCtx = ctx;
@@ -295,8 +297,9 @@ final class ConnectStage implements Stage {
             new String[] {"http/1.1"},
             ignored -> capturedCtx,
             executor,
-            inputBuffer,
-            outputBuffer);
+            // No handshake deadline for intercepted tunnels; the inner stage's deadlines apply
+            // once the handshake completes.
+            Duration.ZERO);
     parent.replaceWith(ssl);
   }
 
@@ -40,6 +40,10 @@ public final class Http2Endpoint {
     return new Http2Endpoint(new Binding.LocalhostPort(port));
   }
 
+  public static Http2Endpoint inMemory(String name) {
+    return new Http2Endpoint(new Binding.InMemory(name));
+  }
+
   public Http2Endpoint addHost(String hostname, HttpVirtualHost host, SSLInfo sslInfo) {
     Objects.requireNonNull(hostname, "hostname");
     Objects.requireNonNull(host, "host");
@@ -65,8 +69,9 @@ public final class Http2Endpoint {
         /* needsExecutor= */ false,
         (SSLSocketFactory) SSLSocketFactory.getDefault(),
         sslContextProvider,
-        new HttpServerListener() {},
-        new AlpnProtocol[] {AlpnProtocol.HTTP_2});
+        HttpServerListener.NONE,
+        new AlpnProtocol[] {AlpnProtocol.HTTP_2},
+        HttpTimeouts.DEFAULT);
   }
 
   private @Nullable SSLContext getSSLContext(@Nullable String host) {
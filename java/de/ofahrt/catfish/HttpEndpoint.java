@@ -18,7 +18,10 @@ public final class HttpEndpoint {
   private final Map<String, HttpVirtualHost> hosts = new LinkedHashMap<>();
   private @Nullable ConnectHandler connectHandler;
   private @Nullable SSLSocketFactory originSslFactory;
-  private HttpServerListener requestListener = new HttpServerListener() {};
+  private HttpServerListener requestListener = HttpServerListener.NONE;
+  private HttpTimeouts timeouts = HttpTimeouts.DEFAULT;
+  private boolean reusePort;
+  private int maxConnections;
 
   private HttpEndpoint(Binding binding) {
     this.binding = Objects.requireNonNull(binding, "binding");
@@ -39,6 +42,11 @@ public final class HttpEndpoint {
     return new HttpEndpoint(new Binding.UnixSocket(path));
   }
 
+  /** Listen on an in-memory address, for clients in the same JVM. */
+  public static HttpEndpoint inMemory(String name) {
+    return new HttpEndpoint(new Binding.InMemory(name));
+  }
+
   /** Register a virtual host. */
   public HttpEndpoint addHost(String hostname, HttpVirtualHost host) {
     Objects.requireNonNull(hostname, "hostname");
@@ -65,6 +73,47 @@ public final class HttpEndpoint {
     return this;
   }
 
+  /**
+   * Set the per-connection deadlines (keep-alive idle, request header, request body, write stall).
+   * Defaults to {@link HttpTimeouts#DEFAULT}; use {@link HttpTimeouts#NONE} to disable them.
+   */
+  public HttpEndpoint timeouts(HttpTimeouts timeouts) {
+    this.timeouts = Objects.requireNonNull(timeouts, "timeouts");
+    return this;
+  }
+
+  /**
+   * Bind one listener per network thread with SO_REUSEPORT, so the kernel distributes incoming
+   * connections across all network threads instead of funnelling every accept through one. Helps
+   * under connection storms; off by default. Ignored for Unix domain sockets, in-memory addresses,
+   * and on platforms without SO_REUSEPORT.
+   */
+  public HttpEndpoint reusePort(boolean reusePort) {
+    this.reusePort = reusePort;
+    return this;
+  }
+
+  boolean reusePort() {
+    return reusePort;
+  }
+
+  /**
+   * Limit the number of concurrent connections on this endpoint; 0 (the default) means unlimited.
+   * While at the limit, the endpoint stops accepting and new clients wait in the listen backlog
+   * until connections close. The engine-wide limit, if any, applies in addition.
+   */
+  public HttpEndpoint maxConnections(int maxConnections) {
+    if (maxConnections < 0) {
+      throw new IllegalArgumentException("maxConnections must not be negative");
+    }
+    this.maxConnections = maxConnections;
+    return this;
+  }
+
+  int maxConnections() {
+    return maxConnections;
+  }
+
   Binding binding() {
     return binding;
   }
@@ -80,7 +129,8 @@ public final class HttpEndpoint {
         effectiveHandler,
         /* needsExecutor= */ connectHandler != null,
         effectiveOriginFactory,
-        requestListener);
+        requestListener,
+        timeouts);
   }
 
   private ConnectHandler buildConnectHandler() {
@@ -3,13 +3,8 @@ package de.ofahrt.catfish;
 import de.ofahrt.catfish.internal.network.NetworkEngine.NetworkHandler;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
-import de.ofahrt.catfish.model.HttpRequest;
-import de.ofahrt.catfish.model.network.Connection;
 import de.ofahrt.catfish.model.server.ConnectHandler;
-import de.ofahrt.catfish.model.server.HttpHandler;
-import de.ofahrt.catfish.model.server.HttpResponseWriter;
 import de.ofahrt.catfish.model.server.HttpServerListener;
-import java.nio.ByteBuffer;
 import java.util.concurrent.Executor;
 import javax.net.ssl.SSLSocketFactory;
 
@@ -24,6 +19,7 @@ final class HttpServerHandler implements NetworkHandler {
   private final SSLSocketFactory originSocketFactory;
   private final SslInfoCache sslInfoCache = new SslInfoCache();
   private final HttpServerListener serverListener;
+  private final HttpTimeouts timeouts;
 
   private final boolean needsExecutor;
 
@@ -32,12 +28,14 @@ final class HttpServerHandler implements NetworkHandler {
       ConnectHandler connectHandler,
       boolean needsExecutor,
       SSLSocketFactory originSocketFactory,
-      HttpServerListener serverListener) {
+      HttpServerListener serverListener,
+      HttpTimeouts timeouts) {
     this.executor = executor;
     this.connectHandler = connectHandler;
     this.needsExecutor = needsExecutor;
     this.originSocketFactory = originSocketFactory;
     this.serverListener = serverListener;
+    this.timeouts = timeouts;
   }
 
   @Override
@@ -46,24 +44,18 @@ final class HttpServerHandler implements NetworkHandler {
   }
 
   @Override
-  public Stage connect(Pipeline pipeline, ByteBuffer inputBuffer, ByteBuffer outputBuffer) {
+  public Stage connect(Pipeline pipeline) {
+    Executor connectionExecutor = pipeline.workerExecutor(executor);
     return new HttpServerStage(
         pipeline,
-        this::queueRequest,
+        (httpHandler, connection, request, responseWriter) ->
+            RequestQueueDispatcher.dispatch(
+                connectionExecutor, httpHandler, connection, request, responseWriter),
         connectHandler,
         serverListener,
         originSocketFactory,
         sslInfoCache,
-        needsExecutor ? executor : null,
-        inputBuffer,
-        outputBuffer);
-  }
-
-  void queueRequest(
-      HttpHandler httpHandler,
-      Connection connection,
-      HttpRequest request,
-      HttpResponseWriter responseWriter) {
-    RequestQueueDispatcher.dispatch(executor, httpHandler, connection, request, responseWriter);
+        needsExecutor ? connectionExecutor : null,
+        timeouts);
   }
 }
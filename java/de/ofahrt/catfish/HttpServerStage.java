@@ -1,14 +1,17 @@
 package de.ofahrt.catfish;
 
 import de.ofahrt.catfish.http.ChunkedBodyScanner;
+import de.ofahrt.catfish.http.HttpRequestEvent;
 import de.ofahrt.catfish.http.HttpRequestStage;
 import de.ofahrt.catfish.http.HttpResponseGenerator;
 import de.ofahrt.catfish.http.HttpResponseGenerator.ContinuationToken;
+import de.ofahrt.catfish.http.HttpResponseGenerator.FileRegion;
 import de.ofahrt.catfish.http.HttpResponseGeneratorBuffered;
 import de.ofahrt.catfish.http.IncrementalHttpRequestParser;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
-import de.ofahrt.catfish.model.HttpDate;
+import de.ofahrt.catfish.internal.network.TimerWheel.Timeout;
+import de.ofahrt.catfish.model.CoarseClock;
 import de.ofahrt.catfish.model.HttpHeaderName;
 import de.ofahrt.catfish.model.HttpHeaders;
 import de.ofahrt.catfish.model.HttpMethodName;
@@ -23,13 +26,15 @@ import de.ofahrt.catfish.model.server.HttpHandler;
 import de.ofahrt.catfish.model.server.HttpResponseWriter;
 import de.ofahrt.catfish.model.server.HttpServerListener;
 import de.ofahrt.catfish.model.server.RequestAction;
+import de.ofahrt.catfish.model.server.RequestIdGenerator;
 import de.ofahrt.catfish.model.server.RequestOutcome;
 import de.ofahrt.catfish.utils.HttpConnectionHeader;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
-import java.time.Instant;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.Executor;
@@ -39,6 +44,9 @@ import org.jspecify.annotations.Nullable;
 
 final class HttpServerStage implements Stage {
 
+  // How many requests may be dispatched ahead of the one whose response is being written.
+  private static final int MAX_PIPELINED_REQUESTS = 16;
+
   // Incoming data:
   // Socket -> SSL Stage -> HTTP Stage -> Request Queue
   // Flow control:
@@ -69,8 +77,7 @@ final class HttpServerStage implements Stage {
   private final SSLSocketFactory originSocketFactory;
   private final SslInfoCache sslInfoCache;
   private final @Nullable Executor executor;
-  private final ByteBuffer inputBuffer;
-  private final ByteBuffer outputBuffer;
+  private final HttpTimeouts timeouts;
   private final @Nullable String connectHost;
   private final int connectPort;
   private final IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
@@ -92,13 +99,46 @@ final class HttpServerStage implements Stage {
   // a chunked body (Content-Length bodies are bounded at header time). -1 disables enforcement,
   // used for proxy/forward handlers, which pass the body through raw (spec 0002 non-goal).
   private long maxDecodedBodyBytes = -1;
-  private UUID requestId = UUID.randomUUID();
+  private final RequestIdGenerator requestIds;
+  private UUID requestId;
   private @Nullable HttpRequest headersRequest;
   // Encapsulates the NIO↔executor handoff for the routing decision. See
   // AsyncRoutingDispatcher for the thread model and memory-ordering rules.
   private final AsyncRoutingDispatcher routingDispatcher = new AsyncRoutingDispatcher();
+  // Connection deadlines (see HttpTimeouts), scheduled on the selector's timer wheel. At most one
+  // of idle/header is armed at a time; body and write-stall track the two transfer directions.
+  private @Nullable Timeout idleTimeout;
+  private @Nullable Timeout headerTimeout;
+  private @Nullable Timeout bodyTimeout;
+  private @Nullable Timeout writeStallTimeout;
+  // True while the pipeline writes the segments and file region of currentResponseGenerator; it
+  // calls write() again once they are all written. directWriteProgress is the pipeline's byte count
+  // when the write-stall deadline was last armed.
+  private boolean directWritePending;
+  private long directWriteProgress;
+  // True between requests; the first byte of the next request switches from idle to header timeout.
+  private boolean awaitingRequest;
+  // The JFR event of the current request; null unless a recording has it enabled.
+  private @Nullable HttpRequestEvent requestEvent;
+  // Set once a 408 has been queued; any further input is discarded.
+  private boolean timedOut;
 
-  private static final HttpServerListener NO_OP_LISTENER = new HttpServerListener() {};
+  // HTTP/1.1 pipelining: requests that arrive while an earlier response is still pending. Those
+  // that can be served without reading further input (local, synchronously routed, no body) are
+  // dispatched right away, up to MAX_PIPELINED_REQUESTS ahead of the write side; their responses
+  // wait here and are sent strictly in request order.
+  private final ArrayDeque<PipelinedRequest> pipelined = new ArrayDeque<>();
+  // A request parsed ahead that can't be dispatched early. It is processed like a regular request
+  // once all earlier responses are sent; until then, reading stops.
+  private @Nullable PipelinedRequest heldRequest;
+  // True while the parser holds the start of a request that arrived while an earlier response was
+  // still pending. aheadEvent is that request's JFR event.
+  private boolean parsingAhead;
+  private @Nullable HttpRequestEvent aheadEvent;
+  // True if read() paused because the pipeline is full or a request is held; the write side
+  // resumes reading once a response completes.
+  private boolean readAheadPaused;
+  private boolean closed;
 
   HttpServerStage(
       Pipeline parent,
@@ -108,8 +148,7 @@ final class HttpServerStage implements Stage {
       SSLSocketFactory originSocketFactory,
       SslInfoCache sslInfoCache,
       @Nullable Executor executor,
-      ByteBuffer inputBuffer,
-      ByteBuffer outputBuffer) {
+      HttpTimeouts timeouts) {
     this(
         parent,
         requestHandler,
@@ -118,8 +157,7 @@ final class HttpServerStage implements Stage {
         originSocketFactory,
         sslInfoCache,
         executor,
-        inputBuffer,
-        outputBuffer,
+        timeouts,
         null,
         0);
   }
@@ -132,19 +170,19 @@ final class HttpServerStage implements Stage {
       SSLSocketFactory originSocketFactory,
       SslInfoCache sslInfoCache,
       @Nullable Executor executor,
-      ByteBuffer inputBuffer,
-      ByteBuffer outputBuffer,
+      HttpTimeouts timeouts,
       @Nullable String connectHost,
       int connectPort) {
     this.parent = parent;
     this.requestHandler = requestHandler;
     this.connectHandler = connectHandler;
     this.serverListener = serverListener;
+    this.requestIds = serverListener.requestIdGenerator();
+    this.requestId = requestIds.nextId();
     this.originSocketFactory = originSocketFactory;
     this.sslInfoCache = sslInfoCache;
     this.executor = executor;
-    this.inputBuffer = inputBuffer;
-    this.outputBuffer = outputBuffer;
+    this.timeouts = timeouts;
     this.connectHost = connectHost;
     this.connectPort = connectPort;
   }
@@ -152,11 +190,18 @@ final class HttpServerStage implements Stage {
   @Override
   public InitialConnectionState connect(@SuppressWarnings("hiding") Connection connection) {
     this.connection = connection;
+    awaitNextRequest();
     return InitialConnectionState.READ_ONLY;
   }
 
   @Override
   public ConnectionControl read() {
+    if (timedOut) {
+      // A 408 is queued and the connection closes after it; ignore anything else the client sends.
+      ByteBuffer inputBuffer = parent.inputBuffer();
+      inputBuffer.position(inputBuffer.limit());
+      return ConnectionControl.CLOSE_INPUT;
+    }
     // While waiting for the forward-proxy routing decision, buffer bytes in inputBuffer but
     // don't advance any state machine. The decision is consumed from write() (driven by
     // encourageWrites → handleEvent), not from here — the read loop does not iterate when
@@ -170,14 +215,51 @@ final class HttpServerStage implements Stage {
       return readBody();
     }
 
+    boolean ahead = isExchangeInFlight();
+    if (heldRequest != null) {
+      if (ahead) {
+        readAheadPaused = true;
+        return ConnectionControl.PAUSE;
+      }
+      PipelinedRequest held = heldRequest;
+      heldRequest = null;
+      requestId = held.requestId;
+      requestEvent = held.event;
+      HttpRequest headers = Objects.requireNonNull(held.headers, "headers");
+      return held.action != null
+          ? applyRoutingDecision(headers, held.action)
+          : processRequest(headers);
+    }
+    if (ahead && pipelined.size() >= MAX_PIPELINED_REQUESTS) {
+      readAheadPaused = true;
+      return ConnectionControl.PAUSE;
+    }
+
     // Phase 1: header parsing.
     // invariant: inputBuffer is readable
+    ByteBuffer inputBuffer = parent.inputBuffer();
     if (inputBuffer.hasRemaining()) {
+      if (awaitingRequest) {
+        awaitingRequest = false;
+        requestEvent = HttpRequestEvent.start("HTTP/1.1");
+        idleTimeout = cancel(idleTimeout);
+        headerTimeout = arm(headerTimeout, timeouts.headerRead(), this::onHeaderTimeout);
+      } else if (ahead && !parsingAhead) {
+        parsingAhead = true;
+        aheadEvent = HttpRequestEvent.start("HTTP/1.1");
+        headerTimeout = arm(headerTimeout, timeouts.headerRead(), this::onHeaderTimeout);
+      }
       try {
-        int consumed =
-            parser.parse(inputBuffer.array(), inputBuffer.position(), inputBuffer.remaining());
-        inputBuffer.position(inputBuffer.position() + consumed);
+        parser.parse(inputBuffer);
       } catch (MalformedRequestException e) {
+        headerTimeout = cancel(headerTimeout);
+        if (ahead) {
+          // The error response must wait for the responses to the earlier requests.
+          PipelinedRequest failed = takeAheadRequest(null);
+          setPipelinedResponse(failed, errorResponseGenerator(null, e.getErrorResponse()));
+          pipelined.add(failed);
+          return ConnectionControl.CLOSE_INPUT;
+        }
         startBuffered(null, e.getErrorResponse());
         return ConnectionControl.CLOSE_INPUT;
       }
@@ -185,11 +267,22 @@ final class HttpServerStage implements Stage {
     if (!parser.isDone()) {
       return ConnectionControl.CONTINUE;
     }
+    headerTimeout = cancel(headerTimeout);
 
     HttpRequest headers = parser.getRequest();
     parser.reset();
+    if (ahead) {
+      return queueAhead(headers);
+    }
     serverListener.onRequest(requestId, headers);
+    if (requestEvent != null) {
+      requestEvent.headersParsed(headers.getMethod(), headers.getUri());
+    }
+    return processRequest(headers);
+  }
 
+  /** Routes a parsed request and starts serving it; the request's response is the next one. */
+  private ConnectionControl processRequest(HttpRequest headers) {
     // Route based on method/URI.
     if (HttpMethodName.CONNECT.equals(headers.getMethod())) {
       return handleConnect(headers);
@@ -225,7 +318,11 @@ final class HttpServerStage implements Stage {
 
     if (!hasBody) {
       handler.onBodyComplete();
-      return ConnectionControl.PAUSE;
+      // Without a routing executor, keep reading so that requests pipelined behind this one are
+      // dispatched while it is being handled.
+      return executor == null && HttpConnectionHeader.mayKeepAlive(headers)
+          ? ConnectionControl.CONTINUE
+          : ConnectionControl.PAUSE;
     }
 
     // Set up body framing. For chunked bodies, use a scanner (raw passthrough) so both local
@@ -268,6 +365,137 @@ final class HttpServerStage implements Stage {
     return readBody();
   }
 
+  /**
+   * Handles a request that was parsed while earlier responses are still pending. If it can be
+   * served without reading further input, it is routed and dispatched right away and its response
+   * is queued behind the earlier ones. Otherwise it is held, and reading stops until it is its
+   * turn.
+   */
+  private ConnectionControl queueAhead(HttpRequest headers) {
+    PipelinedRequest request = takeAheadRequest(headers);
+    serverListener.onRequest(request.requestId, headers);
+    if (request.event != null) {
+      request.event.headersParsed(headers.getMethod(), headers.getUri());
+    }
+    if (!canDispatchAhead(headers)) {
+      return hold(request);
+    }
+    RequestAction action;
+    try {
+      action = connectHandler.applyLocal(headers);
+    } catch (Exception e) {
+      action = RequestAction.deny();
+    }
+    if (!(action instanceof RequestAction.ServeLocally s)) {
+      request.action = action != null ? action : RequestAction.deny();
+      return hold(request);
+    }
+    Connection conn = Objects.requireNonNull(this.connection, "connection");
+    LocalHttpRequestStage handler =
+        new LocalHttpRequestStage(
+            parent,
+            requestHandler,
+            s.handler(),
+            serverListener,
+            request.requestId,
+            s.uploadPolicy(),
+            s.keepAlivePolicy(),
+            s.compressionPolicy(),
+            conn,
+            gen -> installPipelinedResponse(request, gen));
+    pipelined.add(request);
+    HttpResponse err = handler.onHeaders(headers);
+    if (err != null) {
+      handler.close();
+      setPipelinedResponse(request, errorResponseGenerator(headers, err));
+      return ConnectionControl.PAUSE;
+    }
+    request.handler = handler;
+    handler.onBodyComplete();
+    return HttpConnectionHeader.mayKeepAlive(headers)
+        ? ConnectionControl.CONTINUE
+        : ConnectionControl.PAUSE;
+  }
+
+  /**
+   * Returns true if a request parsed ahead can be dispatched right away: it must be routed
+   * synchronously to a local handler, and must not need further input (a body or an interim
+   * response).
+   */
+  private boolean canDispatchAhead(HttpRequest headers) {
+    if (executor != null
+        || HttpMethodName.CONNECT.equals(headers.getMethod())
+        || headers.getVersion().compareTo(HttpVersion.HTTP_1_1) < 0
+        || isAbsoluteUri(headers.getUri())) {
+      return false;
+    }
+    String cl = headers.getHeaders().get(HttpHeaderName.CONTENT_LENGTH);
+    return (cl == null || "0".equals(cl))
+        && headers.getHeaders().get(HttpHeaderName.TRANSFER_ENCODING) == null
+        && headers.getHeaders().get(HttpHeaderName.EXPECT) == null;
+  }
+
+  private ConnectionControl hold(PipelinedRequest request) {
+    heldRequest = request;
+    readAheadPaused = true;
+    return ConnectionControl.PAUSE;
+  }
+
+  /** Ends parsing ahead and returns the entry for the request that was just parsed. */
+  private PipelinedRequest takeAheadRequest(@Nullable HttpRequest headers) {
+    HttpRequestEvent event = aheadEvent;
+    parsingAhead = false;
+    aheadEvent = null;
+    return new PipelinedRequest(requestIds.nextId(), event, headers);
+  }
+
+  /**
+   * Installs the response to a pipelined request. It waits in its entry unless the request has
+   * become the current one in the meantime.
+   */
+  private void installPipelinedResponse(PipelinedRequest request, HttpResponseGenerator gen) {
+    if (request.current) {
+      installResponseGenerator(gen);
+    } else if (closed) {
+      gen.abort();
+    } else {
+      setPipelinedResponse(request, gen);
+    }
+  }
+
+  private static void setPipelinedResponse(PipelinedRequest request, HttpResponseGenerator gen) {
+    request.generator = gen;
+    recordResponseStarted(request.event, gen);
+  }
+
+  /**
+   * Makes the oldest pipelined request the current one. Returns CONTINUE if its response is ready,
+   * so that it is written right behind the previous one; otherwise, its response writer wakes the
+   * write loop later.
+   */
+  private ConnectionControl startNextPipelined() {
+    PipelinedRequest next = pipelined.remove();
+    next.current = true;
+    requestId = next.requestId;
+    requestEvent = next.event;
+    currentHandler = next.handler;
+    if (readAheadPaused) {
+      readAheadPaused = false;
+      parent.encourageReads();
+    }
+    HttpResponseGenerator gen = next.generator;
+    if (gen == null) {
+      return ConnectionControl.PAUSE;
+    }
+    currentResponseGenerator = gen;
+    keepAlive = gen.keepAlive();
+    return ConnectionControl.CONTINUE;
+  }
+
+  private boolean isExchangeInFlight() {
+    return currentResponseGenerator != null || currentHandler != null || !pipelined.isEmpty();
+  }
+
   /**
    * Routes a request via {@link ConnectHandler#applyProxy} or {@link ConnectHandler#applyLocal}.
    * Absolute URIs are routed through applyProxy (forward proxy). Relative URIs use applyLocal.
@@ -415,6 +643,7 @@ final class HttpServerStage implements Stage {
    */
   private void installResponseGenerator(HttpResponseGenerator gen) {
     this.currentResponseGenerator = gen;
+    recordResponseStarted(requestEvent, gen);
     parent.encourageWrites();
   }
 
@@ -432,7 +661,23 @@ final class HttpServerStage implements Stage {
     }
   }
 
+  /**
+   * Streams body bytes to the current handler and keeps the body inactivity deadline armed while
+   * the body is incomplete and we are waiting on the client (rather than on handler backpressure).
+   */
   private ConnectionControl readBody() {
+    ConnectionControl control = streamBody();
+    if ((contentLengthRemaining >= 0 || chunkedScanner != null)
+        && control != ConnectionControl.PAUSE) {
+      bodyTimeout = arm(bodyTimeout, timeouts.bodyInactivity(), this::onBodyTimeout);
+    } else {
+      bodyTimeout = cancel(bodyTimeout);
+    }
+    return control;
+  }
+
+  private ConnectionControl streamBody() {
+    ByteBuffer inputBuffer = parent.inputBuffer();
     if (!inputBuffer.hasRemaining()) {
       return ConnectionControl.CONTINUE;
     }
@@ -468,11 +713,11 @@ final class HttpServerStage implements Stage {
       // proxy, bytes that must not be spliced into the upstream body) and must stay in the buffer.
       // findEnd is a dry run that does not mutate scanner state; -1 means the body does not end
       // here, so all remaining bytes belong to it.
-      int end = chunkedScanner.findEnd(inputBuffer.array(), pos, len);
+      int end = chunkedScanner.findEnd(inputBuffer, pos, len);
       int available = end >= 0 ? end : len;
       int consumed = handler.onBodyData(inputBuffer.array(), pos, available);
       inputBuffer.position(pos + consumed);
-      chunkedScanner.advance(inputBuffer.array(), pos, consumed);
+      chunkedScanner.advance(inputBuffer, pos, consumed);
       if (chunkedScanner.hasError()) {
         chunkedScanner = null;
         handler.close();
@@ -508,7 +753,7 @@ final class HttpServerStage implements Stage {
 
   @Override
   public void inputClosed() {
-    if (currentResponseGenerator == null && currentHandler == null) {
+    if (!isExchangeInFlight()) {
       parent.close();
     } else {
       keepAlive = false;
@@ -540,20 +785,69 @@ final class HttpServerStage implements Stage {
       // Spurious write() call (no response ready yet). Ignore.
       return ConnectionControl.PAUSE;
     }
-    outputBuffer.compact();
-    ContinuationToken token = gen.generate(outputBuffer);
-    outputBuffer.flip();
+    ContinuationToken token;
+    // If the response to the next pipelined request is ready as well, copy both into the output
+    // buffer so they go out in the same write.
+    PipelinedRequest next = pipelined.peek();
+    boolean batch = next != null && next.generator != null;
+    ByteBuffer[] segments =
+        !directWritePending && parent.canWriteSegments() && !batch ? gen.takeSegments() : null;
+    if (directWritePending) {
+      // The pipeline wrote all segments and the file region; only now is the response complete.
+      directWritePending = false;
+      token = ContinuationToken.STOP;
+    } else if (segments != null) {
+      // Plaintext connection and a fully materialized response: let the network engine write the
+      // head and body directly (gathering write, sendfile) instead of copying them into the output
+      // buffer. It calls write() again once they are written.
+      parent.writeSegments(segments);
+      FileRegion file = gen.takeFileRegion();
+      if (file != null) {
+        parent.transferFile(file.channel(), file.position(), file.count());
+      }
+      directWritePending = true;
+      directWriteProgress = parent.bytesWritten();
+      writeStallTimeout = arm(writeStallTimeout, timeouts.writeStall(), this::onDirectWriteStall);
+      return ConnectionControl.CONTINUE;
+    } else {
+      ByteBuffer outputBuffer = parent.outputBuffer();
+      outputBuffer.compact();
+      token = gen.generate(outputBuffer);
+      outputBuffer.flip();
+    }
     return switch (token) {
-      case CONTINUE -> ConnectionControl.CONTINUE;
-      case PAUSE -> ConnectionControl.PAUSE;
+      case CONTINUE -> {
+        // The output buffer is full; the client has to drain it before the deadline.
+        writeStallTimeout = arm(writeStallTimeout, timeouts.writeStall(), this::onWriteStall);
+        yield ConnectionControl.CONTINUE;
+      }
+      case PAUSE -> {
+        writeStallTimeout = cancel(writeStallTimeout);
+        yield ConnectionControl.PAUSE;
+      }
       case STOP -> {
         currentResponseGenerator = null;
+        writeStallTimeout = cancel(writeStallTimeout);
         if (!gen.isFinal()) {
           parent.log("Sent interim response, resuming body read");
           yield readAndResume();
         }
         notifyRequestComplete(gen.getRequest(), gen.getResponse(), gen.getBodyBytesSent());
-        keepAlive = gen.keepAlive();
+        if (requestEvent != null) {
+          requestEvent.complete();
+          requestEvent = null;
+        }
+        // A response committed before the drain started may still announce keep-alive.
+        keepAlive = gen.keepAlive() && !parent.isDraining();
+        if (contentLengthRemaining >= 0 || chunkedScanner != null) {
+          // The handler responded before the whole request body arrived (e.g., a streaming handler
+          // that rejected it). The rest of the body can't be told apart from the next request.
+          contentLengthRemaining = -1;
+          chunkedScanner = null;
+          headersRequest = null;
+          bodyTimeout = cancel(bodyTimeout);
+          keepAlive = false;
+        }
         // Tear down the body handler if it is still attached; the response is done so any
         // further body bytes are irrelevant.
         if (currentHandler != null) {
@@ -562,8 +856,22 @@ final class HttpServerStage implements Stage {
         }
         parent.log("Completed. keepAlive=%s", Boolean.valueOf(keepAlive));
         if (keepAlive) {
+          if (!pipelined.isEmpty()) {
+            yield startNextPipelined();
+          }
+          readAheadPaused = false;
+          if (parsingAhead) {
+            // The next request already started arriving; its header deadline is armed.
+            parsingAhead = false;
+            requestEvent = aheadEvent;
+            aheadEvent = null;
+          } else if (heldRequest == null) {
+            awaitNextRequest();
+          }
           yield readAndResume();
         } else {
+          // The tail of the response may still be buffered; bound how long we wait for it.
+          writeStallTimeout = arm(writeStallTimeout, timeouts.writeStall(), this::onWriteStall);
           yield ConnectionControl.CLOSE_CONNECTION_AFTER_FLUSH;
         }
       }
@@ -586,8 +894,25 @@ final class HttpServerStage implements Stage {
     };
   }
 
+  @Override
+  public void drain() {
+    // Requests in flight complete with Connection: close; idle connections close now.
+    if (awaitingRequest
+        && currentResponseGenerator == null
+        && currentHandler == null
+        && !routingDispatcher.isPending()) {
+      parent.log("Draining idle connection");
+      parent.close();
+    }
+  }
+
   @Override
   public void close() {
+    closed = true;
+    idleTimeout = cancel(idleTimeout);
+    headerTimeout = cancel(headerTimeout);
+    bodyTimeout = cancel(bodyTimeout);
+    writeStallTimeout = cancel(writeStallTimeout);
     if (currentHandler != null) {
       currentHandler.close();
       currentHandler = null;
@@ -596,6 +921,16 @@ final class HttpServerStage implements Stage {
       currentResponseGenerator.abort();
       currentResponseGenerator = null;
     }
+    for (PipelinedRequest request : pipelined) {
+      if (request.handler != null) {
+        request.handler.close();
+      }
+      if (request.generator != null) {
+        request.generator.abort();
+      }
+    }
+    pipelined.clear();
+    heldRequest = null;
   }
 
   private ConnectionControl handleConnect(HttpRequest request) {
@@ -624,7 +959,7 @@ final class HttpServerStage implements Stage {
     // dispatcher, but with its own buffers and no connect handler (nested CONNECT would be
     // meaningless once TLS is already terminated).
     ConnectStage.LocalStageFactory localFactory =
-        (p, in, out, ch, ex, cHost, cPort) ->
+        (p, ch, ex, cHost, cPort) ->
             new HttpServerStage(
                 p,
                 requestHandler,
@@ -633,17 +968,14 @@ final class HttpServerStage implements Stage {
                 originSocketFactory,
                 sslInfoCache,
                 ex,
-                in,
-                out,
+                timeouts,
                 cHost,
                 cPort);
     parent.replaceWith(
         new ConnectStage(
             parent,
-            inputBuffer,
-            outputBuffer,
             executor,
-            UUID.randomUUID(),
+            requestIds.nextId(),
             parsedHost,
             parsedPort,
             connectHandler,
@@ -653,11 +985,99 @@ final class HttpServerStage implements Stage {
     return ConnectionControl.PAUSE;
   }
 
+  private void awaitNextRequest() {
+    awaitingRequest = true;
+    idleTimeout = arm(idleTimeout, timeouts.keepAliveIdle(), this::onIdleTimeout);
+  }
+
+  private void onIdleTimeout() {
+    idleTimeout = null;
+    parent.log("Keep-alive timeout");
+    parent.close();
+  }
+
+  private void onHeaderTimeout() {
+    headerTimeout = null;
+    parent.log("Request header timeout");
+    if (currentResponseGenerator != null || currentHandler != null) {
+      parent.close();
+      return;
+    }
+    parser.reset();
+    timedOut = true;
+    startBuffered(null, StandardResponses.REQUEST_TIMEOUT);
+  }
+
+  private void onBodyTimeout() {
+    bodyTimeout = null;
+    parent.log("Request body timeout");
+    contentLengthRemaining = -1;
+    chunkedScanner = null;
+    if (currentResponseGenerator != null) {
+      // A response is already underway; we can't interject a 408.
+      parent.close();
+      return;
+    }
+    if (currentHandler != null) {
+      currentHandler.close();
+      currentHandler = null;
+    }
+    timedOut = true;
+    startBuffered(headersRequest, StandardResponses.REQUEST_TIMEOUT);
+    headersRequest = null;
+  }
+
+  private void onWriteStall() {
+    writeStallTimeout = null;
+    parent.log("Write stall timeout");
+    parent.close();
+  }
+
+  /**
+   * Like {@link #onWriteStall}, but write() isn't called while the pipeline writes the segments and
+   * file region directly, so the deadline is extended as long as bytes are being written.
+   */
+  private void onDirectWriteStall() {
+    long written = parent.bytesWritten();
+    if (written != directWriteProgress) {
+      directWriteProgress = written;
+      writeStallTimeout = arm(null, timeouts.writeStall(), this::onDirectWriteStall);
+      return;
+    }
+    onWriteStall();
+  }
+
+  /** Cancels {@code previous} and, unless {@code duration} is zero, schedules a new timeout. */
+  private @Nullable Timeout arm(@Nullable Timeout previous, Duration duration, Runnable onExpiry) {
+    if (previous != null) {
+      previous.cancel();
+    }
+    return duration.isZero() ? null : parent.schedule(duration.toMillis(), onExpiry);
+  }
+
+  private static @Nullable Timeout cancel(@Nullable Timeout timeout) {
+    if (timeout != null) {
+      timeout.cancel();
+    }
+    return null;
+  }
+
   private static boolean isAbsoluteUri(String uri) {
     return uri.startsWith("http://") || uri.startsWith("https://");
   }
 
   private void startBuffered(@Nullable HttpRequest request, HttpResponse responseToWrite) {
+    startResponse(errorResponseGenerator(request, responseToWrite));
+  }
+
+  /** Returns a generator for a buffered response that closes the connection. */
+  private static HttpResponseGenerator errorResponseGenerator(
+      @Nullable HttpRequest request, HttpResponse responseToWrite) {
+    HttpResponseGenerator preEncoded =
+        HttpResponseGeneratorBuffered.createPreEncoded(request, responseToWrite, false);
+    if (preEncoded != null) {
+      return preEncoded;
+    }
     byte[] body = responseToWrite.getBody();
     if (body == null) {
       throw new IllegalArgumentException();
@@ -670,8 +1090,8 @@ final class HttpServerStage implements Stage {
                 HttpHeaderName.CONTENT_LENGTH,
                 Integer.toString(body.length),
                 HttpHeaderName.DATE,
-                HttpDate.formatDate(Instant.now())));
-    startResponse(HttpResponseGeneratorBuffered.create(request, response));
+                CoarseClock.system().httpDate()));
+    return HttpResponseGeneratorBuffered.create(request, response);
   }
 
   private void notifyRequestComplete(
@@ -679,7 +1099,7 @@ final class HttpServerStage implements Stage {
     Objects.requireNonNull(response, "response");
     serverListener.onRequestComplete(
         requestId, connectHost, connectPort, request, RequestOutcome.success(response, bytesSent));
-    requestId = UUID.randomUUID();
+    requestId = requestIds.nextId();
   }
 
   private void startResponse(HttpResponseGenerator gen) {
@@ -687,15 +1107,41 @@ final class HttpServerStage implements Stage {
     this.keepAlive = gen.keepAlive();
     HttpResponse response = gen.getResponse();
     if (response != null) {
-      parent.log(
-          "%s %d %s",
-          response.getProtocolVersion(),
-          Integer.valueOf(response.getStatusCode()),
-          response.getStatusMessage());
+      parent.log("Response %d", response.getStatusCode());
     }
+    recordResponseStarted(requestEvent, gen);
     parent.encourageWrites();
   }
 
+  private static void recordResponseStarted(
+      @Nullable HttpRequestEvent event, HttpResponseGenerator gen) {
+    HttpResponse response = gen.getResponse();
+    if (event != null && response != null && gen.isFinal()) {
+      event.responseStarted(response.getStatusCode());
+    }
+  }
+
+  /** A request parsed while an earlier response was still pending; see {@link #pipelined}. */
+  private static final class PipelinedRequest {
+    final UUID requestId;
+    final @Nullable HttpRequestEvent event;
+    // Null if the request was malformed.
+    final @Nullable HttpRequest headers;
+    // For a held request: the routing decision, if it was already made.
+    @Nullable RequestAction action;
+    @Nullable HttpRequestStage handler;
+    @Nullable HttpResponseGenerator generator;
+    // Set once this request's response is the one being written.
+    boolean current;
+
+    PipelinedRequest(
+        UUID requestId, @Nullable HttpRequestEvent event, @Nullable HttpRequest headers) {
+      this.requestId = requestId;
+      this.event = event;
+      this.headers = headers;
+    }
+  }
+
   private record Origin(String host, int port, boolean useTls) {}
 
   private static @Nullable Origin parseOrigin(HttpRequest request) {
@@ -0,0 +1,63 @@
+package de.ofahrt.catfish;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Per-connection deadlines enforced by the HTTP/1.1 server stage. A zero duration disables the
+ * corresponding deadline.
+ *
+ * @param keepAliveIdle how long a connection may sit idle between requests (including before the
+ *     first request) before it is closed
+ * @param headerRead how long a client may take to send a complete request head, measured from its
+ *     first byte; expiry answers with 408 Request Timeout
+ * @param bodyInactivity how long a request body may stall without new bytes arriving; expiry
+ *     answers with 408 Request Timeout if no response has been started yet
+ * @param writeStall how long a response may stall because the client stops reading; expiry closes
+ *     the connection
+ */
+public record HttpTimeouts(
+    Duration keepAliveIdle, Duration headerRead, Duration bodyInactivity, Duration writeStall) {
+
+  /** Defaults in line with common server configurations. */
+  public static final HttpTimeouts DEFAULT =
+      new HttpTimeouts(
+          Duration.ofSeconds(60),
+          Duration.ofSeconds(30),
+          Duration.ofSeconds(60),
+          Duration.ofSeconds(60));
+
+  /** Disables all deadlines. */
+  public static final HttpTimeouts NONE =
+      new HttpTimeouts(Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+
+  public HttpTimeouts {
+    checkNotNegative(keepAliveIdle, "keepAliveIdle");
+    checkNotNegative(headerRead, "headerRead");
+    checkNotNegative(bodyInactivity, "bodyInactivity");
+    checkNotNegative(writeStall, "writeStall");
+  }
+
+  public HttpTimeouts withKeepAliveIdle(Duration value) {
+    return new HttpTimeouts(value, headerRead, bodyInactivity, writeStall);
+  }
+
+  public HttpTimeouts withHeaderRead(Duration value) {
+    return new HttpTimeouts(keepAliveIdle, value, bodyInactivity, writeStall);
+  }
+
+  public HttpTimeouts withBodyInactivity(Duration value) {
+    return new HttpTimeouts(keepAliveIdle, headerRead, value, writeStall);
+  }
+
+  public HttpTimeouts withWriteStall(Duration value) {
+    return new HttpTimeouts(keepAliveIdle, headerRead, bodyInactivity, value);
+  }
+
+  private static void checkNotNegative(Duration value, String name) {
+    Objects.requireNonNull(value, name);
+    if (value.isNegative()) {
+      throw new IllegalArgumentException(name + " must not be negative");
+    }
+  }
+}
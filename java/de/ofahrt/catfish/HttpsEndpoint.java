@@ -21,7 +21,10 @@ public final class HttpsEndpoint {
   private final Map<String, SSLInfo> sslInfos = new LinkedHashMap<>();
   private @Nullable ConnectHandler connectHandler;
   private @Nullable SSLSocketFactory originSslFactory;
-  private HttpServerListener requestListener = new HttpServerListener() {};
+  private HttpServerListener requestListener = HttpServerListener.NONE;
+  private HttpTimeouts timeouts = HttpTimeouts.DEFAULT;
+  private boolean reusePort;
+  private int maxConnections;
   // Advertised ALPN protocols in preference order. Default is HTTP/1.1 only, byte-for-byte the
   // historical behaviour, so a default HttpsEndpoint is non-breaking. Opt into HTTP/2 via
   // protocols(...).
@@ -46,6 +49,11 @@ public final class HttpsEndpoint {
     return new HttpsEndpoint(new Binding.UnixSocket(path));
   }
 
+  /** Listen on an in-memory address, for clients in the same JVM. */
+  public static HttpsEndpoint inMemory(String name) {
+    return new HttpsEndpoint(new Binding.InMemory(name));
+  }
+
   /**
    * Register a virtual host with its TLS certificate. The certificate must cover the hostname
    * (checked via SAN/CN matching at registration time).
@@ -119,6 +127,47 @@ public final class HttpsEndpoint {
     return this;
   }
 
+  /**
+   * Set the per-connection deadlines (keep-alive idle, request header, request body, write stall).
+   * Defaults to {@link HttpTimeouts#DEFAULT}; use {@link HttpTimeouts#NONE} to disable them.
+   */
+  public HttpsEndpoint timeouts(HttpTimeouts timeouts) {
+    this.timeouts = Objects.requireNonNull(timeouts, "timeouts");
+    return this;
+  }
+
+  /**
+   * Bind one listener per network thread with SO_REUSEPORT, so the kernel distributes incoming
+   * connections across all network threads instead of funnelling every accept through one. Helps
+   * under connection storms; off by default. Ignored for Unix domain sockets, in-memory addresses,
+   * and on platforms without SO_REUSEPORT.
+   */
+  public HttpsEndpoint reusePort(boolean reusePort) {
+    this.reusePort = reusePort;
+    return this;
+  }
+
+  boolean reusePort() {
+    return reusePort;
+  }
+
+  /**
+   * Limit the number of concurrent connections on this endpoint; 0 (the default) means unlimited.
+   * While at the limit, the endpoint stops accepting and new clients wait in the listen backlog
+   * until connections close. The engine-wide limit, if any, applies in addition.
+   */
+  public HttpsEndpoint maxConnections(int maxConnections) {
+    if (maxConnections < 0) {
+      throw new IllegalArgumentException("maxConnections must not be negative");
+    }
+    this.maxConnections = maxConnections;
+    return this;
+  }
+
+  int maxConnections() {
+    return maxConnections;
+  }
+
   Binding binding() {
     return binding;
   }
@@ -137,7 +186,8 @@ public final class HttpsEndpoint {
         effectiveOriginFactory,
         sslContextProvider,
         requestListener,
-        protocols);
+        protocols,
+        timeouts);
   }
 
   private ConnectHandler buildConnectHandler() {
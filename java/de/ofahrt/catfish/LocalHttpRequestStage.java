@@ -1,15 +1,17 @@
 package de.ofahrt.catfish;
 
 import de.ofahrt.catfish.HttpServerStage.RequestQueue;
+import de.ofahrt.catfish.http.ChunkedDecodingInputStream;
 import de.ofahrt.catfish.http.ChunkedDecodingOutputStream;
 import de.ofahrt.catfish.http.CompressingResponseWriter;
 import de.ofahrt.catfish.http.GzipRequestBodyDecoder;
 import de.ofahrt.catfish.http.HttpRequestStage;
 import de.ofahrt.catfish.http.HttpResponseGenerator;
 import de.ofahrt.catfish.http.HttpResponseGeneratorBuffered;
+import de.ofahrt.catfish.http.HttpResponseGeneratorFile;
 import de.ofahrt.catfish.http.HttpResponseGeneratorStreamed;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
-import de.ofahrt.catfish.model.HttpDate;
+import de.ofahrt.catfish.model.CoarseClock;
 import de.ofahrt.catfish.model.HttpHeaderName;
 import de.ofahrt.catfish.model.HttpHeaders;
 import de.ofahrt.catfish.model.HttpMethodName;
@@ -27,10 +29,11 @@ import de.ofahrt.catfish.model.server.UploadPolicy;
 import de.ofahrt.catfish.utils.HttpConnectionHeader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -40,6 +43,11 @@ import org.jspecify.annotations.Nullable;
 /**
  * Handles a local HTTP request: buffers the body, dispatches to an {@link
  * de.ofahrt.catfish.model.server.HttpHandler} on the executor thread, and generates the response.
+ *
+ * <p>If the handler {@linkplain HttpHandler#streamsRequestBody streams request bodies}, it is
+ * dispatched when the first body bytes arrive instead. The raw bytes then go through a {@link
+ * PipeBuffer}, and the handler's thread de-chunks and inflates them as it reads; a full pipe pauses
+ * reading from the connection until the handler catches up.
  */
 final class LocalHttpRequestStage implements HttpRequestStage {
 
@@ -64,8 +72,15 @@ final class LocalHttpRequestStage implements HttpRequestStage {
   private @Nullable HttpRequest headers;
   private final ByteArrayOutputStream bodyBuffer = new ByteArrayOutputStream();
   // Set in onHeaders when Content-Encoding is gzip/x-gzip: the body is gunzipped in onBodyComplete
-  // before dispatch, and Content-Encoding is stripped from the handler-visible request.
+  // before dispatch (or while the handler reads it), and Content-Encoding is stripped from the
+  // handler-visible request.
   private boolean decodeGzip;
+  // Set in onHeaders if the handler streams the request body; otherwise, the body is buffered.
+  private @Nullable PipeBuffer bodyPipe;
+  private boolean dispatched;
+  // Set in close(). A streaming handler may still respond afterwards, e.g., after the server sent a
+  // 413 for its body; that response is dropped.
+  private boolean closed;
 
   LocalHttpRequestStage(
       Pipeline parent,
@@ -93,7 +108,7 @@ final class LocalHttpRequestStage implements HttpRequestStage {
   @Override
   public @Nullable HttpResponse onHeaders(HttpRequest headers) {
     this.headers = headers;
-    parent.log("%s %s %s", headers.getMethod(), headers.getUri(), headers.getVersion());
+    parent.log("Request %s", headers.getMethod());
     // Content-coding: accept gzip/x-gzip (decoded below) and identity; reject anything else with
     // 415. Parsed before the size checks because it decides whether Content-Length is the decoded
     // size (see below).
@@ -140,11 +155,24 @@ final class LocalHttpRequestStage implements HttpRequestStage {
       }
       return StandardResponses.BAD_REQUEST;
     }
+    if (hasBody && handler.streamsRequestBody()) {
+      bodyPipe = new PipeBuffer(() -> parent.queue(parent::encourageReads));
+    }
     return null;
   }
 
   @Override
   public int onBodyData(byte[] data, int offset, int length) {
+    PipeBuffer pipe = bodyPipe;
+    if (pipe != null) {
+      if (!dispatched) {
+        // Not in onHeaders: the body only starts after a 100 Continue has been sent, and the
+        // handler's response must not race with it.
+        dispatched = true;
+        dispatch(buildStreamingRequest(pipe));
+      }
+      return pipe.tryWrite(data, offset, length);
+    }
     bodyBuffer.write(data, offset, length);
     return length;
   }
@@ -152,6 +180,10 @@ final class LocalHttpRequestStage implements HttpRequestStage {
   @Override
   @SuppressWarnings("NullAway") // headers is non-null after onHeaders
   public void onBodyComplete() {
+    if (dispatched) {
+      bodyPipe.closeWrite();
+      return;
+    }
     HttpRequest fullRequest;
     if (bodyBuffer.size() > 0) {
       byte[] rawBody = bodyBuffer.toByteArray();
@@ -182,10 +214,39 @@ final class LocalHttpRequestStage implements HttpRequestStage {
     } else {
       fullRequest = headers;
     }
+    dispatch(fullRequest);
+  }
+
+  private void dispatch(HttpRequest request) {
     HttpResponseWriter writer =
         new CompressingResponseWriter(
-            new ResponseWriterImpl(fullRequest, keepAlivePolicy), fullRequest, compressionPolicy);
-    requestHandler.queueRequest(handler, connection, fullRequest, writer);
+            new ResponseWriterImpl(request, keepAlivePolicy), request, compressionPolicy);
+    requestHandler.queueRequest(handler, connection, request, writer);
+  }
+
+  /**
+   * Builds the handler-visible request whose body is read from {@code pipe}. The body is
+   * transfer-decoded, then content-decoded, as the handler reads it. When it is gzip-decoded,
+   * strips {@code Content-Encoding} and {@code Content-Length}, since the decoded length is not
+   * known upfront. The decoded ceiling of a gzip body is enforced by the stream; that of a chunked
+   * body is enforced as it arrives, and a {@code Content-Length} was checked in {@link #onHeaders}.
+   */
+  @SuppressWarnings("NullAway") // headers is non-null after onHeaders
+  private HttpRequest buildStreamingRequest(PipeBuffer pipe) {
+    HttpRequest request = headers;
+    InputStream in = pipe.inputStream();
+    String te = request.getHeaders().get(HttpHeaderName.TRANSFER_ENCODING);
+    if (te != null && "chunked".equalsIgnoreCase(te)) {
+      in = new ChunkedDecodingInputStream(in);
+    }
+    if (decodeGzip) {
+      in = GzipRequestBodyDecoder.decodingStream(in, uploadPolicy.maxDecodedBytes(request));
+      request =
+          request
+              .withoutHeader(HttpHeaderName.CONTENT_ENCODING)
+              .withoutHeader(HttpHeaderName.CONTENT_LENGTH);
+    }
+    return request.withBody(new HttpRequest.StreamingBody(in));
   }
 
   /**
@@ -215,6 +276,12 @@ final class LocalHttpRequestStage implements HttpRequestStage {
    */
   @SuppressWarnings("NullAway") // headers is non-null after onHeaders
   private void sendError(HttpResponse errorResponse) {
+    HttpResponseGeneratorBuffered preEncoded =
+        HttpResponseGeneratorBuffered.createPreEncoded(headers, errorResponse, false);
+    if (preEncoded != null) {
+      installResponse(preEncoded);
+      return;
+    }
     byte[] body = errorResponse.getBody();
     if (body == null) {
       body = EMPTY_BODY;
@@ -227,23 +294,29 @@ final class LocalHttpRequestStage implements HttpRequestStage {
                 HttpHeaderName.CONTENT_LENGTH,
                 Integer.toString(body.length),
                 HttpHeaderName.DATE,
-                HttpDate.formatDate(Instant.now())));
+                CoarseClock.system().httpDate()));
     installResponse(HttpResponseGeneratorBuffered.create(headers, response));
   }
 
   @Override
-  public void close() {}
+  public void close() {
+    closed = true;
+    if (bodyPipe != null) {
+      // Unblocks a handler still reading the body.
+      bodyPipe.abort();
+    }
+  }
 
   // ---- Response plumbing ----
 
   @SuppressWarnings("NullAway") // response is non-null when installResponse is called
   private void installResponse(HttpResponseGenerator gen) {
+    if (closed) {
+      gen.abort();
+      return;
+    }
     HttpResponse response = gen.getResponse();
-    parent.log(
-        "%s %d %s",
-        response.getProtocolVersion(),
-        Integer.valueOf(response.getStatusCode()),
-        response.getStatusMessage());
+    parent.log("Response %d", response.getStatusCode());
     responseInstaller.install(gen);
   }
 
@@ -270,8 +343,8 @@ final class LocalHttpRequestStage implements HttpRequestStage {
   }
 
   /**
-   * Response writer that commits buffered or streamed responses. Queues the response generator back
-   * to the NIO thread via {@link Pipeline#queue}.
+   * Response writer that commits buffered, streamed, or file responses. Queues the response
+   * generator back to the NIO thread via {@link Pipeline#queue}.
    */
   private final class ResponseWriterImpl implements HttpResponseWriter {
 
@@ -305,6 +378,13 @@ final class LocalHttpRequestStage implements HttpRequestStage {
       if (!committed.compareAndSet(false, true)) {
         throw new IllegalStateException("This response is already committed");
       }
+      HttpResponseGeneratorBuffered preEncoded =
+          HttpResponseGeneratorBuffered.createPreEncoded(
+              request, responseToWrite, shouldKeepAlive());
+      if (preEncoded != null) {
+        parent.queue(() -> installResponse(preEncoded));
+        return;
+      }
       if (!bodyAllowed) {
         responseToWrite =
             responseToWrite
@@ -320,7 +400,7 @@ final class LocalHttpRequestStage implements HttpRequestStage {
       overrides.put(
           HttpHeaderName.CONNECTION,
           shouldKeepAlive() ? HttpConnectionHeader.KEEP_ALIVE : HttpConnectionHeader.CLOSE);
-      overrides.put(HttpHeaderName.DATE, HttpDate.formatDate(Instant.now()));
+      overrides.put(HttpHeaderName.DATE, CoarseClock.system().httpDate());
       if (bodyAllowed) {
         overrides.put(HttpHeaderName.CONTENT_LENGTH, Integer.toString(body.length));
       }
@@ -355,7 +435,7 @@ final class LocalHttpRequestStage implements HttpRequestStage {
       overrides.put(
           HttpHeaderName.CONNECTION,
           shouldKeepAlive() ? HttpConnectionHeader.KEEP_ALIVE : HttpConnectionHeader.CLOSE);
-      overrides.put(HttpHeaderName.DATE, HttpDate.formatDate(Instant.now()));
+      overrides.put(HttpHeaderName.DATE, CoarseClock.system().httpDate());
       responseToWrite = responseToWrite.withHeaderOverrides(HttpHeaders.of(overrides));
       boolean headRequest = HttpMethodName.HEAD.equals(request.getMethod());
       HttpResponseGeneratorStreamed gen =
@@ -370,6 +450,45 @@ final class LocalHttpRequestStage implements HttpRequestStage {
       return gen.getOutputStream();
     }
 
+    @Override
+    public void commitFile(
+        HttpResponse responseToWrite, FileChannel file, long position, long length)
+        throws IOException {
+      try {
+        if (responseToWrite.getHeaders().containsKey(HttpHeaderName.TRANSFER_ENCODING)) {
+          throw new IllegalArgumentException("File responses must not set Transfer-Encoding");
+        }
+        if (!HttpStatusCode.mayHaveBody(responseToWrite.getStatusCode())) {
+          throw new IllegalArgumentException(
+              String.format(
+                  "Responses with status code %d are not allowed to have a body",
+                  Integer.valueOf(responseToWrite.getStatusCode())));
+        }
+        HttpResponseWriter.checkFileRegion(file, position, length);
+        if (!committed.compareAndSet(false, true)) {
+          throw new IllegalStateException("This response is already committed");
+        }
+      } catch (IOException | RuntimeException e) {
+        file.close();
+        throw e;
+      }
+
+      Map<String, String> overrides = new HashMap<>();
+      overrides.put(
+          HttpHeaderName.CONNECTION,
+          shouldKeepAlive() ? HttpConnectionHeader.KEEP_ALIVE : HttpConnectionHeader.CLOSE);
+      overrides.put(HttpHeaderName.DATE, CoarseClock.system().httpDate());
+      overrides.put(HttpHeaderName.CONTENT_LENGTH, Long.toString(length));
+      responseToWrite =
+          responseToWrite.withHeaderOverrides(HttpHeaders.of(overrides)).withBody(EMPTY_BODY);
+      boolean headRequest = HttpMethodName.HEAD.equals(request.getMethod());
+      HttpResponseGeneratorFile gen =
+          headRequest
+              ? HttpResponseGeneratorFile.createForHead(request, responseToWrite, file)
+              : HttpResponseGeneratorFile.create(request, responseToWrite, file, position, length);
+      parent.queue(() -> installResponse(gen));
+    }
+
     @Override
     public void abort() {
       if (committed.compareAndSet(false, true)) {
@@ -387,7 +506,7 @@ final class LocalHttpRequestStage implements HttpRequestStage {
                         HttpHeaderName.CONTENT_LENGTH,
                         Integer.toString(body.length),
                         HttpHeaderName.DATE,
-                        HttpDate.formatDate(Instant.now())))
+                        CoarseClock.system().httpDate()))
                 .withBody(body);
         boolean headRequest = HttpMethodName.HEAD.equals(request.getMethod());
         HttpResponseGeneratorBuffered gen =
@@ -406,7 +525,9 @@ final class LocalHttpRequestStage implements HttpRequestStage {
     }
 
     private boolean shouldKeepAlive() {
-      return HttpConnectionHeader.mayKeepAlive(request) && keepAlivePolicy.allowsKeepAlive();
+      return HttpConnectionHeader.mayKeepAlive(request)
+          && keepAlivePolicy.allowsKeepAlive()
+          && !parent.isDraining();
     }
   }
 }
@@ -3,6 +3,7 @@ package de.ofahrt.catfish;
 import de.ofahrt.catfish.client.IncrementalHttpResponseParser;
 import de.ofahrt.catfish.http.ChunkedBodyScanner;
 import de.ofahrt.catfish.http.ChunkedDecodingOutputStream;
+import de.ofahrt.catfish.model.CoarseClock;
 import de.ofahrt.catfish.model.HttpHeaderName;
 import de.ofahrt.catfish.model.HttpHeaders;
 import de.ofahrt.catfish.model.HttpRequest;
@@ -16,9 +17,6 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -239,7 +237,7 @@ final class OriginForwarder {
               HttpHeaderName.CONNECTION,
               keepAlive ? "keep-alive" : "close",
               HttpHeaderName.DATE,
-              DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+              CoarseClock.system().httpDate());
 
       HttpResponse forwardedResponse = originResponse.withHeaderOverrides(dateAndConnection);
       boolean includeBody = !noBody && (responseCl != null || chunkedResponse || !originKeepAlive);
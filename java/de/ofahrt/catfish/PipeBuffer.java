@@ -1,5 +1,8 @@
 package de.ofahrt.catfish;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -7,10 +10,14 @@ import java.util.concurrent.locks.ReentrantLock;
  * Bounded concurrent byte ring buffer for NIO→executor request body streaming.
  *
  * <p>The NIO thread writes via {@link #tryWrite} (non-blocking) and signals body-end via {@link
- * #closeWrite}. The executor thread reads via {@link #read} (blocking until data or EOF).
+ * #closeWrite}. The executor thread reads via {@link #read} (blocking until data or EOF), or via
+ * the stream returned by {@link #inputStream}.
  */
 final class PipeBuffer {
   private static final int CAPACITY = 65536;
+  private static final Runnable NO_OP = () -> {};
+
+  private final Runnable spaceListener;
 
   private final byte[] buffer = new byte[CAPACITY];
   private int readPos;
@@ -18,10 +25,24 @@ final class PipeBuffer {
   private int count;
   private boolean writeClosed;
   private boolean aborted;
+  // A tryWrite could not write everything; the next read that makes room notifies the listener.
+  private boolean writerStalled;
 
   private final ReentrantLock lock = new ReentrantLock();
   private final Condition notEmpty = lock.newCondition();
 
+  PipeBuffer() {
+    this(NO_OP);
+  }
+
+  /**
+   * Creates a buffer that runs {@code spaceListener} on the reading thread when a read makes room
+   * after a {@link #tryWrite} could not write everything, so that the writer can resume.
+   */
+  PipeBuffer(Runnable spaceListener) {
+    this.spaceListener = spaceListener;
+  }
+
   /**
    * Called from NIO thread. Non-blocking. Returns number of bytes actually written (may be less
    * than {@code len} or 0 if the buffer is full).
@@ -30,10 +51,13 @@ final class PipeBuffer {
     lock.lock();
     try {
       int space = CAPACITY - count;
+      int toWrite = Math.min(space, len);
+      if (toWrite < len) {
+        writerStalled = true;
+      }
       if (space == 0) {
         return 0;
       }
-      int toWrite = Math.min(space, len);
       int firstPart = Math.min(toWrite, CAPACITY - writePos);
       System.arraycopy(src, off, buffer, writePos, firstPart);
       if (firstPart < toWrite) {
@@ -56,6 +80,8 @@ final class PipeBuffer {
    * read (at least 1).
    */
   int read(byte[] dst, int off, int len) throws InterruptedException {
+    boolean notifyWriter;
+    int toRead;
     lock.lock();
     try {
       while (count == 0 && !writeClosed && !aborted) {
@@ -67,7 +93,7 @@ final class PipeBuffer {
       if (count == 0) {
         return -1; // EOF
       }
-      int toRead = Math.min(count, len);
+      toRead = Math.min(count, len);
       int firstPart = Math.min(toRead, CAPACITY - readPos);
       System.arraycopy(buffer, readPos, dst, off, firstPart);
       if (firstPart < toRead) {
@@ -75,7 +101,66 @@ final class PipeBuffer {
       }
       readPos = (readPos + toRead) % CAPACITY;
       count -= toRead;
-      return toRead;
+      notifyWriter = writerStalled && toRead > 0;
+      if (notifyWriter) {
+        writerStalled = false;
+      }
+    } finally {
+      lock.unlock();
+    }
+    if (notifyWriter) {
+      spaceListener.run();
+    }
+    return toRead;
+  }
+
+  /**
+   * Returns a blocking stream over the read side. Unlike {@link #read}, the stream fails with an
+   * {@link IOException} instead of returning EOF if the buffer was aborted.
+   */
+  InputStream inputStream() {
+    return new InputStream() {
+      private final byte[] single = new byte[1];
+
+      @Override
+      public int read() throws IOException {
+        return read(single, 0, 1) < 0 ? -1 : (single[0] & 0xff);
+      }
+
+      @Override
+      public int read(byte[] dst, int off, int len) throws IOException {
+        if (len == 0) {
+          return 0;
+        }
+        int n;
+        try {
+          n = PipeBuffer.this.read(dst, off, len);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while reading the request body");
+        }
+        if (n < 0 && isAborted()) {
+          throw new IOException("Connection closed before the request body was complete");
+        }
+        return n;
+      }
+
+      @Override
+      public int available() {
+        lock.lock();
+        try {
+          return count;
+        } finally {
+          lock.unlock();
+        }
+      }
+    };
+  }
+
+  private boolean isAborted() {
+    lock.lock();
+    try {
+      return aborted;
     } finally {
       lock.unlock();
     }
@@ -125,6 +210,7 @@ final class PipeBuffer {
       count = 0;
       writeClosed = false;
       aborted = false;
+      writerStalled = false;
     } finally {
       lock.unlock();
     }
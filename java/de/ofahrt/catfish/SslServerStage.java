@@ -1,10 +1,14 @@
 package de.ofahrt.catfish;
 
+import de.ofahrt.catfish.internal.network.BufferPool;
+import de.ofahrt.catfish.internal.network.FlightRecorder;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
+import de.ofahrt.catfish.internal.network.TimerWheel.Timeout;
 import de.ofahrt.catfish.model.network.Connection;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.concurrent.Executor;
 import javax.net.ssl.SSLContext;
@@ -24,18 +28,14 @@ final class SslServerStage implements Stage {
   /**
    * Factory for creating the inner (plaintext) stage. Receives the inner {@link Pipeline} whose
    * {@link Pipeline#replaceWith} updates this {@code SslServerStage}'s inner stage instead of
-   * replacing the outer SSL wrapper, the plaintext buffers allocated by the SSL stage, and the ALPN
-   * protocol negotiated during the TLS handshake ({@code ""} if none was negotiated). The factory
-   * is invoked once the handshake completes — not in the constructor — so the negotiated protocol
-   * is known and the factory can install the matching inner stage.
+   * replacing the outer SSL wrapper and whose buffers are the plaintext buffers of the SSL stage,
+   * and the ALPN protocol negotiated during the TLS handshake ({@code ""} if none was negotiated).
+   * The factory is invoked once the handshake completes — not in the constructor — so the
+   * negotiated protocol is known and the factory can install the matching inner stage.
    */
   @FunctionalInterface
   interface InnerStageFactory {
-    Stage create(
-        Pipeline innerPipeline,
-        ByteBuffer inputBuffer,
-        ByteBuffer outputBuffer,
-        String negotiatedProtocol);
+    Stage create(Pipeline innerPipeline, String negotiatedProtocol);
   }
 
   static final byte[] UNRECOGNIZED_NAME_ALERT = {0x15, 0x03, 0x01, 0x00, 0x02, 0x02, 0x70};
@@ -52,16 +52,17 @@ final class SslServerStage implements Stage {
   private final InnerStageFactory innerStageFactory;
   private final String[] alpnProtocols;
   private final Executor taskExecutor;
+  private final Duration handshakeTimeout;
   private final Pipeline parent;
   private final Pipeline innerPipeline;
   // Null until the TLS handshake completes and the inner stage is created from the negotiated ALPN
   // protocol. Every pre-handshake use of the inner stage must guard for this window.
   private @Nullable Stage next;
   private @Nullable Connection connection;
-  private final ByteBuffer netInputBuffer;
-  private final ByteBuffer netOutputBuffer;
-  private final ByteBuffer inputBuffer;
-  private final ByteBuffer outputBuffer;
+  // Plaintext buffers, taken from the selector's pool on demand and returned once drained, like
+  // the network buffers of the outer pipeline. Only accessed on the selector thread.
+  private @Nullable ByteBuffer inputBuffer;
+  private @Nullable ByteBuffer outputBuffer;
   private @Nullable InitialConnectionState postHandshakeState;
   private FlowStatus status = FlowStatus.FIND_SNI;
   private @Nullable SSLEngine sslEngine;
@@ -70,6 +71,10 @@ final class SslServerStage implements Stage {
   // while we still have plaintext to wrap. The CLOSING state returns this value once the
   // plaintext buffer has been fully drained through wrap().
   private @Nullable ConnectionControl pendingClose;
+  // Bounds the time from connect to handshake completion; null once the handshake is done.
+  private @Nullable Timeout handshakeDeadline;
+  // Null unless a JFR recording has the event enabled; committed when the handshake ends.
+  private @Nullable TlsHandshakeEvent handshakeEvent;
 
   public SslServerStage(
       Pipeline parent,
@@ -77,31 +82,64 @@ final class SslServerStage implements Stage {
       String[] alpnProtocols,
       SSLContextProvider contextProvider,
       Executor taskExecutor,
-      ByteBuffer netInputBuffer,
-      ByteBuffer netOutputBuffer) {
+      Duration handshakeTimeout) {
     this.contextProvider = contextProvider;
     this.innerStageFactory = innerStageFactory;
     this.alpnProtocols = alpnProtocols;
     this.taskExecutor = taskExecutor;
+    this.handshakeTimeout = handshakeTimeout;
     this.parent = parent;
-    this.netInputBuffer = netInputBuffer;
-    this.netOutputBuffer = netOutputBuffer;
-    this.inputBuffer = flippedEmpty(65536);
-    this.outputBuffer = flippedEmpty(65536);
     this.innerPipeline = new InnerPipeline();
     // The inner stage is created later, at handshake completion, once the negotiated ALPN protocol
     // is known (see createInnerStage()).
   }
 
-  private static ByteBuffer flippedEmpty(int capacity) {
-    ByteBuffer b = ByteBuffer.allocate(capacity);
-    b.flip();
-    return b;
+  private ByteBuffer plainInputBuffer() {
+    ByteBuffer result = inputBuffer;
+    if (result == null) {
+      result = parent.bufferPool().acquire();
+      inputBuffer = result;
+    }
+    return result;
+  }
+
+  private ByteBuffer plainOutputBuffer() {
+    ByteBuffer result = outputBuffer;
+    if (result == null) {
+      result = parent.bufferPool().acquire();
+      outputBuffer = result;
+    }
+    return result;
+  }
+
+  private void releaseDrainedBuffers() {
+    if (inputBuffer != null && !inputBuffer.hasRemaining()) {
+      parent.bufferPool().release(inputBuffer);
+      inputBuffer = null;
+    }
+    if (outputBuffer != null && !outputBuffer.hasRemaining()) {
+      parent.bufferPool().release(outputBuffer);
+      outputBuffer = null;
+    }
   }
 
   @Override
   public InitialConnectionState connect(Connection connection) {
     this.connection = connection;
+    TlsHandshakeEvent event = new TlsHandshakeEvent();
+    if (event.isEnabled()) {
+      event.begin();
+      handshakeEvent = event;
+    }
+    if (!handshakeTimeout.isZero()) {
+      handshakeDeadline =
+          parent.schedule(
+              handshakeTimeout.toMillis(),
+              () -> {
+                parent.log("SSL handshake timeout");
+                parent.close();
+              });
+    }
     // The inner stage doesn't exist yet: it is created at handshake completion, when the negotiated
     // ALPN protocol is known, and connected there (see createInnerStage()). Until then we only ever
     // read (the TLS handshake), so start READ_ONLY.
@@ -116,9 +154,7 @@ final class SslServerStage implements Stage {
    */
   private void createInnerStage(SSLEngine engine) {
     String negotiated = engine.getApplicationProtocol();
-    Stage inner =
-        innerStageFactory.create(
-            innerPipeline, inputBuffer, outputBuffer, negotiated == null ? "" : negotiated);
+    Stage inner = innerStageFactory.create(innerPipeline, negotiated == null ? "" : negotiated);
     this.next = inner;
     Connection conn = Objects.requireNonNull(connection, "connect() not called before handshake");
     postHandshakeState = inner.connect(conn);
@@ -126,8 +162,9 @@ final class SslServerStage implements Stage {
 
   /**
    * A {@link Pipeline} wrapper that intercepts {@link #replaceWith} to swap the inner stage of this
-   * {@code SslServerStage} rather than replacing the outer SSL wrapper on the real pipeline. All
-   * other methods delegate to the outer {@link #parent}.
+   * {@code SslServerStage} rather than replacing the outer SSL wrapper on the real pipeline, and
+   * hands out the plaintext buffers instead of the network buffers. All other methods delegate to
+   * the outer {@link #parent}.
    */
   private class InnerPipeline implements Pipeline {
     @Override
@@ -153,24 +190,47 @@ final class SslServerStage implements Stage {
       // If the plaintext buffer has data that the inner stage hasn't consumed (e.g., it returned
       // PAUSE due to pipe backpressure), retry next.read() directly. The outer SocketHandler's
       // read loop won't fire if the network buffer is empty (all TLS records already unwrapped).
-      if (status == FlowStatus.OPEN && inputBuffer.hasRemaining()) {
-        // In OPEN the inner stage exists (created at handshake completion).
-        Stage inner = Objects.requireNonNull(next, "inner stage in OPEN state");
-        parent.queue(
-            () -> {
-              try {
-                ConnectionControl cc = inner.read();
-                if (cc == ConnectionControl.CONTINUE || cc == ConnectionControl.NEED_MORE_DATA) {
-                  parent.encourageReads();
-                }
-                // If PAUSE: the inner stage will encourageReads again when ready.
-              } catch (IOException e) {
-                parent.close();
+      // This may be called from any thread, so check the plaintext buffer on the selector thread.
+      parent.queue(
+          () -> {
+            ByteBuffer plainInput = inputBuffer;
+            if (status != FlowStatus.OPEN || plainInput == null || !plainInput.hasRemaining()) {
+              parent.encourageReads();
+              return;
+            }
+            // In OPEN the inner stage exists (created at handshake completion).
+            Stage inner = Objects.requireNonNull(next, "inner stage in OPEN state");
+            try {
+              ConnectionControl cc = inner.read();
+              if (cc == ConnectionControl.CONTINUE || cc == ConnectionControl.NEED_MORE_DATA) {
+                parent.encourageReads();
               }
-            });
-      } else {
-        parent.encourageReads();
-      }
+              // If PAUSE: the inner stage will encourageReads again when ready.
+            } catch (IOException e) {
+              parent.close();
+            }
+            releaseDrainedBuffers();
+          });
+    }
+
+    @Override
+    public ByteBuffer inputBuffer() {
+      return plainInputBuffer();
+    }
+
+    @Override
+    public ByteBuffer outputBuffer() {
+      return plainOutputBuffer();
+    }
+
+    @Override
+    public BufferPool bufferPool() {
+      return parent.bufferPool();
+    }
+
+    @Override
+    public Timeout schedule(long delayMillis, Runnable task) {
+      return parent.schedule(delayMillis, task);
     }
 
     @Override
@@ -184,13 +244,31 @@ final class SslServerStage implements Stage {
     }
 
     @Override
-    public void log(String text, Object... params) {
-      parent.log(text, params);
+    public FlightRecorder flightRecorder() {
+      return parent.flightRecorder();
+    }
+
+    @Override
+    public Executor workerExecutor(Executor shared) {
+      return parent.workerExecutor(shared);
+    }
+
+    @Override
+    public boolean isDraining() {
+      return parent.isDraining();
     }
   }
 
   /** Transitions from HANDSHAKE to OPEN after the TLS handshake completes. */
   private void transitionToOpen(SSLEngine engine) {
+    cancelHandshakeDeadline();
+    if (handshakeEvent != null) {
+      handshakeEvent.protocol = engine.getSession().getProtocol();
+      handshakeEvent.cipherSuite = engine.getSession().getCipherSuite();
+      handshakeEvent.alpn = engine.getApplicationProtocol();
+      handshakeEvent.success = true;
+      commitHandshakeEvent();
+    }
     createInnerStage(engine);
     status = FlowStatus.OPEN;
     if (postHandshakeState != InitialConnectionState.WRITE_ONLY) {
@@ -201,6 +279,17 @@ final class SslServerStage implements Stage {
     }
   }
 
+  private void commitHandshakeEvent() {
+    TlsHandshakeEvent event = handshakeEvent;
+    if (event != null) {
+      handshakeEvent = null;
+      event.end();
+      if (event.shouldCommit()) {
+        event.commit();
+      }
+    }
+  }
+
   private void checkStatus(SSLEngine engine) {
     if (engine.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
       Runnable task = engine.getDelegatedTask();
@@ -232,7 +321,7 @@ final class SslServerStage implements Stage {
   }
 
   private void findSni() throws IOException {
-    SNIParser.Result result = new SNIParser().parse(netInputBuffer);
+    SNIParser.Result result = new SNIParser().parse(parent.inputBuffer());
     if (result instanceof SNIParser.Result.NotDone) {
       return;
     }
@@ -240,9 +329,13 @@ final class SslServerStage implements Stage {
       throw new IOException("SSL Client did not send SNI");
     }
     parent.log("SSL Found SNI=%s", found.name());
+    if (handshakeEvent != null) {
+      handshakeEvent.serverName = found.name();
+    }
     SSLContext sslContext = contextProvider.getSSLContext(found.name());
     if (sslContext == null) {
       parent.log("SSL Unknown SNI=%s, sending alert", found.name());
+      ByteBuffer netOutputBuffer = parent.outputBuffer();
       netOutputBuffer.clear();
       netOutputBuffer.put(UNRECOGNIZED_NAME_ALERT);
       netOutputBuffer.flip();
@@ -267,18 +360,33 @@ final class SslServerStage implements Stage {
 
   @Override
   public ConnectionControl read() throws IOException {
+    try {
+      return doRead();
+    } finally {
+      releaseDrainedBuffers();
+    }
+  }
+
+  private ConnectionControl doRead() throws IOException {
     if (status == FlowStatus.FIND_SNI) {
       // This call may change status as a side effect!
       findSni();
-      return status == FlowStatus.SEND_ALERT ? ConnectionControl.PAUSE : ConnectionControl.CONTINUE;
+      return switch (status) {
+        case SEND_ALERT -> ConnectionControl.PAUSE;
+        // The ClientHello is incomplete; the buffer may need to grow before it fits.
+        case FIND_SNI -> ConnectionControl.NEED_MORE_DATA;
+        default -> ConnectionControl.CONTINUE;
+      };
     }
     SSLEngine engine = Objects.requireNonNull(this.sslEngine, "sslEngine");
+    ByteBuffer netInputBuffer = parent.inputBuffer();
     if (status == FlowStatus.HANDSHAKE) {
       if (taskPending) return ConnectionControl.PAUSE;
       parent.log(
           "SSL Read: HandshakeStatus=%s, net=%d",
-          engine.getHandshakeStatus(), Integer.valueOf(netInputBuffer.remaining()));
+          engine.getHandshakeStatus(), netInputBuffer.remaining());
       if (netInputBuffer.hasRemaining()) {
+        ByteBuffer inputBuffer = plainInputBuffer();
         inputBuffer.compact(); // prepare buffer for writing
         SSLEngineResult result = engine.unwrap(netInputBuffer, inputBuffer);
         inputBuffer.flip(); // prepare buffer for reading
@@ -307,8 +415,9 @@ final class SslServerStage implements Stage {
       }
       return ConnectionControl.CONTINUE;
     } else {
-      parent.log("SSL Read: net=%d", Integer.valueOf(netInputBuffer.remaining()));
+      parent.log("SSL Read: net=%d", netInputBuffer.remaining());
       if (netInputBuffer.hasRemaining()) {
+        ByteBuffer inputBuffer = plainInputBuffer();
         inputBuffer.compact(); // prepare buffer for writing
         SSLEngineResult result = engine.unwrap(netInputBuffer, inputBuffer);
         inputBuffer.flip(); // prepare buffer for reading
@@ -349,6 +458,14 @@ final class SslServerStage implements Stage {
 
   @Override
   public ConnectionControl write() throws IOException {
+    try {
+      return doWrite();
+    } finally {
+      releaseDrainedBuffers();
+    }
+  }
+
+  private ConnectionControl doWrite() throws IOException {
     if (status == FlowStatus.FIND_SNI) {
       throw new IOException("SSL: Illegal state - write called despite finding SNI");
     } else if (status == FlowStatus.SEND_ALERT) {
@@ -358,6 +475,8 @@ final class SslServerStage implements Stage {
     if (engine == null) {
       throw new IllegalStateException("write called after SNI phase without sslEngine");
     }
+    ByteBuffer netOutputBuffer = parent.outputBuffer();
+    ByteBuffer outputBuffer = plainOutputBuffer();
     if (status == FlowStatus.HANDSHAKE) {
       parent.log("SSL Write: HandshakeStatus=%s", engine.getHandshakeStatus());
       // invariant: both netOutputBuffer and outputBuffer are readable
@@ -368,8 +487,7 @@ final class SslServerStage implements Stage {
         netOutputBuffer.flip(); // prepare for reading
         parent.log(
             "After Wrapping: %d out, %d net",
-            Integer.valueOf(outputBuffer.remaining()),
-            Integer.valueOf(netOutputBuffer.remaining()));
+            outputBuffer.remaining(), netOutputBuffer.remaining());
         requireOk(result);
         checkStatus(engine);
       }
@@ -387,7 +505,7 @@ final class SslServerStage implements Stage {
     } else if (status == FlowStatus.OPEN) {
       long availableCapacity =
           outputBuffer.capacity() - outputBuffer.limit() + outputBuffer.position();
-      parent.log("SSL Write capacity=%s", availableCapacity);
+      parent.log("SSL Write capacity=%d", availableCapacity);
       ConnectionControl nextState;
       if (availableCapacity == 0) {
         nextState = ConnectionControl.CONTINUE;
@@ -403,8 +521,7 @@ final class SslServerStage implements Stage {
         netOutputBuffer.flip(); // prepare for reading
         parent.log(
             "After Wrapping: %d out, %d net",
-            Integer.valueOf(outputBuffer.remaining()),
-            Integer.valueOf(netOutputBuffer.remaining()));
+            outputBuffer.remaining(), netOutputBuffer.remaining());
         requireOk(result);
       }
       if (outputBuffer.hasRemaining()) {
@@ -439,19 +556,46 @@ final class SslServerStage implements Stage {
         netOutputBuffer.flip(); // prepare for reading
         parent.log(
             "After Wrapping: %d out, %d net",
-            Integer.valueOf(outputBuffer.remaining()),
-            Integer.valueOf(netOutputBuffer.remaining()));
+            outputBuffer.remaining(), netOutputBuffer.remaining());
         requireOk(result);
       }
       return outputBuffer.hasRemaining() ? ConnectionControl.CONTINUE : closing;
     }
   }
 
+  private void cancelHandshakeDeadline() {
+    if (handshakeDeadline != null) {
+      handshakeDeadline.cancel();
+      handshakeDeadline = null;
+    }
+  }
+
+  @Override
+  public void drain() {
+    if (next != null) {
+      next.drain();
+    } else {
+      // Still handshaking; no request can be in flight yet.
+      parent.close();
+    }
+  }
+
   @Override
   public void close() {
+    cancelHandshakeDeadline();
+    // A handshake that never completed is recorded as failed.
+    commitHandshakeEvent();
     // The inner stage may not exist yet if the connection is closed before the handshake completes.
     if (next != null) {
       next.close();
     }
+    if (inputBuffer != null) {
+      parent.bufferPool().release(inputBuffer);
+      inputBuffer = null;
+    }
+    if (outputBuffer != null) {
+      parent.bufferPool().release(outputBuffer);
+      outputBuffer = null;
+    }
   }
 }
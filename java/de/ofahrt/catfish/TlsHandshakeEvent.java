@@ -0,0 +1,32 @@
+package de.ofahrt.catfish;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * JFR event for a server-side TLS handshake, from the first byte of the ClientHello until the
+ * handshake completed or the connection was closed.
+ */
+@Name("de.ofahrt.catfish.TlsHandshake")
+@Label("TLS Handshake")
+@Category({"Catfish", "TLS"})
+@Description("A TLS handshake with a client")
+final class TlsHandshakeEvent extends jdk.jfr.Event {
+  @Label("Server Name")
+  @Nullable String serverName;
+
+  @Label("Protocol")
+  @Nullable String protocol;
+
+  @Label("Cipher Suite")
+  @Nullable String cipherSuite;
+
+  @Label("ALPN Protocol")
+  @Nullable String alpn;
+
+  @Label("Success")
+  boolean success;
+}
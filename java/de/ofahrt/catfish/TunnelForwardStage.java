@@ -21,8 +21,6 @@ import org.jspecify.annotations.Nullable;
 final class TunnelForwardStage implements Stage {
 
   private final Pipeline parent;
-  private final ByteBuffer inputBuffer;
-  private final ByteBuffer outputBuffer;
   private final Executor executor;
   private final Socket targetSocket;
   private final OutputStream targetOut;
@@ -38,17 +36,9 @@ final class TunnelForwardStage implements Stage {
   private int currentChunkOffset;
   private volatile boolean targetClosed;
 
-  TunnelForwardStage(
-      Pipeline parent,
-      ByteBuffer inputBuffer,
-      ByteBuffer outputBuffer,
-      Executor executor,
-      Socket targetSocket,
-      Runnable onClose)
+  TunnelForwardStage(Pipeline parent, Executor executor, Socket targetSocket, Runnable onClose)
       throws IOException {
     this.parent = parent;
-    this.inputBuffer = inputBuffer;
-    this.outputBuffer = outputBuffer;
     this.executor = executor;
     this.targetSocket = targetSocket;
     this.targetOut = targetSocket.getOutputStream();
@@ -63,6 +53,7 @@ final class TunnelForwardStage implements Stage {
 
   @Override
   public ConnectionControl read() {
+    ByteBuffer inputBuffer = parent.inputBuffer();
     byte[] data = new byte[inputBuffer.remaining()];
     inputBuffer.get(data);
     executor.execute(
@@ -85,6 +76,7 @@ final class TunnelForwardStage implements Stage {
 
   @Override
   public ConnectionControl write() {
+    ByteBuffer outputBuffer = parent.outputBuffer();
     outputBuffer.compact();
     while (outputBuffer.hasRemaining()) {
       if (currentChunk == null) {
@@ -10,15 +10,16 @@ import de.ofahrt.catfish.model.server.HttpHandler;
 import de.ofahrt.catfish.model.server.HttpResponseWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.Objects;
 
 /**
  * An {@link HttpHandler} wrapper that validates responses before they are committed.
  *
- * <p>Each call to {@link HttpResponseWriter#commitBuffered} or {@link
- * HttpResponseWriter#commitStreamed} is intercepted; the response headers are validated via {@link
- * HttpResponseValidator} before being forwarded to the real writer. If validation fails, a {@code
- * 500 Internal Server Error} response is sent instead.
+ * <p>Each call to {@link HttpResponseWriter#commitBuffered}, {@link
+ * HttpResponseWriter#commitStreamed}, or {@link HttpResponseWriter#commitFile} is intercepted; the
+ * response headers are validated via {@link HttpResponseValidator} before being forwarded to the
+ * real writer. If validation fails, a {@code 500 Internal Server Error} response is sent instead.
  *
  * <p>Note: validation runs on the handler's response <em>before</em> the framework injects headers
  * such as {@code Date}, {@code Content-Length}, and {@code Connection}. Headers added by the
@@ -48,6 +49,11 @@ public final class ValidatingHttpHandler implements HttpHandler {
             request, connection != null && connection.isSsl(), responseWriter));
   }
 
+  @Override
+  public boolean streamsRequestBody() {
+    return delegate.streamsRequestBody();
+  }
+
   private final class ValidatingResponseWriter implements HttpResponseWriter {
 
     private final HttpRequest request;
@@ -83,6 +89,19 @@ public final class ValidatingHttpHandler implements HttpHandler {
       return delegate.commitStreamed(response);
     }
 
+    @Override
+    public void commitFile(HttpResponse response, FileChannel file, long position, long length)
+        throws IOException {
+      try {
+        validator.validate(request, response, secure);
+      } catch (MalformedResponseException e) {
+        file.close();
+        delegate.commitBuffered(StandardResponses.INTERNAL_SERVER_ERROR);
+        return;
+      }
+      delegate.commitFile(response, file, position, length);
+    }
+
     @Override
     public void abort() {
       delegate.abort();
@@ -81,7 +81,8 @@ public final class RequestImpl implements HttpServletRequest {
     this.unparsedUri = request.getUri();
     this.headers = new TreeMap<>();
     for (Map.Entry<String, String> e : request.getHeaders()) {
-      this.headers.put(e.getKey(), e.getValue());
+      // Repeated headers are separate fields; the servlet API sees them joined.
+      this.headers.merge(e.getKey(), e.getValue(), (a, b) -> a + ", " + b);
     }
     try {
       this.uri = new URI(unparsedUri);
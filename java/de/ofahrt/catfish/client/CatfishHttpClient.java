@@ -29,26 +29,48 @@ public class CatfishHttpClient {
       HttpRequest request)
       throws IOException, InterruptedException {
     CompletableFuture<HttpResponse> future = new CompletableFuture<>();
-    HttpClientHandler handler =
-        new HttpClientHandler(
-            request,
-            new ResponseHandler() {
-              @Override
-              public void received(HttpResponse response) {
-                future.complete(response);
-              }
-
-              @Override
-              public void failed(Exception exception) {
-                future.completeExceptionally(exception);
-              }
-            },
-            sslContext,
-            sslParameters);
-    engine.connect(InetAddress.getByName(host), port, handler);
+    engine.connect(
+        InetAddress.getByName(host), port, newHandler(sslContext, sslParameters, request, future));
     return future;
   }
 
+  /**
+   * Like {@link #send}, but connects to the in-memory listener {@code name} of a server in the same
+   * JVM (see {@code HttpEndpoint.inMemory}) instead of going through the network stack.
+   */
+  public Future<HttpResponse> sendInMemory(
+      String name,
+      @Nullable SSLContext sslContext,
+      @Nullable SSLParameters sslParameters,
+      HttpRequest request)
+      throws IOException, InterruptedException {
+    CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+    engine.connectInMemory(name, newHandler(sslContext, sslParameters, request, future));
+    return future;
+  }
+
+  private static HttpClientHandler newHandler(
+      @Nullable SSLContext sslContext,
+      @Nullable SSLParameters sslParameters,
+      HttpRequest request,
+      CompletableFuture<HttpResponse> future) {
+    return new HttpClientHandler(
+        request,
+        new ResponseHandler() {
+          @Override
+          public void received(HttpResponse response) {
+            future.complete(response);
+          }
+
+          @Override
+          public void failed(Exception exception) {
+            future.completeExceptionally(exception);
+          }
+        },
+        sslContext,
+        sslParameters);
+  }
+
   public void shutdown() throws InterruptedException {
     engine.shutdown();
   }
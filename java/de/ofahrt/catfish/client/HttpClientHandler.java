@@ -5,7 +5,6 @@ import de.ofahrt.catfish.internal.network.NetworkEngine.NetworkHandler;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
 import de.ofahrt.catfish.model.HttpRequest;
-import java.nio.ByteBuffer;
 import java.util.Objects;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -35,19 +34,16 @@ final class HttpClientHandler implements NetworkHandler {
   }
 
   @Override
-  public Stage connect(Pipeline pipeline, ByteBuffer inputBuffer, ByteBuffer outputBuffer) {
+  public Stage connect(Pipeline pipeline) {
     if (sslContext != null && sslParameters != null) {
       SSLEngine sslEngine = sslContext.createSSLEngine();
       sslEngine.setSSLParameters(sslParameters);
       return new SslClientStage(
           pipeline,
-          (plainIn, plainOut) ->
-              new HttpClientStage(pipeline, request, responseHandler, plainIn, plainOut),
-          sslEngine,
-          inputBuffer,
-          outputBuffer);
+          innerPipeline -> new HttpClientStage(innerPipeline, request, responseHandler),
+          sslEngine);
     } else {
-      return new HttpClientStage(pipeline, request, responseHandler, inputBuffer, outputBuffer);
+      return new HttpClientStage(pipeline, request, responseHandler);
     }
   }
 }
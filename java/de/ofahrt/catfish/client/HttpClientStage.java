@@ -38,24 +38,15 @@ final class HttpClientStage implements Stage {
 
   private final Pipeline parent;
   private final ResponseHandler responseHandler;
-  private final ByteBuffer inputBuffer;
-  private final ByteBuffer outputBuffer;
   private final IncrementalHttpResponseParser parser;
   private @Nullable HttpRequestGenerator requestGenerator;
 
-  HttpClientStage(
-      Pipeline parent,
-      HttpRequest request,
-      ResponseHandler responseHandler,
-      ByteBuffer inputBuffer,
-      ByteBuffer outputBuffer) {
+  HttpClientStage(Pipeline parent, HttpRequest request, ResponseHandler responseHandler) {
     this.parent = parent;
     this.requestGenerator = HttpRequestGeneratorBuffered.create(request);
     this.responseHandler = responseHandler;
-    this.inputBuffer = inputBuffer;
-    this.outputBuffer = outputBuffer;
     this.parser = new IncrementalHttpResponseParser();
-    parent.log("%s %s %s", request.getMethod(), request.getUri(), request.getVersion());
+    parent.log("Request %s", request.getMethod());
     if (VERBOSE) {
       System.out.println(HttpMessages.requestToString(request));
     }
@@ -69,10 +60,9 @@ final class HttpClientStage implements Stage {
   @Override
   public ConnectionControl read() throws IOException {
     // invariant: inputBuffer is readable
+    ByteBuffer inputBuffer = parent.inputBuffer();
     if (inputBuffer.hasRemaining()) {
-      int consumed =
-          parser.parse(inputBuffer.array(), inputBuffer.position(), inputBuffer.remaining());
-      inputBuffer.position(inputBuffer.position() + consumed);
+      parser.parse(inputBuffer);
     }
     if (parser.isDone()) {
       processResponse();
@@ -96,6 +86,7 @@ final class HttpClientStage implements Stage {
     }
 
     // invariant: outputBuffer is readable
+    ByteBuffer outputBuffer = parent.outputBuffer();
     outputBuffer.compact(); // prepare buffer for writing
     ContinuationToken token = requestGenerator.generate(outputBuffer);
     outputBuffer.flip(); // prepare buffer for reading
@@ -129,11 +120,7 @@ final class HttpClientStage implements Stage {
     } finally {
       parser.reset();
     }
-    parent.log(
-        "%s %d %s",
-        response.getProtocolVersion(),
-        Integer.valueOf(response.getStatusCode()),
-        response.getStatusMessage());
+    parent.log("Response %d", response.getStatusCode());
     if (VERBOSE) {
       System.out.println(HttpMessages.responseToString(response));
     }
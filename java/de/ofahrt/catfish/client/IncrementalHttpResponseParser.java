@@ -5,6 +5,7 @@ import de.ofahrt.catfish.model.HttpLimits;
 import de.ofahrt.catfish.model.HttpResponse;
 import de.ofahrt.catfish.model.MalformedResponseException;
 import de.ofahrt.catfish.model.SimpleHttpResponse;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import org.jspecify.annotations.Nullable;
 
@@ -129,11 +130,25 @@ public final class IncrementalHttpResponseParser {
     return parse(input, 0, input.length);
   }
 
+  public int parse(byte[] input, int offset, int length) throws MalformedResponseException {
+    return parse(ByteBuffer.wrap(input), offset, length);
+  }
+
+  /**
+   * Parses the remaining bytes of {@code input}, which may be a direct buffer, and advances its
+   * position past the consumed bytes. Returns the number of bytes consumed.
+   */
+  public int parse(ByteBuffer input) throws MalformedResponseException {
+    int consumed = parse(input, input.position(), input.remaining());
+    input.position(input.position() + consumed);
+    return consumed;
+  }
+
   @SuppressWarnings(
       "NullAway") // State machine invariants ensure fields are non-null when accessed.
-  public int parse(byte[] input, int offset, int length) throws MalformedResponseException {
+  private int parse(ByteBuffer input, int offset, int length) throws MalformedResponseException {
     for (int i = 0; i < length; i++) {
-      final char c = (char) (input[offset + i] & 0xff);
+      final char c = (char) (input.get(offset + i) & 0xff);
       if (expectLineFeed) {
         expectLineFeed = false;
         if (c != '\n') {
@@ -355,7 +370,7 @@ public final class IncrementalHttpResponseParser {
         }
         case CONTENT -> {
           int maxCopy = Math.min(length - i, content.length - contentIndex);
-          System.arraycopy(input, offset + i, content, contentIndex, maxCopy);
+          input.get(offset + i, content, contentIndex, maxCopy);
           i += maxCopy;
           contentIndex += maxCopy;
           if (contentIndex == content.length) {
@@ -398,7 +413,7 @@ public final class IncrementalHttpResponseParser {
         }
         case CHUNKED_CONTENT_DATA -> {
           int maxCopy = Math.min(length - i, content.length - contentIndex);
-          System.arraycopy(input, offset + i, content, contentIndex, maxCopy);
+          input.get(offset + i, content, contentIndex, maxCopy);
           i += maxCopy - 1;
           contentIndex += maxCopy;
           if (contentIndex == content.length) {
@@ -1,53 +1,47 @@
 package de.ofahrt.catfish.client;
 
+import de.ofahrt.catfish.internal.network.BufferPool;
+import de.ofahrt.catfish.internal.network.FlightRecorder;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
+import de.ofahrt.catfish.internal.network.TimerWheel.Timeout;
 import de.ofahrt.catfish.model.network.Connection;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.util.concurrent.Executor;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLEngineResult.HandshakeStatus;
 import javax.net.ssl.SSLEngineResult.Status;
 import javax.net.ssl.SSLException;
+import org.jspecify.annotations.Nullable;
 
 final class SslClientStage implements Stage {
 
+  /**
+   * Factory for creating the inner (plaintext) stage. Receives a {@link Pipeline} whose buffers are
+   * the plaintext buffers of the SSL stage.
+   */
   @FunctionalInterface
   interface InnerStageFactory {
-    Stage create(ByteBuffer inputBuffer, ByteBuffer outputBuffer);
+    Stage create(Pipeline innerPipeline);
   }
 
   private final Pipeline parent;
   private final Stage next;
-  private final ByteBuffer netInputBuffer;
-  private final ByteBuffer netOutputBuffer;
-  private final ByteBuffer inputBuffer;
-  private final ByteBuffer outputBuffer;
+  // Plaintext buffers, taken from the selector's pool on demand and returned once drained.
+  private @Nullable ByteBuffer inputBuffer;
+  private @Nullable ByteBuffer outputBuffer;
   private final SSLEngine sslEngine;
   private boolean readAfterWrite;
   private boolean writeAfterRead;
 
-  public SslClientStage(
-      Pipeline parent,
-      InnerStageFactory innerStageFactory,
-      SSLEngine sslEngine,
-      ByteBuffer netInputBuffer,
-      ByteBuffer netOutputBuffer) {
+  public SslClientStage(Pipeline parent, InnerStageFactory innerStageFactory, SSLEngine sslEngine) {
     this.parent = parent;
-    this.netInputBuffer = netInputBuffer;
-    this.netOutputBuffer = netOutputBuffer;
-    this.inputBuffer = flippedEmpty(65536);
-    this.outputBuffer = flippedEmpty(65536);
-    this.next = innerStageFactory.create(inputBuffer, outputBuffer);
+    this.next = innerStageFactory.create(new InnerPipeline());
     this.sslEngine = sslEngine;
     this.sslEngine.setUseClientMode(true);
-    parent.log(
-        "SSL configuration: "
-            + Arrays.toString(sslEngine.getEnabledProtocols())
-            + " "
-            + Arrays.toString(sslEngine.getEnabledCipherSuites()));
+    parent.log("SSL handshake started");
     try {
       this.sslEngine.beginHandshake();
     } catch (SSLException e) {
@@ -68,24 +62,125 @@ final class SslClientStage implements Stage {
     }
   }
 
+  /** Delegates to the outer pipeline, but hands out the plaintext buffers. */
+  private final class InnerPipeline implements Pipeline {
+    @Override
+    public void encourageWrites() {
+      parent.encourageWrites();
+    }
+
+    @Override
+    public void encourageReads() {
+      parent.encourageReads();
+    }
+
+    @Override
+    public Timeout schedule(long delayMillis, Runnable task) {
+      return parent.schedule(delayMillis, task);
+    }
+
+    @Override
+    public void close() {
+      parent.close();
+    }
+
+    @Override
+    public void queue(Runnable runnable) {
+      parent.queue(runnable);
+    }
+
+    @Override
+    public FlightRecorder flightRecorder() {
+      return parent.flightRecorder();
+    }
+
+    @Override
+    public Executor workerExecutor(Executor shared) {
+      return parent.workerExecutor(shared);
+    }
+
+    @Override
+    public boolean isDraining() {
+      return parent.isDraining();
+    }
+
+    @Override
+    public ByteBuffer inputBuffer() {
+      return plainInputBuffer();
+    }
+
+    @Override
+    public ByteBuffer outputBuffer() {
+      return plainOutputBuffer();
+    }
+
+    @Override
+    public BufferPool bufferPool() {
+      return parent.bufferPool();
+    }
+
+    @Override
+    public void replaceWith(Stage nextStage) {
+      parent.replaceWith(nextStage);
+    }
+  }
+
+  private ByteBuffer plainInputBuffer() {
+    ByteBuffer result = inputBuffer;
+    if (result == null) {
+      result = parent.bufferPool().acquire();
+      inputBuffer = result;
+    }
+    return result;
+  }
+
+  private ByteBuffer plainOutputBuffer() {
+    ByteBuffer result = outputBuffer;
+    if (result == null) {
+      result = parent.bufferPool().acquire();
+      outputBuffer = result;
+    }
+    return result;
+  }
+
+  private void releaseDrainedBuffers() {
+    if (inputBuffer != null && !inputBuffer.hasRemaining()) {
+      parent.bufferPool().release(inputBuffer);
+      inputBuffer = null;
+    }
+    if (outputBuffer != null && !outputBuffer.hasRemaining()) {
+      parent.bufferPool().release(outputBuffer);
+      outputBuffer = null;
+    }
+  }
+
   @Override
   public ConnectionControl read() throws IOException {
+    try {
+      return doRead();
+    } finally {
+      releaseDrainedBuffers();
+    }
+  }
+
+  private ConnectionControl doRead() throws IOException {
     if (writeAfterRead) {
       parent.encourageWrites();
       writeAfterRead = false;
     }
     // invariant: both netInputBuffer and inputBuffer are readable
+    ByteBuffer netInputBuffer = parent.inputBuffer();
     if (netInputBuffer.hasRemaining()) {
+      ByteBuffer inputBuffer = plainInputBuffer();
       parent.log(
-          "Unwrapping: net_in=%d app_in=%d",
-          Integer.valueOf(netInputBuffer.remaining()), Integer.valueOf(inputBuffer.remaining()));
+          "Unwrapping: net_in=%d app_in=%d", netInputBuffer.remaining(), inputBuffer.remaining());
       inputBuffer.compact();
       SSLEngineResult result = sslEngine.unwrap(netInputBuffer, inputBuffer);
       inputBuffer.flip();
       parent.log(
           "After unwrapping: net_in=%d app_in=%d",
-          Integer.valueOf(netInputBuffer.remaining()), Integer.valueOf(inputBuffer.remaining()));
-      parent.log("STATUS=%s", result);
+          netInputBuffer.remaining(), inputBuffer.remaining());
+      parent.log("STATUS=%s", result.getStatus());
       Status sslStatus = result.getStatus();
       switch (sslStatus) {
         case CLOSED -> {
@@ -123,24 +218,33 @@ final class SslClientStage implements Stage {
 
   @Override
   public ConnectionControl write() throws IOException {
+    try {
+      return doWrite();
+    } finally {
+      releaseDrainedBuffers();
+    }
+  }
+
+  private ConnectionControl doWrite() throws IOException {
     if (readAfterWrite) {
       parent.encourageReads();
       readAfterWrite = false;
     }
     ConnectionControl nextState = next.write();
+    ByteBuffer netOutputBuffer = parent.outputBuffer();
+    ByteBuffer outputBuffer = plainOutputBuffer();
     // invariant: both netOutputBuffer and outputBuffer are readable
     if (!netOutputBuffer.hasRemaining()
         && (outputBuffer.hasRemaining()
             || sslEngine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP)) {
       parent.log(
-          "Wrapping: app_out=%d net_out=%d",
-          Integer.valueOf(outputBuffer.remaining()), Integer.valueOf(netOutputBuffer.remaining()));
+          "Wrapping: app_out=%d net_out=%d", outputBuffer.remaining(), netOutputBuffer.remaining());
       netOutputBuffer.clear(); // prepare for writing
       SSLEngineResult result = sslEngine.wrap(outputBuffer, netOutputBuffer);
       netOutputBuffer.flip(); // prepare for reading
       parent.log(
           "After Wrapping: app_out=%d net_out=%d",
-          Integer.valueOf(outputBuffer.remaining()), Integer.valueOf(netOutputBuffer.remaining()));
+          outputBuffer.remaining(), netOutputBuffer.remaining());
       if (result.getStatus() == Status.CLOSED) {
         return ConnectionControl.CLOSE_CONNECTION_IMMEDIATELY;
       } else if (result.getStatus() != Status.OK) {
@@ -162,11 +266,13 @@ final class SslClientStage implements Stage {
   @Override
   public void close() {
     next.close();
-  }
-
-  private static ByteBuffer flippedEmpty(int capacity) {
-    ByteBuffer b = ByteBuffer.allocate(capacity);
-    b.flip();
-    return b;
+    if (inputBuffer != null) {
+      parent.bufferPool().release(inputBuffer);
+      inputBuffer = null;
+    }
+    if (outputBuffer != null) {
+      parent.bufferPool().release(outputBuffer);
+      outputBuffer = null;
+    }
   }
 }
@@ -234,7 +234,11 @@ public final class FcgiHandler implements HttpHandler {
       if ("Proxy".equalsIgnoreCase(name)) {
         continue;
       }
-      params.put("HTTP_" + name.toUpperCase(Locale.ROOT).replace('-', '_'), entry.getValue());
+      // Repeated headers are separate fields; CGI gets them joined, as in RFC 9110 §5.3.
+      params.merge(
+          "HTTP_" + name.toUpperCase(Locale.ROOT).replace('-', '_'),
+          entry.getValue(),
+          (a, b) -> a + ", " + b);
     }
     return params;
   }
@@ -1,5 +1,6 @@
 package de.ofahrt.catfish.fastcgi;
 
+import java.nio.ByteBuffer;
 import java.util.Objects;
 import org.jspecify.annotations.Nullable;
 
@@ -9,6 +10,20 @@ final class IncrementalFcgiResponseParser {
     void addHeader(String key, String value);
 
     void addData(byte[] data, int offset, int length);
+
+    /**
+     * Receives the content at {@code data[index, index+length)} without changing the buffer's
+     * position. Copies the bytes of a direct buffer unless overridden.
+     */
+    default void addData(ByteBuffer data, int index, int length) {
+      if (data.hasArray()) {
+        addData(data.array(), data.arrayOffset() + index, length);
+      } else {
+        byte[] copy = new byte[length];
+        data.get(index, copy);
+        addData(copy, 0, length);
+      }
+    }
   }
 
   public static class MalformedResponseException extends Exception {
@@ -69,14 +84,28 @@ final class IncrementalFcgiResponseParser {
     return parse(input, 0, input.length);
   }
 
-  @SuppressWarnings("NullAway") // State machine guarantees fields are non-null when accessed.
   public int parse(byte[] input, int offset, int length) throws MalformedResponseException {
+    return parse(ByteBuffer.wrap(input), offset, length);
+  }
+
+  /**
+   * Parses the remaining bytes of {@code input}, which may be a direct buffer, and advances its
+   * position past the consumed bytes. Returns the number of bytes consumed.
+   */
+  public int parse(ByteBuffer input) throws MalformedResponseException {
+    int consumed = parse(input, input.position(), input.remaining());
+    input.position(input.position() + consumed);
+    return consumed;
+  }
+
+  @SuppressWarnings("NullAway") // State machine guarantees fields are non-null when accessed.
+  private int parse(ByteBuffer input, int offset, int length) throws MalformedResponseException {
     if (state == State.CONTENT) {
       callback.addData(input, offset, length);
       return length;
     }
     for (int i = 0; i < length; i++) {
-      final char c = (char) (input[offset + i] & 0xff);
+      final char c = (char) (input.get(offset + i) & 0xff);
       if (expectLineFeed) {
         expectLineFeed = false;
         if (c != '\n') {
@@ -1,5 +1,7 @@
 package de.ofahrt.catfish.http;
 
+import java.nio.ByteBuffer;
+
 /**
  * Scans a chunked transfer-encoded byte stream to find where the body ends, without decoding. Used
  * by the NIO thread to determine how many raw bytes belong to the chunked body so they can be
@@ -73,8 +75,16 @@ public final class ChunkedBodyScanner {
    * not found within the range.
    */
   public int findEnd(byte[] arr, int off, int len) {
+    return findEnd(ByteBuffer.wrap(arr), off, len);
+  }
+
+  /**
+   * Like {@link #findEnd(byte[], int, int)}, for the bytes at {@code buf[off, off+len)}, which may
+   * be a direct buffer. Does not change the buffer's position.
+   */
+  public int findEnd(ByteBuffer buf, int off, int len) {
     ChunkedBodyState probe = state.copy();
-    int result = probe.advance(arr, off, len, ChunkedBodyState.NO_OP);
+    int result = probe.advance(buf, off, len, ChunkedBodyState.NO_OP);
     return probe.isDone() ? result : -1;
   }
 
@@ -84,7 +94,15 @@ public final class ChunkedBodyScanner {
    * {@code len} (or, on a framing error, the number of bytes consumed before the offending byte).
    */
   public int advance(byte[] arr, int off, int len) {
-    int consumed = state.advance(arr, off, len, ChunkedBodyState.NO_OP);
+    return advance(ByteBuffer.wrap(arr), off, len);
+  }
+
+  /**
+   * Like {@link #advance(byte[], int, int)}, for the bytes at {@code buf[off, off+len)}, which may
+   * be a direct buffer. Does not change the buffer's position.
+   */
+  public int advance(ByteBuffer buf, int off, int len) {
+    int consumed = state.advance(buf, off, len, ChunkedBodyState.NO_OP);
     rawByteCount += consumed;
     return consumed;
   }
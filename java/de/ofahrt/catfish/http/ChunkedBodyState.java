@@ -1,5 +1,7 @@
 package de.ofahrt.catfish.http;
 
+import java.nio.ByteBuffer;
+
 /**
  * The single strict state machine for HTTP/1.1 chunked transfer-coding (RFC 9112 §7.1). It walks a
  * chunked byte stream incrementally, reporting the decoded (de-chunked) content through a {@link
@@ -21,10 +23,31 @@ public final class ChunkedBodyState {
   @FunctionalInterface
   public interface Sink {
     void data(byte[] buf, int off, int len);
+
+    /**
+     * Receives the span {@code buf[index, index+len)} of a buffer, which may be direct. Copies the
+     * bytes of a direct buffer unless overridden.
+     */
+    default void data(ByteBuffer buf, int index, int len) {
+      if (buf.hasArray()) {
+        data(buf.array(), buf.arrayOffset() + index, len);
+      } else {
+        byte[] copy = new byte[len];
+        buf.get(index, copy);
+        data(copy, 0, len);
+      }
+    }
   }
 
   /** A sink that discards decoded content, for callers that only need framing/boundary tracking. */
-  public static final Sink NO_OP = (buf, off, len) -> {};
+  public static final Sink NO_OP =
+      new Sink() {
+        @Override
+        public void data(byte[] buf, int off, int len) {}
+
+        @Override
+        public void data(ByteBuffer buf, int index, int len) {}
+      };
 
   // A chunk size of 2^60 bytes (~1 exabyte) is far beyond anything real; 15 hex digits suffice, and
   // capping the digit count guards against signed-long overflow before the value check runs.
@@ -112,11 +135,19 @@ public final class ChunkedBodyState {
    * that does work consumes at least one byte, so an incremental caller always makes progress.
    */
   public int advance(byte[] buf, int off, int len, Sink sink) {
+    return advance(ByteBuffer.wrap(buf), off, len, sink);
+  }
+
+  /**
+   * Like {@link #advance(byte[], int, int, Sink)}, for the bytes at {@code buf[off, off+len)},
+   * which may be a direct buffer. Does not change the buffer's position.
+   */
+  public int advance(ByteBuffer buf, int off, int len, Sink sink) {
     if (done || error) {
       return 0;
     }
     for (int i = 0; i < len; i++) {
-      final char c = (char) (buf[off + i] & 0xff);
+      final char c = (char) (buf.get(off + i) & 0xff);
       switch (state) {
         case SIZE -> {
           if (isHexDigit(c)) {
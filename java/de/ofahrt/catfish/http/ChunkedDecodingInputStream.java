@@ -0,0 +1,79 @@
+package de.ofahrt.catfish.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An InputStream filter that strips chunked transfer encoding framing from the wrapped stream and
+ * returns only the decoded body bytes. Used to decode request bodies incrementally as they arrive.
+ *
+ * <p>The read-side counterpart of {@link ChunkedDecodingOutputStream}, over the same {@link
+ * ChunkedBodyState} grammar. Malformed framing, or the wrapped stream ending before the terminal
+ * chunk, raises {@link IOException}. Bytes after the terminal chunk are ignored.
+ */
+public final class ChunkedDecodingInputStream extends InputStream {
+  private static final int BUFFER_SIZE = 8192;
+
+  private final InputStream delegate;
+  private final ChunkedBodyState state = new ChunkedBodyState();
+  private final byte[] raw = new byte[BUFFER_SIZE];
+  // Decoded bytes are never more than the raw bytes they came from.
+  private final byte[] decoded = new byte[BUFFER_SIZE];
+  private int decodedStart;
+  private int decodedEnd;
+  private final ChunkedBodyState.Sink sink =
+      (buf, off, len) -> {
+        System.arraycopy(buf, off, decoded, decodedEnd, len);
+        decodedEnd += len;
+      };
+  private final byte[] single = new byte[1];
+
+  public ChunkedDecodingInputStream(InputStream delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read(single, 0, 1) < 0 ? -1 : (single[0] & 0xff);
+  }
+
+  @Override
+  public int read(byte[] dst, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (decodedStart == decodedEnd) {
+      if (state.isDone()) {
+        return -1;
+      }
+      fill();
+    }
+    int n = Math.min(len, decodedEnd - decodedStart);
+    System.arraycopy(decoded, decodedStart, dst, off, n);
+    decodedStart += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return decodedEnd - decodedStart;
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  private void fill() throws IOException {
+    int n = delegate.read(raw, 0, raw.length);
+    if (n < 0) {
+      throw new IOException("Chunked body ended before the terminal chunk");
+    }
+    decodedStart = 0;
+    decodedEnd = 0;
+    state.advance(raw, 0, n, sink);
+    if (state.hasError()) {
+      throw new IOException("Malformed chunked body");
+    }
+  }
+}
@@ -11,6 +11,7 @@ import de.ofahrt.catfish.utils.MediaType;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.List;
 import java.util.zip.GZIPOutputStream;
 
@@ -49,6 +50,17 @@ public final class CompressingResponseWriter implements HttpResponseWriter {
     return coding.wrap(delegate.commitStreamed(coding.streamedHeaders(response)));
   }
 
+  @Override
+  public void commitFile(HttpResponse response, FileChannel file, long position, long length)
+      throws IOException {
+    if (negotiate(response) == Coding.IDENTITY) {
+      delegate.commitFile(response, file, position, length);
+    } else {
+      // The body has to be encoded, so it can't be sent directly from the file.
+      HttpResponseWriter.super.commitFile(response, file, position, length);
+    }
+  }
+
   @Override
   public void abort() {
     delegate.abort();
@@ -110,7 +122,8 @@ public final class CompressingResponseWriter implements HttpResponseWriter {
 
       @Override
       HttpResponse streamedHeaders(HttpResponse response) {
-        return withCodingHeaders(response);
+        // A declared length is the unencoded length; the encoded length isn't known up front.
+        return withCodingHeaders(response).withoutHeader(HttpHeaderName.CONTENT_LENGTH);
       }
 
       @Override
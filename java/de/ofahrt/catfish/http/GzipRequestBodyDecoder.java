@@ -3,7 +3,9 @@ package de.ofahrt.catfish.http;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.zip.GZIPInputStream;
+import org.jspecify.annotations.Nullable;
 
 /**
  * Decodes a gzip-compressed request body, bounded by a decoded-byte ceiling enforced
@@ -58,4 +60,65 @@ public final class GzipRequestBodyDecoder {
     }
     return out.toByteArray();
   }
+
+  /**
+   * Returns a stream that inflates {@code gzipped} as it is read, accepting at most {@code
+   * maxDecodedBytes} decoded bytes. Nothing is read from {@code gzipped} until the first read, so
+   * the stream can be created on a thread that must not block. Reads fail with an {@link
+   * IOException} if the input is not a valid, complete gzip stream, or if the decoded size exceeds
+   * the ceiling.
+   */
+  public static InputStream decodingStream(InputStream gzipped, long maxDecodedBytes) {
+    return new DecodingStream(gzipped, maxDecodedBytes);
+  }
+
+  private static final class DecodingStream extends InputStream {
+    private final InputStream gzipped;
+    private final long maxDecodedBytes;
+    private @Nullable GZIPInputStream in;
+    private long total;
+    private final byte[] single = new byte[1];
+
+    DecodingStream(InputStream gzipped, long maxDecodedBytes) {
+      this.gzipped = gzipped;
+      this.maxDecodedBytes = maxDecodedBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return read(single, 0, 1) < 0 ? -1 : (single[0] & 0xff);
+    }
+
+    @Override
+    public int read(byte[] dst, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      GZIPInputStream current = in;
+      if (current == null) {
+        // Reads the gzip header, hence not in the constructor.
+        current = new GZIPInputStream(gzipped);
+        in = current;
+      }
+      // Read at most one byte past the ceiling, so that no more than that is ever decoded.
+      long room = maxDecodedBytes - total;
+      int n = current.read(dst, off, room < len ? (int) room + 1 : len);
+      if (n > 0) {
+        total += n;
+        if (total > maxDecodedBytes) {
+          throw new IOException("Decoded request body exceeds " + maxDecodedBytes + " bytes");
+        }
+      }
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (in != null) {
+        in.close();
+      } else {
+        gzipped.close();
+      }
+    }
+  }
 }
@@ -1,19 +1,63 @@
 package de.ofahrt.catfish.http;
 
+import de.ofahrt.catfish.model.CoarseClock;
+import de.ofahrt.catfish.model.HttpHeaderName;
+import de.ofahrt.catfish.model.HttpHeaders;
 import de.ofahrt.catfish.model.HttpResponse;
+import de.ofahrt.catfish.model.HttpStatusCode;
+import de.ofahrt.catfish.model.HttpVersion;
+import de.ofahrt.catfish.utils.HttpConnectionHeader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
-import java.util.Map;
+import org.jspecify.annotations.Nullable;
 
 /**
  * Wire-format encoding helpers for HTTP messages: status line, headers, and shared constants. Used
  * by response generators.
+ *
+ * <p>Heads are encoded straight into a byte array of the exact size, or into the output buffer, one
+ * byte per char. Status lines of HTTP/1.1 responses with the standard status message come from a
+ * precomputed table. A header with several values is written as one field line per value. Heads
+ * containing non-ASCII characters take a slower path that encodes them as UTF-8.
  */
 final class HttpEncoder {
   static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
   private static final String CRLF = "\r\n";
   static final byte[] CRLF_BYTES = CRLF.getBytes(StandardCharsets.UTF_8);
 
+  private static final int MAX_STATUS_CODE = 600;
+  // Indexed by status code; null where the code has no standard status message.
+  private static final String[] STATUS_MESSAGES = new String[MAX_STATUS_CODE];
+  private static final byte[][] STATUS_LINES = new byte[MAX_STATUS_CODE][];
+  // The head of a response without own headers and body, up to the Date header value. Indexed by
+  // status code, then 0 for Connection: close and 1 for Connection: keep-alive.
+  private static final byte[][][] BARE_HEADS = new byte[MAX_STATUS_CODE][][];
+
+  static {
+    for (HttpStatusCode code : HttpStatusCode.values()) {
+      int index = code.getStatusCode();
+      STATUS_MESSAGES[index] = code.getStatusMessage();
+      String statusLine = HttpVersion.HTTP_1_1 + " " + index + " " + code.getStatusMessage() + CRLF;
+      STATUS_LINES[index] = statusLine.getBytes(StandardCharsets.US_ASCII);
+      BARE_HEADS[index] =
+          new byte[][] {
+            bareHead(statusLine, index, HttpConnectionHeader.CLOSE),
+            bareHead(statusLine, index, HttpConnectionHeader.KEEP_ALIVE)
+          };
+    }
+  }
+
+  private static byte[] bareHead(String statusLine, int statusCode, String connection) {
+    // Same order as the sorted headers of the general path.
+    StringBuilder buffer = new StringBuilder(statusLine);
+    buffer.append(HttpHeaderName.CONNECTION).append(": ").append(connection).append(CRLF);
+    if (HttpStatusCode.mayHaveBody(statusCode)) {
+      buffer.append(HttpHeaderName.CONTENT_LENGTH).append(": 0").append(CRLF);
+    }
+    buffer.append(HttpHeaderName.DATE).append(": ");
+    return buffer.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
   private HttpEncoder() {}
 
   /**
@@ -21,6 +65,145 @@ final class HttpEncoder {
    * single byte array. The body (if any) is emitted separately by the caller.
    */
   static byte[] responseHeadToByteArray(HttpResponse response) {
+    int length = responseHeadLength(response);
+    if (length < 0) {
+      return responseHeadToByteArrayUtf8(response);
+    }
+    byte[] result = new byte[length];
+    writeResponseHead(response, ByteBuffer.wrap(result));
+    return result;
+  }
+
+  /**
+   * Encodes the HTTP response head straight into {@code out} if it fits, and advances its position.
+   * Returns false, leaving {@code out} unchanged, if it does not fit or needs the UTF-8 path.
+   */
+  static boolean encodeResponseHead(HttpResponse response, ByteBuffer out) {
+    int length = responseHeadLength(response);
+    if (length < 0 || length > out.remaining()) {
+      return false;
+    }
+    writeResponseHead(response, out);
+    return true;
+  }
+
+  /**
+   * Returns the head of {@code response} with the {@code Connection}, {@code Content-Length} (if
+   * the status allows a body), and {@code Date} headers a server adds, copied from a pre-encoded
+   * table. Returns null unless {@code response} is bare: HTTP/1.1, the standard status message, and
+   * neither headers nor body, like the constants in {@code StandardResponses}.
+   */
+  static byte @Nullable [] bareResponseHead(
+      HttpResponse response, boolean keepAlive, CoarseClock.DateValue date) {
+    if (!isBare(response)) {
+      return null;
+    }
+    byte[] prefix = BARE_HEADS[response.getStatusCode()][keepAlive ? 1 : 0];
+    byte[] result = new byte[prefix.length + date.length() + 4];
+    System.arraycopy(prefix, 0, result, 0, prefix.length);
+    int index = prefix.length;
+    index += date.copyTo(result, index);
+    result[index++] = '\r';
+    result[index++] = '\n';
+    result[index++] = '\r';
+    result[index] = '\n';
+    return result;
+  }
+
+  private static boolean isBare(HttpResponse response) {
+    int statusCode = response.getStatusCode();
+    if (statusCode < 0 || statusCode >= MAX_STATUS_CODE || BARE_HEADS[statusCode] == null) {
+      return false;
+    }
+    byte[] body = response.getBody();
+    return (body == null || body.length == 0)
+        && HttpVersion.HTTP_1_1.equals(response.getProtocolVersion())
+        && STATUS_MESSAGES[statusCode].equals(response.getStatusMessage())
+        && response.getHeaders().isEmpty();
+  }
+
+  private static byte @Nullable [] statusLine(HttpResponse response) {
+    int statusCode = response.getStatusCode();
+    if (statusCode < 0 || statusCode >= MAX_STATUS_CODE || STATUS_LINES[statusCode] == null) {
+      return null;
+    }
+    if (!HttpVersion.HTTP_1_1.equals(response.getProtocolVersion())
+        || !STATUS_MESSAGES[statusCode].equals(response.getStatusMessage())) {
+      return null;
+    }
+    return STATUS_LINES[statusCode];
+  }
+
+  /** Returns the length of the encoded head, or -1 if it contains non-ASCII characters. */
+  private static int responseHeadLength(HttpResponse response) {
+    int length;
+    if (statusLine(response) != null) {
+      length = STATUS_LINES[response.getStatusCode()].length;
+    } else {
+      int messageLength = asciiLength(response.getStatusMessage());
+      if (messageLength < 0) {
+        return -1;
+      }
+      // "HTTP/x.y ", the status code, " ", the message, CRLF.
+      length =
+          response.getProtocolVersion().toString().length()
+              + 1
+              + Integer.toString(response.getStatusCode()).length()
+              + 1
+              + messageLength
+              + 2;
+    }
+    HttpHeaders headers = response.getHeaders();
+    for (int i = 0; i < headers.size(); i++) {
+      int keyLength = asciiLength(headers.name(i));
+      int valueLength = asciiLength(headers.value(i));
+      if (keyLength < 0 || valueLength < 0) {
+        return -1;
+      }
+      length += keyLength + 2 + valueLength + 2;
+    }
+    return length + 2;
+  }
+
+  private static int asciiLength(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) >= 0x80) {
+        return -1;
+      }
+    }
+    return s.length();
+  }
+
+  private static void writeResponseHead(HttpResponse response, ByteBuffer out) {
+    byte[] statusLine = statusLine(response);
+    if (statusLine != null) {
+      out.put(statusLine);
+    } else {
+      putAscii(out, response.getProtocolVersion().toString());
+      out.put((byte) ' ');
+      putAscii(out, Integer.toString(response.getStatusCode()));
+      out.put((byte) ' ');
+      putAscii(out, response.getStatusMessage());
+      out.put(CRLF_BYTES);
+    }
+    HttpHeaders headers = response.getHeaders();
+    for (int i = 0; i < headers.size(); i++) {
+      putAscii(out, headers.name(i));
+      out.put((byte) ':');
+      out.put((byte) ' ');
+      putAscii(out, headers.value(i));
+      out.put(CRLF_BYTES);
+    }
+    out.put(CRLF_BYTES);
+  }
+
+  private static void putAscii(ByteBuffer out, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      out.put((byte) s.charAt(i));
+    }
+  }
+
+  private static byte[] responseHeadToByteArrayUtf8(HttpResponse response) {
     StringBuilder buffer = new StringBuilder(200);
     buffer.append(response.getProtocolVersion());
     buffer.append(" ");
@@ -28,12 +211,11 @@ final class HttpEncoder {
     buffer.append(" ");
     buffer.append(response.getStatusMessage());
     buffer.append(CRLF);
-    Iterator<Map.Entry<String, String>> it = response.getHeaders().iterator();
-    while (it.hasNext()) {
-      Map.Entry<String, String> entry = it.next();
-      buffer.append(entry.getKey());
+    HttpHeaders headers = response.getHeaders();
+    for (int i = 0; i < headers.size(); i++) {
+      buffer.append(headers.name(i));
       buffer.append(": ");
-      buffer.append(entry.getValue());
+      buffer.append(headers.value(i));
       buffer.append(CRLF);
     }
     buffer.append(CRLF);
@@ -0,0 +1,89 @@
+package de.ofahrt.catfish.http;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * JFR event for one HTTP request, from its first byte to the last byte of the response. The event
+ * duration covers the whole exchange; {@link #headerTime} and {@link #responseTime} split it into
+ * reading the request head, and handling the request until the response was committed.
+ *
+ * <p>Server stages call {@link #start} when a request begins and keep the returned event until the
+ * response is sent. {@link #start} returns null unless a recording has the event enabled, so
+ * requests cost nothing extra otherwise.
+ */
+@Name("de.ofahrt.catfish.HttpRequest")
+@Label("HTTP Request")
+@Category({"Catfish", "HTTP"})
+@Description("An HTTP request served by Catfish")
+public final class HttpRequestEvent extends jdk.jfr.Event {
+  @Label("Protocol")
+  @Nullable String protocol;
+
+  @Label("Method")
+  @Nullable String method;
+
+  @Label("URI")
+  @Nullable String uri;
+
+  @Label("Status")
+  int status;
+
+  @Label("Header Time")
+  @Description("Time from the first byte of the request to the end of the request head")
+  @Timespan
+  long headerTime;
+
+  @Label("Response Time")
+  @Description("Time from the end of the request head until the response was committed")
+  @Timespan
+  long responseTime;
+
+  private transient long startNanos;
+  private transient long headersNanos;
+
+  private HttpRequestEvent() {}
+
+  /** Starts an event for a request over {@code protocol}, or returns null if it is not enabled. */
+  public static @Nullable HttpRequestEvent start(String protocol) {
+    HttpRequestEvent event = new HttpRequestEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.protocol = protocol;
+    event.begin();
+    event.startNanos = System.nanoTime();
+    return event;
+  }
+
+  /** Records that the request head was parsed. */
+  public void headersParsed(String method, String uri) {
+    this.method = method;
+    this.uri = uri;
+    headersNanos = System.nanoTime();
+    headerTime = headersNanos - startNanos;
+  }
+
+  /**
+   * Records that the final response was committed. May be called from a worker thread, as long as
+   * the hand-off to the thread calling {@link #complete} is synchronized.
+   */
+  public void responseStarted(int status) {
+    this.status = status;
+    if (headersNanos != 0) {
+      responseTime = System.nanoTime() - headersNanos;
+    }
+  }
+
+  /** Ends the event after the last byte of the response and commits it. */
+  public void complete() {
+    end();
+    if (shouldCommit()) {
+      commit();
+    }
+  }
+}
@@ -3,6 +3,7 @@ package de.ofahrt.catfish.http;
 import de.ofahrt.catfish.model.HttpRequest;
 import de.ofahrt.catfish.model.HttpResponse;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import org.jspecify.annotations.Nullable;
 
 public interface HttpResponseGenerator {
@@ -13,6 +14,9 @@ public interface HttpResponseGenerator {
     STOP;
   }
 
+  /** A region of a file that makes up the rest of a response body. */
+  record FileRegion(FileChannel channel, long position, long count) {}
+
   /** The request associated with this response, if known. May be null for pre-handler errors. */
   @Nullable HttpRequest getRequest();
 
@@ -21,6 +25,26 @@ public interface HttpResponseGenerator {
 
   ContinuationToken generate(ByteBuffer buffer);
 
+  /**
+   * Hands over all remaining response bytes as buffers wrapping the generator's own arrays, so the
+   * caller can pass them to a gathering write instead of copying them with {@link #generate}.
+   * Returns null if the generator cannot do that (e.g., because the body is still being produced),
+   * in which case its state is unchanged. Otherwise the generator is complete afterwards and {@link
+   * #generate} returns {@code STOP}; the body bytes count towards {@link #getBodyBytesSent}.
+   */
+  default ByteBuffer @Nullable [] takeSegments() {
+    return null;
+  }
+
+  /**
+   * Hands over the rest of the body as a file region, to be written after the segments returned by
+   * {@link #takeSegments}; must only be called after that returned non-null. The caller takes
+   * ownership of the channel and must close it. Returns null if there is no such region.
+   */
+  default @Nullable FileRegion takeFileRegion() {
+    return null;
+  }
+
   /**
    * Abandons an in-progress response. Any buffered body data is discarded and the generator
    * transitions directly to a terminal state; {@link #generate} will return {@code STOP} and no
@@ -1,7 +1,11 @@
 package de.ofahrt.catfish.http;
 
+import de.ofahrt.catfish.model.CoarseClock;
+import de.ofahrt.catfish.model.HttpHeaderName;
+import de.ofahrt.catfish.model.HttpHeaders;
 import de.ofahrt.catfish.model.HttpRequest;
 import de.ofahrt.catfish.model.HttpResponse;
+import de.ofahrt.catfish.model.HttpStatusCode;
 import de.ofahrt.catfish.utils.HttpConnectionHeader;
 import java.nio.ByteBuffer;
 import java.util.Objects;
@@ -28,6 +32,27 @@ public final class HttpResponseGeneratorBuffered implements HttpResponseGenerato
     return new HttpResponseGeneratorBuffered(request, response, data);
   }
 
+  /**
+   * Creates a generator for a bare response, such as the constants in {@code StandardResponses},
+   * with the {@code Connection}, {@code Content-Length} (if the status allows a body), and {@code
+   * Date} headers a server adds. The head is copied from a pre-encoded table instead of merging and
+   * encoding the headers, so error responses stay cheap under load. Returns null if {@code
+   * response} is not bare, i.e., has headers, a body, a non-standard status message, or is not
+   * HTTP/1.1; the caller then adds the headers and calls {@link #create}.
+   */
+  public static @Nullable HttpResponseGeneratorBuffered createPreEncoded(
+      @Nullable HttpRequest request, HttpResponse response, boolean keepAlive) {
+    CoarseClock.DateValue date = CoarseClock.system().dateValue();
+    byte[] head = HttpEncoder.bareResponseHead(response, keepAlive, date);
+    if (head == null) {
+      return null;
+    }
+    return new HttpResponseGeneratorBuffered(
+        request,
+        new PreEncodedResponse(response, keepAlive, date.text()),
+        new byte[][] {head, HttpEncoder.EMPTY_BYTE_ARRAY});
+  }
+
   private final @Nullable HttpRequest request;
   private final HttpResponse response;
 
@@ -83,6 +108,22 @@ public final class HttpResponseGeneratorBuffered implements HttpResponseGenerato
     return ContinuationToken.CONTINUE;
   }
 
+  @Override
+  public ByteBuffer[] takeSegments() {
+    ByteBuffer[] segments = new ByteBuffer[Math.max(data.length - currentBlock, 0)];
+    for (int i = 0; i < segments.length; i++) {
+      byte[] block = data[currentBlock + i];
+      int offset = i == 0 ? currentIndex : 0;
+      segments[i] = ByteBuffer.wrap(block, offset, block.length - offset);
+      if (currentBlock + i == 1) {
+        bodyBytesSent += block.length - offset;
+      }
+    }
+    currentBlock = data.length;
+    currentIndex = 0;
+    return segments;
+  }
+
   @Override
   public void abort() {
     currentBlock = data.length;
@@ -96,6 +137,62 @@ public final class HttpResponseGeneratorBuffered implements HttpResponseGenerato
 
   @Override
   public boolean keepAlive() {
+    if (response instanceof PreEncodedResponse preEncoded) {
+      return preEncoded.keepAlive;
+    }
     return HttpConnectionHeader.isKeepAlive(response.getHeaders());
   }
+
+  /**
+   * The response a pre-encoded head was generated for. The headers are only built if someone asks
+   * for them, e.g., a request listener.
+   */
+  private static final class PreEncodedResponse implements HttpResponse {
+    private final HttpResponse response;
+    private final boolean keepAlive;
+    private final String date;
+    private volatile @Nullable HttpHeaders headers;
+
+    PreEncodedResponse(HttpResponse response, boolean keepAlive, String date) {
+      this.response = response;
+      this.keepAlive = keepAlive;
+      this.date = date;
+    }
+
+    @Override
+    public int getStatusCode() {
+      return response.getStatusCode();
+    }
+
+    @Override
+    public String getStatusMessage() {
+      return response.getStatusMessage();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      HttpHeaders result = headers;
+      if (result == null) {
+        String connection =
+            keepAlive ? HttpConnectionHeader.KEEP_ALIVE : HttpConnectionHeader.CLOSE;
+        result =
+            HttpStatusCode.mayHaveBody(response.getStatusCode())
+                ? HttpHeaders.of(
+                    HttpHeaderName.CONNECTION,
+                    connection,
+                    HttpHeaderName.CONTENT_LENGTH,
+                    "0",
+                    HttpHeaderName.DATE,
+                    date)
+                : HttpHeaders.of(HttpHeaderName.CONNECTION, connection, HttpHeaderName.DATE, date);
+        headers = result;
+      }
+      return result;
+    }
+
+    @Override
+    public byte[] getBody() {
+      return HttpEncoder.EMPTY_BYTE_ARRAY;
+    }
+  }
 }
@@ -0,0 +1,165 @@
+package de.ofahrt.catfish.http;
+
+import de.ofahrt.catfish.model.HttpRequest;
+import de.ofahrt.catfish.model.HttpResponse;
+import de.ofahrt.catfish.utils.HttpConnectionHeader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Generates a response whose body is a region of a file. Plaintext connections take the head with
+ * {@link #takeSegments} and the body with {@link #takeFileRegion}, and send the latter with {@link
+ * FileChannel#transferTo}; otherwise {@link #generate} reads the file straight into the output
+ * buffer. The generator owns the file channel until it hands it over, and closes it once the body
+ * is generated or the response is aborted.
+ */
+public final class HttpResponseGeneratorFile implements HttpResponseGenerator {
+  public static HttpResponseGeneratorFile create(
+      @Nullable HttpRequest request,
+      HttpResponse response,
+      FileChannel file,
+      long position,
+      long length) {
+    return new HttpResponseGeneratorFile(
+        request, response, HttpEncoder.responseHeadToByteArray(response), file, position, length);
+  }
+
+  /** Creates a generator for a HEAD request: only the head is sent, and the file is closed. */
+  public static HttpResponseGeneratorFile createForHead(
+      @Nullable HttpRequest request, HttpResponse response, FileChannel file) {
+    return new HttpResponseGeneratorFile(
+        request, response, HttpEncoder.responseHeadToByteArray(response), file, 0, 0);
+  }
+
+  private final @Nullable HttpRequest request;
+  private final HttpResponse response;
+
+  private final byte[] head;
+  private int headIndex;
+  private @Nullable FileChannel file;
+  private long position;
+  private long remaining;
+  private long bodyBytesSent;
+
+  private HttpResponseGeneratorFile(
+      @Nullable HttpRequest request,
+      HttpResponse response,
+      byte[] head,
+      FileChannel file,
+      long position,
+      long length) {
+    this.request = request;
+    this.response = Objects.requireNonNull(response, "response");
+    this.head = head;
+    this.file = Objects.requireNonNull(file, "file");
+    this.position = position;
+    this.remaining = length;
+    if (length == 0) {
+      closeFile();
+    }
+  }
+
+  @Override
+  public @Nullable HttpRequest getRequest() {
+    return request;
+  }
+
+  @Override
+  public HttpResponse getResponse() {
+    return response;
+  }
+
+  @Override
+  public ContinuationToken generate(ByteBuffer outputBuffer) {
+    int before = outputBuffer.position();
+    if (headIndex < head.length) {
+      int count = Math.min(outputBuffer.remaining(), head.length - headIndex);
+      outputBuffer.put(head, headIndex, count);
+      headIndex += count;
+    }
+    FileChannel channel = file;
+    if (headIndex == head.length && channel != null && outputBuffer.hasRemaining()) {
+      int limit = outputBuffer.limit();
+      if (outputBuffer.remaining() > remaining) {
+        outputBuffer.limit(outputBuffer.position() + (int) remaining);
+      }
+      int read;
+      try {
+        read = channel.read(outputBuffer, position);
+        if (read < 0) {
+          throw new EOFException("File ended " + remaining + " bytes early");
+        }
+      } catch (IOException e) {
+        closeFile();
+        throw new UncheckedIOException(e);
+      } finally {
+        outputBuffer.limit(limit);
+      }
+      position += read;
+      remaining -= read;
+      bodyBytesSent += read;
+      if (remaining == 0) {
+        closeFile();
+      }
+    }
+    if (outputBuffer.position() == before && headIndex == head.length && file == null) {
+      return ContinuationToken.STOP;
+    }
+    return ContinuationToken.CONTINUE;
+  }
+
+  @Override
+  public ByteBuffer[] takeSegments() {
+    ByteBuffer[] segments =
+        new ByteBuffer[] {ByteBuffer.wrap(head, headIndex, head.length - headIndex)};
+    headIndex = head.length;
+    return segments;
+  }
+
+  @Override
+  public @Nullable FileRegion takeFileRegion() {
+    FileChannel channel = file;
+    if (channel == null) {
+      return null;
+    }
+    FileRegion region = new FileRegion(channel, position, remaining);
+    bodyBytesSent += remaining;
+    file = null;
+    remaining = 0;
+    return region;
+  }
+
+  @Override
+  public void abort() {
+    headIndex = head.length;
+    closeFile();
+  }
+
+  @Override
+  public long getBodyBytesSent() {
+    return bodyBytesSent;
+  }
+
+  @Override
+  public boolean keepAlive() {
+    return HttpConnectionHeader.isKeepAlive(response.getHeaders());
+  }
+
+  private void closeFile() {
+    FileChannel channel = file;
+    if (channel == null) {
+      return;
+    }
+    file = null;
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // There's nothing we can do if this fails.
+    }
+  }
+}
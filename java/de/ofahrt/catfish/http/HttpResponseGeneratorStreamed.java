@@ -10,7 +10,6 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.jspecify.annotations.Nullable;
 
@@ -209,7 +208,13 @@ public final class HttpResponseGeneratorStreamed implements HttpResponseGenerato
   }
 
   private ReadToken generateResponse(ByteBuffer outputBuffer) {
-    byte[] headBytes = Objects.requireNonNull(this.head, "head");
+    if (head == null) {
+      if (HttpEncoder.encodeResponseHead(response, outputBuffer)) {
+        return ReadToken.FINISHED;
+      }
+      head = HttpEncoder.responseHeadToByteArray(response);
+    }
+    byte[] headBytes = head;
     if (headIndex >= headBytes.length) {
       return ReadToken.FINISHED;
     }
@@ -370,7 +375,7 @@ public final class HttpResponseGeneratorStreamed implements HttpResponseGenerato
   }
 
   private void finalizeResponse(boolean close) {
-    if (head != null) {
+    if (readState != ReadState.UNCOMMITTED) {
       throw new IllegalStateException();
     }
     if (!rawBody) {
@@ -386,7 +391,6 @@ public final class HttpResponseGeneratorStreamed implements HttpResponseGenerato
         useChunking = true;
       }
     }
-    head = HttpEncoder.responseHeadToByteArray(response);
   }
 
   private synchronized void internalClose() {
@@ -2,6 +2,7 @@ package de.ofahrt.catfish.http;
 
 import de.ofahrt.catfish.model.HttpHeaderName;
 import de.ofahrt.catfish.model.HttpLimits;
+import de.ofahrt.catfish.model.HttpMethodName;
 import de.ofahrt.catfish.model.HttpRequest;
 import de.ofahrt.catfish.model.HttpStatusCode;
 import de.ofahrt.catfish.model.HttpVersion;
@@ -9,17 +10,31 @@ import de.ofahrt.catfish.model.MalformedRequestException;
 import de.ofahrt.catfish.model.SimpleHttpRequest;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import org.jspecify.annotations.Nullable;
 
 /**
  * Incremental HTTP/1.1 request header parser. Parses the request line and headers only; body
  * parsing is the caller's responsibility. After {@link #isDone()} returns true, call {@link
  * #getRequest()} to get the headers-only request.
+ *
+ * <p>The parser accumulates each token in a byte buffer that it reuses across requests, and creates
+ * a string only once the token is complete. Well-known methods and header field names resolve to
+ * their constants without creating a string at all. The URI and the values of well-known header
+ * fields are remembered across requests, since clients on a keep-alive connection tend to repeat
+ * them verbatim, so a typical request allocates little more than the request object.
  */
 public final class IncrementalHttpRequestParser {
   private static final int MAX_METHOD_LENGTH = 128;
   private static final int MAX_VERSION_DIGITS = 7;
   private static final int MAX_URI_LENGTH = 10_000;
+  private static final int VALUE_CACHE_SIZE = 16;
+  private static final int INITIAL_ELEMENT_CAPACITY = 64;
+  // reset() drops a larger element buffer, so that one long URI or header doesn't pin the memory
+  // for the rest of a keep-alive connection.
+  private static final int MAX_RETAINED_ELEMENT_CAPACITY = 1024;
 
   private static final int TOKEN = 1;
   private static final int DIGIT = 2;
@@ -28,6 +43,17 @@ public final class IncrementalHttpRequestParser {
 
   private static final byte[] CHAR_FLAGS = new byte[256];
 
+  private static final String[] KNOWN_METHODS = {
+    HttpMethodName.GET,
+    HttpMethodName.HEAD,
+    HttpMethodName.POST,
+    HttpMethodName.PUT,
+    HttpMethodName.DELETE,
+    HttpMethodName.OPTIONS,
+    HttpMethodName.TRACE,
+    HttpMethodName.CONNECT,
+  };
+
   private static boolean isControlOrSeparator(int c) {
     return c < 32 || c == 127 || (c < 128 && "\"(),/:;<=>?@[\\]{} \t".indexOf(c) >= 0);
   }
@@ -77,7 +103,14 @@ public final class IncrementalHttpRequestParser {
   private final SimpleHttpRequest.Builder builder = new SimpleHttpRequest.Builder();
 
   private State state = State.REQUEST_METHOD;
-  private StringBuilder elementBuffer = new StringBuilder();
+  // The token in progress; only the first elementLength bytes are valid.
+  private byte[] elementBuffer = new byte[INITIAL_ELEMENT_CAPACITY];
+  private int elementLength;
+  // Recent values of well-known header fields, keyed by the (interned) field name.
+  private final @Nullable String[] cachedValueNames = new String[VALUE_CACHE_SIZE];
+  private final @Nullable String[] cachedValues = new String[VALUE_CACHE_SIZE];
+  private int nextCacheSlot;
+  private @Nullable String lastUri;
   private int counter;
   private boolean expectLineFeed;
   // Running total of committed header field name+value sizes, bounded (together with the field in
@@ -90,6 +123,7 @@ public final class IncrementalHttpRequestParser {
   private int minorVersion;
   private @Nullable String unparsedUri;
   private @Nullable String messageHeaderName;
+  private boolean messageHeaderNameKnown;
   private @Nullable String messageHeaderValue;
 
   public IncrementalHttpRequestParser() {
@@ -98,7 +132,10 @@ public final class IncrementalHttpRequestParser {
 
   public void reset() {
     state = State.REQUEST_METHOD;
-    elementBuffer = new StringBuilder();
+    if (elementBuffer.length > MAX_RETAINED_ELEMENT_CAPACITY) {
+      elementBuffer = new byte[INITIAL_ELEMENT_CAPACITY];
+    }
+    elementLength = 0;
     counter = 0;
     expectLineFeed = false;
     headerListSize = 0;
@@ -110,31 +147,142 @@ public final class IncrementalHttpRequestParser {
     minorVersion = 0;
     unparsedUri = null;
     messageHeaderName = null;
+    messageHeaderNameKnown = false;
     messageHeaderValue = null;
   }
 
+  /** Visible for tests. */
+  int elementCapacity() {
+    return elementBuffer.length;
+  }
+
+  private void append(char c) {
+    if (elementLength == elementBuffer.length) {
+      elementBuffer = Arrays.copyOf(elementBuffer, 2 * elementBuffer.length);
+    }
+    elementBuffer[elementLength++] = (byte) c;
+  }
+
+  private void append(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      append(s.charAt(i));
+    }
+  }
+
   private void trimAndAppendSpace() {
-    if (elementBuffer.length() == 0) {
+    if (elementLength == 0) {
       // Trim all linear whitespace at the beginning.
-    } else if (elementBuffer.charAt(elementBuffer.length() - 1) == ' ') {
+    } else if (elementBuffer[elementLength - 1] == ' ') {
       // Reduce all linear whitespace to a single space.
     } else {
-      elementBuffer.append(' ');
+      append(' ');
+    }
+  }
+
+  private String elementString() {
+    return new String(elementBuffer, 0, elementLength, StandardCharsets.ISO_8859_1);
+  }
+
+  private boolean elementEquals(String s) {
+    if (s.length() != elementLength) {
+      return false;
+    }
+    for (int i = 0; i < elementLength; i++) {
+      if ((elementBuffer[i] & 0xff) != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String methodString() {
+    for (String method : KNOWN_METHODS) {
+      if (elementEquals(method)) {
+        return method;
+      }
+    }
+    return elementString();
+  }
+
+  /**
+   * Returns the canonical form of the header field name in the element buffer: the constant for a
+   * well-known name, and the lower-case name otherwise, matching {@link
+   * HttpHeaderName#canonicalize}.
+   */
+  private String headerNameString() {
+    String known = HttpHeaderName.lookup(elementBuffer, 0, elementLength);
+    messageHeaderNameKnown = known != null;
+    if (known != null) {
+      return known;
+    }
+    for (int i = 0; i < elementLength; i++) {
+      byte b = elementBuffer[i];
+      if (b >= 'A' && b <= 'Z') {
+        elementBuffer[i] = (byte) (b + ('a' - 'A'));
+      }
+    }
+    return elementString();
+  }
+
+  /**
+   * Returns the header field value in the element buffer, reusing the string from an earlier
+   * request if the field is well-known and its value unchanged.
+   */
+  @SuppressWarnings("NullAway") // cachedValues[i] is non-null if cachedValueNames[i] is
+  private String headerValueString(String name) {
+    if (!messageHeaderNameKnown) {
+      return elementString();
+    }
+    for (int i = 0; i < VALUE_CACHE_SIZE; i++) {
+      if (cachedValueNames[i] == name) {
+        if (!elementEquals(cachedValues[i])) {
+          cachedValues[i] = elementString();
+        }
+        return cachedValues[i];
+      }
     }
+    String value = elementString();
+    cachedValueNames[nextCacheSlot] = name;
+    cachedValues[nextCacheSlot] = value;
+    nextCacheSlot = (nextCacheSlot + 1) % VALUE_CACHE_SIZE;
+    return value;
+  }
+
+  private int elementToInt() {
+    int result = 0;
+    for (int i = 0; i < elementLength; i++) {
+      result = result * 10 + (elementBuffer[i] - '0');
+    }
+    return result;
   }
 
   public int parse(byte[] input) throws MalformedRequestException {
     return parse(input, 0, input.length);
   }
 
-  @SuppressWarnings("NullAway") // state machine guarantees non-null at usage points
   public int parse(byte[] input, int offset, int length) throws MalformedRequestException {
+    return parse(ByteBuffer.wrap(input), offset, length);
+  }
+
+  /**
+   * Parses the remaining bytes of {@code input}, which may be a direct buffer, and advances its
+   * position past the consumed bytes. Returns the number of bytes consumed; the parser stops at the
+   * end of the request head and leaves any further bytes in the buffer.
+   */
+  public int parse(ByteBuffer input) throws MalformedRequestException {
+    int consumed = parse(input, input.position(), input.remaining());
+    input.position(input.position() + consumed);
+    return consumed;
+  }
+
+  @SuppressWarnings("NullAway") // state machine guarantees non-null at usage points
+  private int parse(ByteBuffer input, int offset, int length) throws MalformedRequestException {
     if (done) {
       return 0;
     }
 
     for (int i = 0; i < length; i++) {
-      final char c = (char) (input[offset + i] & 0xff);
+      final char c = (char) (input.get(offset + i) & 0xff);
       if (expectLineFeed) {
         expectLineFeed = false;
         if (c != '\n') {
@@ -144,52 +292,55 @@ public final class IncrementalHttpRequestParser {
       switch (state) {
         case REQUEST_METHOD -> {
           if (c == ' ') {
-            if (elementBuffer.length() == 0) {
+            if (elementLength == 0) {
               return setBadRequest("Expected request method, but <space> found");
             }
-            builder.setMethod(elementBuffer.toString());
+            builder.setMethod(methodString());
             counter = 0;
-            elementBuffer.setLength(0);
+            elementLength = 0;
             state = State.REQUEST_URI;
-          } else if (elementBuffer.length() == 0 && (c == '\r' || c == '\n')) {
+          } else if (elementLength == 0 && (c == '\r' || c == '\n')) {
             // RFC 7230 §3.5: a server SHOULD ignore at least one empty line before the
             // request-line for robustness.
             if (c == '\r') {
               expectLineFeed = true;
             }
           } else if (isTokenCharacter(c)) {
-            if (elementBuffer.length() >= MAX_METHOD_LENGTH) {
+            if (elementLength >= MAX_METHOD_LENGTH) {
               return setBadRequest("Request method is too long");
             }
-            elementBuffer.append(c);
+            append(c);
           } else {
             return setBadRequest("Illegal character in request method");
           }
         }
         case REQUEST_URI -> { // "*" | absoluteURI | abs_path | authority
           if (c == ' ') {
-            unparsedUri = elementBuffer.toString();
+            if (lastUri == null || !elementEquals(lastUri)) {
+              lastUri = elementString();
+            }
+            unparsedUri = lastUri;
             builder.setUri(unparsedUri);
             counter = 0;
-            elementBuffer.setLength(0);
+            elementLength = 0;
             state = State.REQUEST_VERSION_HTTP;
           } else if (isControl(c)) {
             return setBadRequest("Illegal character in request URI");
           } else {
-            if (elementBuffer.length() >= MAX_URI_LENGTH) {
+            if (elementLength >= MAX_URI_LENGTH) {
               return setError(HttpStatusCode.URI_TOO_LONG);
             }
             // As of 2026-04, this encoding is probably unnecessary but predates the git history
             // (which goes back 9 years). Likely a workaround for a tool that sent these characters
             // literally in URIs.
             if (c == '|') {
-              elementBuffer.append("%7C");
+              append("%7C");
             } else if (c == '^') {
-              elementBuffer.append("%5E");
+              append("%5E");
             } else if (c == '`') {
-              elementBuffer.append("%60");
+              append("%60");
             } else {
-              elementBuffer.append(c);
+              append(c);
             }
           }
         }
@@ -210,34 +361,33 @@ public final class IncrementalHttpRequestParser {
             counter++;
           } else {
             counter = 0;
-            elementBuffer.setLength(0);
+            elementLength = 0;
             state = State.REQUEST_VERSION_MAJOR;
           }
         }
         case REQUEST_VERSION_MAJOR -> {
           if (isDigit(c)) {
             // Leading zeros MUST be ignored by recipients.
-            if ((elementBuffer.length() == 1) && (elementBuffer.charAt(0) == '0')) {
-              elementBuffer.setLength(0);
+            if ((elementLength == 1) && (elementBuffer[0] == '0')) {
+              elementLength = 0;
             }
-            if (elementBuffer.length() >= MAX_VERSION_DIGITS) {
+            if (elementLength >= MAX_VERSION_DIGITS) {
               return setBadRequest("Http major version is too long");
             }
-            elementBuffer.append(c);
+            append(c);
           } else if (c == '.') {
-            if (elementBuffer.length() == 0) {
+            if (elementLength == 0) {
               return setBadRequest("Http major version number expected");
             }
-            if (elementBuffer.length() > 7) {
+            if (elementLength > 7) {
               return setBadRequest("Http major version is too long");
             }
-            String majorVersionString = elementBuffer.toString();
-            if (!"1".equals(majorVersionString)) {
+            if (!elementEquals("1")) {
               return setError(HttpStatusCode.VERSION_NOT_SUPPORTED, "Http version not supported");
             }
-            majorVersion = Integer.parseInt(majorVersionString);
+            majorVersion = 1;
             counter = 0;
-            elementBuffer.setLength(0);
+            elementLength = 0;
             state = State.REQUEST_VERSION_MINOR;
           } else {
             return setBadRequest("Expected '.' of request version string");
@@ -246,26 +396,26 @@ public final class IncrementalHttpRequestParser {
         case REQUEST_VERSION_MINOR -> {
           if (isDigit(c)) {
             // Leading zeros MUST be ignored by recipients.
-            if ((elementBuffer.length() == 1) && (elementBuffer.charAt(0) == '0')) {
-              elementBuffer.setLength(0);
+            if ((elementLength == 1) && (elementBuffer[0] == '0')) {
+              elementLength = 0;
             }
-            if (elementBuffer.length() >= MAX_VERSION_DIGITS) {
+            if (elementLength >= MAX_VERSION_DIGITS) {
               return setBadRequest("Http minor version is too long");
             }
-            elementBuffer.append(c);
+            append(c);
           } else if (c == '\r') {
             expectLineFeed = true;
           } else if (c == '\n') {
-            if (elementBuffer.length() == 0) {
+            if (elementLength == 0) {
               return setBadRequest("Http minor version number expected");
             }
-            if (elementBuffer.length() > 7) {
+            if (elementLength > 7) {
               return setBadRequest("Http minor version is too long");
             }
-            minorVersion = Integer.parseInt(elementBuffer.toString());
+            minorVersion = elementToInt();
             builder.setVersion(HttpVersion.of(majorVersion, minorVersion));
             counter = 0;
-            elementBuffer.setLength(0);
+            elementLength = 0;
             state = State.MESSAGE_HEADER_NAME;
           } else {
             return setBadRequest("Expected end of request version string");
@@ -273,26 +423,26 @@ public final class IncrementalHttpRequestParser {
         }
         case MESSAGE_HEADER_NAME -> {
           if (c == ':') {
-            if (elementBuffer.length() == 0) {
+            if (elementLength == 0) {
               return setBadRequest("Expected header field name, but ':' found");
             }
-            messageHeaderName = elementBuffer.toString();
+            messageHeaderName = headerNameString();
             counter = 0;
-            elementBuffer.setLength(0);
+            elementLength = 0;
             state = State.MESSAGE_HEADER_VALUE;
           } else if (c == '\r') {
             expectLineFeed = true;
           } else if (c == '\n') {
-            if (elementBuffer.length() != 0) {
+            if (elementLength != 0) {
               return setBadRequest("Unexpected end of line in header field name");
             }
             return validateAndFinish(i);
           } else if (isTokenCharacter(c)) {
-            if (headerListSize + elementBuffer.length() >= HttpLimits.MAX_HEADER_LIST_SIZE) {
+            if (headerListSize + elementLength >= HttpLimits.MAX_HEADER_LIST_SIZE) {
               return setError(
                   HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Header block is too large");
             }
-            elementBuffer.append(c);
+            append(c);
           } else {
             return setBadRequest("Illegal character in header field name");
           }
@@ -301,26 +451,26 @@ public final class IncrementalHttpRequestParser {
           if (c == '\r') {
             expectLineFeed = true;
           } else if (c == '\n') {
-            int end = elementBuffer.length();
+            int end = elementLength;
             // The trimAndAppendSpace ensures at most a single space here.
-            if ((end > 0) && (elementBuffer.charAt(end - 1) == ' ')) {
-              elementBuffer.setLength(end - 1);
+            if ((end > 0) && (elementBuffer[end - 1] == ' ')) {
+              elementLength = end - 1;
             }
-            messageHeaderValue = elementBuffer.toString();
+            messageHeaderValue = headerValueString(messageHeaderName);
             counter = 0;
-            elementBuffer.setLength(0);
+            elementLength = 0;
             state = State.MESSAGE_HEADER_NAME_OR_CONTINUATION;
           } else if (isSpace(c)) {
             trimAndAppendSpace();
           } else if (isControl(c)) {
             return setBadRequest("Illegal character in header field value");
           } else {
-            if (headerListSize + messageHeaderName.length() + elementBuffer.length()
+            if (headerListSize + messageHeaderName.length() + elementLength
                 >= HttpLimits.MAX_HEADER_LIST_SIZE) {
               return setError(
                   HttpStatusCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Header block is too large");
             }
-            elementBuffer.append(c);
+            append(c);
           }
         }
         case MESSAGE_HEADER_NAME_OR_CONTINUATION -> {
@@ -340,9 +490,9 @@ public final class IncrementalHttpRequestParser {
               return validateAndFinish(i);
             } else if (isTokenCharacter(c)) {
               counter = 0;
-              elementBuffer.setLength(0);
+              elementLength = 0;
               state = State.MESSAGE_HEADER_NAME;
-              elementBuffer.append(c);
+              append(c);
             } else {
               return setBadRequest("Illegal character in header field name");
             }
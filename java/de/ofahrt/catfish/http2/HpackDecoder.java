@@ -2,6 +2,7 @@ package de.ofahrt.catfish.http2;
 
 import de.ofahrt.catfish.http2.Hpack.Header;
 import de.ofahrt.catfish.model.HttpLimits;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -38,6 +39,20 @@ final class HpackDecoder {
     this.maxHeaderListSize = max;
   }
 
+  /**
+   * Decodes the complete header block at {@code data[index, index+length)}, which may be a direct
+   * buffer, without changing the buffer's position. The decoder works on arrays, so a direct block
+   * is copied first; header blocks are bounded by the frame size.
+   */
+  List<Header> decode(ByteBuffer data, int index, int length) throws HpackDecodingException {
+    if (data.hasArray()) {
+      return decode(data.array(), data.arrayOffset() + index, length);
+    }
+    byte[] copy = new byte[length];
+    data.get(index, copy);
+    return decode(copy, 0, length);
+  }
+
   /**
    * Decodes a complete header block into a list of headers. The block must be a complete HEADERS
    * frame payload (CONTINUATION not supported).
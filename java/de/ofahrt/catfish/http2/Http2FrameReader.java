@@ -1,5 +1,7 @@
 package de.ofahrt.catfish.http2;
 
+import java.nio.ByteBuffer;
+
 /**
  * Incremental HTTP/2 frame reader (RFC 9113 §4.1). Parses the 9-byte frame header and payload from
  * a byte stream. Call {@link #parse} with available data; when a complete frame is ready, {@link
@@ -9,7 +11,7 @@ final class Http2FrameReader {
 
   private static final int FRAME_HEADER_SIZE = 9;
   private static final int MAX_PAYLOAD_SIZE = 16384; // SETTINGS_MAX_FRAME_SIZE default
-  private static final byte[] EMPTY = new byte[0];
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
 
   private final byte[] headerBuf = new byte[FRAME_HEADER_SIZE];
   private int headerOffset;
@@ -18,30 +20,35 @@ final class Http2FrameReader {
   private int type;
   private int flags;
   private int streamId;
-  private byte[] payload = EMPTY;
+  private ByteBuffer payload = EMPTY;
   private int payloadOffset;
+  // Collects the payload of a frame that arrives over several parse calls; grown on demand and
+  // reused for later frames.
+  private byte[] assembly = new byte[0];
   private boolean complete;
   private boolean frameSizeError;
 
+  /** Feeds {@code data[offset, offset+available)} to the reader; see {@link #parse(ByteBuffer)}. */
+  int parse(byte[] data, int offset, int available) {
+    return parse(ByteBuffer.wrap(data, offset, available));
+  }
+
   /**
-   * Feeds data to the reader. Returns the number of bytes consumed. After this call, check {@link
-   * #isComplete()} to see if a full frame is available.
+   * Feeds the remaining bytes of {@code data}, which may be a direct buffer, to the reader and
+   * advances its position past the consumed bytes. Returns the number of bytes consumed. After this
+   * call, check {@link #isComplete()} to see if a full frame is available.
    */
-  int parse(byte[] data, int offset, int available) {
-    int consumed = 0;
+  int parse(ByteBuffer data) {
+    int start = data.position();
 
     // Read frame header.
     if (headerOffset < FRAME_HEADER_SIZE) {
-      int need = FRAME_HEADER_SIZE - headerOffset;
-      int take = Math.min(need, available);
-      System.arraycopy(data, offset, headerBuf, headerOffset, take);
+      int take = Math.min(FRAME_HEADER_SIZE - headerOffset, data.remaining());
+      data.get(headerBuf, headerOffset, take);
       headerOffset += take;
-      consumed += take;
-      offset += take;
-      available -= take;
 
       if (headerOffset < FRAME_HEADER_SIZE) {
-        return consumed;
+        return data.position() - start;
       }
 
       // Decode header fields.
@@ -53,32 +60,40 @@ final class Http2FrameReader {
               | ((headerBuf[6] & 0xff) << 16)
               | ((headerBuf[7] & 0xff) << 8)
               | (headerBuf[8] & 0xff);
+      payload = EMPTY;
+      payloadOffset = 0;
       if (length > MAX_PAYLOAD_SIZE) {
-        // Frame exceeds maximum allowed size. Skip the payload bytes without allocating.
+        // Frame exceeds maximum allowed size. Skip the payload bytes without buffering them.
         frameSizeError = true;
-        payload = EMPTY;
-      } else {
-        payload = length > 0 ? new byte[length] : EMPTY;
+      } else if (length > 0 && data.remaining() >= length) {
+        // The whole payload is already buffered: expose it in place instead of copying.
+        payload = data.slice(data.position(), length);
+        data.position(data.position() + length);
+        payloadOffset = length;
+      } else if (assembly.length < length) {
+        assembly = new byte[Math.max(length, Math.min(2 * assembly.length, MAX_PAYLOAD_SIZE))];
       }
-      payloadOffset = 0;
     }
 
     // Read (or skip) payload.
     if (payloadOffset < length) {
-      int need = length - payloadOffset;
-      int take = Math.min(need, available);
-      if (!frameSizeError) {
-        System.arraycopy(data, offset, payload, payloadOffset, take);
+      int take = Math.min(length - payloadOffset, data.remaining());
+      if (frameSizeError) {
+        data.position(data.position() + take);
+      } else {
+        data.get(assembly, payloadOffset, take);
       }
       payloadOffset += take;
-      consumed += take;
+      if (payloadOffset == length && !frameSizeError) {
+        payload = ByteBuffer.wrap(assembly, 0, length);
+      }
     }
 
     if (payloadOffset == length) {
       complete = true;
     }
 
-    return consumed;
+    return data.position() - start;
   }
 
   /** Returns true when a complete frame has been parsed. */
@@ -115,10 +130,23 @@ final class Http2FrameReader {
     return streamId;
   }
 
-  byte[] getPayload() {
+  /**
+   * Returns the payload of the complete frame, indexed from 0 to {@link #getLength}. If the frame
+   * arrived in a single {@link #parse} call, this is a view of the input buffer, so it is only
+   * valid until the caller reuses that buffer; otherwise it is a view of an internal buffer that is
+   * valid until the next {@link #parse} call. Either way, the caller must not retain it.
+   */
+  ByteBuffer payload() {
     return payload;
   }
 
+  /** Returns a copy of the payload of the complete frame. */
+  byte[] getPayload() {
+    byte[] result = new byte[payload.limit()];
+    payload.get(0, result);
+    return result;
+  }
+
   /** Returns true if the given flag bit is set. */
   boolean hasFlag(int flag) {
     return (flags & flag) != 0;
@@ -74,6 +74,13 @@ final class Http2FrameWriter {
     buf.put(opaqueData, 0, 8);
   }
 
+  /** Writes a PING frame with the given 8 bytes of opaque data. */
+  static void writePing(ByteBuffer buf, long opaqueData, boolean ack) {
+    int flags = ack ? FrameFlags.FLAG_ACK : 0;
+    writeFrameHeader(buf, 8, FrameType.PING, flags, 0);
+    buf.putLong(opaqueData);
+  }
+
   /** Writes a GOAWAY frame. */
   static void writeGoaway(ByteBuffer buf, int lastStreamId, int errorCode) {
     writeFrameHeader(buf, 8, FrameType.GOAWAY, 0, 0);
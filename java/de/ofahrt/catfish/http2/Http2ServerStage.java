@@ -2,11 +2,13 @@ package de.ofahrt.catfish.http2;
 
 import de.ofahrt.catfish.http.CompressingResponseWriter;
 import de.ofahrt.catfish.http.GzipRequestBodyDecoder;
+import de.ofahrt.catfish.http.HttpRequestEvent;
 import de.ofahrt.catfish.http.IncrementalHttpRequestParser;
 import de.ofahrt.catfish.http2.Hpack.Header;
 import de.ofahrt.catfish.http2.HpackDecoder.HpackDecodingException;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
+import de.ofahrt.catfish.model.CoarseClock;
 import de.ofahrt.catfish.model.HttpHeaderName;
 import de.ofahrt.catfish.model.HttpHeaders;
 import de.ofahrt.catfish.model.HttpRequest;
@@ -66,8 +68,6 @@ public final class Http2ServerStage implements Stage {
   private final RequestQueue requestHandler;
   private final ConnectHandler connectHandler;
   private final @Nullable Executor executor;
-  private final ByteBuffer inputBuffer;
-  private final ByteBuffer outputBuffer;
 
   private @Nullable Connection connection;
   private final HpackDecoder hpackDecoder = new HpackDecoder();
@@ -130,16 +130,12 @@ public final class Http2ServerStage implements Stage {
       Pipeline parent,
       RequestQueue requestHandler,
       ConnectHandler connectHandler,
-      @Nullable Executor executor,
-      ByteBuffer inputBuffer,
-      ByteBuffer outputBuffer) {
+      @Nullable Executor executor) {
     this(
         parent,
         requestHandler,
         connectHandler,
         executor,
-        inputBuffer,
-        outputBuffer,
         Runtime.getRuntime().availableProcessors());
   }
 
@@ -148,16 +144,12 @@ public final class Http2ServerStage implements Stage {
       RequestQueue requestHandler,
       ConnectHandler connectHandler,
       @Nullable Executor executor,
-      ByteBuffer inputBuffer,
-      ByteBuffer outputBuffer,
       int maxConcurrentDispatches) {
     this.parent = parent;
     this.requestHandler = requestHandler;
     this.connectHandler = connectHandler;
     this.executor = executor;
     this.maxConcurrentDispatches = maxConcurrentDispatches;
-    this.inputBuffer = inputBuffer;
-    this.outputBuffer = outputBuffer;
     controlFrameQueue.flip(); // start in read mode, empty
   }
 
@@ -169,8 +161,9 @@ public final class Http2ServerStage implements Stage {
 
   @Override
   public ConnectionControl read() throws IOException {
+    ByteBuffer inputBuffer = parent.inputBuffer();
     if (!prefaceReceived) {
-      if (!consumePreface()) {
+      if (!consumePreface(inputBuffer)) {
         return ConnectionControl.NEED_MORE_DATA;
       }
       prefaceReceived = true;
@@ -190,13 +183,7 @@ public final class Http2ServerStage implements Stage {
         return ConnectionControl.PAUSE;
       }
 
-      int consumed =
-          frameReader.parse(
-              inputBuffer.array(),
-              inputBuffer.arrayOffset() + inputBuffer.position(),
-              inputBuffer.remaining());
-      inputBuffer.position(inputBuffer.position() + consumed);
-
+      frameReader.parse(inputBuffer);
       if (!frameReader.isComplete()) {
         return ConnectionControl.NEED_MORE_DATA;
       }
@@ -215,6 +202,7 @@ public final class Http2ServerStage implements Stage {
 
   @Override
   public ConnectionControl write() throws IOException {
+    ByteBuffer outputBuffer = parent.outputBuffer();
     outputBuffer.compact();
 
     drainControlFrames(outputBuffer);
@@ -237,7 +225,13 @@ public final class Http2ServerStage implements Stage {
             stream.writeResponseFrames(outputBuffer, peerMaxFrameSize, connectionSendWindow);
         connectionSendWindow -= stream.getLastDataBytesSent();
         switch (result) {
-          case DONE -> it.remove();
+          case DONE -> {
+            HttpRequestEvent requestEvent = stream.getRequestEvent();
+            if (requestEvent != null) {
+              requestEvent.complete();
+            }
+            it.remove();
+          }
           case BLOCKED -> blocked = true;
           case WAITING -> {} // skip, try next stream
         }
@@ -255,6 +249,22 @@ public final class Http2ServerStage implements Stage {
     return ConnectionControl.PAUSE;
   }
 
+  @Override
+  public void drain() {
+    if (!prefaceReceived) {
+      // GOAWAY must not precede our SETTINGS, and no stream can be open yet.
+      parent.close();
+      return;
+    }
+    if (!goawaySent) {
+      // Streams up to lastStreamId complete; write() closes the connection once they are done.
+      goawaySent = true;
+      Http2FrameWriter.writeGoaway(controlFrameScratch, lastStreamId, ErrorCode.NO_ERROR);
+      flushScratch();
+      parent.encourageWrites();
+    }
+  }
+
   @Override
   public void close() {
     for (Http2Stream stream : streams.values()) {
@@ -268,7 +278,7 @@ public final class Http2ServerStage implements Stage {
 
   // ---- Connection preface ----
 
-  private boolean consumePreface() throws IOException {
+  private boolean consumePreface(ByteBuffer inputBuffer) throws IOException {
     while (inputBuffer.hasRemaining() && prefaceOffset < CLIENT_PREFACE.length) {
       byte b = inputBuffer.get();
       if (b != CLIENT_PREFACE[prefaceOffset]) {
@@ -330,20 +340,15 @@ public final class Http2ServerStage implements Stage {
     if (frameReader.hasFlag(FrameFlags.FLAG_ACK)) {
       return;
     }
-    byte[] payload = frameReader.getPayload();
-    if (payload.length % 6 != 0) {
+    ByteBuffer payload = frameReader.payload();
+    int length = frameReader.getLength();
+    if (length % 6 != 0) {
       throw new IOException(
-          "h2 FRAME_SIZE_ERROR: SETTINGS payload length "
-              + payload.length
-              + " not a multiple of 6");
-    }
-    for (int i = 0; i + 5 < payload.length; i += 6) {
-      int id = ((payload[i] & 0xff) << 8) | (payload[i + 1] & 0xff);
-      int value =
-          ((payload[i + 2] & 0xff) << 24)
-              | ((payload[i + 3] & 0xff) << 16)
-              | ((payload[i + 4] & 0xff) << 8)
-              | (payload[i + 5] & 0xff);
+          "h2 FRAME_SIZE_ERROR: SETTINGS payload length " + length + " not a multiple of 6");
+    }
+    for (int i = 0; i + 5 < length; i += 6) {
+      int id = payload.getShort(i) & 0xffff;
+      int value = payload.getInt(i + 2);
       applyPeerSetting(id, value);
     }
     // Queue SETTINGS ACK.
@@ -408,14 +413,14 @@ public final class Http2ServerStage implements Stage {
       throw new IOException(
           "h2 PROTOCOL_ERROR: invalid stream ID " + streamId + " (last=" + lastStreamId + ")");
     }
-    byte[] payload = frameReader.getPayload();
+    ByteBuffer payload = frameReader.payload();
     boolean endStream = frameReader.hasFlag(FrameFlags.FLAG_END_STREAM);
 
     // Strip padding and priority fields to find the HPACK header block.
     int hpackOffset = 0;
-    int hpackLength = payload.length;
+    int hpackLength = frameReader.getLength();
     if (frameReader.hasFlag(FrameFlags.FLAG_PADDED)) {
-      int padLength = payload[0] & 0xff;
+      int padLength = payload.get(0) & 0xff;
       hpackOffset += 1;
       hpackLength -= 1 + padLength;
     }
@@ -501,6 +506,11 @@ public final class Http2ServerStage implements Stage {
         endStream ? Http2Stream.State.HALF_CLOSED_REMOTE : Http2Stream.State.OPEN;
     Http2Stream stream = new Http2Stream(streamId, initialState, peerInitialWindowSize);
     streams.put(streamId, stream);
+    HttpRequestEvent requestEvent = HttpRequestEvent.start("HTTP/2");
+    if (requestEvent != null) {
+      requestEvent.headersParsed(method, path);
+      stream.setRequestEvent(requestEvent);
+    }
 
     // Route the request now (at header time) so we can check upload policy before accepting body.
     HttpRequest partialRequest = builder.buildPartialRequest();
@@ -602,7 +612,8 @@ public final class Http2ServerStage implements Stage {
   private void handleData() {
     int streamId = frameReader.getStreamId();
     boolean endStream = frameReader.hasFlag(FrameFlags.FLAG_END_STREAM);
-    byte[] payload = frameReader.getPayload();
+    ByteBuffer payload = frameReader.payload();
+    int payloadLength = frameReader.getLength();
 
     // RFC 9113 §6.9.1: every DATA frame counts against the connection-level flow-control window,
     // even one we drop (unknown/closed stream) or reject (§5.1 STREAM_CLOSED). This credit is the
@@ -611,7 +622,7 @@ public final class Http2ServerStage implements Stage {
     // we responded 401/413/redirect before reading the whole body — never gets those bytes credited
     // back; the window (shared by all streams) drains to zero and every stream on the connection
     // stalls. The full frame payload, including padding, is flow-controlled.
-    creditConnectionWindow(payload.length);
+    creditConnectionWindow(payloadLength);
 
     Http2Stream stream = streams.get(streamId);
     if (stream == null) {
@@ -629,11 +640,11 @@ public final class Http2ServerStage implements Stage {
       return;
     }
 
-    if (payload.length > 0) {
+    if (payloadLength > 0) {
       int dataOffset = 0;
-      int dataLength = payload.length;
+      int dataLength = payloadLength;
       if (frameReader.hasFlag(FrameFlags.FLAG_PADDED)) {
-        int padLength = payload[0] & 0xff;
+        int padLength = payload.get(0) & 0xff;
         dataOffset = 1;
         dataLength -= 1 + padLength;
       }
@@ -647,7 +658,7 @@ public final class Http2ServerStage implements Stage {
       // Stream-level flow control (full frame payload, including padding). Emit past the threshold
       // to avoid amplifying small DATA frames into larger replies. The connection-level window is
       // already credited above.
-      stream.addPendingAckBytes(payload.length);
+      stream.addPendingAckBytes(payloadLength);
       if (stream.getPendingAckBytes() >= WINDOW_UPDATE_THRESHOLD) {
         queueWindowUpdate(streamId, stream.takePendingAckBytes());
         parent.encourageWrites();
@@ -695,8 +706,7 @@ public final class Http2ServerStage implements Stage {
     if (frameReader.hasFlag(FrameFlags.FLAG_ACK)) {
       return;
     }
-    byte[] payload = frameReader.getPayload();
-    Http2FrameWriter.writePing(controlFrameScratch, payload, true);
+    Http2FrameWriter.writePing(controlFrameScratch, frameReader.payload().getLong(0), true);
     flushScratch();
     parent.encourageWrites();
   }
@@ -709,12 +719,7 @@ public final class Http2ServerStage implements Stage {
           "h2 FRAME_SIZE_ERROR: WINDOW_UPDATE payload length " + frameReader.getLength());
     }
     int streamId = frameReader.getStreamId();
-    byte[] payload = frameReader.getPayload();
-    int increment =
-        ((payload[0] & 0x7f) << 24)
-            | ((payload[1] & 0xff) << 16)
-            | ((payload[2] & 0xff) << 8)
-            | (payload[3] & 0xff);
+    int increment = frameReader.payload().getInt(0) & 0x7fffffff;
     if (increment == 0) {
       throw new IOException(
           "h2 PROTOCOL_ERROR: WINDOW_UPDATE increment is 0 on stream " + streamId);
@@ -926,12 +931,20 @@ public final class Http2ServerStage implements Stage {
     }
   }
 
+  private static void responseStarted(Http2Stream stream, int status) {
+    HttpRequestEvent requestEvent = stream.getRequestEvent();
+    if (requestEvent != null) {
+      requestEvent.responseStarted(status);
+    }
+  }
+
   private void sendErrorResponse(Http2Stream stream, HttpResponse errorResponse) {
     byte[] body = errorResponse.getBody();
     if (body == null) {
       body = new byte[0];
     }
     byte[] headerBlock = encodeResponseHeaders(errorResponse, body.length);
+    responseStarted(stream, errorResponse.getStatusCode());
     stream.setResponse(headerBlock, body, true);
     parent.encourageWrites();
   }
@@ -942,10 +955,11 @@ public final class Http2ServerStage implements Stage {
    * @param contentLength if >= 0, adds a content-length header with this value
    */
   private byte[] encodeResponseHeaders(HttpResponse response, int contentLength) {
-    var headerList = new ArrayList<Header>();
+    HttpHeaders headers = response.getHeaders();
+    var headerList = new ArrayList<Header>(headers.size() + 3);
     headerList.add(new Header(":status", Integer.toString(response.getStatusCode())));
-    for (var entry : response.getHeaders()) {
-      String name = entry.getKey();
+    for (int i = 0; i < headers.size(); i++) {
+      String name = headers.name(i);
       // Skip HTTP/1.1-specific headers that don't apply to HTTP/2,
       // and skip content-length if we're setting it ourselves.
       if (HttpHeaderName.CONNECTION.equals(name)
@@ -954,11 +968,15 @@ public final class Http2ServerStage implements Stage {
         continue;
       }
       // HTTP/2 requires lowercase header names (RFC 9113 §8.2).
-      headerList.add(new Header(name.toLowerCase(Locale.ROOT), entry.getValue()));
+      headerList.add(new Header(name.toLowerCase(Locale.ROOT), headers.value(i)));
     }
     if (contentLength >= 0) {
       headerList.add(new Header("content-length", Integer.toString(contentLength)));
     }
+    // RFC 9110 §6.6.1: an origin server with a clock sends a Date header.
+    if (!headers.containsKey(HttpHeaderName.DATE)) {
+      headerList.add(new Header("date", CoarseClock.system().httpDate()));
+    }
     return hpackEncoder.encode(headerList.toArray(new Header[0]));
   }
 
@@ -1173,6 +1191,7 @@ public final class Http2ServerStage implements Stage {
         body = new byte[0];
       }
       byte[] headerBlock = encodeResponseHeaders(response, bodyAllowed ? body.length : -1);
+      responseStarted(stream, response.getStatusCode());
       stream.setResponse(headerBlock, body, true);
       parent.queue(() -> parent.encourageWrites());
     }
@@ -1189,6 +1208,7 @@ public final class Http2ServerStage implements Stage {
       byte[] headerBlock = encodeResponseHeaders(response, -1);
       Http2StreamBuffer buffer =
           new Http2StreamBuffer(65536, () -> parent.queue(() -> parent.encourageWrites()));
+      responseStarted(stream, response.getStatusCode());
       stream.setStreamingResponse(headerBlock, buffer);
       parent.queue(() -> parent.encourageWrites()); // send HEADERS immediately
       return new OutputStream() {
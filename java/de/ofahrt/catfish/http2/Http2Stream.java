@@ -1,5 +1,6 @@
 package de.ofahrt.catfish.http2;
 
+import de.ofahrt.catfish.http.HttpRequestEvent;
 import de.ofahrt.catfish.model.SimpleHttpRequest;
 import de.ofahrt.catfish.model.server.RequestAction;
 import java.io.ByteArrayOutputStream;
@@ -51,6 +52,9 @@ final class Http2Stream {
   private SimpleHttpRequest.@Nullable Builder requestBuilder;
   // Routing result, set after HEADERS for requests with a body.
   private RequestAction.@Nullable ServeLocally routingResult;
+  // The JFR event of the request; null unless a recording has it enabled. Written by the response
+  // writer before it publishes the handoff, so the NIO thread sees those writes.
+  private @Nullable HttpRequestEvent requestEvent;
 
   // Request body accumulator (DATA frames from client).
   private final ByteArrayOutputStream bodyBuffer = new ByteArrayOutputStream();
@@ -157,6 +161,16 @@ final class Http2Stream {
     return routingResult;
   }
 
+  /** NIO thread only. */
+  void setRequestEvent(@Nullable HttpRequestEvent requestEvent) {
+    this.requestEvent = requestEvent;
+  }
+
+  /** Any thread, before publishing the response; see {@link #requestEvent}. */
+  @Nullable HttpRequestEvent getRequestEvent() {
+    return requestEvent;
+  }
+
   // ---- Request body ----
 
   /** NIO thread only. Sets the decoded-body ceiling for this stream (spec 0002). */
@@ -185,6 +199,14 @@ final class Http2Stream {
    * that case no bytes are buffered and the caller must respond 413 exactly once. NIO thread only.
    */
   boolean appendBodyData(byte[] data, int offset, int length) {
+    return appendBodyData(ByteBuffer.wrap(data), offset, length);
+  }
+
+  /**
+   * Like {@link #appendBodyData(byte[], int, int)}, for the bytes at {@code data[index,
+   * index+length)}, which may be a direct buffer. Does not change the buffer's position.
+   */
+  boolean appendBodyData(ByteBuffer data, int index, int length) {
     if (bodyRejected) {
       return false;
     }
@@ -193,7 +215,13 @@ final class Http2Stream {
       bodyRejected = true;
       return false;
     }
-    bodyBuffer.write(data, offset, length);
+    if (data.hasArray()) {
+      bodyBuffer.write(data.array(), data.arrayOffset() + index, length);
+    } else {
+      byte[] copy = new byte[length];
+      data.get(index, copy);
+      bodyBuffer.writeBytes(copy);
+    }
     return true;
   }
 
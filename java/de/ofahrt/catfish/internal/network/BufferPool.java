@@ -0,0 +1,120 @@
+package de.ofahrt.catfish.internal.network;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bounded free list of I/O buffers. Each {@link NetworkEngine} selector thread owns one pool;
+ * connections acquire buffers only while they have bytes in flight and return them once drained, so
+ * idle keep-alive connections hold no buffer memory.
+ *
+ * <p>Buffers come in a few size classes: starting at {@link #SMALLEST_BUFFER_SIZE} and doubling up
+ * to {@link #bufferSize}, which is always the largest class. Read buffers start small and grow with
+ * the traffic of their connection (see {@link ReadBufferSizer}); all other buffers use the largest
+ * class. Each class keeps its own free list of up to {@code maxPooledBuffers} buffers.
+ *
+ * <p>Buffers are heap buffers because streaming request bodies are handed to their handler as
+ * slices of the read buffer's backing array. Instances are not thread-safe: all calls must happen
+ * on the owning selector thread.
+ */
+public final class BufferPool {
+  /** The size of the smallest size class, unless {@link #bufferSize} is even smaller. */
+  public static final int SMALLEST_BUFFER_SIZE = 4096;
+
+  private final int bufferSize;
+  private final int maxPooledBuffers;
+  private final int[] sizes;
+  private final List<ArrayDeque<ByteBuffer>> free;
+
+  public BufferPool(int bufferSize, int maxPooledBuffers) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive");
+    }
+    if (maxPooledBuffers < 0) {
+      throw new IllegalArgumentException("maxPooledBuffers must not be negative");
+    }
+    this.bufferSize = bufferSize;
+    this.maxPooledBuffers = maxPooledBuffers;
+    int classes = 1;
+    for (int size = SMALLEST_BUFFER_SIZE; size < bufferSize; size *= 2) {
+      classes++;
+    }
+    this.sizes = new int[classes];
+    for (int i = 0; i < classes - 1; i++) {
+      sizes[i] = SMALLEST_BUFFER_SIZE << i;
+    }
+    sizes[classes - 1] = bufferSize;
+    this.free = new ArrayList<>(classes);
+    for (int i = 0; i < classes; i++) {
+      free.add(new ArrayDeque<>());
+    }
+  }
+
+  /** Returns the size of the largest size class. */
+  public int bufferSize() {
+    return bufferSize;
+  }
+
+  /** Returns the number of size classes; class {@code sizeClasses() - 1} is the largest. */
+  public int sizeClasses() {
+    return sizes.length;
+  }
+
+  /** Returns the buffer size of the given size class. */
+  public int sizeOf(int sizeClass) {
+    return sizes[sizeClass];
+  }
+
+  /** Returns the number of buffers currently held in the free lists. */
+  public int pooledBuffers() {
+    int total = 0;
+    for (ArrayDeque<ByteBuffer> list : free) {
+      total += list.size();
+    }
+    return total;
+  }
+
+  /**
+   * Returns an empty buffer of the largest size class in read mode (position == limit == 0), either
+   * recycled from the free list or freshly allocated.
+   */
+  public ByteBuffer acquire() {
+    return acquire(sizes.length - 1);
+  }
+
+  /** Like {@link #acquire()}, but returns a buffer of the given size class. */
+  public ByteBuffer acquire(int sizeClass) {
+    ByteBuffer buffer = free.get(sizeClass).pollFirst();
+    if (buffer == null) {
+      buffer = ByteBuffer.allocate(sizes[sizeClass]);
+    }
+    buffer.clear();
+    buffer.flip(); // prepare for reading
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer to the free list of its size class. Any remaining content is discarded.
+   * Buffers that don't match a size class, and buffers beyond the pool bound, are left to the
+   * garbage collector.
+   */
+  public void release(ByteBuffer buffer) {
+    int sizeClass = sizeClassOf(buffer.capacity());
+    if (sizeClass < 0 || free.get(sizeClass).size() >= maxPooledBuffers) {
+      return;
+    }
+    // LIFO keeps recently used (cache-warm) buffers in rotation.
+    free.get(sizeClass).addFirst(buffer);
+  }
+
+  private int sizeClassOf(int capacity) {
+    for (int i = 0; i < sizes.length; i++) {
+      if (sizes[i] == capacity) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,19 @@
+package de.ofahrt.catfish.internal.network;
+
+/**
+ * How {@link NetworkEngine} assigns new connections to its selector threads. Connections accepted
+ * by an SO_REUSEPORT listener always stay on the accepting selector; the kernel already spreads
+ * them.
+ */
+public enum ConnectionAssignment {
+  /** Cycles through the selectors, ignoring their load. */
+  ROUND_ROBIN,
+  /** Picks the selector with the lowest {@link SelectorLoad} score. */
+  LEAST_LOADED,
+  /**
+   * Picks two selectors at random and takes the less loaded one. Almost as good as {@link
+   * #LEAST_LOADED} but without scanning all selectors, and it avoids sending a burst of connections
+   * to the same selector before the load figures catch up.
+   */
+  POWER_OF_TWO_CHOICES;
+}
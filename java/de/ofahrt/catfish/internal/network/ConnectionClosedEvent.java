@@ -0,0 +1,34 @@
+package de.ofahrt.catfish.internal.network;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.jspecify.annotations.Nullable;
+
+/** JFR event for a closed connection, with its traffic and lifetime. */
+@Name("de.ofahrt.catfish.ConnectionClosed")
+@Label("Connection Closed")
+@Category({"Catfish", "Network"})
+@Description("A network connection was closed")
+final class ConnectionClosedEvent extends jdk.jfr.Event {
+  @Label("Connection Id")
+  @Nullable String connectionId;
+
+  @Label("Remote Address")
+  @Nullable String remoteAddress;
+
+  @Label("Bytes Read")
+  @DataAmount
+  long bytesRead;
+
+  @Label("Bytes Written")
+  @DataAmount
+  long bytesWritten;
+
+  @Label("Lifetime")
+  @Timespan
+  long lifetime;
+}
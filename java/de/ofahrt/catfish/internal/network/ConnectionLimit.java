@@ -0,0 +1,54 @@
+package de.ofahrt.catfish.internal.network;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts open connections against an upper bound. {@link NetworkEngine} keeps one for the whole
+ * engine and one per listening endpoint, and stops accepting while either is full. Thread-safe.
+ */
+final class ConnectionLimit {
+  static final ConnectionLimit UNLIMITED = new ConnectionLimit(0);
+
+  private final int max;
+  private final AtomicInteger open = new AtomicInteger();
+
+  /** Creates a limit of {@code max} connections; 0 means unlimited. */
+  ConnectionLimit(int max) {
+    if (max < 0) {
+      throw new IllegalArgumentException("max must not be negative");
+    }
+    this.max = max;
+  }
+
+  /** Counts a new connection and returns true, or returns false if the limit is reached. */
+  boolean tryAcquire() {
+    if (max == 0) {
+      return true;
+    }
+    while (true) {
+      int current = open.get();
+      if (current >= max) {
+        return false;
+      }
+      if (open.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /** Releases a connection counted by a successful {@link #tryAcquire}. */
+  void release() {
+    if (max != 0) {
+      open.decrementAndGet();
+    }
+  }
+
+  boolean isFull() {
+    return max != 0 && open.get() >= max;
+  }
+
+  /** Returns the number of counted connections; always 0 if unlimited. */
+  int open() {
+    return open.get();
+  }
+}
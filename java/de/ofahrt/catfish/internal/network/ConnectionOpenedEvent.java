@@ -0,0 +1,23 @@
+package de.ofahrt.catfish.internal.network;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jspecify.annotations.Nullable;
+
+/** JFR event for a connection that was accepted or established. */
+@Name("de.ofahrt.catfish.ConnectionOpened")
+@Label("Connection Opened")
+@Category({"Catfish", "Network"})
+@Description("A network connection was accepted or established")
+final class ConnectionOpenedEvent extends jdk.jfr.Event {
+  @Label("Connection Id")
+  @Nullable String connectionId;
+
+  @Label("Remote Address")
+  @Nullable String remoteAddress;
+
+  @Label("Outgoing")
+  boolean outgoing;
+}
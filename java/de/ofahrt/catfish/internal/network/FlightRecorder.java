@@ -0,0 +1,143 @@
+package de.ofahrt.catfish.internal.network;
+
+import java.util.IllegalFormatException;
+import java.util.Locale;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A fixed-size ring buffer of the most recent events of one connection, for diagnosing rare stalls
+ * and errors in production. Recording an event stores the format string and its arguments without
+ * formatting them, so the hot path allocates nothing; {@link #dump} formats the retained events on
+ * demand.
+ *
+ * <p>Object arguments are kept by reference until they are overwritten, so callers should only pass
+ * immutable values such as enum constants and strings. Instances are meant to be used on the
+ * connection's selector thread; records from other threads are tolerated but may be lost.
+ */
+public final class FlightRecorder {
+  /** A recorder that keeps nothing. */
+  public static final FlightRecorder DISABLED = new FlightRecorder(0);
+
+  private static final byte TEXT = 0;
+  private static final byte LONG = 1;
+  private static final byte LONG_LONG = 2;
+  private static final byte OBJECT = 3;
+  private static final byte OBJECT_LONG = 4;
+
+  private final int mask;
+  private final long[] times;
+  private final byte[] kinds;
+  private final String[] formats;
+  private final @Nullable Object[] objects;
+  private final long[] firsts;
+  private final long[] seconds;
+  private long count;
+
+  /** Creates a recorder that keeps the last {@code capacity} events, rounded up to a power of 2. */
+  public FlightRecorder(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must not be negative");
+    }
+    int size = capacity <= 1 ? capacity : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = size - 1;
+    this.times = new long[size];
+    this.kinds = new byte[size];
+    this.formats = new String[size];
+    this.objects = new Object[size];
+    this.firsts = new long[size];
+    this.seconds = new long[size];
+  }
+
+  /** Returns the number of events this recorder keeps. */
+  public int capacity() {
+    return times.length;
+  }
+
+  public void record(String text) {
+    int i = next(TEXT, text);
+    if (i >= 0) {
+      objects[i] = null;
+    }
+  }
+
+  public void record(String format, long value) {
+    int i = next(LONG, format);
+    if (i >= 0) {
+      objects[i] = null;
+      firsts[i] = value;
+    }
+  }
+
+  public void record(String format, long first, long second) {
+    int i = next(LONG_LONG, format);
+    if (i >= 0) {
+      objects[i] = null;
+      firsts[i] = first;
+      seconds[i] = second;
+    }
+  }
+
+  public void record(String format, @Nullable Object value) {
+    int i = next(OBJECT, format);
+    if (i >= 0) {
+      objects[i] = value;
+    }
+  }
+
+  public void record(String format, @Nullable Object value, long number) {
+    int i = next(OBJECT_LONG, format);
+    if (i >= 0) {
+      objects[i] = value;
+      firsts[i] = number;
+    }
+  }
+
+  private int next(byte kind, String format) {
+    if (times.length == 0) {
+      return -1;
+    }
+    int i = (int) (count++ & mask);
+    times[i] = System.nanoTime();
+    kinds[i] = kind;
+    formats[i] = format;
+    return i;
+  }
+
+  /**
+   * Formats the retained events, oldest first, one per line, with timestamps in milliseconds
+   * relative to {@code originNanos} (a {@link System#nanoTime} value, e.g., the connection start).
+   */
+  public String dump(long originNanos) {
+    StringBuilder result = new StringBuilder();
+    long retained = Math.min(count, times.length);
+    if (count > retained) {
+      result.append("(").append(count - retained).append(" earlier events dropped)\n");
+    }
+    for (long n = count - retained; n < count; n++) {
+      int i = (int) (n & mask);
+      result.append(
+          String.format(Locale.ROOT, "%+10.3fms ", Double.valueOf((times[i] - originNanos) / 1e6)));
+      result.append(format(i)).append('\n');
+    }
+    return result.toString();
+  }
+
+  private String format(int i) {
+    try {
+      return formatUnchecked(i);
+    } catch (IllegalFormatException e) {
+      return formats[i] + " <" + e.getMessage() + ">";
+    }
+  }
+
+  private String formatUnchecked(int i) {
+    Long first = Long.valueOf(firsts[i]);
+    return switch (kinds[i]) {
+      case LONG -> String.format(Locale.ROOT, formats[i], first);
+      case LONG_LONG -> String.format(Locale.ROOT, formats[i], first, Long.valueOf(seconds[i]));
+      case OBJECT -> String.format(Locale.ROOT, formats[i], objects[i]);
+      case OBJECT_LONG -> String.format(Locale.ROOT, formats[i], objects[i], first);
+      default -> formats[i];
+    };
+  }
+}
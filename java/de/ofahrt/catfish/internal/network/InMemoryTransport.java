@@ -0,0 +1,297 @@
+package de.ofahrt.catfish.internal.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * One end of an in-memory, full-duplex byte stream between two {@link NetworkEngine} connections,
+ * which may live on different selector threads or even different engines. Each direction is a
+ * bounded ring buffer, so a writer sees a full pipe like a full socket send buffer.
+ *
+ * <p>No system calls are involved. Instead of a selector, the end computes its readiness from the
+ * pipes and calls its readiness listener whenever the peer changes it: when data arrives in an
+ * empty pipe, when a full pipe gets room, and when the peer shuts down or closes.
+ */
+final class InMemoryTransport implements Transport {
+
+  /** The two ends of a connection. */
+  record Pair(InMemoryTransport client, InMemoryTransport server) {}
+
+  /** Creates a connected pair; each direction buffers up to {@code capacity} bytes. */
+  static Pair pair(int capacity) {
+    Pipe clientToServer = new Pipe(capacity);
+    Pipe serverToClient = new Pipe(capacity);
+    InMemoryTransport client = new InMemoryTransport(serverToClient, clientToServer);
+    InMemoryTransport server = new InMemoryTransport(clientToServer, serverToClient);
+    return new Pair(client, server);
+  }
+
+  private final Pipe in;
+  private final Pipe out;
+  private volatile @Nullable Runnable listener;
+  // Selector thread only.
+  private int interestOps;
+  private boolean valid = true;
+  private boolean connected;
+
+  private InMemoryTransport(Pipe in, Pipe out) {
+    this.in = in;
+    this.out = out;
+    in.reader = this;
+    out.writer = this;
+  }
+
+  /**
+   * Sets the action to run when the peer changes the readiness of this end. It runs on the peer's
+   * thread, so it typically queues a task for the selector thread that owns this end.
+   */
+  @Override
+  public void setReadinessListener(Runnable listener) {
+    this.listener = listener;
+  }
+
+  private void signal() {
+    Runnable current = listener;
+    if (current != null) {
+      current.run();
+    }
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    return in.read(dst);
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    return out.write(src);
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    long total = 0;
+    for (int i = offset; i < offset + length; i++) {
+      int remaining = srcs[i].remaining();
+      int written = out.write(srcs[i]);
+      total += written;
+      if (written < remaining) {
+        break;
+      }
+    }
+    return total;
+  }
+
+  @Override
+  public long transferFrom(FileChannel file, long position, long count) throws IOException {
+    return out.transferFrom(file, position, count);
+  }
+
+  @Override
+  public boolean finishConnect() {
+    connected = true;
+    return true;
+  }
+
+  @Override
+  public void shutdownInput() {
+    in.shutdownReader();
+  }
+
+  @Override
+  public void shutdownOutput() {
+    out.closeWriter();
+  }
+
+  @Override
+  public void cancel() {
+    valid = false;
+    interestOps = 0;
+  }
+
+  @Override
+  public void close() {
+    in.closeReader();
+    out.closeWriter();
+  }
+
+  @Override
+  public boolean isValid() {
+    return valid;
+  }
+
+  @Override
+  public boolean isConnectable() {
+    return !connected;
+  }
+
+  @Override
+  public boolean isReadable() {
+    return in.isReadable();
+  }
+
+  @Override
+  public boolean isWritable() {
+    return out.isWritable();
+  }
+
+  @Override
+  public int interestOps() {
+    return interestOps;
+  }
+
+  @Override
+  public void interestOps(int ops) {
+    this.interestOps = ops;
+  }
+
+  @Override
+  public boolean hasPendingEvents() {
+    return ((interestOps & SelectionKey.OP_CONNECT) != 0 && isConnectable())
+        || ((interestOps & SelectionKey.OP_READ) != 0 && isReadable())
+        || ((interestOps & SelectionKey.OP_WRITE) != 0 && isWritable());
+  }
+
+  /** One direction of the stream: a ring buffer with one writing and one reading end. */
+  private static final class Pipe {
+    private final byte[] data;
+    private int start;
+    private int size;
+    // The writer shut down its output; the reader sees end of stream after the buffered bytes.
+    private boolean writerClosed;
+    // The reader shut down its input; further writes are discarded.
+    private boolean readerShutdown;
+    // The reader closed the connection; further writes fail.
+    private boolean readerClosed;
+    private @Nullable InMemoryTransport reader;
+    private @Nullable InMemoryTransport writer;
+
+    Pipe(int capacity) {
+      this.data = new byte[capacity];
+    }
+
+    int read(ByteBuffer dst) {
+      boolean wasFull;
+      int count;
+      synchronized (this) {
+        if (size == 0) {
+          return writerClosed ? -1 : 0;
+        }
+        wasFull = size == data.length;
+        count = Math.min(dst.remaining(), size);
+        int first = Math.min(count, data.length - start);
+        dst.put(data, start, first);
+        dst.put(data, 0, count - first);
+        start = (start + count) % data.length;
+        size -= count;
+      }
+      if (wasFull && count > 0) {
+        signal(writer);
+      }
+      return count;
+    }
+
+    int write(ByteBuffer src) throws IOException {
+      boolean wasEmpty;
+      int count;
+      synchronized (this) {
+        checkWritable();
+        if (readerShutdown) {
+          count = src.remaining();
+          src.position(src.limit());
+          return count;
+        }
+        wasEmpty = size == 0;
+        count = Math.min(src.remaining(), data.length - size);
+        int tail = (start + size) % data.length;
+        int first = Math.min(count, data.length - tail);
+        src.get(data, tail, first);
+        src.get(data, 0, count - first);
+        size += count;
+      }
+      if (wasEmpty && count > 0) {
+        signal(reader);
+      }
+      return count;
+    }
+
+    long transferFrom(FileChannel file, long position, long count) throws IOException {
+      boolean wasEmpty;
+      int read;
+      synchronized (this) {
+        checkWritable();
+        if (readerShutdown) {
+          return count;
+        }
+        wasEmpty = size == 0;
+        int tail = (start + size) % data.length;
+        int contiguous = Math.min(data.length - size, data.length - tail);
+        int length = (int) Math.min(count, contiguous);
+        read = Math.max(0, file.read(ByteBuffer.wrap(data, tail, length), position));
+        size += read;
+      }
+      if (wasEmpty && read > 0) {
+        signal(reader);
+      }
+      return read;
+    }
+
+    private void checkWritable() throws IOException {
+      if (readerClosed) {
+        throw new IOException("Connection closed by peer");
+      }
+      if (writerClosed) {
+        throw new IOException("Output already shut down");
+      }
+    }
+
+    synchronized boolean isReadable() {
+      return size > 0 || writerClosed;
+    }
+
+    synchronized boolean isWritable() {
+      return size < data.length || readerShutdown || readerClosed;
+    }
+
+    void closeWriter() {
+      synchronized (this) {
+        if (writerClosed) {
+          return;
+        }
+        writerClosed = true;
+      }
+      signal(reader);
+    }
+
+    void shutdownReader() {
+      boolean wasFull;
+      synchronized (this) {
+        wasFull = size == data.length;
+        readerShutdown = true;
+        size = 0;
+      }
+      if (wasFull) {
+        signal(writer);
+      }
+    }
+
+    void closeReader() {
+      synchronized (this) {
+        if (readerClosed) {
+          return;
+        }
+        readerClosed = true;
+        size = 0;
+      }
+      signal(writer);
+    }
+
+    private static void signal(@Nullable InMemoryTransport end) {
+      if (end != null) {
+        end.signal();
+      }
+    }
+  }
+}
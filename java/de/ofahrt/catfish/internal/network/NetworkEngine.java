@@ -2,47 +2,79 @@ package de.ofahrt.catfish.internal.network;
 
 import de.ofahrt.catfish.internal.network.Stage.ConnectionControl;
 import de.ofahrt.catfish.internal.network.Stage.InitialConnectionState;
+import de.ofahrt.catfish.model.CoarseClock;
 import de.ofahrt.catfish.model.network.Connection;
+import de.ofahrt.catfish.model.network.DrainReport;
 import de.ofahrt.catfish.model.network.NetworkEventListener;
 import de.ofahrt.catfish.model.network.NetworkServer;
+import de.ofahrt.catfish.model.network.SelectorStats;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.BindException;
+import java.net.ConnectException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.SocketOption;
 import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
 import java.net.UnixDomainSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NetworkChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import jdk.net.ExtendedSocketOptions;
 import org.jspecify.annotations.Nullable;
 
 public final class NetworkEngine {
 
   private static final boolean DEBUG = false;
   private static final int DEFAULT_BUFFER_SIZE = 65536;
+  // Large enough to hold a complete TLS record, which the TLS stages rely on.
+  private static final int MIN_BUFFER_SIZE = 17 * 1024;
+  // Upper bound on idle buffers kept per selector thread; 64 x 64 KiB = 4 MiB per selector.
+  private static final int DEFAULT_MAX_POOLED_BUFFERS = 64;
+  // Connection deadlines are measured in seconds, so 100 ms resolution is plenty; one revolution of
+  // the wheel covers 51.2 seconds, longer timeouts wait for more rounds.
+  private static final long TIMER_TICK_MILLIS = 100;
+  private static final int TIMER_WHEEL_SIZE = 512;
+  // Ticked by every selector loop before and after select; timer wheels read it instead of the
+  // system clock, and responses take their Date header from it.
+  private static final CoarseClock CLOCK = CoarseClock.system();
+  // FlightRecorder keeps six parallel arrays, about 33 bytes per slot in total with compressed
+  // oops, so 32 events take about 1.1 KiB per connection including the array headers.
+  private static final int DEFAULT_FLIGHT_RECORDER_SIZE = 32;
+  // Netty uses 16 for both maxMessagesPerRead and writeSpinCount.
+  private static final int DEFAULT_STAGE_CALLS_PER_EVENT = 16;
 
   private static final boolean OUTGOING_CONNECTION = true;
   private static final boolean INCOMING_CONNECTION = false;
 
-  private static final DateTimeFormatter DATE_FORMATTER =
-      DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss.SSS");
-
   public interface Pipeline {
 
     void encourageWrites();
@@ -53,7 +85,128 @@ public final class NetworkEngine {
 
     void queue(Runnable runnable);
 
-    void log(String text, Object... params);
+    /**
+     * Returns the flight recorder of this connection. The {@code log} methods record into it; the
+     * engine dumps it when the connection fails with an internal error, or on demand (see {@link
+     * NetworkEngine#dumpFlightRecords}).
+     */
+    default FlightRecorder flightRecorder() {
+      return FlightRecorder.DISABLED;
+    }
+
+    /**
+     * Records an event in the connection's {@link #flightRecorder}. The overloads avoid varargs and
+     * boxing so that logging costs next to nothing; arguments are only formatted when the record is
+     * dumped. Object arguments are kept by reference, so pass only immutable values.
+     */
+    default void log(String text) {
+      flightRecorder().record(text);
+    }
+
+    default void log(String format, long value) {
+      flightRecorder().record(format, value);
+    }
+
+    default void log(String format, long first, long second) {
+      flightRecorder().record(format, first, second);
+    }
+
+    default void log(String format, @Nullable Object value) {
+      flightRecorder().record(format, value);
+    }
+
+    default void log(String format, @Nullable Object value, long number) {
+      flightRecorder().record(format, value, number);
+    }
+
+    /**
+     * Returns the buffer holding bytes received from the network, in read mode. The buffer is
+     * acquired from the selector's {@link BufferPool} on first use and returned to it once it has
+     * been drained, so stages must not keep a reference beyond the current callback. Must only be
+     * called on the selector thread.
+     */
+    ByteBuffer inputBuffer();
+
+    /**
+     * Returns the buffer holding bytes to be written to the network, in read mode. The same
+     * lifetime rules as for {@link #inputBuffer} apply.
+     */
+    ByteBuffer outputBuffer();
+
+    /**
+     * Returns true if {@link #writeSegments} and {@link #transferFile} are supported. Only
+     * pipelines that write directly to a socket do; pipelines that transform outgoing bytes (e.g.,
+     * TLS) don't.
+     */
+    default boolean canWriteSegments() {
+      return false;
+    }
+
+    /**
+     * Queues {@code segments} to be written to the network after the bytes in the output buffer,
+     * using a gathering write instead of copying them into the output buffer. The stage's {@link
+     * Stage#write} is not called again until all segments are written, and the segments must not be
+     * modified until then. A stage that returns {@link ConnectionControl#CONTINUE} is called again
+     * once they are, which is how it learns that the bytes are on the wire. Must only be called
+     * from {@link Stage#write}, and only if {@link #canWriteSegments} returns true.
+     */
+    default void writeSegments(ByteBuffer[] segments) {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Queues {@code count} bytes of {@code file}, starting at {@code position}, to be written to
+     * the network after the output buffer and any segments, using {@link FileChannel#transferTo} so
+     * the bytes don't pass through user space. The pipeline takes ownership of {@code file} and
+     * closes it once the region is written or the connection is closed. The same restrictions as
+     * for {@link #writeSegments} apply.
+     */
+    default void transferFile(FileChannel file, long position, long count) {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the number of bytes written to the network so far. Lets a stage tell whether the
+     * bytes queued by {@link #writeSegments} and {@link #transferFile} are still making progress.
+     */
+    default long bytesWritten() {
+      return 0;
+    }
+
+    /**
+     * Returns true once the engine has started a graceful shutdown. Stages should then stop keeping
+     * connections alive, e.g., by answering with {@code Connection: close}. May be called from any
+     * thread.
+     */
+    default boolean isDraining() {
+      return false;
+    }
+
+    /**
+     * Returns the executor for blocking work on behalf of this connection, such as running
+     * application handlers. If the engine pairs worker pools with its selector threads (see {@link
+     * Builder#workerThreadsPerSelector}), this is the pool of the selector that owns the
+     * connection, overflowing to {@code shared} when it is saturated; otherwise it is {@code
+     * shared} itself.
+     */
+    default Executor workerExecutor(Executor shared) {
+      return shared;
+    }
+
+    /**
+     * Returns the buffer pool of the selector thread that owns this connection. Stages that need
+     * additional buffers of their own (e.g., TLS plaintext buffers) should take them from here and
+     * return them when they are drained. Must only be called on the selector thread.
+     */
+    BufferPool bufferPool();
+
+    /**
+     * Schedules {@code task} to run on the selector thread after {@code delayMillis}, unless the
+     * returned timeout is cancelled first or the connection is closed. Use this to implement
+     * connection deadlines such as idle or read timeouts. Must only be called on the selector
+     * thread.
+     */
+    TimerWheel.Timeout schedule(long delayMillis, Runnable task);
 
     /**
      * Replaces the current stage with {@code nextStage}. The caller is responsible for closing or
@@ -67,7 +220,7 @@ public final class NetworkEngine {
 
     boolean usesSsl();
 
-    Stage connect(Pipeline pipeline, ByteBuffer inputBuffer, ByteBuffer outputBuffer);
+    Stage connect(Pipeline pipeline);
   }
 
   private interface EventHandler {
@@ -97,45 +250,80 @@ public final class NetworkEngine {
 
     private final SelectorQueue queue;
     private final Connection connection;
-    private final SocketChannel socketChannel;
-    private final SelectionKey key;
-    private final ByteBuffer inputBuffer;
-    private final ByteBuffer outputBuffer;
+    private final Transport transport;
+    // The limit of the endpoint that accepted the connection; null for outgoing connections.
+    private final @Nullable ConnectionLimit endpointLimit;
+    // Both buffers are acquired lazily from the selector's pool and released once drained; see
+    // releaseDrainedBuffers().
+    private @Nullable ByteBuffer inputBuffer;
+    private @Nullable ByteBuffer outputBuffer;
+    // Picks the size of the input buffer, which starts small and adapts to the connection.
+    private final ReadBufferSizer readBufferSizer;
+    private final FlightRecorder flightRecorder;
+    private long bytesRead;
+    private long bytesWritten;
+    // Segments queued by writeSegments, starting at index 1 and written after the output buffer;
+    // index 0 is set to the output buffer for the duration of a write. Null if none are pending.
+    private ByteBuffer @Nullable [] pendingSegments;
+    private int pendingIndex;
+    // File region queued by transferFile, written after the pending segments.
+    private @Nullable FileChannel pendingFile;
+    private long pendingFilePosition;
+    private long pendingFileRemaining;
 
     private Stage current;
     private ConnectionState state = ConnectionState.CONNECTING;
     private FlowState readState = FlowState.PAUSED;
     private FlowState writeState = FlowState.PAUSED;
+    // Set while an encourage task is queued, so that concurrent or repeated encourage calls from
+    // other threads queue (and wake the selector for) at most one task per direction.
+    private final AtomicBoolean writesEncouraged = new AtomicBoolean();
+    private final AtomicBoolean readsEncouraged = new AtomicBoolean();
+    private final Runnable encourageWritesTask = this::doEncourageWrites;
+    private final Runnable encourageReadsTask = this::doEncourageReads;
+    // Collapses readiness signals of an in-memory transport into one queued task.
+    private final AtomicBoolean transportSignaled = new AtomicBoolean();
+    private final Runnable transportSignalTask = this::doTransportSignal;
+    // Set while the connection waits in SelectorQueue.deferred to be handled again.
+    private boolean deferred;
+    // Set if it was deferred with input left in the buffer. The selection key then still reports
+    // the last select's readiness, so resuming only processes the buffered input; new bytes are
+    // read once the key is selected again.
+    private boolean deferredInput;
+    // Set if the connection was open when shutdownGracefully started; see drainedCounter.
+    private boolean drainRequested;
 
     SocketHandler(
         SelectorQueue queue,
         Connection connection,
-        SocketChannel socketChannel,
-        SelectionKey key,
+        Transport transport,
         NetworkHandler handler,
+        @Nullable ConnectionLimit endpointLimit,
         boolean outgoing) {
       this.queue = queue;
       this.connection = connection;
-      this.socketChannel = socketChannel;
-      this.key = key;
-      this.inputBuffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
-      this.outputBuffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
-      inputBuffer.clear();
-      inputBuffer.flip(); // prepare for reading
-      outputBuffer.clear();
-      outputBuffer.flip(); // prepare for reading
-      this.current = handler.connect(this, inputBuffer, outputBuffer);
-      log(
-          "%s at %s",
-          outgoing ? "Outgoing" : "Incoming",
-          DATE_FORMATTER.format(
-              ZonedDateTime.ofInstant(
-                  Instant.ofEpochMilli(connection.startTimeMillis()), ZoneId.systemDefault())));
+      this.transport = transport;
+      this.endpointLimit = endpointLimit;
+      this.readBufferSizer = new ReadBufferSizer(queue.bufferPool);
+      this.flightRecorder =
+          flightRecorderSize == 0
+              ? FlightRecorder.DISABLED
+              : new FlightRecorder(flightRecorderSize);
+      transport.setReadinessListener(this::transportSignaled);
+      this.current = handler.connect(this);
+      log(outgoing ? "Outgoing" : "Incoming");
+      ConnectionOpenedEvent event = new ConnectionOpenedEvent();
+      if (event.isEnabled()) {
+        event.connectionId = connection.getId().toString();
+        event.remoteAddress = remoteAddressForEvent();
+        event.outgoing = outgoing;
+        event.commit();
+      }
       if (outgoing) {
         state = ConnectionState.CONNECTING;
         readState = FlowState.PAUSED;
         writeState = FlowState.PAUSED;
-        key.interestOps(SelectionKey.OP_CONNECT);
+        setInterestOps(SelectionKey.OP_CONNECT);
       } else {
         connect();
       }
@@ -156,41 +344,251 @@ public final class NetworkEngine {
       }
     }
 
+    @Override
+    public ByteBuffer inputBuffer() {
+      ByteBuffer result = inputBuffer;
+      if (result == null) {
+        result = queue.bufferPool.acquire(readBufferSizer.sizeClass());
+        inputBuffer = result;
+      }
+      return result;
+    }
+
+    /**
+     * Called when the stage needs more data to make progress. If the input buffer is full, moves
+     * its content to a buffer of the next size class so the next read has room.
+     */
+    private void growInputBufferIfFull() {
+      ByteBuffer buffer = inputBuffer;
+      if (buffer == null
+          || buffer.remaining() != buffer.capacity()
+          || !readBufferSizer.grow(buffer.capacity())) {
+        return;
+      }
+      ByteBuffer larger = queue.bufferPool.acquire(readBufferSizer.sizeClass());
+      larger.compact(); // prepare buffer for writing
+      larger.put(buffer);
+      larger.flip(); // prepare buffer for reading
+      queue.bufferPool.release(buffer);
+      inputBuffer = larger;
+      log("Input buffer grown to %d bytes", larger.capacity());
+    }
+
+    @Override
+    public ByteBuffer outputBuffer() {
+      ByteBuffer result = outputBuffer;
+      if (result == null) {
+        result = queue.bufferPool.acquire();
+        outputBuffer = result;
+      }
+      return result;
+    }
+
+    @Override
+    public boolean canWriteSegments() {
+      return true;
+    }
+
+    @Override
+    public void writeSegments(ByteBuffer[] segments) {
+      if (pendingSegments != null) {
+        throw new IllegalStateException("Previous segments have not been written yet");
+      }
+      ByteBuffer[] gather = new ByteBuffer[segments.length + 1];
+      System.arraycopy(segments, 0, gather, 1, segments.length);
+      pendingSegments = gather;
+      pendingIndex = 1;
+      skipWrittenSegments(gather);
+    }
+
+    @Override
+    public void transferFile(FileChannel file, long position, long count) {
+      if (pendingFile != null) {
+        closeQuietly(file);
+        throw new IllegalStateException("Previous file region has not been written yet");
+      }
+      if (count == 0) {
+        closeQuietly(file);
+        return;
+      }
+      pendingFile = file;
+      pendingFilePosition = position;
+      pendingFileRemaining = count;
+    }
+
+    @Override
+    public long bytesWritten() {
+      return bytesWritten;
+    }
+
+    private boolean hasPendingDirectWrites() {
+      return pendingSegments != null || pendingFile != null;
+    }
+
+    private void closePendingFile() {
+      FileChannel file = pendingFile;
+      if (file != null) {
+        pendingFile = null;
+        closeQuietly(file);
+      }
+    }
+
+    private void closeQuietly(FileChannel file) {
+      try {
+        file.close();
+      } catch (IOException e) {
+        networkEventListener.warning(connection, e);
+      }
+    }
+
+    private void skipWrittenSegments(ByteBuffer[] gather) {
+      while (pendingIndex < gather.length && !gather[pendingIndex].hasRemaining()) {
+        pendingIndex++;
+      }
+      if (pendingIndex == gather.length) {
+        pendingSegments = null;
+      }
+    }
+
+    @Override
+    public BufferPool bufferPool() {
+      return queue.bufferPool;
+    }
+
+    @Override
+    public TimerWheel.Timeout schedule(long delayMillis, Runnable task) {
+      return queue.timerWheel.schedule(
+          delayMillis,
+          () -> {
+            if (state == ConnectionState.OPEN) {
+              task.run();
+              releaseDrainedBuffers();
+            }
+          });
+    }
+
+    private boolean hasBufferedInput() {
+      return inputBuffer != null && inputBuffer.hasRemaining();
+    }
+
+    private boolean hasBufferedOutput() {
+      return (outputBuffer != null && outputBuffer.hasRemaining()) || hasPendingDirectWrites();
+    }
+
+    /** Returns drained buffers to the pool so that idle connections don't pin any memory. */
+    private void releaseDrainedBuffers() {
+      if (inputBuffer != null && !inputBuffer.hasRemaining()) {
+        queue.bufferPool.release(inputBuffer);
+        inputBuffer = null;
+      }
+      if (outputBuffer != null && !outputBuffer.hasRemaining()) {
+        queue.bufferPool.release(outputBuffer);
+        outputBuffer = null;
+      }
+    }
+
     private void updateSelector() {
       boolean selectRead = readState == FlowState.OPEN;
-      boolean selectWrite = outputBuffer.hasRemaining() || writeState == FlowState.OPEN;
+      boolean selectWrite = hasBufferedOutput() || writeState == FlowState.OPEN;
       int ops = (selectRead ? SelectionKey.OP_READ : 0) | (selectWrite ? SelectionKey.OP_WRITE : 0);
-      if (ops != key.interestOps()) {
+      if (ops != transport.interestOps()) {
         log("Selecting: %s", SELECT_MODE[(selectRead ? 1 : 0) + (selectWrite ? 2 : 0)]);
-        key.interestOps(ops);
+      }
+      setInterestOps(ops);
+    }
+
+    private void setInterestOps(int ops) {
+      if (ops != transport.interestOps()) {
+        transport.interestOps(ops);
+      }
+      // Without a selector, nothing else would report an event that is already pending.
+      if (transport.hasPendingEvents()) {
+        handleLater();
+      }
+    }
+
+    /** Called by an in-memory transport, on any thread, when the peer changed its readiness. */
+    private void transportSignaled() {
+      if (transportSignaled.get() || transportSignaled.getAndSet(true)) {
+        return;
+      }
+      queue.queue(transportSignalTask);
+    }
+
+    private void doTransportSignal() {
+      transportSignaled.set(false);
+      if (state != ConnectionState.CLOSED && transport.hasPendingEvents()) {
+        handleEvent();
       }
     }
 
     @Override
     public void encourageWrites() {
-      queue.queue(
-          () -> {
-            if (state == ConnectionState.OPEN && writeState == FlowState.PAUSED) {
-              writeState = FlowState.OPEN;
-              handleEvent();
-            }
-          });
+      // Collapse repeated calls (e.g., one per flush from a streaming handler) into one task.
+      if (writesEncouraged.get() || writesEncouraged.getAndSet(true)) {
+        return;
+      }
+      queue.queue(encourageWritesTask);
+    }
+
+    private void doEncourageWrites() {
+      // Clear first: a call made while we run must queue a new task.
+      writesEncouraged.set(false);
+      if (state == ConnectionState.OPEN && writeState == FlowState.PAUSED) {
+        writeState = FlowState.OPEN;
+        handleEvent();
+      }
     }
 
     @Override
     public void encourageReads() {
-      queue.queue(
-          () -> {
-            if (state == ConnectionState.OPEN) {
-              if (readState == FlowState.PAUSED) {
-                readState = FlowState.OPEN;
-                handleEvent();
-              } else if (readState == FlowState.PAUSED_CLOSE_AFTER_FLUSH) {
-                readState = FlowState.CLOSE_AFTER_FLUSH;
-                handleEvent();
-              }
-            }
-          });
+      if (readsEncouraged.get() || readsEncouraged.getAndSet(true)) {
+        return;
+      }
+      queue.queue(encourageReadsTask);
+    }
+
+    /**
+     * Handles a connection again that ran out of budget, or whose in-memory transport has a pending
+     * event. Neither makes a selection key ready, so the selector thread calls this explicitly.
+     */
+    void resumeDeferred() {
+      deferred = false;
+      boolean readTransport = !deferredInput;
+      deferredInput = false;
+      if (state != ConnectionState.CLOSED) {
+        handleEvent(readTransport);
+      }
+    }
+
+    /** Handles the connection again after the other ready connections of this loop round. */
+    private void handleLater() {
+      if (!deferred) {
+        deferred = true;
+        queue.defer(this);
+      }
+    }
+
+    private void deferRemainingInput() {
+      if (!deferred) {
+        queue.metrics.deferred();
+        log("Out of budget, deferring");
+      }
+      deferredInput = true;
+      handleLater();
+    }
+
+    private void doEncourageReads() {
+      readsEncouraged.set(false);
+      if (state == ConnectionState.OPEN) {
+        if (readState == FlowState.PAUSED) {
+          readState = FlowState.OPEN;
+          handleEvent();
+        } else if (readState == FlowState.PAUSED_CLOSE_AFTER_FLUSH) {
+          readState = FlowState.CLOSE_AFTER_FLUSH;
+          handleEvent();
+        }
+      }
     }
 
     @Override
@@ -208,7 +606,7 @@ public final class NetworkEngine {
      * Tears down a connection: notifies the current stage, cancels the SelectionKey, closes the
      * socket channel, and balances the open-connection counter. Idempotent — repeated calls are
      * harmless because the state transition to {@link ConnectionState#CLOSED} prevents reentry via
-     * {@link #close()}, and the catch around {@code socketChannel.close()} swallows already-closed
+     * {@link #close()}, and the catch around {@code transport.close()} swallows already-closed
      * errors.
      */
     private void doClose() {
@@ -217,31 +615,70 @@ public final class NetworkEngine {
       readState = FlowState.CLOSED;
       // Cancel the key before anything that could throw, so a failure below cannot leave a live
       // SelectionKey attached to a CLOSED handler — that would spin handleEvent() forever.
-      key.cancel();
+      transport.cancel();
+      queue.inMemoryConnections.remove(this);
+      ConnectionClosedEvent event = new ConnectionClosedEvent();
+      if (event.isEnabled()) {
+        event.connectionId = connection.getId().toString();
+        event.remoteAddress = remoteAddressForEvent();
+        event.bytesRead = bytesRead;
+        event.bytesWritten = bytesWritten;
+        event.lifetime = System.nanoTime() - connection.startTimeNanos();
+        event.commit();
+      }
       // Release resources, we may have a worker thread blocked on writing to the connection.
       current.close();
+      // Any unsent or unprocessed bytes are discarded with the connection.
+      if (inputBuffer != null) {
+        queue.bufferPool.release(inputBuffer);
+        inputBuffer = null;
+      }
+      if (outputBuffer != null) {
+        queue.bufferPool.release(outputBuffer);
+        outputBuffer = null;
+      }
+      pendingSegments = null;
+      closePendingFile();
       try {
-        socketChannel.close();
+        transport.close();
       } catch (IOException e) {
         // There's nothing we can do if this fails.
         networkEventListener.notifyInternalError(connection, e);
       }
       closedCounter.incrementAndGet();
+      if (drainRequested) {
+        drainedCounter.incrementAndGet();
+      }
+      queue.load.connectionClosed();
+      if (endpointLimit != null) {
+        releaseIncomingConnection(endpointLimit);
+      }
+      if (draining) {
+        synchronized (drainMonitor) {
+          drainMonitor.notifyAll();
+        }
+      }
     }
 
     @Override
     public void handleEvent() {
-      log("Event: state=%s readState=%s writeState=%s", state, readState, writeState);
+      handleEvent(true);
+    }
+
+    private void handleEvent(boolean readTransport) {
+      log("Event: state=%s", state);
+      log("  readState=%s", readState);
+      log("  writeState=%s", writeState);
       if (state == ConnectionState.CLOSED) {
-        if (key.isValid()) {
+        if (transport.isValid()) {
           throw new IllegalStateException();
         }
       } else if (state == ConnectionState.CLOSING) {
         doClose();
       } else if (state == ConnectionState.CONNECTING) {
-        if (key.isConnectable()) {
+        if (transport.isConnectable()) {
           try {
-            if (!socketChannel.finishConnect()) {
+            if (!transport.finishConnect()) {
               throw new IllegalStateException("This should not be possible");
             }
             connect();
@@ -254,35 +691,55 @@ public final class NetworkEngine {
       } else {
         try {
           // Read data from the network if data is available.
-          if (readState == FlowState.OPEN && key.isReadable()) {
+          if (readState == FlowState.OPEN && readTransport && transport.isReadable()) {
+            ByteBuffer inputBuffer = inputBuffer();
             inputBuffer.compact(); // prepare buffer for writing
             int readCount;
             try {
-              readCount = socketChannel.read(inputBuffer);
+              readCount = transport.read(inputBuffer);
             } catch (IOException e) {
               networkEventListener.warning(connection, e);
               close();
               return;
             }
+            boolean filled = !inputBuffer.hasRemaining();
             inputBuffer.flip(); // prepare buffer for reading
+            // A read that returns nothing, e.g., after a spurious wakeup, says nothing about the
+            // connection's traffic, unless the buffer had no room.
+            if (readCount > 0 || filled) {
+              readBufferSizer.recordRead(readCount, inputBuffer.capacity(), filled);
+            }
+            if (readCount != 0) {
+              queue.metrics.read(readCount);
+            }
+            if (readCount > 0) {
+              queue.load.addBytes(readCount);
+              bytesRead += readCount;
+            }
             if (readCount == -1) {
               log("Input closed");
               readState = FlowState.CLOSE_AFTER_FLUSH;
             } else {
-              log(
-                  "Read %d bytes (%d buffered)",
-                  Integer.valueOf(readCount), Integer.valueOf(inputBuffer.remaining()));
+              log("Read %d bytes (%d buffered)", readCount, inputBuffer.remaining());
             }
           }
 
-          // Process any data in the input buffer.
+          // Process any data in the input buffer, but at most stageCallsPerEvent reads, so that a
+          // buffer full of small messages can't hold up the other connections of this selector.
+          int readBudget = stageCallsPerEvent;
           int drainAttempt = 0;
           while (readState == FlowState.CLOSE_AFTER_FLUSH) {
             // There's no more incoming data, but we only want to notify the stage once all data is
             // processed.
-            if (inputBuffer.hasRemaining()) {
+            if (hasBufferedInput()) {
+              if (readBudget-- == 0) {
+                deferRemainingInput();
+                break;
+              }
+              ByteBuffer inputBuffer = inputBuffer();
               int before = inputBuffer.remaining();
               ConnectionControl control = current.read();
+              log("read -> %s", control);
               switch (control) {
                 case CONTINUE -> {
                   if ((inputBuffer.remaining() == before) && (drainAttempt++ == 10)) {
@@ -293,15 +750,17 @@ public final class NetworkEngine {
                             current));
                   }
                 }
-                case NEED_MORE_DATA ->
-                    // No more data is coming and the stage thinks it needs more. Discard any
-                    // remaining bytes so the next loop iteration reaches the empty-buffer branch
-                    // and calls inputClosed(). (Don't use buffer.clear() here — that puts the
-                    // buffer back into write mode, where hasRemaining() would report the full
-                    // capacity and spin forever.)
-                    inputBuffer.position(inputBuffer.limit());
+                case NEED_MORE_DATA -> {
+                  // No more data is coming and the stage thinks it needs more. Discard any
+                  // remaining bytes so the next loop iteration reaches the empty-buffer branch and
+                  // calls inputClosed(). (Don't use buffer.clear() here — that puts the buffer
+                  // back into write mode, where hasRemaining() would report the full capacity and
+                  // spin forever.)
+                  queue.metrics.needMoreData();
+                  inputBuffer.position(inputBuffer.limit());
+                }
                 case PAUSE -> {
-                  if (inputBuffer.hasRemaining()) {
+                  if (hasBufferedInput()) {
                     // There's still data left in the buffer, so we're not done yet.
                     readState = FlowState.PAUSED_CLOSE_AFTER_FLUSH;
                   } else {
@@ -317,7 +776,7 @@ public final class NetworkEngine {
                   // could just as well not have arrived before we close input locally.
                   readState = FlowState.CLOSED;
                   // Redundant since the remote already closed, but makes our intent explicit.
-                  socketChannel.shutdownInput();
+                  transport.shutdownInput();
                 }
                 case CLOSE_OUTPUT_AFTER_FLUSH ->
                     throw new IllegalStateException(
@@ -338,12 +797,17 @@ public final class NetworkEngine {
           }
           int attempt = 0;
           boolean needMoreData = false;
-          while ((readState == FlowState.OPEN) && inputBuffer.hasRemaining() && !needMoreData) {
-            int before = inputBuffer.remaining();
+          while ((readState == FlowState.OPEN) && hasBufferedInput() && !needMoreData) {
+            if (readBudget-- == 0) {
+              deferRemainingInput();
+              break;
+            }
+            int before = inputBuffer().remaining();
             ConnectionControl control = current.read();
+            log("read -> %s", control);
             switch (control) {
               case CONTINUE -> {
-                if ((inputBuffer.remaining() == before) && (attempt++ == 10)) {
+                if ((inputBuffer().remaining() == before) && (attempt++ == 10)) {
                   // The pipeline did not read any data after several attempts. Looks like a bug.
                   throw new IllegalStateException(
                       String.format(
@@ -351,11 +815,15 @@ public final class NetworkEngine {
                           current));
                 }
               }
-              case NEED_MORE_DATA -> needMoreData = true;
+              case NEED_MORE_DATA -> {
+                queue.metrics.needMoreData();
+                growInputBufferIfFull();
+                needMoreData = true;
+              }
               case PAUSE -> readState = FlowState.PAUSED;
               case CLOSE_INPUT -> {
                 readState = FlowState.CLOSED;
-                socketChannel.shutdownInput();
+                transport.shutdownInput();
               }
               case CLOSE_OUTPUT_AFTER_FLUSH ->
                   throw new IllegalStateException(
@@ -371,10 +839,17 @@ public final class NetworkEngine {
             }
           }
 
-          // Generate data for writing.
-          while (writeState == FlowState.OPEN && (available(outputBuffer) > 0)) {
-            int before = available(outputBuffer);
+          // Generate data for writing. A stage that produces many small pieces stops after
+          // stageCallsPerEvent writes; the key stays selected for writing, so it continues in the
+          // next loop iteration without being deferred.
+          int writeBudget = stageCallsPerEvent;
+          while (writeState == FlowState.OPEN
+              && !hasPendingDirectWrites()
+              && (available(outputBuffer()) > 0)
+              && writeBudget-- > 0) {
+            int before = available(outputBuffer());
             ConnectionControl control = current.write();
+            log("write -> %s", control);
             switch (control) {
               case CONTINUE -> {}
               case NEED_MORE_DATA ->
@@ -392,35 +867,28 @@ public final class NetworkEngine {
                 return;
               }
             }
-            if (before == available(outputBuffer)) {
+            if (before == available(outputBuffer())) {
               // Pipeline did not write any data.
               break;
             }
           }
 
           // Write data to the network if possible.
-          if (outputBuffer.hasRemaining() && key.isWritable()) {
-            int before = outputBuffer.remaining();
+          if (hasBufferedOutput() && transport.isWritable()) {
             try {
-              socketChannel.write(outputBuffer);
+              writeToNetwork();
             } catch (IOException e) {
               networkEventListener.warning(connection, e);
               close();
               return;
             }
-            log(
-                "Wrote %d bytes (%d still buffered)",
-                Integer.valueOf(before - outputBuffer.remaining()),
-                Integer.valueOf(outputBuffer.remaining()));
-            outputBuffer.compact(); // prepare for writing
-            outputBuffer.flip(); // prepare for reading
           }
-          if (!outputBuffer.hasRemaining()) {
+          if (!hasBufferedOutput()) {
             // There's no remaining data to be written.
             if (writeState == FlowState.CLOSE_AFTER_FLUSH) {
               // Half-close the connection.
               writeState = FlowState.CLOSED;
-              socketChannel.shutdownOutput();
+              transport.shutdownOutput();
             } else if (writeState == FlowState.CLOSE_CONNECTION_AFTER_FLUSH) {
               // Close the connection entirely.
               close();
@@ -429,22 +897,96 @@ public final class NetworkEngine {
           }
 
           updateSelector();
+          releaseDrainedBuffers();
         } catch (Exception e) {
+          log("Internal error: %s", e.getClass().getName());
           e = new IOException(connection.getId().toString(), e);
           networkEventListener.notifyInternalError(connection, e);
+          reportFlightRecord();
           state = ConnectionState.CLOSING;
           close();
         }
       }
     }
 
+    private void writeToNetwork() throws IOException {
+      ByteBuffer[] gather = pendingSegments;
+      if (gather != null) {
+        writeSegmentsToNetwork(gather);
+      } else if (outputBuffer != null && outputBuffer.hasRemaining()) {
+        ByteBuffer outputBuffer = this.outputBuffer;
+        int before = outputBuffer.remaining();
+        countWritten(transport.write(outputBuffer));
+        log(
+            "Wrote %d bytes (%d still buffered)",
+            before - outputBuffer.remaining(), outputBuffer.remaining());
+        outputBuffer.compact(); // prepare for writing
+        outputBuffer.flip(); // prepare for reading
+      }
+      FileChannel file = pendingFile;
+      if (file != null
+          && pendingSegments == null
+          && (outputBuffer == null || !outputBuffer.hasRemaining())) {
+        long written = transport.transferFrom(file, pendingFilePosition, pendingFileRemaining);
+        countWritten(written);
+        if (written == 0 && pendingFilePosition >= file.size()) {
+          throw new EOFException("File ended " + pendingFileRemaining + " bytes early");
+        }
+        pendingFilePosition += written;
+        pendingFileRemaining -= written;
+        log("Transferred %d bytes from file (%d remaining)", written, pendingFileRemaining);
+        if (pendingFileRemaining == 0) {
+          closePendingFile();
+        }
+      }
+    }
+
+    private void countWritten(long count) {
+      bytesWritten += count;
+      queue.load.addBytes(count);
+      queue.metrics.written(count);
+    }
+
+    private void writeSegmentsToNetwork(ByteBuffer[] gather) throws IOException {
+      // Gathering write: the buffered bytes (if any) followed by the queued segments.
+      int start = pendingIndex;
+      ByteBuffer head = outputBuffer;
+      if (head != null && head.hasRemaining()) {
+        gather[0] = head;
+        start = 0;
+      }
+      long written;
+      try {
+        written = transport.write(gather, start, gather.length - start);
+        countWritten(written);
+      } finally {
+        // Don't hold on to the pooled buffer.
+        gather[0] = null;
+      }
+      if (head != null) {
+        head.compact(); // prepare for writing
+        head.flip(); // prepare for reading
+      }
+      skipWrittenSegments(gather);
+      log(
+          "Wrote %2$d bytes in a gathering write (%1$s)",
+          pendingSegments == null ? "done" : "segments pending", written);
+    }
+
     private int available(ByteBuffer buffer) {
       return buffer.capacity() - buffer.limit();
     }
 
     @Override
     public void queue(Runnable runnable) {
-      queue.queue(runnable);
+      queue.queue(
+          () -> {
+            runnable.run();
+            // The runnable may have touched the buffers outside of handleEvent.
+            if (state != ConnectionState.CLOSED) {
+              releaseDrainedBuffers();
+            }
+          });
     }
 
     @Override
@@ -453,117 +995,258 @@ public final class NetworkEngine {
       InitialConnectionState s = nextStage.connect(connection);
       readState = s != InitialConnectionState.WRITE_ONLY ? FlowState.OPEN : FlowState.PAUSED;
       writeState = s != InitialConnectionState.READ_ONLY ? FlowState.OPEN : FlowState.PAUSED;
-      if (readState == FlowState.OPEN && inputBuffer.hasRemaining()) {
+      if (readState == FlowState.OPEN && hasBufferedInput()) {
         queue.queue(this::handleEvent);
       }
     }
 
     @Override
-    public void log(String text, Object... params) {
-      // Debug logging is off by default (DEBUG = false). Flip DEBUG and inline a call to
-      // System.out.println(String.format(text, params)) here when chasing NIO state bugs.
+    public boolean isDraining() {
+      return draining;
     }
-  }
-
-  private final class ServerSocketHandler implements EventHandler {
 
-    private final ServerSocketChannel serverChannel;
-    private final SelectionKey key;
-    private final NetworkHandler handler;
+    @Override
+    public Executor workerExecutor(Executor shared) {
+      SelectorWorkers workers = queue.workers;
+      if (workers == null) {
+        return shared;
+      }
+      return task -> workers.execute(task, shared);
+    }
 
-    public ServerSocketHandler(
-        ServerSocketChannel serverChannel, SelectionKey key, NetworkHandler handler) {
-      this.serverChannel = serverChannel;
-      this.key = key;
-      this.handler = handler;
+    /** Asks the stage to wind down the connection; see {@link Stage#drain}. */
+    private void drain() {
+      drainRequested = true;
+      if (state != ConnectionState.OPEN) {
+        return;
+      }
+      try {
+        current.drain();
+      } catch (RuntimeException e) {
+        log("Internal error in drain: %s", e.getClass().getName());
+        networkEventListener.notifyInternalError(connection, e);
+        reportFlightRecord();
+        close();
+      }
     }
 
-    @SuppressWarnings("resource")
     @Override
-    public void handleEvent() {
-      if (key.isAcceptable()) {
-        // After successful accept(), the socket channel is owned by attachConnection. If any
-        // step before attachConnection throws, we close the per-connection socket channel — NOT
-        // the listener — and decrement openCounter, then keep the listener alive.
-        SocketChannel socketChannel;
-        try {
-          socketChannel = serverChannel.accept();
-        } catch (IOException e) {
-          networkEventListener.notifyInternalError(null, e);
-          return;
-        }
+    public FlightRecorder flightRecorder() {
+      return flightRecorder;
+    }
 
-        openCounter.incrementAndGet();
-        Connection connection =
-            new Connection(
-                (InetSocketAddress) socketChannel.socket().getLocalSocketAddress(),
-                (InetSocketAddress) socketChannel.socket().getRemoteSocketAddress(),
-                handler.usesSsl());
-        try {
-          socketChannel.configureBlocking(false);
-          socketChannel.socket().setTcpNoDelay(true);
-          socketChannel.socket().setKeepAlive(true);
-          socketChannel.socket().setSoLinger(false, 0);
-          getQueueForConnection().attachConnection(connection, socketChannel, handler);
-        } catch (IOException e) {
-          closeAcceptedSocket(socketChannel, e);
-          closedCounter.incrementAndGet();
-          networkEventListener.warning(connection, e);
-        }
-      }
+    private @Nullable String remoteAddressForEvent() {
+      InetSocketAddress address = connection.getRemoteAddress();
+      return address != null ? address.toString() : null;
     }
 
-    public void shutdown() {
-      key.cancel();
-      try {
-        serverChannel.close();
-      } catch (IOException ignored) {
-        // Not much we can do at this point.
+    private String dumpFlightRecord() {
+      return flightRecorder.dump(connection.startTimeNanos());
+    }
+
+    private void reportFlightRecord() {
+      if (flightRecorder.capacity() > 0) {
+        networkEventListener.flightRecord(connection, dumpFlightRecord());
       }
     }
   }
 
   /**
-   * Closes a freshly-accepted socket after a setup failure, suppressing close errors into the
-   * original exception.
+   * Base class for listening sockets. While the engine or the endpoint is at its connection limit,
+   * the listener clears {@code OP_ACCEPT} so that new clients wait in the kernel's listen backlog
+   * instead of being accepted into an overloaded server, and sets it again once connections close.
    */
-  private static void closeAcceptedSocket(SocketChannel socketChannel, IOException original) {
-    try {
-      socketChannel.close();
-    } catch (IOException e) {
-      original.addSuppressed(e);
-    }
-  }
-
-  private final class UnixServerSocketHandler implements EventHandler {
+  private abstract class ListenerHandler implements EventHandler {
 
-    private final ServerSocketChannel serverChannel;
-    private final SelectionKey key;
-    private final NetworkHandler handler;
-    private final Path socketPath;
+    final ServerSocketChannel serverChannel;
+    final SelectionKey key;
+    final NetworkHandler handler;
+    final SelectorQueue owner;
+    final ConnectionLimit endpointLimit;
+    // Only changed on the owner's selector thread, but read by connections closing elsewhere.
+    private volatile boolean paused;
 
-    public UnixServerSocketHandler(
+    ListenerHandler(
         ServerSocketChannel serverChannel,
         SelectionKey key,
         NetworkHandler handler,
-        Path socketPath) {
+        SelectorQueue owner,
+        ConnectionLimit endpointLimit) {
       this.serverChannel = serverChannel;
       this.key = key;
       this.handler = handler;
-      this.socketPath = socketPath;
+      this.owner = owner;
+      this.endpointLimit = endpointLimit;
+      listeners.add(this);
+    }
+
+    /**
+     * Accepts a pending connection if both limits allow it, counting it against them. Otherwise
+     * stops accepting and returns null; also returns null if there was no pending connection.
+     */
+    @Nullable SocketChannel accept() {
+      if (!engineLimit.tryAcquire()) {
+        pause();
+        return null;
+      }
+      if (!endpointLimit.tryAcquire()) {
+        engineLimit.release();
+        pause();
+        return null;
+      }
+      SocketChannel socketChannel;
+      try {
+        socketChannel = serverChannel.accept();
+      } catch (IOException e) {
+        releaseIncomingConnection(endpointLimit);
+        networkEventListener.notifyInternalError(null, e);
+        return null;
+      }
+      if (socketChannel == null) {
+        releaseIncomingConnection(endpointLimit);
+      }
+      return socketChannel;
+    }
+
+    private void pause() {
+      key.interestOps(0);
+      paused = true;
+      pausedListeners.incrementAndGet();
+      // A connection that closed before we incremented pausedListeners didn't schedule a resume.
+      resume();
+    }
+
+    /** Starts accepting again if paused and both limits allow it. Selector thread only. */
+    void resume() {
+      if (!paused || engineLimit.isFull() || endpointLimit.isFull()) {
+        return;
+      }
+      paused = false;
+      pausedListeners.decrementAndGet();
+      if (key.isValid()) {
+        key.interestOps(SelectionKey.OP_ACCEPT);
+      }
+    }
+
+    boolean isPaused() {
+      return paused;
+    }
+
+    void shutdown() {
+      listeners.remove(this);
+      if (paused) {
+        paused = false;
+        pausedListeners.decrementAndGet();
+      }
+      key.cancel();
+      try {
+        serverChannel.close();
+      } catch (IOException ignored) {
+        // Not much we can do at this point.
+      }
+    }
+  }
+
+  private final class ServerSocketHandler extends ListenerHandler {
+
+    // Set for SO_REUSEPORT listeners: every selector has its own listener, so accepted connections
+    // stay on the accepting selector instead of being handed off round-robin.
+    private final boolean keepOnOwner;
+
+    public ServerSocketHandler(
+        ServerSocketChannel serverChannel,
+        SelectionKey key,
+        NetworkHandler handler,
+        SelectorQueue owner,
+        ConnectionLimit endpointLimit,
+        boolean keepOnOwner) {
+      super(serverChannel, key, handler, owner, endpointLimit);
+      this.keepOnOwner = keepOnOwner;
+    }
+
+    int localPort() {
+      return serverChannel.socket().getLocalPort();
     }
 
     @SuppressWarnings("resource")
     @Override
     public void handleEvent() {
       if (key.isAcceptable()) {
-        // See ServerSocketHandler.handleEvent for the rationale: a per-connection setup failure
-        // closes the accepted socket only, never the listener.
-        SocketChannel socketChannel;
+        // After successful accept(), the socket channel is owned by attachConnection. If any
+        // step before attachConnection throws, we close the per-connection socket channel — NOT
+        // the listener — and release the connection, then keep the listener alive.
+        SocketChannel socketChannel = accept();
+        if (socketChannel == null) {
+          return;
+        }
+
+        openCounter.incrementAndGet();
+        Connection connection =
+            new Connection(
+                (InetSocketAddress) socketChannel.socket().getLocalSocketAddress(),
+                (InetSocketAddress) socketChannel.socket().getRemoteSocketAddress(),
+                handler.usesSsl());
         try {
-          socketChannel = serverChannel.accept();
+          socketChannel.configureBlocking(false);
+          configureSocket(socketChannel);
+          socketChannel.socket().setSoLinger(false, 0);
+          if (keepOnOwner) {
+            owner.load.connectionAssigned();
+            try {
+              owner.registerConnection(connection, socketChannel, handler, endpointLimit);
+            } catch (IOException e) {
+              owner.load.connectionClosed();
+              throw e;
+            }
+          } else {
+            getQueueForConnection()
+                .attachConnection(connection, socketChannel, handler, endpointLimit);
+          }
         } catch (IOException e) {
-          networkEventListener.notifyInternalError(null, e);
+          closeAcceptedSocket(socketChannel, e);
+          closedCounter.incrementAndGet();
+          releaseIncomingConnection(endpointLimit);
+          networkEventListener.warning(connection, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Closes a freshly-accepted socket after a setup failure, suppressing close errors into the
+   * original exception.
+   */
+  private static void closeAcceptedSocket(SocketChannel socketChannel, IOException original) {
+    try {
+      socketChannel.close();
+    } catch (IOException e) {
+      original.addSuppressed(e);
+    }
+  }
+
+  private final class UnixServerSocketHandler extends ListenerHandler {
+
+    private final Path socketPath;
+
+    public UnixServerSocketHandler(
+        ServerSocketChannel serverChannel,
+        SelectionKey key,
+        NetworkHandler handler,
+        SelectorQueue owner,
+        ConnectionLimit endpointLimit,
+        Path socketPath) {
+      super(serverChannel, key, handler, owner, endpointLimit);
+      this.socketPath = socketPath;
+    }
+
+    @SuppressWarnings("resource")
+    @Override
+    public void handleEvent() {
+      if (key.isAcceptable()) {
+        // See ServerSocketHandler.handleEvent for the rationale: a per-connection setup failure
+        // closes the accepted socket only, never the listener.
+        SocketChannel socketChannel = accept();
+        if (socketChannel == null) {
           return;
         }
 
@@ -571,22 +1254,20 @@ public final class NetworkEngine {
         Connection connection = new Connection(socketPath, handler.usesSsl());
         try {
           socketChannel.configureBlocking(false);
-          getQueueForConnection().attachConnection(connection, socketChannel, handler);
+          getQueueForConnection()
+              .attachConnection(connection, socketChannel, handler, endpointLimit);
         } catch (IOException e) {
           closeAcceptedSocket(socketChannel, e);
           closedCounter.incrementAndGet();
+          releaseIncomingConnection(endpointLimit);
           networkEventListener.warning(connection, e);
         }
       }
     }
 
-    public void shutdown() {
-      key.cancel();
-      try {
-        serverChannel.close();
-      } catch (IOException ignored) {
-        // Not much we can do at this point.
-      }
+    @Override
+    void shutdown() {
+      super.shutdown();
       try {
         Files.deleteIfExists(socketPath);
       } catch (IOException ignored) {
@@ -599,26 +1280,58 @@ public final class NetworkEngine {
 
     private final int id;
     private final Selector selector;
-    private final BlockingQueue<Runnable> eventQueue = new LinkedBlockingQueue<>();
+    private final BufferPool bufferPool = new BufferPool(bufferSize, maxPooledBuffers);
+    private final TimerWheel timerWheel =
+        new TimerWheel(TIMER_TICK_MILLIS, TIMER_WHEEL_SIZE, CLOCK::monotonicMillis);
+    private final SelectorTaskQueue taskQueue;
+    private final SelectorLoad load;
+    private final SelectorMetrics metrics;
     private final BlockingQueue<Runnable> shutdownQueue = new LinkedBlockingQueue<>();
+    // Connections to handle again at the end of the loop round: those with buffered input left
+    // over after using up their budget, and in-memory ones with pending events. Selector thread
+    // only.
+    private final ArrayDeque<SocketHandler> deferred = new ArrayDeque<>();
+    // In-memory connections have no selection key, so selector.keys() doesn't list them.
+    private final Set<SocketHandler> inMemoryConnections = new HashSet<>();
+    private final @Nullable SelectorWorkers workers;
     private boolean shutdown;
     private final AtomicBoolean shutdownInitiated = new AtomicBoolean();
 
     public SelectorQueue(int id) throws IOException {
       this.id = id;
+      this.workers =
+          workerThreadsPerSelector > 0 ? new SelectorWorkers(id, workerThreadsPerSelector) : null;
       this.selector = Selector.open();
+      this.taskQueue = new SelectorTaskQueue(selector::wakeup);
+      this.load = new SelectorLoad(id, System.nanoTime());
+      this.metrics = new SelectorMetrics(id);
       Thread t = new Thread(this, "catfish-select-" + this.id);
       t.start();
     }
 
-    private void listenPort(
-        final @Nullable InetAddress address, final int port, final NetworkHandler handler)
+    private void defer(SocketHandler handler) {
+      deferred.add(handler);
+    }
+
+    /**
+     * Binds a TCP listener on this selector. With {@code reusePort}, the socket is bound with
+     * SO_REUSEPORT and accepted connections are registered on this selector. {@code announce}
+     * controls whether the listener is reported via {@link NetworkEventListener#portOpened}.
+     */
+    private ServerSocketHandler listenPort(
+        final @Nullable InetAddress address,
+        final int port,
+        final NetworkHandler handler,
+        final ConnectionLimit limit,
+        final boolean reusePort,
+        final boolean announce)
         throws IOException, InterruptedException {
       if (shutdownInitiated.get()) {
         throw new IllegalStateException();
       }
       CountDownLatch latch = new CountDownLatch(1);
       AtomicReference<Exception> thrownException = new AtomicReference<>();
+      AtomicReference<ServerSocketHandler> result = new AtomicReference<>();
       queue(
           () -> {
             try {
@@ -630,8 +1343,24 @@ public final class NetworkEngine {
               ServerSocketChannel serverChannel = ServerSocketChannel.open();
               serverChannel.configureBlocking(false);
               serverChannel.socket().setReuseAddress(true);
-              serverChannel.socket().bind(new InetSocketAddress(address, port));
+              if (reusePort) {
+                serverChannel.setOption(StandardSocketOptions.SO_REUSEPORT, Boolean.TRUE);
+              }
+              if (receiveBufferSize > 0) {
+                // Set on the listener so that accepted sockets negotiate a matching window scale.
+                serverChannel.setOption(
+                    StandardSocketOptions.SO_RCVBUF, Integer.valueOf(receiveBufferSize));
+              }
+              serverChannel.bind(new InetSocketAddress(address, port), backlog);
               SelectionKey key = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+              ServerSocketHandler socketHandler =
+                  new ServerSocketHandler(serverChannel, key, handler, this, limit, reusePort);
+              key.attach(socketHandler);
+              shutdownQueue.add(socketHandler::shutdown);
+              result.set(socketHandler);
+              if (!announce) {
+                return;
+              }
               networkEventListener.portOpened(
                   new NetworkServer() {
                     @Override
@@ -649,10 +1378,6 @@ public final class NetworkEngine {
                       return handler.usesSsl();
                     }
                   });
-              ServerSocketHandler socketHandler =
-                  new ServerSocketHandler(serverChannel, key, handler);
-              key.attach(socketHandler);
-              shutdownQueue.add(socketHandler::shutdown);
             } catch (Exception e) {
               thrownException.set(e);
             } finally {
@@ -669,9 +1394,11 @@ public final class NetworkEngine {
         }
         throw new IOException("Unknown error", e);
       }
+      return result.get();
     }
 
-    private void listenUnixSocket(final Path path, final NetworkHandler handler)
+    private void listenUnixSocket(
+        final Path path, final NetworkHandler handler, final ConnectionLimit limit)
         throws IOException, InterruptedException {
       if (shutdownInitiated.get()) {
         throw new IllegalStateException();
@@ -690,11 +1417,11 @@ public final class NetworkEngine {
               ServerSocketChannel serverChannel =
                   ServerSocketChannel.open(StandardProtocolFamily.UNIX);
               serverChannel.configureBlocking(false);
-              serverChannel.bind(UnixDomainSocketAddress.of(path));
+              serverChannel.bind(UnixDomainSocketAddress.of(path), backlog);
               SelectionKey key = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
               networkEventListener.socketOpened(path, handler.usesSsl());
               UnixServerSocketHandler socketHandler =
-                  new UnixServerSocketHandler(serverChannel, key, handler, path);
+                  new UnixServerSocketHandler(serverChannel, key, handler, this, limit, path);
               key.attach(socketHandler);
               shutdownQueue.add(socketHandler::shutdown);
             } catch (Exception e) {
@@ -715,9 +1442,14 @@ public final class NetworkEngine {
       }
     }
 
+    /**
+     * Opens an outgoing connection. The caller must already have counted it against this selector
+     * (see {@link NetworkEngine#getQueueForConnection}).
+     */
     public void connect(InetAddress address, int port, NetworkHandler handler)
         throws IOException, InterruptedException {
       if (shutdownInitiated.get()) {
+        load.connectionClosed();
         throw new IllegalStateException();
       }
       CountDownLatch latch = new CountDownLatch(1);
@@ -726,14 +1458,14 @@ public final class NetworkEngine {
           () -> {
             try {
               if (shutdown) {
+                load.connectionClosed();
                 thrownException.set(new IOException("Engine is shutting down"));
                 return;
               }
               @SuppressWarnings("resource")
               SocketChannel socketChannel = SocketChannel.open();
               socketChannel.configureBlocking(false);
-              socketChannel.socket().setTcpNoDelay(true);
-              socketChannel.socket().setKeepAlive(true);
+              configureSocket(socketChannel);
               InetSocketAddress remoteAddress = new InetSocketAddress(address, port);
               socketChannel.connect(remoteAddress);
               Connection connection =
@@ -745,9 +1477,15 @@ public final class NetworkEngine {
               SelectionKey key = socketChannel.register(selector, 0);
               SocketHandler socketHandler =
                   new SocketHandler(
-                      this, connection, socketChannel, key, handler, OUTGOING_CONNECTION);
+                      this,
+                      connection,
+                      new SocketTransport(socketChannel, key),
+                      handler,
+                      null,
+                      OUTGOING_CONNECTION);
               key.attach(socketHandler);
             } catch (IOException e) {
+              load.connectionClosed();
               thrownException.set(e);
             } finally {
               latch.countDown();
@@ -760,6 +1498,49 @@ public final class NetworkEngine {
       }
     }
 
+    /**
+     * Closes the listeners of this selector and asks every open connection to drain. Returns the
+     * number of connections that were open.
+     */
+    private int drain() throws InterruptedException {
+      CountDownLatch latch = new CountDownLatch(1);
+      AtomicInteger open = new AtomicInteger();
+      queue(
+          () -> {
+            try {
+              for (ListenerHandler listener : listeners) {
+                if (listener.owner == this) {
+                  listener.shutdown();
+                }
+              }
+              for (SocketHandler socketHandler : connections()) {
+                open.incrementAndGet();
+                socketHandler.drain();
+              }
+            } finally {
+              latch.countDown();
+            }
+          });
+      latch.await();
+      return open.get();
+    }
+
+    /** Adds the flight records of this selector's open connections to {@code result}. */
+    private void dumpFlightRecords(Map<Connection, String> result) throws InterruptedException {
+      CountDownLatch latch = new CountDownLatch(1);
+      queue(
+          () -> {
+            try {
+              for (SocketHandler socketHandler : connections()) {
+                result.put(socketHandler.connection, socketHandler.dumpFlightRecord());
+              }
+            } finally {
+              latch.countDown();
+            }
+          });
+      latch.await();
+    }
+
     private void shutdown() throws InterruptedException {
       if (shutdownInitiated.getAndSet(true)) {
         throw new IllegalStateException();
@@ -772,51 +1553,169 @@ public final class NetworkEngine {
         selector.close();
       } catch (IOException ignored) {
       }
+      if (workers != null) {
+        workers.shutdown();
+      }
     }
 
     private void attachConnection(
-        Connection connection, SocketChannel socketChannel, NetworkHandler handler) {
+        Connection connection,
+        SocketChannel socketChannel,
+        NetworkHandler handler,
+        ConnectionLimit endpointLimit) {
       queue(
           () -> {
             try {
-              SelectionKey socketKey = socketChannel.register(selector, 0);
-              SocketHandler socketHandler =
-                  new SocketHandler(
-                      this, connection, socketChannel, socketKey, handler, INCOMING_CONNECTION);
-              socketKey.attach(socketHandler);
+              registerConnection(connection, socketChannel, handler, endpointLimit);
             } catch (ClosedChannelException e) {
+              load.connectionClosed();
+              releaseIncomingConnection(endpointLimit);
               throw new UncheckedIOException(e);
             }
           });
     }
 
+    /** Registers an accepted connection with this selector. Must run on the selector thread. */
+    private void registerConnection(
+        Connection connection,
+        SocketChannel socketChannel,
+        NetworkHandler handler,
+        ConnectionLimit endpointLimit)
+        throws ClosedChannelException {
+      SelectionKey socketKey = socketChannel.register(selector, 0);
+      SocketHandler socketHandler =
+          new SocketHandler(
+              this,
+              connection,
+              new SocketTransport(socketChannel, socketKey),
+              handler,
+              endpointLimit,
+              INCOMING_CONNECTION);
+      socketKey.attach(socketHandler);
+    }
+
+    /** Registers the server end of an in-memory connection with this selector. */
+    private void attachInMemory(
+        Connection connection,
+        InMemoryTransport transport,
+        NetworkHandler handler,
+        ConnectionLimit endpointLimit) {
+      queue(
+          () -> {
+            if (shutdown) {
+              transport.close();
+              closedCounter.incrementAndGet();
+              load.connectionClosed();
+              releaseIncomingConnection(endpointLimit);
+              return;
+            }
+            inMemoryConnections.add(
+                new SocketHandler(
+                    this, connection, transport, handler, endpointLimit, INCOMING_CONNECTION));
+          });
+    }
+
+    /** Registers the client end of an in-memory connection with this selector. */
+    private void connectInMemory(InMemoryTransport transport, NetworkHandler handler)
+        throws IOException, InterruptedException {
+      if (shutdownInitiated.get()) {
+        load.connectionClosed();
+        throw new IllegalStateException();
+      }
+      CountDownLatch latch = new CountDownLatch(1);
+      AtomicReference<IOException> thrownException = new AtomicReference<>();
+      queue(
+          () -> {
+            try {
+              if (shutdown) {
+                load.connectionClosed();
+                thrownException.set(new IOException("Engine is shutting down"));
+                return;
+              }
+              openCounter.incrementAndGet();
+              Connection connection = new Connection(null, null, handler.usesSsl());
+              inMemoryConnections.add(
+                  new SocketHandler(
+                      this, connection, transport, handler, null, OUTGOING_CONNECTION));
+            } finally {
+              latch.countDown();
+            }
+          });
+      latch.await();
+      IOException e = thrownException.get();
+      if (e != null) {
+        throw e;
+      }
+    }
+
+    /** Returns the open connections of this selector. Selector thread only. */
+    private List<SocketHandler> connections() {
+      List<SocketHandler> result = new ArrayList<>(inMemoryConnections);
+      for (SelectionKey key : selector.keys()) {
+        if (key.isValid() && key.attachment() instanceof SocketHandler socketHandler) {
+          result.add(socketHandler);
+        }
+      }
+      return result;
+    }
+
     private void queue(Runnable runnable) {
-      eventQueue.add(runnable);
-      selector.wakeup();
+      metrics.taskQueued();
+      taskQueue.add(runnable);
+    }
+
+    /** Reports the metrics to the listener and schedules the next report. */
+    private void reportStats() {
+      timerWheel.schedule(statsIntervalMillis, this::reportStats);
+      networkEventListener.selectorStats(metrics.snapshot());
     }
 
     @Override
     public void run() {
       try {
+        if (statsIntervalMillis > 0) {
+          timerWheel.schedule(statsIntervalMillis, this::reportStats);
+        }
         while (!shutdown) {
           //          if (DEBUG) {
           //            System.out.println(
           //                "PENDING: " + (openCounter.get() - closedCounter.get()) + " REJECTED " +
           // rejectedCounter.get());
           //          }
-          selector.select();
+          // Block until the next timer tick if any deadline is armed; 0 blocks indefinitely. Tasks
+          // queued from other threads only wake the selector while it is (about to be) blocked.
+          long selectStart = System.nanoTime();
+          CLOCK.tick();
+          // Deferred connections have work left, so don't wait for new events.
+          if (deferred.isEmpty() && taskQueue.enterSelect()) {
+            selector.select(timerWheel.millisUntilNextTick());
+          } else {
+            selector.selectNow();
+          }
+          taskQueue.exitSelect();
+          CLOCK.tick();
+          long busyStart = System.nanoTime();
+          metrics.selected(selectStart, busyStart);
+          metrics.drainingTasks(busyStart);
+          SelectorLoopEvent loopEvent = new SelectorLoopEvent();
+          if (loopEvent.isEnabled()) {
+            loopEvent.begin();
+          }
+          int tasks = 0;
           //        if (DEBUG) {
           //          System.out.printf(
           //              "Queue=%d, Keys=%d\n", Integer.valueOf(id),
           // Integer.valueOf(selector.keys().size()));
           //        }
           Runnable runnable;
-          while ((runnable = eventQueue.poll()) != null) {
+          while ((runnable = taskQueue.poll()) != null) {
             try {
               runnable.run();
             } catch (Exception e) {
               networkEventListener.notifyInternalError(null, e);
             }
+            metrics.taskRun();
+            tasks++;
           }
           for (SelectionKey key : selector.selectedKeys()) {
             EventHandler handler = (EventHandler) key.attachment();
@@ -826,17 +1725,41 @@ public final class NetworkEngine {
               networkEventListener.notifyInternalError(null, e);
             }
           }
+          int selectedKeys = selector.selectedKeys().size();
           selector.selectedKeys().clear();
+          // Connections that ran out of budget continue after all ready connections had their
+          // turn; those that run out again wait for the next round.
+          for (int i = deferred.size(); i > 0; i--) {
+            SocketHandler handler = deferred.remove();
+            try {
+              handler.resumeDeferred();
+            } catch (Exception e) {
+              networkEventListener.notifyInternalError(null, e);
+            }
+          }
+          timerWheel.advance(e -> networkEventListener.notifyInternalError(null, e));
+          metrics.registeredKeys(selector.keys().size());
+          long busyEnd = System.nanoTime();
+          if (loopEvent.isEnabled()) {
+            loopEvent.end();
+            if (loopEvent.shouldCommit()) {
+              loopEvent.selector = id;
+              loopEvent.tasks = tasks;
+              loopEvent.selectedKeys = selectedKeys;
+              loopEvent.registeredKeys = selector.keys().size();
+              loopEvent.commit();
+            }
+          }
+          load.addBusy(busyStart, busyEnd);
+          metrics.busy(busyStart, busyEnd);
         }
         // Close any remaining connections (both incoming and outgoing) that weren't
         // cleaned up by the shutdownQueue. Server socket handlers are shut down above;
         // this catches SocketHandlers for active connections that are still open.
         // This must run BEFORE draining the shutdownQueue, because the shutdown latch
         // countdown in the queue allows the calling thread to close the selector.
-        for (SelectionKey key : selector.keys()) {
-          if (key.isValid() && key.attachment() instanceof SocketHandler) {
-            ((SocketHandler) key.attachment()).doClose();
-          }
+        for (SocketHandler socketHandler : connections()) {
+          socketHandler.doClose();
         }
         while (!shutdownQueue.isEmpty()) {
           shutdownQueue.remove().run();
@@ -849,40 +1772,434 @@ public final class NetworkEngine {
     }
   }
 
+  /** An in-memory listener; see {@link #listenInMemory}. */
+  private record InMemoryListener(
+      NetworkEngine engine, NetworkHandler handler, ConnectionLimit endpointLimit) {}
+
+  // In-memory listeners of all engines in this JVM by name, so clients can reach servers that run
+  // on a different engine.
+  private static final ConcurrentHashMap<String, InMemoryListener> IN_MEMORY_LISTENERS =
+      new ConcurrentHashMap<>();
+
   private final NetworkEventListener networkEventListener;
 
   private final AtomicInteger openCounter = new AtomicInteger();
   private final AtomicInteger closedCounter = new AtomicInteger();
 
+  // Incoming connections only; outgoing connections are never refused.
+  private final ConnectionLimit engineLimit;
+  private final List<ListenerHandler> listeners = new CopyOnWriteArrayList<>();
+  // Number of listeners that stopped accepting because a limit was reached.
+  private final AtomicInteger pausedListeners = new AtomicInteger();
+
+  // Set by shutdownGracefully; closing connections then notify drainMonitor.
+  private volatile boolean draining;
+  private final Object drainMonitor = new Object();
+  // Connections that were asked to drain and have closed since, whether on their own or forcibly.
+  private final AtomicInteger drainedCounter = new AtomicInteger();
+
+  private final int bufferSize;
+  private final int maxPooledBuffers;
+  private final int backlog;
+  private final int receiveBufferSize;
+  private final int sendBufferSize;
+  private final boolean tcpQuickAck;
+  private final @Nullable TcpKeepAlive tcpKeepAlive;
+  private final ConnectionAssignment assignment;
+  private final long statsIntervalMillis;
+  private final int flightRecorderSize;
+  private final int stageCallsPerEvent;
+  private final int workerThreadsPerSelector;
   private final SelectorQueue[] queues;
   private final AtomicInteger connectionIndex = new AtomicInteger();
+  private final AtomicInteger listenerIndex = new AtomicInteger();
 
+  /** Creates an engine with default settings; see {@link Builder}. */
   public NetworkEngine(NetworkEventListener networkEventListener) throws IOException {
+    this(builder(), networkEventListener);
+  }
+
+  private NetworkEngine(Builder builder, NetworkEventListener networkEventListener)
+      throws IOException {
     this.networkEventListener =
         Objects.requireNonNull(networkEventListener, "networkEventListener");
-    this.queues = new SelectorQueue[Runtime.getRuntime().availableProcessors()];
+    this.bufferSize = builder.bufferSize;
+    this.maxPooledBuffers = builder.maxPooledBuffers;
+    this.backlog = builder.backlog;
+    this.receiveBufferSize = builder.receiveBufferSize;
+    this.sendBufferSize = builder.sendBufferSize;
+    this.tcpQuickAck = builder.tcpQuickAck;
+    this.tcpKeepAlive = builder.tcpKeepAlive;
+    this.assignment = builder.assignment;
+    this.engineLimit = new ConnectionLimit(builder.maxConnections);
+    this.statsIntervalMillis = builder.statsIntervalMillis;
+    this.flightRecorderSize = builder.flightRecorderSize;
+    this.stageCallsPerEvent = builder.stageCallsPerEvent;
+    this.workerThreadsPerSelector = builder.workerThreadsPerSelector;
+    this.queues = new SelectorQueue[builder.selectorThreads];
     for (int i = 0; i < queues.length; i++) {
       queues[i] = new SelectorQueue(i);
     }
   }
 
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Configures a {@link NetworkEngine}. Unset socket options keep the operating system defaults.
+   * The Linux-specific options are silently skipped on platforms that don't support them.
+   */
+  public static final class Builder {
+    private int selectorThreads = Runtime.getRuntime().availableProcessors();
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int maxPooledBuffers = DEFAULT_MAX_POOLED_BUFFERS;
+    private int backlog;
+    private int receiveBufferSize;
+    private int sendBufferSize;
+    private boolean tcpQuickAck;
+    private @Nullable TcpKeepAlive tcpKeepAlive;
+    private ConnectionAssignment assignment = ConnectionAssignment.POWER_OF_TWO_CHOICES;
+    private int maxConnections;
+    private long statsIntervalMillis;
+    private int flightRecorderSize = DEFAULT_FLIGHT_RECORDER_SIZE;
+    private int stageCallsPerEvent = DEFAULT_STAGE_CALLS_PER_EVENT;
+    private int workerThreadsPerSelector;
+
+    private Builder() {}
+
+    /** Sets the number of selector threads; defaults to the number of available processors. */
+    public Builder selectorThreads(int selectorThreads) {
+      if (selectorThreads <= 0) {
+        throw new IllegalArgumentException("selectorThreads must be positive");
+      }
+      this.selectorThreads = selectorThreads;
+      return this;
+    }
+
+    /**
+     * Sets the size of the per-connection output buffers and the maximum size of the input buffers;
+     * defaults to 64 KiB. Must be at least 17 KiB, so that a buffer can hold a complete TLS record.
+     * Input buffers start at 4 KiB and only grow as far as the connection's traffic needs.
+     */
+    public Builder bufferSize(int bufferSize) {
+      if (bufferSize < MIN_BUFFER_SIZE) {
+        throw new IllegalArgumentException("bufferSize must be at least " + MIN_BUFFER_SIZE);
+      }
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /** Sets how many idle buffers each selector thread keeps for reuse; defaults to 64. */
+    public Builder maxPooledBuffers(int maxPooledBuffers) {
+      if (maxPooledBuffers < 0) {
+        throw new IllegalArgumentException("maxPooledBuffers must not be negative");
+      }
+      this.maxPooledBuffers = maxPooledBuffers;
+      return this;
+    }
+
+    /** Sets the listen backlog; 0 (the default) uses the platform default. */
+    public Builder backlog(int backlog) {
+      if (backlog < 0) {
+        throw new IllegalArgumentException("backlog must not be negative");
+      }
+      this.backlog = backlog;
+      return this;
+    }
+
+    /** Sets SO_RCVBUF on listeners and connections; 0 (the default) keeps the OS default. */
+    public Builder receiveBufferSize(int receiveBufferSize) {
+      if (receiveBufferSize < 0) {
+        throw new IllegalArgumentException("receiveBufferSize must not be negative");
+      }
+      this.receiveBufferSize = receiveBufferSize;
+      return this;
+    }
+
+    /** Sets SO_SNDBUF on connections; 0 (the default) keeps the OS default. */
+    public Builder sendBufferSize(int sendBufferSize) {
+      if (sendBufferSize < 0) {
+        throw new IllegalArgumentException("sendBufferSize must not be negative");
+      }
+      this.sendBufferSize = sendBufferSize;
+      return this;
+    }
+
+    /** Enables TCP_QUICKACK on connections (Linux only). */
+    public Builder tcpQuickAck(boolean tcpQuickAck) {
+      this.tcpQuickAck = tcpQuickAck;
+      return this;
+    }
+
+    /**
+     * Sets TCP_KEEPIDLE, TCP_KEEPINTERVAL, and TCP_KEEPCOUNT on connections, which always have
+     * SO_KEEPALIVE enabled. Durations are rounded down to whole seconds.
+     */
+    public Builder tcpKeepAlive(Duration idle, Duration interval, int count) {
+      this.tcpKeepAlive = new TcpKeepAlive(idle, interval, count);
+      return this;
+    }
+
+    /** Sets how new connections are assigned to selector threads. */
+    public Builder connectionAssignment(ConnectionAssignment assignment) {
+      this.assignment = Objects.requireNonNull(assignment, "assignment");
+      return this;
+    }
+
+    /**
+     * Limits the number of open incoming connections across all listeners; 0 (the default) means
+     * unlimited. Once the limit is reached, listeners stop accepting and new clients wait in the
+     * listen backlog until connections close. Outgoing connections don't count.
+     */
+    public Builder maxConnections(int maxConnections) {
+      if (maxConnections < 0) {
+        throw new IllegalArgumentException("maxConnections must not be negative");
+      }
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    /**
+     * Reports the metrics of every selector thread to {@link NetworkEventListener#selectorStats} at
+     * the given interval; {@link Duration#ZERO} (the default) disables the reports. The metrics are
+     * always available from {@link NetworkEngine#getSelectorStats}.
+     */
+    public Builder statsInterval(Duration interval) {
+      if (interval.isNegative()) {
+        throw new IllegalArgumentException("interval must not be negative");
+      }
+      if (!interval.isZero() && interval.toMillis() < TIMER_TICK_MILLIS) {
+        throw new IllegalArgumentException(
+            "interval must be at least " + TIMER_TICK_MILLIS + " ms");
+      }
+      this.statsIntervalMillis = interval.toMillis();
+      return this;
+    }
+
+    /**
+     * Sets how many recent events each connection keeps in its {@link FlightRecorder}; defaults to
+     * 32. The size is rounded up to a power of two; 0 disables recording.
+     */
+    public Builder flightRecorderSize(int events) {
+      if (events < 0) {
+        throw new IllegalArgumentException("events must not be negative");
+      }
+      this.flightRecorderSize = events;
+      return this;
+    }
+
+    /**
+     * Limits how often a connection's stage is asked to read and to write per selector event;
+     * defaults to 16 each. A connection with input left over goes to the back of the selector loop
+     * and continues after the other ready connections had their turn, which keeps a single busy
+     * connection from delaying all others on the same selector thread.
+     */
+    public Builder stageCallsPerEvent(int calls) {
+      if (calls < 1) {
+        throw new IllegalArgumentException("calls must be positive");
+      }
+      this.stageCallsPerEvent = calls;
+      return this;
+    }
+
+    /**
+     * Pairs each selector thread with a pool of {@code threads} worker threads, which {@link
+     * Pipeline#workerExecutor} hands out for the selector's connections; defaults to 0, which
+     * disables the pools. Keeping a connection's parsing, handling, and response on the same few
+     * cores improves cache locality under high request rates. A saturated pool overflows to the
+     * shared executor.
+     */
+    public Builder workerThreadsPerSelector(int threads) {
+      if (threads < 0) {
+        throw new IllegalArgumentException("threads must not be negative");
+      }
+      this.workerThreadsPerSelector = threads;
+      return this;
+    }
+
+    public NetworkEngine build(NetworkEventListener networkEventListener) throws IOException {
+      return new NetworkEngine(this, networkEventListener);
+    }
+  }
+
+  private record TcpKeepAlive(int idleSeconds, int intervalSeconds, int count) {
+    TcpKeepAlive(Duration idle, Duration interval, int count) {
+      this(toSeconds(idle, "idle"), toSeconds(interval, "interval"), count);
+    }
+
+    TcpKeepAlive {
+      if (count <= 0) {
+        throw new IllegalArgumentException("count must be positive");
+      }
+    }
+
+    private static int toSeconds(Duration duration, String name) {
+      long seconds = duration.getSeconds();
+      if (seconds <= 0 || seconds > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException(name + " must be at least one second");
+      }
+      return (int) seconds;
+    }
+  }
+
+  /** Applies the configured options to a TCP connection. */
+  private void configureSocket(SocketChannel socketChannel) throws IOException {
+    socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+    socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, Boolean.TRUE);
+    if (receiveBufferSize > 0) {
+      socketChannel.setOption(StandardSocketOptions.SO_RCVBUF, Integer.valueOf(receiveBufferSize));
+    }
+    if (sendBufferSize > 0) {
+      socketChannel.setOption(StandardSocketOptions.SO_SNDBUF, Integer.valueOf(sendBufferSize));
+    }
+    if (tcpQuickAck) {
+      setIfSupported(socketChannel, ExtendedSocketOptions.TCP_QUICKACK, Boolean.TRUE);
+    }
+    TcpKeepAlive keepAlive = tcpKeepAlive;
+    if (keepAlive != null) {
+      setIfSupported(
+          socketChannel,
+          ExtendedSocketOptions.TCP_KEEPIDLE,
+          Integer.valueOf(keepAlive.idleSeconds()));
+      setIfSupported(
+          socketChannel,
+          ExtendedSocketOptions.TCP_KEEPINTERVAL,
+          Integer.valueOf(keepAlive.intervalSeconds()));
+      setIfSupported(
+          socketChannel, ExtendedSocketOptions.TCP_KEEPCOUNT, Integer.valueOf(keepAlive.count()));
+    }
+  }
+
+  private static <T> void setIfSupported(NetworkChannel channel, SocketOption<T> option, T value)
+      throws IOException {
+    if (channel.supportedOptions().contains(option)) {
+      channel.setOption(option, value);
+    }
+  }
+
   public void listenAll(int port, NetworkHandler handler) throws IOException, InterruptedException {
-    listen(null, port, handler);
+    listen(null, port, handler, false, 0);
   }
 
   public void listenLocalhost(int port, NetworkHandler handler)
       throws IOException, InterruptedException {
-    listen(InetAddress.getLoopbackAddress(), port, handler);
+    listen(InetAddress.getLoopbackAddress(), port, handler, false, 0);
   }
 
-  private void listen(@Nullable InetAddress address, int port, NetworkHandler handler)
+  /**
+   * Like {@link #listenAll(int, NetworkHandler)}. With {@code reusePort}, every selector thread
+   * binds its own listener with SO_REUSEPORT, so the kernel spreads incoming connections across
+   * them and each connection stays on the selector that accepted it. Falls back to a single
+   * listener if the platform does not support SO_REUSEPORT.
+   */
+  public void listenAll(int port, NetworkHandler handler, boolean reusePort)
       throws IOException, InterruptedException {
-    getQueueForConnection().listenPort(address, port, handler);
+    listen(null, port, handler, reusePort, 0);
+  }
+
+  /**
+   * Like {@link #listenAll(int, NetworkHandler, boolean)}, but accepts at most {@code
+   * maxConnections} concurrent connections on this endpoint (0 means unlimited), in addition to the
+   * engine-wide {@link Builder#maxConnections} limit. While at the limit, the endpoint stops
+   * accepting and new clients wait in the listen backlog.
+   */
+  public void listenAll(int port, NetworkHandler handler, boolean reusePort, int maxConnections)
+      throws IOException, InterruptedException {
+    listen(null, port, handler, reusePort, maxConnections);
+  }
+
+  /**
+   * Like {@link #listenLocalhost(int, NetworkHandler)}; see {@link #listenAll(int, NetworkHandler,
+   * boolean)}.
+   */
+  public void listenLocalhost(int port, NetworkHandler handler, boolean reusePort)
+      throws IOException, InterruptedException {
+    listen(InetAddress.getLoopbackAddress(), port, handler, reusePort, 0);
+  }
+
+  /**
+   * Like {@link #listenLocalhost(int, NetworkHandler, boolean)}, with a per-endpoint connection
+   * limit; see {@link #listenAll(int, NetworkHandler, boolean, int)}.
+   */
+  public void listenLocalhost(
+      int port, NetworkHandler handler, boolean reusePort, int maxConnections)
+      throws IOException, InterruptedException {
+    listen(InetAddress.getLoopbackAddress(), port, handler, reusePort, maxConnections);
+  }
+
+  private void listen(
+      @Nullable InetAddress address,
+      int port,
+      NetworkHandler handler,
+      boolean reusePort,
+      int maxConnections)
+      throws IOException, InterruptedException {
+    // Shared by all SO_REUSEPORT listeners of the endpoint.
+    ConnectionLimit limit = endpointLimit(maxConnections);
+    if (!reusePort || queues.length == 1 || !isReusePortSupported()) {
+      getQueueForListener().listenPort(address, port, handler, limit, false, true);
+      return;
+    }
+    // Bind the first listener on its own to resolve an ephemeral port, then bind the others to the
+    // same port. The listener is announced once, after all of them are bound.
+    List<ServerSocketHandler> bound = new ArrayList<>();
+    try {
+      ServerSocketHandler first = queues[0].listenPort(address, port, handler, limit, true, false);
+      bound.add(first);
+      int boundPort = first.localPort();
+      for (int i = 1; i < queues.length; i++) {
+        boolean last = i == queues.length - 1;
+        bound.add(queues[i].listenPort(address, boundPort, handler, limit, true, last));
+      }
+    } catch (IOException | RuntimeException e) {
+      for (ServerSocketHandler socketHandler : bound) {
+        socketHandler.shutdown();
+      }
+      throw e;
+    }
+  }
+
+  private static boolean isReusePortSupported() throws IOException {
+    try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+      return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+    }
   }
 
   public void listenUnixSocket(Path path, NetworkHandler handler)
       throws IOException, InterruptedException {
-    getQueueForConnection().listenUnixSocket(path, handler);
+    listenUnixSocket(path, handler, 0);
+  }
+
+  /**
+   * Like {@link #listenUnixSocket(Path, NetworkHandler)}, with a per-endpoint connection limit; see
+   * {@link #listenAll(int, NetworkHandler, boolean, int)}.
+   */
+  public void listenUnixSocket(Path path, NetworkHandler handler, int maxConnections)
+      throws IOException, InterruptedException {
+    getQueueForListener().listenUnixSocket(path, handler, endpointLimit(maxConnections));
+  }
+
+  private static ConnectionLimit endpointLimit(int maxConnections) {
+    return maxConnections == 0 ? ConnectionLimit.UNLIMITED : new ConnectionLimit(maxConnections);
+  }
+
+  /**
+   * Releases an incoming connection from the engine and endpoint limits, and lets paused listeners
+   * check whether they can accept again. Called on whichever thread closed the connection, so the
+   * check is queued on each listener's own selector.
+   */
+  private void releaseIncomingConnection(ConnectionLimit endpointLimit) {
+    endpointLimit.release();
+    engineLimit.release();
+    if (pausedListeners.get() == 0) {
+      return;
+    }
+    for (ListenerHandler listener : listeners) {
+      if (listener.isPaused()) {
+        listener.owner.queue(listener::resume);
+      }
+    }
   }
 
   public void connect(InetAddress address, int port, NetworkHandler handler)
@@ -890,20 +2207,193 @@ public final class NetworkEngine {
     getQueueForConnection().connect(address, port, handler);
   }
 
+  public void listenInMemory(String name, NetworkHandler handler) throws IOException {
+    listenInMemory(name, handler, 0);
+  }
+
+  /**
+   * Accepts in-memory connections under {@code name}, which must be unique within the JVM, from
+   * {@link #connectInMemory} on any engine. In-memory connections behave like TCP connections to
+   * their stages, but bytes are copied between the two ends without any system calls. Once {@code
+   * maxConnections} (or the engine-wide limit) is reached, new connections are refused rather than
+   * queued. The listener is removed when the engine shuts down.
+   */
+  public void listenInMemory(String name, NetworkHandler handler, int maxConnections)
+      throws IOException {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(handler, "handler");
+    InMemoryListener listener = new InMemoryListener(this, handler, endpointLimit(maxConnections));
+    if (IN_MEMORY_LISTENERS.putIfAbsent(name, listener) != null) {
+      throw new BindException("In-memory address already in use: " + name);
+    }
+  }
+
+  /**
+   * Opens an in-memory connection to the listener registered under {@code name}; see {@link
+   * #listenInMemory}. The connection is outgoing for this engine and incoming for the listener's.
+   */
+  public void connectInMemory(String name, NetworkHandler handler)
+      throws IOException, InterruptedException {
+    InMemoryListener listener = IN_MEMORY_LISTENERS.get(name);
+    if (listener == null) {
+      throw new ConnectException("No in-memory listener: " + name);
+    }
+    InMemoryTransport.Pair pair = InMemoryTransport.pair(bufferSize);
+    listener.engine().acceptInMemory(name, listener, pair.server());
+    try {
+      getQueueForConnection().connectInMemory(pair.client(), handler);
+    } catch (IOException | RuntimeException e) {
+      // The server end sees end of stream and closes.
+      pair.client().close();
+      throw e;
+    }
+  }
+
+  private void acceptInMemory(String name, InMemoryListener listener, InMemoryTransport transport)
+      throws IOException {
+    if (!engineLimit.tryAcquire()) {
+      throw new ConnectException("Too many connections to in-memory listener: " + name);
+    }
+    if (!listener.endpointLimit().tryAcquire()) {
+      engineLimit.release();
+      throw new ConnectException("Too many connections to in-memory listener: " + name);
+    }
+    openCounter.incrementAndGet();
+    Connection connection = new Connection(null, null, listener.handler().usesSsl());
+    getQueueForConnection()
+        .attachInMemory(connection, transport, listener.handler(), listener.endpointLimit());
+  }
+
+  private void removeInMemoryListeners() {
+    IN_MEMORY_LISTENERS.values().removeIf(listener -> listener.engine() == this);
+  }
+
   public void shutdown() throws InterruptedException {
+    removeInMemoryListeners();
     for (SelectorQueue queue : queues) {
       queue.shutdown();
     }
     networkEventListener.shutdown();
   }
 
+  /**
+   * Shuts down gracefully: closes all listeners, asks every connection to finish its work in flight
+   * and close (see {@link Stage#drain}), and waits up to {@code timeout} for them to do so. Then
+   * closes the remaining connections forcibly, like {@link #shutdown}. Returns how many of the
+   * connections that were open when draining started closed on their own, and how many had to be
+   * killed. Connections opened while draining (e.g., to proxy origins) are waited for, but not
+   * counted.
+   */
+  public DrainReport shutdownGracefully(Duration timeout) throws InterruptedException {
+    if (timeout.isNegative()) {
+      throw new IllegalArgumentException("timeout must not be negative");
+    }
+    long deadline = System.nanoTime() + timeout.toNanos();
+    draining = true;
+    removeInMemoryListeners();
+    int open = 0;
+    for (SelectorQueue queue : queues) {
+      open += queue.drain();
+    }
+    synchronized (drainMonitor) {
+      while (getOpenConnections() > 0) {
+        long nanosLeft = deadline - System.nanoTime();
+        if (nanosLeft <= 0) {
+          break;
+        }
+        TimeUnit.NANOSECONDS.timedWait(drainMonitor, nanosLeft);
+      }
+    }
+    int drained = drainedCounter.get();
+    shutdown();
+    return new DrainReport(drained, open - drained);
+  }
+
   public int getOpenConnections() {
     return openCounter.get() - closedCounter.get();
   }
 
+  /** Returns the live load figures of each selector thread, indexed by selector. */
+  public List<SelectorLoad> getSelectorLoads() {
+    List<SelectorLoad> result = new ArrayList<>(queues.length);
+    for (SelectorQueue queue : queues) {
+      result.add(queue.load);
+    }
+    return result;
+  }
+
+  /** Returns a snapshot of the event-loop metrics of each selector thread, indexed by selector. */
+  public List<SelectorStats> getSelectorStats() {
+    List<SelectorStats> result = new ArrayList<>(queues.length);
+    for (SelectorQueue queue : queues) {
+      result.add(queue.metrics.snapshot());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the formatted {@link FlightRecorder} events of every open connection, e.g., for an
+   * admin page that diagnoses stalled connections. Blocks until every selector thread has answered.
+   */
+  public Map<Connection, String> dumpFlightRecords() throws InterruptedException {
+    Map<Connection, String> result = new ConcurrentHashMap<>();
+    for (SelectorQueue queue : queues) {
+      queue.dumpFlightRecords(result);
+    }
+    return result;
+  }
+
+  private SelectorQueue getQueueForListener() {
+    return queues[mod(listenerIndex.getAndIncrement(), queues.length)];
+  }
+
+  /**
+   * Picks the selector for a new connection according to the {@link ConnectionAssignment} policy
+   * and counts the connection against it right away, so that a burst of connections doesn't all
+   * pick the same selector before any of them is registered.
+   */
   private SelectorQueue getQueueForConnection() {
-    int index = mod(connectionIndex.getAndIncrement(), queues.length);
-    return queues[index];
+    SelectorQueue result =
+        switch (assignment) {
+          case ROUND_ROBIN -> queues[mod(connectionIndex.getAndIncrement(), queues.length)];
+          case LEAST_LOADED -> leastLoadedQueue();
+          case POWER_OF_TWO_CHOICES -> powerOfTwoChoicesQueue();
+        };
+    result.load.connectionAssigned();
+    return result;
+  }
+
+  private SelectorQueue leastLoadedQueue() {
+    long now = System.nanoTime();
+    // Start the scan at a rotating offset, so that ties don't always go to the first selector.
+    int start = mod(connectionIndex.getAndIncrement(), queues.length);
+    SelectorQueue best = queues[start];
+    long bestScore = best.load.score(now);
+    for (int i = 1; i < queues.length; i++) {
+      SelectorQueue candidate = queues[(start + i) % queues.length];
+      long score = candidate.load.score(now);
+      if (score < bestScore) {
+        best = candidate;
+        bestScore = score;
+      }
+    }
+    return best;
+  }
+
+  private SelectorQueue powerOfTwoChoicesQueue() {
+    if (queues.length == 1) {
+      return queues[0];
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(queues.length);
+    int second = random.nextInt(queues.length - 1);
+    if (second >= first) {
+      second++;
+    }
+    long now = System.nanoTime();
+    return queues[first].load.score(now) <= queues[second].load.score(now)
+        ? queues[first]
+        : queues[second];
   }
 
   private int mod(int a, int b) {
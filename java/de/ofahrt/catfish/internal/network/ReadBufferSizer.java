@@ -0,0 +1,55 @@
+package de.ofahrt.catfish.internal.network;
+
+/**
+ * Picks the {@link BufferPool} size class for the read buffer of one connection, in the spirit of
+ * Netty's {@code AdaptiveRecvByteBufAllocator}. Connections start with the smallest class, which
+ * fits typical requests. The size doubles whenever a read fills the buffer or a stage needs more
+ * data than a full buffer holds, and halves again after a run of reads that would have fit into the
+ * next smaller class. Not thread-safe; owned by the connection's selector thread.
+ */
+final class ReadBufferSizer {
+  /** How many consecutive small reads it takes to shrink by one size class. */
+  static final int SHRINK_AFTER_READS = 4;
+
+  private final BufferPool pool;
+  private int sizeClass;
+  private int smallReads;
+
+  ReadBufferSizer(BufferPool pool) {
+    this.pool = pool;
+  }
+
+  /** Returns the size class to use for the next read buffer. */
+  int sizeClass() {
+    return sizeClass;
+  }
+
+  /**
+   * Records a read of {@code count} bytes into a buffer of {@code capacity} bytes, where {@code
+   * filled} indicates that the read used up all free space in the buffer.
+   */
+  void recordRead(int count, int capacity, boolean filled) {
+    if (filled) {
+      grow(capacity);
+    } else if (sizeClass > 0 && count < pool.sizeOf(sizeClass - 1)) {
+      if (++smallReads >= SHRINK_AFTER_READS) {
+        sizeClass--;
+        smallReads = 0;
+      }
+    } else {
+      smallReads = 0;
+    }
+  }
+
+  /**
+   * Moves to the size class above {@code capacity} and returns true, or returns false if {@code
+   * capacity} is already the largest class.
+   */
+  boolean grow(int capacity) {
+    smallReads = 0;
+    while (sizeClass < pool.sizeClasses() - 1 && pool.sizeOf(sizeClass) <= capacity) {
+      sizeClass++;
+    }
+    return pool.sizeOf(sizeClass) > capacity;
+  }
+}
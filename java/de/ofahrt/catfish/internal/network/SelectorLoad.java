@@ -0,0 +1,113 @@
+package de.ofahrt.catfish.internal.network;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load accounting for one {@link NetworkEngine} selector thread: open connections, bytes moved per
+ * second, and the fraction of time the event loop spends handling events rather than waiting in
+ * {@code select()}. Used to assign new connections to the least loaded selector.
+ *
+ * <p>The selector thread accumulates bytes and busy time and publishes them once per window, so
+ * readers on other threads see rates that are at most one window old. Readers treat a selector that
+ * has not published for two windows (because it has been blocked in {@code select()}) as idle.
+ */
+public final class SelectorLoad {
+  static final long WINDOW_NANOS = 500_000_000L;
+
+  private final int selector;
+  // Assigned connections, including ones that are still being registered with the selector.
+  private final AtomicInteger connections = new AtomicInteger();
+
+  // Accumulated on the selector thread for the current window.
+  private long windowStart;
+  private long busyNanos;
+  private long bytes;
+
+  // Published at the end of each window.
+  private volatile long publishedAt;
+  private volatile int busyPermille;
+  private volatile long bytesPerSecond;
+
+  SelectorLoad(int selector, long now) {
+    this.selector = selector;
+    this.windowStart = now;
+    this.publishedAt = now;
+  }
+
+  /** Returns the index of the selector thread. */
+  public int selector() {
+    return selector;
+  }
+
+  /** Returns the number of connections assigned to the selector. */
+  public int connections() {
+    return connections.get();
+  }
+
+  /** Returns the fraction of the last window the event loop was busy, between 0 and 1. */
+  public double busyFraction() {
+    return currentBusyPermille(System.nanoTime()) / 1000.0;
+  }
+
+  /** Returns the number of bytes read and written per second during the last window. */
+  public long bytesPerSecond() {
+    return isStale(System.nanoTime()) ? 0 : bytesPerSecond;
+  }
+
+  /**
+   * Returns a score for comparing selectors; lower is better. Each connection counts more on a
+   * selector whose event loop is already busy, so a few hot connections weigh as much as many idle
+   * ones.
+   */
+  long score(long now) {
+    return (connections.get() + 1L) * (1000 + currentBusyPermille(now));
+  }
+
+  void connectionAssigned() {
+    connections.incrementAndGet();
+  }
+
+  void connectionClosed() {
+    connections.decrementAndGet();
+  }
+
+  /** Records bytes read from or written to the network. Selector thread only. */
+  void addBytes(long count) {
+    bytes += count;
+  }
+
+  /**
+   * Records that the event loop was busy from {@code start} to {@code end}, and publishes the
+   * window if it is over. Selector thread only.
+   */
+  void addBusy(long start, long end) {
+    busyNanos += end - start;
+    long elapsed = end - windowStart;
+    if (elapsed >= WINDOW_NANOS) {
+      busyPermille = (int) Math.min(1000, busyNanos * 1000 / elapsed);
+      bytesPerSecond = bytes * 1_000_000_000L / elapsed;
+      publishedAt = end;
+      windowStart = end;
+      busyNanos = 0;
+      bytes = 0;
+    }
+  }
+
+  private int currentBusyPermille(long now) {
+    return isStale(now) ? 0 : busyPermille;
+  }
+
+  private boolean isStale(long now) {
+    return now - publishedAt > 2 * WINDOW_NANOS;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "selector=%d connections=%d busy=%.2f bytes/s=%d",
+        Integer.valueOf(selector),
+        Integer.valueOf(connections()),
+        Double.valueOf(busyFraction()),
+        Long.valueOf(bytesPerSecond()));
+  }
+}
@@ -0,0 +1,30 @@
+package de.ofahrt.catfish.internal.network;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for a selector loop iteration that took longer than the threshold to handle its tasks,
+ * I/O events, and timers. Long iterations delay every other connection of the selector.
+ */
+@Name("de.ofahrt.catfish.SelectorLoop")
+@Label("Selector Loop")
+@Category({"Catfish", "Network"})
+@Description("A slow iteration of a network selector thread")
+@Threshold("20 ms")
+final class SelectorLoopEvent extends jdk.jfr.Event {
+  @Label("Selector")
+  int selector;
+
+  @Label("Tasks Run")
+  int tasks;
+
+  @Label("Selected Keys")
+  int selectedKeys;
+
+  @Label("Registered Keys")
+  int registeredKeys;
+}
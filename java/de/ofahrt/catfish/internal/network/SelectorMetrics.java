@@ -0,0 +1,135 @@
+package de.ofahrt.catfish.internal.network;
+
+import de.ofahrt.catfish.model.network.SelectorStats;
+import de.ofahrt.catfish.model.network.SelectorStats.Histogram;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event-loop counters of one {@link NetworkEngine} selector thread. Most counters are only updated
+ * by the selector thread, but they are read from other threads by {@link #snapshot}; {@link
+ * LongAdder}s keep both sides lock-free and cheap enough to leave on in production.
+ */
+final class SelectorMetrics {
+  private final int selector;
+
+  private final LongAdder wakeups = new LongAdder();
+  private final LongAdder selectNanos = new LongAdder();
+  private final LongAdder busyNanos = new LongAdder();
+  private final LongAdder tasksQueued = new LongAdder();
+  private final LongAdder tasksRun = new LongAdder();
+  private final LongAdder reads = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder needMoreDataReads = new LongAdder();
+  private final LongAdder deferred = new LongAdder();
+  private volatile int registeredKeys;
+
+  private final LongAdder[] selectTime = newHistogram();
+  private final LongAdder[] busyTime = newHistogram();
+  private final LongAdder[] taskWaitTime = newHistogram();
+  // When the oldest task that has not yet been picked up was queued; 0 if none.
+  private final AtomicLong oldestTaskQueuedAt = new AtomicLong();
+
+  SelectorMetrics(int selector) {
+    this.selector = selector;
+  }
+
+  /** Records that a task was queued. Any thread. */
+  void taskQueued() {
+    tasksQueued.increment();
+    if (oldestTaskQueuedAt.get() == 0) {
+      oldestTaskQueuedAt.compareAndSet(0, Math.max(1, System.nanoTime()));
+    }
+  }
+
+  /**
+   * Records how long the oldest queued task waited; called before draining the task queue. Tasks
+   * queued from now on are attributed to the next drain. Selector thread only.
+   */
+  void drainingTasks(long now) {
+    long queuedAt = oldestTaskQueuedAt.getAndSet(0);
+    if (queuedAt != 0) {
+      record(taskWaitTime, now - queuedAt);
+    }
+  }
+
+  void taskRun() {
+    tasksRun.increment();
+  }
+
+  /** Records a return from {@code select()} that blocked from {@code start} to {@code end}. */
+  void selected(long start, long end) {
+    wakeups.increment();
+    selectNanos.add(end - start);
+    record(selectTime, end - start);
+  }
+
+  void busy(long start, long end) {
+    busyNanos.add(end - start);
+    record(busyTime, end - start);
+  }
+
+  void read(int count) {
+    reads.increment();
+    if (count > 0) {
+      bytesRead.add(count);
+    }
+  }
+
+  void written(long count) {
+    bytesWritten.add(count);
+  }
+
+  void needMoreData() {
+    needMoreDataReads.increment();
+  }
+
+  void deferred() {
+    deferred.increment();
+  }
+
+  void registeredKeys(int count) {
+    registeredKeys = count;
+  }
+
+  SelectorStats snapshot() {
+    long run = tasksRun.sum();
+    return new SelectorStats(
+        selector,
+        wakeups.sum(),
+        selectNanos.sum(),
+        busyNanos.sum(),
+        run,
+        Math.max(0, tasksQueued.sum() - run),
+        reads.sum(),
+        bytesRead.sum(),
+        bytesWritten.sum(),
+        needMoreDataReads.sum(),
+        deferred.sum(),
+        registeredKeys,
+        toHistogram(selectTime),
+        toHistogram(busyTime),
+        toHistogram(taskWaitTime));
+  }
+
+  private static LongAdder[] newHistogram() {
+    LongAdder[] buckets = new LongAdder[Histogram.BUCKETS];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+    return buckets;
+  }
+
+  private static void record(LongAdder[] histogram, long nanos) {
+    histogram[Histogram.bucketFor(Math.max(0, nanos))].increment();
+  }
+
+  private static Histogram toHistogram(LongAdder[] histogram) {
+    long[] counts = new long[histogram.length];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = histogram[i].sum();
+    }
+    return new Histogram(counts);
+  }
+}
@@ -0,0 +1,102 @@
+package de.ofahrt.catfish.internal.network;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The task queue of a {@link NetworkEngine} selector thread: a lock-free multi-producer,
+ * single-consumer queue that coalesces selector wakeups.
+ *
+ * <p>Producers link a node with a single atomic swap (no lock, no CAS loop). A producer only calls
+ * the wakeup action if the consumer announced that it is about to block via {@link #enterSelect}
+ * and nobody has woken it since, so a burst of tasks from a handler thread costs one {@code
+ * Selector.wakeup()} instead of one per task, and tasks added while the selector thread is running
+ * cost none.
+ *
+ * <p>{@link #add} may be called from any thread; all other methods must only be called from the
+ * consumer thread.
+ */
+public final class SelectorTaskQueue {
+
+  private static final class Node {
+    @Nullable Runnable task;
+    volatile @Nullable Node next;
+
+    Node(@Nullable Runnable task) {
+      this.task = task;
+    }
+  }
+
+  private final Runnable wakeup;
+  // Producers swap themselves in at the tail; the consumer owns head, which is always a consumed
+  // (or the initial stub) node.
+  private final AtomicReference<Node> tail;
+  private Node head;
+  // True while the consumer is running (or has already been woken), i.e., no wakeup is needed.
+  private final AtomicBoolean awake = new AtomicBoolean(true);
+
+  /**
+   * @param wakeup interrupts the consumer's blocking wait, typically {@code selector::wakeup}
+   */
+  public SelectorTaskQueue(Runnable wakeup) {
+    this.wakeup = wakeup;
+    Node stub = new Node(null);
+    this.head = stub;
+    this.tail = new AtomicReference<>(stub);
+  }
+
+  /** Adds a task and wakes the consumer if it is blocked. Safe to call from any thread. */
+  public void add(Runnable task) {
+    Node node = new Node(task);
+    Node previous = tail.getAndSet(node);
+    // Until this write, the consumer cannot see the new node (or anything linked after it). The
+    // volatile write also orders the link before the awake check below.
+    previous.next = node;
+    if (!awake.get() && awake.compareAndSet(false, true)) {
+      wakeup.run();
+    }
+  }
+
+  /** Removes and returns the oldest task, or null if there is none. Consumer thread only. */
+  public @Nullable Runnable poll() {
+    Node next = head.next;
+    if (next == null) {
+      return null;
+    }
+    Runnable task = next.task;
+    next.task = null;
+    head = next;
+    return task;
+  }
+
+  /**
+   * Returns true if no task is visible to the consumer. A task whose producer is in the middle of
+   * {@link #add} may not be visible yet. Consumer thread only.
+   */
+  public boolean isEmpty() {
+    return head.next == null;
+  }
+
+  /**
+   * Announces that the consumer is about to block. Returns true if it may do so, or false if tasks
+   * are pending and it should only poll (e.g., {@code selectNow()}). Any {@link #add} that links
+   * its task after this call wakes the consumer. Consumer thread only.
+   */
+  public boolean enterSelect() {
+    awake.set(false);
+    if (isEmpty()) {
+      return true;
+    }
+    awake.set(true);
+    return false;
+  }
+
+  /**
+   * Announces that the consumer is running again, so producers can skip the wakeup. Consumer thread
+   * only.
+   */
+  public void exitSelect() {
+    awake.set(true);
+  }
+}
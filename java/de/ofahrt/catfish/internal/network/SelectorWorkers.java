@@ -0,0 +1,56 @@
+package de.ofahrt.catfish.internal.network;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small, fixed worker pool paired with one selector thread. Work for a connection runs on the
+ * pool of the selector that owns it, so the connection's state stays in the caches of a few cores
+ * instead of bouncing through a shared pool. Each pool takes a bounded number of tasks; once it is
+ * saturated, further tasks overflow to a shared executor, whose idle threads pick up the slack.
+ */
+final class SelectorWorkers {
+  // Enough queued tasks to absorb a burst without letting a slow pool build up a long backlog.
+  private static final int QUEUED_TASKS_PER_THREAD = 64;
+
+  private final ThreadPoolExecutor pool;
+
+  SelectorWorkers(int selector, int threads) {
+    AtomicInteger index = new AtomicInteger();
+    this.pool =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads * QUEUED_TASKS_PER_THREAD),
+            r -> {
+              Thread t =
+                  new Thread(
+                      r, "catfish-select-" + selector + "-worker-" + index.getAndIncrement());
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  /**
+   * Runs {@code task} on this pool, or on {@code overflow} if the pool is saturated or shut down.
+   * Throws {@link RejectedExecutionException} if {@code overflow} rejects it as well.
+   */
+  void execute(Runnable task, Executor overflow) {
+    try {
+      pool.execute(task);
+    } catch (RejectedExecutionException e) {
+      overflow.execute(task);
+    }
+  }
+
+  /** Stops accepting tasks; tasks already queued still run. */
+  void shutdown() {
+    pool.shutdown();
+  }
+}
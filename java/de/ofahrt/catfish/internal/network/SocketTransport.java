@@ -0,0 +1,93 @@
+package de.ofahrt.catfish.internal.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/** A {@link Transport} over a non-blocking socket whose readiness comes from its selection key. */
+final class SocketTransport implements Transport {
+  private final SocketChannel channel;
+  private final SelectionKey key;
+
+  SocketTransport(SocketChannel channel, SelectionKey key) {
+    this.channel = channel;
+    this.key = key;
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    return channel.read(dst);
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    return channel.write(src);
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    return channel.write(srcs, offset, length);
+  }
+
+  @Override
+  public long transferFrom(FileChannel file, long position, long count) throws IOException {
+    return file.transferTo(position, count, channel);
+  }
+
+  @Override
+  public boolean finishConnect() throws IOException {
+    return channel.finishConnect();
+  }
+
+  @Override
+  public void shutdownInput() throws IOException {
+    channel.shutdownInput();
+  }
+
+  @Override
+  public void shutdownOutput() throws IOException {
+    channel.shutdownOutput();
+  }
+
+  @Override
+  public void cancel() {
+    key.cancel();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  @Override
+  public boolean isValid() {
+    return key.isValid();
+  }
+
+  @Override
+  public boolean isConnectable() {
+    return key.isConnectable();
+  }
+
+  @Override
+  public boolean isReadable() {
+    return key.isReadable();
+  }
+
+  @Override
+  public boolean isWritable() {
+    return key.isWritable();
+  }
+
+  @Override
+  public int interestOps() {
+    return key.interestOps();
+  }
+
+  @Override
+  public void interestOps(int ops) {
+    key.interestOps(ops);
+  }
+}
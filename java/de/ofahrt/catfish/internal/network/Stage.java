@@ -10,9 +10,11 @@ import java.io.IOException;
  * (or the network) and then passes the processed data on to the next state. Usually, stages are
  * connected through intermediate buffers, rather than using the same buffer.
  *
- * <p>The driver passes input and output {@link java.nio.ByteBuffer ByteBuffers} to {@link #read}
- * and {@link #write} in <em>read mode</em> (flipped). Stages must respect a specific buffer-mode
- * contract on those buffers — see the Javadoc on {@link #read} and {@link #write} for details.
+ * <p>Stages obtain the input and output {@link java.nio.ByteBuffer ByteBuffers} from {@link
+ * Pipeline#inputBuffer} and {@link Pipeline#outputBuffer} in <em>read mode</em> (flipped). Stages
+ * must respect a specific buffer-mode contract on those buffers — see the Javadoc on {@link #read}
+ * and {@link #write} for details. The buffers are pooled and only held while they contain data, so
+ * a stage must fetch them anew in every callback instead of keeping a reference.
  *
  * <p>Any exception thrown from any method results in the immediate termination of the connection.
  */
@@ -141,6 +143,15 @@ public interface Stage {
    */
   ConnectionControl write() throws IOException;
 
+  /**
+   * Called on the selector thread when the engine starts a graceful shutdown (see {@link
+   * NetworkEngine#shutdownGracefully}). The stage should finish the work in flight, refuse new
+   * work, and close the connection once it is done; an idle connection can be closed right away.
+   * {@link Pipeline#isDraining} returns true from now on. Connections that are still open at the
+   * drain deadline are closed regardless, so the default implementation does nothing.
+   */
+  default void drain() {}
+
   /**
    * Called upon closure of the connection. In case of an outgoing connection, this may be called
    * without a previous call to {@link #connect} if the connection attempt fails outright. Most
@@ -0,0 +1,214 @@
+package de.ofahrt.catfish.internal.network;
+
+import java.util.function.LongSupplier;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A hashed timing wheel with O(1) schedule and cancel. Each {@link NetworkEngine} selector thread
+ * owns one wheel and advances it from its select loop, so connection deadlines (idle, header read,
+ * body inactivity, write stall) cost no threads and no heap-ordered queue.
+ *
+ * <p>Time is divided into ticks of {@code tickMillis}; a timeout lands in the bucket for the first
+ * tick at or after its deadline, so it never fires early and fires at most one tick late (plus
+ * however long the select loop was busy). Timeouts further out than one wheel revolution carry a
+ * round counter that is decremented each time their bucket comes around.
+ *
+ * <p>Instances are not thread-safe: all calls must happen on the owning selector thread.
+ */
+public final class TimerWheel {
+
+  /** A scheduled task. Obtained from {@link TimerWheel#schedule}. */
+  public static final class Timeout {
+    private enum State {
+      SCHEDULED,
+      EXPIRING,
+      CANCELLED,
+      EXPIRED
+    }
+
+    private final TimerWheel wheel;
+    private final Runnable task;
+    private State state = State.SCHEDULED;
+    private int bucket;
+    private long remainingRounds;
+    private @Nullable Timeout prev;
+    private @Nullable Timeout next;
+
+    private Timeout(TimerWheel wheel, Runnable task) {
+      this.wheel = wheel;
+      this.task = task;
+    }
+
+    /** Cancels this timeout; the task will not run. No-op if it already ran or was cancelled. */
+    public void cancel() {
+      if (state == State.SCHEDULED) {
+        wheel.unlink(this);
+        wheel.size--;
+      }
+      if (state == State.SCHEDULED || state == State.EXPIRING) {
+        state = State.CANCELLED;
+      }
+    }
+
+    /** Returns true if the task has neither run nor been cancelled yet. */
+    public boolean isPending() {
+      return state == State.SCHEDULED || state == State.EXPIRING;
+    }
+  }
+
+  private final long tickMillis;
+  private final LongSupplier clock;
+  private final long startMillis;
+  private final @Nullable Timeout[] buckets;
+  private final int mask;
+  // The next tick whose bucket has not been processed yet.
+  private long nextTick;
+  private int size;
+
+  /**
+   * @param tickMillis the wheel resolution
+   * @param wheelSize the number of buckets; rounded up to a power of two
+   * @param clock a monotonic millisecond clock
+   */
+  public TimerWheel(long tickMillis, int wheelSize, LongSupplier clock) {
+    if (tickMillis <= 0) {
+      throw new IllegalArgumentException("tickMillis must be positive");
+    }
+    if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+      throw new IllegalArgumentException("wheelSize out of range");
+    }
+    this.tickMillis = tickMillis;
+    this.clock = clock;
+    this.startMillis = clock.getAsLong();
+    int n = Integer.highestOneBit(wheelSize);
+    if (n < wheelSize) {
+      n <<= 1;
+    }
+    this.buckets = new Timeout[n];
+    this.mask = n - 1;
+  }
+
+  /** Returns the number of scheduled (not yet expired or cancelled) timeouts. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Schedules {@code task} to run on the next {@link #advance} at least {@code delayMillis} ms from
+   * now.
+   */
+  public Timeout schedule(long delayMillis, Runnable task) {
+    if (delayMillis < 0) {
+      throw new IllegalArgumentException("delayMillis must not be negative");
+    }
+    long now = clock.getAsLong() - startMillis;
+    if (size == 0) {
+      // Nothing is scheduled, so there are no buckets to process: skip ahead to the present.
+      nextTick = Math.max(nextTick, ceilDiv(now, tickMillis));
+    }
+    // Round up so that the timeout never fires before its deadline.
+    long deadlineTick = Math.max(ceilDiv(now + delayMillis, tickMillis), nextTick);
+    Timeout timeout = new Timeout(this, task);
+    timeout.remainingRounds = (deadlineTick - nextTick) / buckets.length;
+    timeout.bucket = (int) (deadlineTick & mask);
+    link(timeout);
+    size++;
+    return timeout;
+  }
+
+  /**
+   * Returns how long the select loop may block before the wheel needs to advance again, or 0 if
+   * nothing is scheduled and it may block indefinitely.
+   */
+  public long millisUntilNextTick() {
+    if (size == 0) {
+      return 0;
+    }
+    long now = clock.getAsLong() - startMillis;
+    return Math.max(1, nextTick * tickMillis - now);
+  }
+
+  /**
+   * Processes all buckets up to the current time and runs the tasks of expired timeouts. Tasks may
+   * schedule or cancel timeouts. Exceptions thrown by a task are passed to {@code errorHandler}.
+   */
+  public void advance(ErrorHandler errorHandler) {
+    if (size == 0) {
+      return;
+    }
+    long currentTick = (clock.getAsLong() - startMillis) / tickMillis;
+    Timeout expired = null;
+    Timeout expiredTail = null;
+    while (nextTick <= currentTick && size > 0) {
+      int index = (int) (nextTick & mask);
+      Timeout t = buckets[index];
+      while (t != null) {
+        Timeout following = t.next;
+        if (t.remainingRounds <= 0) {
+          unlink(t);
+          size--;
+          t.state = Timeout.State.EXPIRING;
+          if (expiredTail == null) {
+            expired = t;
+          } else {
+            expiredTail.next = t;
+          }
+          expiredTail = t;
+        } else {
+          t.remainingRounds--;
+        }
+        t = following;
+      }
+      nextTick++;
+    }
+    if (size == 0) {
+      nextTick = Math.max(nextTick, currentTick + 1);
+    }
+    while (expired != null) {
+      Timeout t = expired;
+      expired = t.next;
+      t.next = null;
+      if (t.state == Timeout.State.EXPIRING) {
+        t.state = Timeout.State.EXPIRED;
+        try {
+          t.task.run();
+        } catch (RuntimeException e) {
+          errorHandler.onError(e);
+        }
+      }
+    }
+  }
+
+  /** Receives exceptions thrown by expired tasks. */
+  @FunctionalInterface
+  public interface ErrorHandler {
+    void onError(RuntimeException e);
+  }
+
+  private void link(Timeout t) {
+    Timeout head = buckets[t.bucket];
+    t.prev = null;
+    t.next = head;
+    if (head != null) {
+      head.prev = t;
+    }
+    buckets[t.bucket] = t;
+  }
+
+  private void unlink(Timeout t) {
+    if (t.prev != null) {
+      t.prev.next = t.next;
+    } else {
+      buckets[t.bucket] = t.next;
+    }
+    if (t.next != null) {
+      t.next.prev = t.prev;
+    }
+    t.prev = null;
+    t.next = null;
+  }
+
+  private static long ceilDiv(long a, long b) {
+    return -Math.floorDiv(-a, b);
+  }
+}
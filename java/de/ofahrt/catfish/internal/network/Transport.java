@@ -0,0 +1,66 @@
+package de.ofahrt.catfish.internal.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * The byte stream under a {@link NetworkEngine} connection: a {@link SocketChannel} registered with
+ * a selector ({@link SocketTransport}), or one end of an in-memory pipe ({@link
+ * InMemoryTransport}). The methods mirror the channel and {@link SelectionKey} operations the
+ * engine uses, with the same non-blocking semantics, and are only called on the selector thread.
+ */
+interface Transport {
+
+  /** Reads into {@code dst}; returns the number of bytes read, or -1 at end of stream. */
+  int read(ByteBuffer dst) throws IOException;
+
+  int write(ByteBuffer src) throws IOException;
+
+  long write(ByteBuffer[] srcs, int offset, int length) throws IOException;
+
+  /** Writes up to {@code count} bytes of {@code file} starting at {@code position}. */
+  long transferFrom(FileChannel file, long position, long count) throws IOException;
+
+  /** Completes an outgoing connection; see {@link SocketChannel#finishConnect}. */
+  boolean finishConnect() throws IOException;
+
+  void shutdownInput() throws IOException;
+
+  void shutdownOutput() throws IOException;
+
+  /** Stops delivering events; unlike {@link #close}, this cannot fail. */
+  void cancel();
+
+  void close() throws IOException;
+
+  /** Returns false once {@link #cancel} was called. */
+  boolean isValid();
+
+  boolean isConnectable();
+
+  boolean isReadable();
+
+  boolean isWritable();
+
+  int interestOps();
+
+  /** Sets the {@link SelectionKey} operations the connection is interested in. */
+  void interestOps(int ops);
+
+  /**
+   * Sets an action to run, on any thread, when the readiness of the transport changes without a
+   * selector noticing. Socket transports ignore it; their selector reports readiness.
+   */
+  default void setReadinessListener(Runnable listener) {}
+
+  /**
+   * Returns true if one of the operations of interest is ready but no selector reports it. The
+   * engine then handles the connection again in the next round of its selector loop.
+   */
+  default boolean hasPendingEvents() {
+    return false;
+  }
+}
@@ -0,0 +1,119 @@
+package de.ofahrt.catfish.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A clock shared by the network engine and the HTTP stages. Selector loops {@link #tick} it once
+ * per round, and timeouts read the cached {@link #monotonicMillis} instead of asking the system on
+ * every call.
+ *
+ * <p>The clock also caches the value of the HTTP {@code Date} header for the current second, both
+ * as a string and as pre-encoded bytes, so that responses don't format a date each. The value is
+ * formatted at most once per second; reading it only compares the wall clock against the cached
+ * second, so a response committed long after the last tick still gets the right date.
+ *
+ * <p>All methods are thread-safe.
+ */
+public final class CoarseClock {
+  private static final CoarseClock SYSTEM =
+      new CoarseClock(System::currentTimeMillis, System::nanoTime);
+
+  /** Returns the clock backed by the system clocks; all engines in the process share it. */
+  public static CoarseClock system() {
+    return SYSTEM;
+  }
+
+  private final LongSupplier wallMillis;
+  private final LongSupplier nanos;
+  private final AtomicLong monotonicMillis;
+  private volatile DateValue date;
+
+  CoarseClock(LongSupplier wallMillis, LongSupplier nanos) {
+    this.wallMillis = Objects.requireNonNull(wallMillis, "wallMillis");
+    this.nanos = Objects.requireNonNull(nanos, "nanos");
+    this.monotonicMillis = new AtomicLong(nanos.getAsLong() / 1_000_000L);
+    this.date = DateValue.of(Math.floorDiv(wallMillis.getAsLong(), 1000L));
+  }
+
+  /**
+   * Reads the system clocks and updates the cached values. Several threads may tick the same clock;
+   * {@link #monotonicMillis} never goes backwards.
+   */
+  public void tick() {
+    long now = nanos.getAsLong() / 1_000_000L;
+    monotonicMillis.accumulateAndGet(now, Math::max);
+    dateValue();
+  }
+
+  /** Returns the monotonic milliseconds as of the last {@link #tick}. */
+  public long monotonicMillis() {
+    return monotonicMillis.get();
+  }
+
+  /** Returns the current HTTP date, e.g., {@code "Sun, 06 Nov 1994 08:49:37 GMT"}. */
+  public String httpDate() {
+    return dateValue().text();
+  }
+
+  /**
+   * Returns the current value of the {@code Date} header. Use this instead of separate calls to
+   * {@link #httpDate} if the string and the bytes must agree.
+   */
+  public DateValue dateValue() {
+    DateValue current = date;
+    long second = Math.floorDiv(wallMillis.getAsLong(), 1000L);
+    if (current.second != second) {
+      // Racing threads format the same value; whichever write wins is correct.
+      current = DateValue.of(second);
+      date = current;
+    }
+    return current;
+  }
+
+  /** The HTTP date of one second, as a string and as US-ASCII bytes. */
+  public static final class DateValue {
+    private final long second;
+    private final String text;
+    private final byte[] bytes;
+
+    private DateValue(long second, String text) {
+      this.second = second;
+      this.text = text;
+      this.bytes = text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    static DateValue of(long second) {
+      return new DateValue(second, HttpDate.formatDate(Instant.ofEpochSecond(second)));
+    }
+
+    public String text() {
+      return text;
+    }
+
+    /** Returns the length of the encoded value in bytes. */
+    public int length() {
+      return bytes.length;
+    }
+
+    /** Copies the encoded value to {@code dst} at {@code offset}; returns the number of bytes. */
+    public int copyTo(byte[] dst, int offset) {
+      System.arraycopy(bytes, 0, dst, offset, bytes.length);
+      return bytes.length;
+    }
+
+    /** Puts the encoded value into {@code dst}, advancing its position. */
+    public void putTo(ByteBuffer dst) {
+      dst.put(bytes);
+    }
+
+    @Override
+    public String toString() {
+      return text;
+    }
+  }
+}
@@ -2,12 +2,13 @@ package de.ofahrt.catfish.model;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Pattern;
+import org.jspecify.annotations.Nullable;
 
 public final class HttpHeaderName {
   public static final String ACCEPT = "Accept";
@@ -82,36 +83,23 @@ public final class HttpHeaderName {
 
   private static Map<String, String> CANONICALIZATION_MAP = getCanonicalizationMap();
 
-  // RFC 3986: Uniform Resource Identifier (URI): Generic Syntax
-  private static final String HEXDIG = "[0-9A-F]";
+  // Perfect hash table over the well-known names for lookups on raw bytes; see lookup(). The
+  // multiplier is picked at class initialization as the first one without collisions.
+  private static final int PERFECT_HASH_SIZE = 256;
+  private static final String[] PERFECT_HASH_NAMES = new String[PERFECT_HASH_SIZE];
+  private static final byte[][] PERFECT_HASH_KEYS = new byte[PERFECT_HASH_SIZE][];
+  private static final int PERFECT_HASH_MULTIPLIER = buildPerfectHash();
 
-  // unreserved = ALPHA / DIGIT / "-" / "." / "_" / "~"
-  private static final String UNRESERVED = "[0-9a-zA-Z._~-]";
-  // sub-delims = "!" / "$" / "&" / "'" / "(" / ")" / "*" / "+" / "," / ";" / "="
-  private static final String SUBDELIMS = "[!$&'()*+,;=]";
+  // RFC 3986: Uniform Resource Identifier (URI): Generic Syntax
+  //
+  // host        = IP-literal / IPv4address / reg-name
+  // reg-name    = *( unreserved / pct-encoded / sub-delims )
+  // unreserved  = ALPHA / DIGIT / "-" / "." / "_" / "~"
   // pct-encoded = "%" HEXDIG HEXDIG
-  private static final String PCT_ENCODED = "(?:%" + HEXDIG + HEXDIG + ")";
-  private static final String REG_NAME =
-      "(?:(?:" + UNRESERVED + "|" + SUBDELIMS + "|" + PCT_ENCODED + ")*)";
-
-  // dec-octet     = DIGIT                 ; 0-9
-  //               / %x31-39 DIGIT         ; 10-99
-  //               / "1" 2DIGIT            ; 100-199
-  //               / "2" %x30-34 DIGIT     ; 200-249
-  //               / "25" %x30-35          ; 250-255
-  private static final String DEC_OCTET =
-      "(?:[0-9]|(?:[1-9][0-9])|(?:1[0-9][0-9])|(?:2[0-4][0-9])|(?:25[0-5]))";
-  // IPv4address = dec-octet "." dec-octet "." dec-octet "." dec-octet
-  private static final String IPV4 =
-      DEC_OCTET + "\\." + DEC_OCTET + "\\." + DEC_OCTET + "\\." + DEC_OCTET;
-
-  // host = IP-literal / IPv4address / reg-name
-  private static final String HOST_PATTERN = "(?:" + REG_NAME + "|" + IPV4 + ")";
-
-  // RFC 2616: Hypertext Transfer Protocol -- HTTP/1.1
-  // Host = "Host" ":" host [ ":" port ]
-  private static final Pattern HOST_PORT_PATTERN =
-      Pattern.compile("(" + HOST_PATTERN + ")(:\\d*)?");
+  // sub-delims  = "!" / "$" / "&" / "'" / "(" / ")" / "*" / "+" / "," / ";" / "="
+  //
+  // Every IPv4address also matches reg-name, so validHostPort only needs to check the latter.
+  private static final String SUB_DELIMS = "!$&'()*+,;=";
 
   public static boolean mayOccurMultipleTimes(String fieldName) {
     if (MULTIPLE_OCCURANCE_BLACKLIST.contains(fieldName)) {
@@ -153,12 +141,109 @@ public final class HttpHeaderName {
     return result != null ? result : name;
   }
 
+  private static int buildPerfectHash() {
+    String[] names =
+        CANONICALIZATION_MAP.values().stream().distinct().sorted().toArray(String[]::new);
+    byte[][] keys = new byte[names.length][];
+    for (int i = 0; i < names.length; i++) {
+      keys[i] = names[i].toLowerCase(Locale.US).getBytes(StandardCharsets.US_ASCII);
+    }
+    for (int multiplier = 31; multiplier < 1 << 16; multiplier += 2) {
+      Arrays.fill(PERFECT_HASH_KEYS, null);
+      boolean collision = false;
+      for (int i = 0; i < names.length && !collision; i++) {
+        int slot = hash(keys[i], 0, keys[i].length, multiplier);
+        if (PERFECT_HASH_KEYS[slot] != null) {
+          collision = true;
+        } else {
+          PERFECT_HASH_KEYS[slot] = keys[i];
+          PERFECT_HASH_NAMES[slot] = names[i];
+        }
+      }
+      if (!collision) {
+        return multiplier;
+      }
+    }
+    throw new IllegalStateException("No perfect hash for the well-known header names");
+  }
+
+  private static int toLowerCase(int c) {
+    return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+  }
+
+  private static int hash(byte[] name, int offset, int length, int multiplier) {
+    int h = length;
+    for (int i = offset; i < offset + length; i++) {
+      h = h * multiplier + toLowerCase(name[i] & 0xff);
+    }
+    return (h ^ (h >>> 15)) & (PERFECT_HASH_SIZE - 1);
+  }
+
+  /**
+   * Returns the canonical representation of the well-known HTTP header field name in {@code
+   * name[offset..offset+length)}, compared ignoring ASCII case, or null if the name is not known.
+   * Unlike {@link #canonicalize}, this does not allocate, so parsers can call it on their input
+   * buffer before creating a string.
+   */
+  public static @Nullable String lookup(byte[] name, int offset, int length) {
+    int slot = hash(name, offset, length, PERFECT_HASH_MULTIPLIER);
+    byte[] key = PERFECT_HASH_KEYS[slot];
+    if (key == null || key.length != length) {
+      return null;
+    }
+    for (int i = 0; i < length; i++) {
+      if (toLowerCase(name[offset + i] & 0xff) != key[i]) {
+        return null;
+      }
+    }
+    return PERFECT_HASH_NAMES[slot];
+  }
+
   /**
    * Implements a syntax check for hostport according to RFC 3986. Does not support IPv6 addresses
    * or future IP literals.
    */
   public static boolean validHostPort(String text) {
-    return HOST_PORT_PATTERN.matcher(text).matches();
+    // RFC 2616: Hypertext Transfer Protocol -- HTTP/1.1
+    // Host = "Host" ":" host [ ":" port ]
+    int length = text.length();
+    int i = 0;
+    while (i < length && text.charAt(i) != ':') {
+      char c = text.charAt(i);
+      if (c == '%') {
+        if (i + 2 >= length || !isHexDigit(text.charAt(i + 1)) || !isHexDigit(text.charAt(i + 2))) {
+          return false;
+        }
+        i += 3;
+      } else if (isUnreserved(c) || SUB_DELIMS.indexOf(c) >= 0) {
+        i++;
+      } else {
+        return false;
+      }
+    }
+    // Skip the ':' before the port, if any.
+    for (i++; i < length; i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isUnreserved(char c) {
+    return (c >= 'a' && c <= 'z')
+        || (c >= 'A' && c <= 'Z')
+        || (c >= '0' && c <= '9')
+        || c == '-'
+        || c == '.'
+        || c == '_'
+        || c == '~';
+  }
+
+  // RFC 3986 allows lower-case hex digits, but the check has always been stricter.
+  private static boolean isHexDigit(char c) {
+    return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F');
   }
 
   /**
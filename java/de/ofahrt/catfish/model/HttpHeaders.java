@@ -1,35 +1,45 @@
 package de.ofahrt.catfish.model;
 
+import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.NoSuchElementException;
 import org.jspecify.annotations.Nullable;
 
+/**
+ * An immutable list of HTTP header fields, sorted by name. Names are compared case-insensitively; a
+ * name may occur more than once, e.g., {@code Set-Cookie}, in which case its values stay in the
+ * order they were added.
+ *
+ * <p>The fields are stored in two flat arrays. Lookups compare names by identity before comparing
+ * characters, so names taken from {@link HttpHeaderName} (which is what the parsers produce) are
+ * usually found without comparing any. {@link #withOverrides} and {@link #without} share the name
+ * and value strings with the original and only copy the reference arrays.
+ */
 public final class HttpHeaders implements Iterable<Map.Entry<String, String>> {
-  public static final HttpHeaders NONE = new HttpHeaders();
+  private static final String[] EMPTY = new String[0];
+  private static final int[] EMPTY_CHAIN = new int[0];
+  // Up to this many fields, a linear scan beats a binary search with case-insensitive comparisons.
+  private static final int LINEAR_SEARCH_LIMIT = 16;
+
+  public static final HttpHeaders NONE = new HttpHeaders(EMPTY, EMPTY, 0);
 
   public static HttpHeaders of(String key0, String value0) {
-    TreeMap<String, String> sortedCopy = new TreeMap<>();
-    sortedCopy.put(key0, value0);
-    return new HttpHeaders(sortedCopy);
+    return new Builder(1).set(key0, value0).buildInPlace();
   }
 
   public static HttpHeaders of(String key0, String value0, String key1, String value1) {
-    TreeMap<String, String> sortedCopy = new TreeMap<>();
-    sortedCopy.put(key0, value0);
-    sortedCopy.put(key1, value1);
-    return new HttpHeaders(sortedCopy);
+    return new Builder(2).set(key0, value0).set(key1, value1).buildInPlace();
   }
 
   public static HttpHeaders of(
       String key0, String value0, String key1, String value1, String key2, String value2) {
-    TreeMap<String, String> sortedCopy = new TreeMap<>();
-    sortedCopy.put(key0, value0);
-    sortedCopy.put(key1, value1);
-    sortedCopy.put(key2, value2);
-    return new HttpHeaders(sortedCopy);
+    return new Builder(3).set(key0, value0).set(key1, value1).set(key2, value2).buildInPlace();
   }
 
   public static HttpHeaders of(
@@ -41,68 +51,472 @@ public final class HttpHeaders implements Iterable<Map.Entry<String, String>> {
       String value2,
       String key3,
       String value3) {
-    TreeMap<String, String> sortedCopy = new TreeMap<>();
-    sortedCopy.put(key0, value0);
-    sortedCopy.put(key1, value1);
-    sortedCopy.put(key2, value2);
-    sortedCopy.put(key3, value3);
-    return new HttpHeaders(sortedCopy);
+    return new Builder(4)
+        .set(key0, value0)
+        .set(key1, value1)
+        .set(key2, value2)
+        .set(key3, value3)
+        .buildInPlace();
   }
 
   public static HttpHeaders of(Map<String, String> map) {
-    return new HttpHeaders(new TreeMap<>(map));
+    Builder builder = new Builder(map.size());
+    for (Map.Entry<String, String> e : map.entrySet()) {
+      builder.set(e.getKey(), e.getValue());
+    }
+    return builder.buildInPlace();
   }
 
-  private final SortedMap<String, String> entries;
-
-  private HttpHeaders() {
-    this.entries = Collections.emptySortedMap();
+  public static Builder builder() {
+    return new Builder(8);
   }
 
-  private HttpHeaders(TreeMap<String, String> entries) {
-    this.entries = entries;
+  private final String[] names;
+  private final String[] values;
+  private final int size;
+
+  private HttpHeaders(String[] names, String[] values, int size) {
+    this.names = names;
+    this.values = values;
+    this.size = size;
   }
 
+  /**
+   * Returns the value of the header {@code key}, or null if there is none. If the header occurs
+   * more than once, returns the values joined with {@code ", "}; use {@link #getAll} to get them
+   * separately.
+   */
   public @Nullable String get(String key) {
-    return entries.get(key);
+    int index = indexOf(names, size, key);
+    if (index < 0) {
+      return null;
+    }
+    int end = endOfRun(names, size, index);
+    return end == index + 1 ? values[index] : join(values, index, end);
+  }
+
+  /** Returns all values of the header {@code key} in the order they were added; may be empty. */
+  public List<String> getAll(String key) {
+    int index = indexOf(names, size, key);
+    if (index < 0) {
+      return Collections.emptyList();
+    }
+    int end = endOfRun(names, size, index);
+    return Collections.unmodifiableList(Arrays.asList(values).subList(index, end));
   }
 
   public boolean containsKey(String key) {
-    return entries.containsKey(key);
+    return indexOf(names, size, key) >= 0;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the number of fields; a header that occurs more than once counts once per value. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the name of the field at {@code index}, where {@code 0 <= index < size()}. */
+  public String name(int index) {
+    checkIndex(index);
+    return names[index];
   }
 
+  /** Returns the value of the field at {@code index}, where {@code 0 <= index < size()}. */
+  public String value(int index) {
+    checkIndex(index);
+    return values[index];
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+  }
+
+  /** Iterates over the fields in order, once per value. */
   @Override
   public Iterator<Map.Entry<String, String>> iterator() {
-    return entries.entrySet().iterator();
+    return new Iterator<Map.Entry<String, String>>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      public Map.Entry<String, String> next() {
+        if (index >= size) {
+          throw new NoSuchElementException();
+        }
+        Map.Entry<String, String> result =
+            new AbstractMap.SimpleImmutableEntry<>(names[index], values[index]);
+        index++;
+        return result;
+      }
+    };
   }
 
   @Override
   public String toString() {
-    return entries.toString();
+    StringBuilder result = new StringBuilder("{");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        result.append(", ");
+      }
+      result.append(names[i]).append('=').append(values[i]);
+    }
+    return result.append('}').toString();
   }
 
+  /**
+   * Returns these headers with the headers in {@code overrides} added. All values of a header in
+   * {@code overrides} replace all values of the same header in these headers.
+   */
   public HttpHeaders withOverrides(HttpHeaders overrides) {
-    TreeMap<String, String> mergedMap = new TreeMap<>(entries);
-    mergedMap.putAll(overrides.entries);
-    return new HttpHeaders(mergedMap);
+    if (overrides.size == 0) {
+      return this;
+    }
+    if (size == 0) {
+      return overrides;
+    }
+    String[] mergedNames = new String[size + overrides.size];
+    String[] mergedValues = new String[size + overrides.size];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < size || j < overrides.size) {
+      int cmp;
+      if (i == size) {
+        cmp = 1;
+      } else if (j == overrides.size) {
+        cmp = -1;
+      } else {
+        cmp = compare(names[i], overrides.names[j]);
+      }
+      if (cmp < 0) {
+        mergedNames[count] = names[i];
+        mergedValues[count++] = values[i++];
+      } else if (cmp == 0) {
+        // Replaced; the override is copied once the base has moved past the name.
+        i++;
+      } else {
+        mergedNames[count] = overrides.names[j];
+        mergedValues[count++] = overrides.values[j++];
+      }
+    }
+    return new HttpHeaders(mergedNames, mergedValues, count);
   }
 
+  /** Returns these headers without any values of the header {@code key}. */
   public HttpHeaders without(String key) {
-    if (!entries.containsKey(key)) {
+    int index = indexOf(names, size, key);
+    if (index < 0) {
       return this;
     }
-    TreeMap<String, String> copy = new TreeMap<>(entries);
-    copy.remove(key);
-    return new HttpHeaders(copy);
+    int end = endOfRun(names, size, index);
+    int newSize = size - (end - index);
+    String[] newNames = Arrays.copyOf(names, newSize);
+    String[] newValues = Arrays.copyOf(values, newSize);
+    System.arraycopy(names, end, newNames, index, size - end);
+    System.arraycopy(values, end, newValues, index, size - end);
+    return new HttpHeaders(newNames, newValues, newSize);
   }
 
   @Override
   public int hashCode() {
-    return entries.hashCode();
+    int result = 1;
+    for (int i = 0; i < size; i++) {
+      result = 31 * result + names[i].hashCode();
+      result = 31 * result + values[i].hashCode();
+    }
+    return result;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return obj instanceof HttpHeaders && entries.equals(((HttpHeaders) obj).entries);
+    if (!(obj instanceof HttpHeaders)) {
+      return false;
+    }
+    HttpHeaders other = (HttpHeaders) obj;
+    return Arrays.equals(names, 0, size, other.names, 0, other.size)
+        && Arrays.equals(values, 0, size, other.values, 0, other.size);
+  }
+
+  private static int compare(String a, String b) {
+    return a == b ? 0 : String.CASE_INSENSITIVE_ORDER.compare(a, b);
+  }
+
+  private static boolean sameName(String a, String b) {
+    // equalsIgnoreCase compares the lengths first, so most mismatches are cheap.
+    return a == b || a.equalsIgnoreCase(b);
+  }
+
+  /** Returns the index of the first field named {@code name}, or -1. */
+  private static int indexOf(String[] names, int size, String name) {
+    if (size <= LINEAR_SEARCH_LIMIT) {
+      // Fields with the same name are adjacent, so the first match is the first of its run.
+      for (int i = 0; i < size; i++) {
+        if (sameName(names[i], name)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(names[mid], name) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low < size && compare(names[low], name) == 0 ? low : -1;
+  }
+
+  private static int endOfRun(String[] names, int size, int index) {
+    int end = index + 1;
+    while (end < size && sameName(names[end], names[index])) {
+      end++;
+    }
+    return end;
+  }
+
+  private static String join(String[] values, int start, int end) {
+    StringBuilder result = new StringBuilder(values[start]);
+    for (int i = start + 1; i < end; i++) {
+      result.append(", ").append(values[i]);
+    }
+    return result.toString();
+  }
+
+  /**
+   * A mutable list of header fields to build {@link HttpHeaders} from. A builder can be reused
+   * after {@link #clear}; {@link #build} copies the fields, so later changes don't affect the
+   * headers it returned.
+   *
+   * <p>Fields are kept in the order they were added and only sorted by {@link #build}, so that
+   * adding {@code n} fields costs {@code O(n log n)} whatever their order. Beyond a few fields,
+   * lookups go through an index that is built on first use.
+   */
+  public static final class Builder {
+    private String[] names;
+    private String[] values;
+    private int size;
+    // Null until a lookup needs it; maps the lower-case name to the first and last index of its
+    // fields, which are linked in the order they were added through chain.
+    private @Nullable Map<String, int[]> index;
+    private int[] chain = EMPTY_CHAIN;
+
+    private Builder(int capacity) {
+      this.names = new String[Math.max(capacity, 1)];
+      this.values = new String[names.length];
+    }
+
+    /** Adds a value for the header {@code name}, after any values it already has. */
+    public Builder add(String name, String value) {
+      if (size == names.length) {
+        names = Arrays.copyOf(names, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      names[size] = name;
+      values[size] = value;
+      Map<String, int[]> index = this.index;
+      if (index != null) {
+        addToIndex(index, size);
+      }
+      size++;
+      return this;
+    }
+
+    /** Sets the header {@code name} to {@code value}, replacing all values it already has. */
+    public Builder set(String name, String value) {
+      remove(name);
+      return add(name, value);
+    }
+
+    /** Removes all values of the header {@code name}. */
+    public Builder remove(String name) {
+      int first = first(name);
+      if (first >= 0) {
+        int newSize = first;
+        for (int i = first + 1; i < size; i++) {
+          if (!sameName(names[i], name)) {
+            names[newSize] = names[i];
+            values[newSize++] = values[i];
+          }
+        }
+        Arrays.fill(names, newSize, size, null);
+        Arrays.fill(values, newSize, size, null);
+        size = newSize;
+        index = null;
+      }
+      return this;
+    }
+
+    /** Like {@link HttpHeaders#get}. */
+    public @Nullable String get(String name) {
+      int i = first(name);
+      if (i < 0) {
+        return null;
+      }
+      int j = next(i, name);
+      if (j < 0) {
+        return values[i];
+      }
+      StringBuilder result = new StringBuilder(values[i]);
+      for (; j >= 0; j = next(j, name)) {
+        result.append(", ").append(values[j]);
+      }
+      return result.toString();
+    }
+
+    public boolean containsKey(String name) {
+      return first(name) >= 0;
+    }
+
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    /** Removes all fields, keeping the allocated capacity. */
+    public void clear() {
+      Arrays.fill(names, 0, size, null);
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+      index = null;
+    }
+
+    public HttpHeaders build() {
+      if (size == 0) {
+        return NONE;
+      }
+      String[] sortedNames = Arrays.copyOf(names, size);
+      String[] sortedValues = Arrays.copyOf(values, size);
+      sort(sortedNames, sortedValues, size);
+      return new HttpHeaders(sortedNames, sortedValues, size);
+    }
+
+    /**
+     * Like {@link #build}, but sorts the fields in place and hands the arrays over instead of
+     * copying them if they are full. The builder must not be used afterwards.
+     */
+    private HttpHeaders buildInPlace() {
+      if (size == 0) {
+        return NONE;
+      }
+      if (size < names.length) {
+        return build();
+      }
+      sort(names, values, size);
+      return new HttpHeaders(names, values, size);
+    }
+
+    /** Returns the index of the first field named {@code name}, or -1. */
+    private int first(String name) {
+      if (size <= LINEAR_SEARCH_LIMIT) {
+        for (int i = 0; i < size; i++) {
+          if (sameName(names[i], name)) {
+            return i;
+          }
+        }
+        return -1;
+      }
+      int[] entry = index().get(indexKey(name));
+      return entry == null ? -1 : entry[0];
+    }
+
+    /** Returns the index of the field named {@code name} after the one at {@code i}, or -1. */
+    private int next(int i, String name) {
+      if (index != null) {
+        return chain[i];
+      }
+      for (int j = i + 1; j < size; j++) {
+        if (sameName(names[j], name)) {
+          return j;
+        }
+      }
+      return -1;
+    }
+
+    private Map<String, int[]> index() {
+      Map<String, int[]> index = this.index;
+      if (index == null) {
+        index = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+          addToIndex(index, i);
+        }
+        this.index = index;
+      }
+      return index;
+    }
+
+    private void addToIndex(Map<String, int[]> index, int i) {
+      if (chain.length < names.length) {
+        chain = Arrays.copyOf(chain, names.length);
+      }
+      chain[i] = -1;
+      String key = indexKey(names[i]);
+      int[] entry = index.get(key);
+      if (entry == null) {
+        index.put(key, new int[] {i, i});
+      } else {
+        chain[entry[1]] = i;
+        entry[1] = i;
+      }
+    }
+
+    private static String indexKey(String name) {
+      return name.toLowerCase(Locale.ROOT);
+    }
+  }
+
+  /** Sorts the fields stably by name; fields that are already in order are left as they are. */
+  private static void sort(String[] names, String[] values, int size) {
+    int firstOutOfOrder = 1;
+    while (firstOutOfOrder < size
+        && compare(names[firstOutOfOrder - 1], names[firstOutOfOrder]) <= 0) {
+      firstOutOfOrder++;
+    }
+    if (firstOutOfOrder == size) {
+      return;
+    }
+    if (size <= LINEAR_SEARCH_LIMIT) {
+      // Insertion sort: no allocations, and cheap for the handful of fields of a typical request.
+      for (int i = firstOutOfOrder; i < size; i++) {
+        String name = names[i];
+        String value = values[i];
+        int j = i;
+        while (j > 0 && compare(names[j - 1], name) > 0) {
+          names[j] = names[j - 1];
+          values[j] = values[j - 1];
+          j--;
+        }
+        names[j] = name;
+        values[j] = value;
+      }
+      return;
+    }
+    sortMany(names, values, size);
+  }
+
+  private static void sortMany(String[] names, String[] values, int size) {
+    // Arrays.sort on objects is a stable merge sort, so values of a name keep their order.
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    String[] unsortedNames = names.clone();
+    String[] unsortedValues = values.clone();
+    Arrays.sort(order, (a, b) -> compare(unsortedNames[a], unsortedNames[b]));
+    for (int i = 0; i < size; i++) {
+      names[i] = unsortedNames[order[i]];
+      values[i] = unsortedValues[order[i]];
+    }
   }
 }
@@ -1,5 +1,7 @@
 package de.ofahrt.catfish.model;
 
+import java.io.InputStream;
+import java.util.Objects;
 import org.jspecify.annotations.Nullable;
 
 public interface HttpRequest {
@@ -17,6 +19,25 @@ public interface HttpRequest {
     }
   }
 
+  /**
+   * A body that is read while it arrives, for handlers that opt in via {@link
+   * de.ofahrt.catfish.model.server.HttpHandler#streamsRequestBody}. The stream returns the decoded
+   * bytes: transfer and content codings have already been removed. Reads block until more of the
+   * body has arrived; a read fails with an {@link java.io.IOException} if the body is malformed,
+   * exceeds the upload policy, or the connection is closed before the body is complete.
+   */
+  public static final class StreamingBody implements Body {
+    private final InputStream in;
+
+    public StreamingBody(InputStream in) {
+      this.in = Objects.requireNonNull(in, "in");
+    }
+
+    public InputStream getInputStream() {
+      return in;
+    }
+  }
+
   default HttpVersion getVersion() {
     return HttpVersion.HTTP_1_1;
   }
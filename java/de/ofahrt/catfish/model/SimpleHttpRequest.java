@@ -2,10 +2,8 @@ package de.ofahrt.catfish.model;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.TreeMap;
 import org.jspecify.annotations.Nullable;
 
 public final class SimpleHttpRequest implements HttpRequest {
@@ -19,7 +17,7 @@ public final class SimpleHttpRequest implements HttpRequest {
     this.version = Objects.requireNonNull(builder.version, "version");
     this.method = Objects.requireNonNull(builder.method, "method");
     this.uri = Objects.requireNonNull(builder.unparsedUri, "uri");
-    this.headers = HttpHeaders.of(Objects.requireNonNull(builder.headers, "headers"));
+    this.headers = builder.headers.build();
     this.body = builder.body;
   }
 
@@ -52,13 +50,12 @@ public final class SimpleHttpRequest implements HttpRequest {
     private HttpVersion version = HttpVersion.HTTP_0_9;
     private String method = "UNKNOWN";
     private @Nullable String unparsedUri;
-    private Map<String, String> headers = new TreeMap<>();
-    // For headers that occur more than once, values are accumulated here in a StringBuilder so
-    // appending is O(value) rather than O(current length) — the naive "get(key) + sep + value"
-    // rebuild is O(n^2) over the repeats. The headers map holds the authoritative value for
-    // single-occurrence headers; multi-occurrence keys live here until materialize() folds them
-    // back.
-    private final Map<String, StringBuilder> mergedValues = new HashMap<>();
+    private final HttpHeaders.Builder headers = HttpHeaders.builder();
+    // Repeated Cookie fields are recombined into one. The value is accumulated here in a
+    // StringBuilder so appending is O(value) rather than O(current length) — the naive
+    // "get(key) + sep + value" rebuild is O(n^2) over the repeats. The headers builder holds the
+    // first value until materialize() replaces it.
+    private @Nullable StringBuilder mergedCookies;
     private @Nullable Body body;
 
     public Builder() {
@@ -69,9 +66,8 @@ public final class SimpleHttpRequest implements HttpRequest {
       this.version = request.getVersion();
       this.method = request.getMethod();
       this.unparsedUri = request.getUri();
-      this.headers = new TreeMap<>();
       for (Map.Entry<String, String> e : request.getHeaders()) {
-        this.headers.put(e.getKey(), e.getValue());
+        this.headers.add(e.getKey(), e.getValue());
       }
       this.body = request.getBody();
     }
@@ -80,8 +76,9 @@ public final class SimpleHttpRequest implements HttpRequest {
       version = HttpVersion.HTTP_0_9;
       method = "UNKNOWN";
       unparsedUri = null;
-      headers = new TreeMap<>();
-      mergedValues.clear();
+      // Requests copy the fields, so the builder can keep reusing its arrays.
+      headers.clear();
+      mergedCookies = null;
       body = null;
     }
 
@@ -95,14 +92,14 @@ public final class SimpleHttpRequest implements HttpRequest {
     }
 
     /**
-     * Folds any deferred multi-occurrence header accumulators back into the authoritative {@link
-     * #headers} map. Must run before the request snapshot is taken.
+     * Folds the deferred Cookie accumulator back into the {@link #headers} builder. Must run before
+     * the request snapshot is taken.
      */
     private void materialize() {
-      for (Map.Entry<String, StringBuilder> e : mergedValues.entrySet()) {
-        headers.put(e.getKey(), e.getValue().toString());
+      if (mergedCookies != null) {
+        headers.set(HttpHeaderName.COOKIE, mergedCookies.toString());
+        mergedCookies = null;
       }
-      mergedValues.clear();
     }
 
     public HttpRequest build() throws MalformedRequestException {
@@ -158,17 +155,13 @@ public final class SimpleHttpRequest implements HttpRequest {
       Preconditions.checkNotNull(key);
       Preconditions.checkNotNull(value);
       key = HttpHeaderName.canonicalize(key);
-      // Repeated list-valued headers are joined via a StringBuilder accumulator (O(value) per
-      // append) rather than rebuilding a growing String each time (O(current length) per append →
-      // O(n^2) overall). The overall size is bounded by the parser's header-section limit
-      // (HttpLimits.MAX_HEADER_LIST_SIZE), not here. The separator is ", " for all fields except
-      // Cookie, which uses "; " per RFC 9113 §8.2.3 (cookie-pairs are recombined with a semicolon
-      // when a request carries multiple Cookie fields).
-      String separator = HttpHeaderName.COOKIE.equals(key) ? "; " : ", ";
-      StringBuilder acc = mergedValues.get(key);
-      if (acc != null) {
-        // Already accumulating this multi-occurrence header.
-        acc.append(separator).append(value);
+      // Repeated list-valued headers are kept as separate fields; HttpHeaders.get joins them with
+      // ", ". The overall size is bounded by the parser's header-section limit
+      // (HttpLimits.MAX_HEADER_LIST_SIZE), not here. Cookie is the exception: its cookie-pairs are
+      // recombined with "; " per RFC 9113 §8.2.3, via a StringBuilder accumulator (O(value) per
+      // append).
+      if (mergedCookies != null && HttpHeaderName.COOKIE.equals(key)) {
+        mergedCookies.append("; ").append(value);
         return this;
       }
       String existing = headers.get(key);
@@ -178,8 +171,12 @@ public final class SimpleHttpRequest implements HttpRequest {
               HttpStatusCode.BAD_REQUEST,
               "Illegal message headers: multiple occurence for non-list field");
         }
-        // Second occurrence: switch this key over to a StringBuilder accumulator.
-        mergedValues.put(key, new StringBuilder(existing).append(separator).append(value));
+        if (HttpHeaderName.COOKIE.equals(key)) {
+          // Second occurrence: switch over to the StringBuilder accumulator.
+          mergedCookies = new StringBuilder(existing).append("; ").append(value);
+          return this;
+        }
+        headers.add(key, value);
         return this;
       }
       if (HttpHeaderName.HOST.equals(key)) {
@@ -187,14 +184,13 @@ public final class SimpleHttpRequest implements HttpRequest {
           throw MalformedRequestException.of(HttpStatusCode.BAD_REQUEST, "Illegal 'Host' header");
         }
       }
-      headers.put(key, value);
+      headers.add(key, value);
       return this;
     }
 
     public @Nullable String getHeader(String key) {
-      StringBuilder acc = mergedValues.get(key);
-      if (acc != null) {
-        return acc.toString();
+      if (mergedCookies != null && HttpHeaderName.COOKIE.equals(key)) {
+        return mergedCookies.toString();
       }
       return headers.get(key);
     }
@@ -1,7 +1,5 @@
 package de.ofahrt.catfish.model;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 import org.jspecify.annotations.Nullable;
 
@@ -9,7 +7,7 @@ public final class SimpleHttpResponse implements HttpResponse {
   private final HttpVersion version;
   private final int statusCode;
   private final String statusMessage;
-  private final Map<String, String> headers;
+  private final HttpHeaders headers;
   private final byte[] content;
 
   SimpleHttpResponse(Builder builder) {
@@ -19,7 +17,7 @@ public final class SimpleHttpResponse implements HttpResponse {
         builder.reasonPhrase != null
             ? builder.reasonPhrase
             : HttpStatusCode.getStatusMessage(statusCode);
-    this.headers = new HashMap<>(builder.headers);
+    this.headers = builder.headers.build();
     this.content = builder.content;
   }
 
@@ -40,7 +38,7 @@ public final class SimpleHttpResponse implements HttpResponse {
 
   @Override
   public HttpHeaders getHeaders() {
-    return HttpHeaders.of(headers);
+    return headers;
   }
 
   @Override
@@ -53,13 +51,10 @@ public final class SimpleHttpResponse implements HttpResponse {
     private int minorVersion = 1;
     private int statusCode;
     private @Nullable String reasonPhrase;
-    private final Map<String, String> headers = new HashMap<>();
-    // Repeated list-valued headers are accumulated here in a StringBuilder so appending is O(value)
-    // rather than O(current length) — the naive "get(key) + sep + value" rebuild is O(n^2) over the
-    // repeats. Single-occurrence headers live in `headers`; multi-occurrence keys live here until
-    // materialize() folds them back. Received responses are size-bounded by the parser
-    // (HttpLimits.MAX_HEADER_LIST_SIZE); generated responses are not bounded here.
-    private final Map<String, StringBuilder> mergedValues = new HashMap<>();
+    // Repeated list-valued headers, including Set-Cookie, are kept as separate fields. Received
+    // responses are size-bounded by the parser (HttpLimits.MAX_HEADER_LIST_SIZE); generated
+    // responses are not bounded here.
+    private final HttpHeaders.Builder headers = HttpHeaders.builder();
     private byte[] content = new byte[0];
 
     private @Nullable String errorMessage;
@@ -68,18 +63,9 @@ public final class SimpleHttpResponse implements HttpResponse {
       if (errorMessage != null) {
         throw new MalformedResponseException(errorMessage);
       }
-      materialize();
       return new SimpleHttpResponse(this);
     }
 
-    /** Folds deferred multi-occurrence header accumulators back into {@link #headers}. */
-    private void materialize() {
-      for (Map.Entry<String, StringBuilder> e : mergedValues.entrySet()) {
-        headers.put(e.getKey(), e.getValue().toString());
-      }
-      mergedValues.clear();
-    }
-
     public Builder setBadResponse(String errorMessage) {
       this.errorMessage = errorMessage;
       return this;
@@ -114,21 +100,13 @@ public final class SimpleHttpResponse implements HttpResponse {
       Preconditions.checkNotNull(key);
       Preconditions.checkNotNull(value);
       key = HttpHeaderName.canonicalize(key);
-      StringBuilder acc = mergedValues.get(key);
-      if (acc != null) {
-        // Already accumulating this multi-occurrence header.
-        acc.append(", ").append(value);
-        return this;
-      }
-      String existing = headers.get(key);
-      if (existing != null) {
+      if (headers.containsKey(key)) {
         if (!HttpHeaderName.mayOccurMultipleTimes(key)) {
           setBadResponse("Illegal message headers: multiple occurence for non-list field");
           throw new IllegalArgumentException(
               "Illegal message headers: multiple occurence for non-list field");
         }
-        // Second occurrence: switch this key over to a StringBuilder accumulator.
-        mergedValues.put(key, new StringBuilder(existing).append(", ").append(value));
+        headers.add(key, value);
         return this;
       }
       if (HttpHeaderName.HOST.equals(key)) {
@@ -137,15 +115,11 @@ public final class SimpleHttpResponse implements HttpResponse {
           throw new IllegalArgumentException("Illegal 'Host' header");
         }
       }
-      headers.put(key, value);
+      headers.add(key, value);
       return this;
     }
 
     public @Nullable String getHeader(String name) {
-      StringBuilder acc = mergedValues.get(name);
-      if (acc != null) {
-        return acc.toString();
-      }
       return headers.get(name);
     }
   }
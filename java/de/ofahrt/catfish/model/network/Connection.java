@@ -8,7 +8,8 @@ import javax.net.ssl.SSLSession;
 import org.jspecify.annotations.Nullable;
 
 public final class Connection {
-  private final UUID id;
+  // Created on first use; most connections never need one.
+  private volatile @Nullable UUID id;
   private final long startTimeMillis;
   private final long startTimeNanos;
   private final @Nullable InetSocketAddress localAddress;
@@ -21,7 +22,6 @@ public final class Connection {
       @Nullable InetSocketAddress localAddress,
       @Nullable InetSocketAddress remoteAddress,
       boolean ssl) {
-    this.id = UUID.randomUUID();
     this.startTimeMillis = System.currentTimeMillis();
     this.startTimeNanos = System.nanoTime();
     this.localAddress = localAddress;
@@ -35,7 +35,6 @@ public final class Connection {
       @Nullable InetSocketAddress localAddress,
       @Nullable InetSocketAddress remoteAddress,
       @Nullable SSLSession sslSession) {
-    this.id = UUID.randomUUID();
     this.startTimeMillis = System.currentTimeMillis();
     this.startTimeNanos = System.nanoTime();
     this.localAddress = localAddress;
@@ -47,7 +46,6 @@ public final class Connection {
 
   public Connection(Path socketPath, boolean ssl) {
     Objects.requireNonNull(socketPath, "socketPath");
-    this.id = UUID.randomUUID();
     this.startTimeMillis = System.currentTimeMillis();
     this.startTimeNanos = System.nanoTime();
     this.localAddress = null;
@@ -58,7 +56,17 @@ public final class Connection {
   }
 
   public UUID getId() {
-    return id;
+    UUID result = id;
+    if (result == null) {
+      synchronized (this) {
+        result = id;
+        if (result == null) {
+          result = UUID.randomUUID();
+          id = result;
+        }
+      }
+    }
+    return result;
   }
 
   public long startTimeMillis() {
@@ -91,6 +99,6 @@ public final class Connection {
 
   @Override
   public String toString() {
-    return id.toString();
+    return getId().toString();
   }
 }
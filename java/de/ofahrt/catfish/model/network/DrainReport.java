@@ -0,0 +1,10 @@
+package de.ofahrt.catfish.model.network;
+
+/**
+ * The outcome of a graceful shutdown.
+ *
+ * @param drained the number of connections that closed before the deadline
+ * @param killed the number of connections that were still open at the deadline and were closed
+ *     forcibly
+ */
+public record DrainReport(int drained, int killed) {}
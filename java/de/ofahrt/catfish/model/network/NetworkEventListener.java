@@ -26,6 +26,19 @@ public interface NetworkEventListener {
    */
   default void notifyInternalError(@Nullable Connection connection, Throwable throwable) {}
 
+  /**
+   * Receives the recent events of a connection that failed with an internal error, formatted one
+   * per line, right after {@link #notifyInternalError} for that connection. Not called if the
+   * engine's flight recorder is disabled.
+   */
+  default void flightRecord(Connection connection, String events) {}
+
+  /**
+   * Receives the metrics of a network selector thread, if periodic reports are enabled. Called on
+   * that selector thread, so implementations must not block.
+   */
+  default void selectorStats(SelectorStats stats) {}
+
   /**
    * The expectation is that implementations call System.exit in this case.
    *
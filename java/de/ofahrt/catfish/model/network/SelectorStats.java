@@ -0,0 +1,128 @@
+package de.ofahrt.catfish.model.network;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of the counters of one network selector thread. Counters are cumulative since the
+ * thread started, so rates are obtained by subtracting two snapshots; {@link #taskQueueDepth} and
+ * {@link #registeredKeys} are current values.
+ *
+ * @param selector the index of the selector thread
+ * @param wakeups the number of times {@code select()} returned
+ * @param selectNanos the time spent blocked in {@code select()}
+ * @param busyNanos the time spent running tasks, handling events, and expiring timers
+ * @param tasksRun the number of tasks run that were queued for the selector thread
+ * @param taskQueueDepth the number of tasks waiting to run
+ * @param reads the number of reads from the network
+ * @param bytesRead the number of bytes read from the network
+ * @param bytesWritten the number of bytes written to the network
+ * @param needMoreDataReads the number of times a stage asked for more data to make progress
+ * @param deferredConnections the number of times a connection used up its per-event budget and was
+ *     moved to the back of the loop
+ * @param registeredKeys the number of channels registered with the selector
+ * @param selectTime the distribution of the time blocked in each {@code select()}
+ * @param busyTime the distribution of the time spent handling each wakeup
+ * @param taskWaitTime the distribution of how long the oldest queued task waited to run
+ */
+public record SelectorStats(
+    int selector,
+    long wakeups,
+    long selectNanos,
+    long busyNanos,
+    long tasksRun,
+    long taskQueueDepth,
+    long reads,
+    long bytesRead,
+    long bytesWritten,
+    long needMoreDataReads,
+    long deferredConnections,
+    int registeredKeys,
+    Histogram selectTime,
+    Histogram busyTime,
+    Histogram taskWaitTime) {
+
+  /** Returns the fraction of time the selector thread was busy rather than blocked in select. */
+  public double busyFraction() {
+    long total = selectNanos + busyNanos;
+    return total == 0 ? 0 : (double) busyNanos / total;
+  }
+
+  /**
+   * A histogram of durations in power-of-two microsecond buckets: bucket 0 counts durations below
+   * one microsecond, and bucket {@code i} counts durations of at least {@code 2^(i-1)} and less
+   * than {@code 2^i} microseconds. The last bucket also counts all longer durations.
+   */
+  public record Histogram(long[] counts) {
+    public static final int BUCKETS = 32;
+
+    public Histogram {
+      if (counts.length != BUCKETS) {
+        throw new IllegalArgumentException("Expected " + BUCKETS + " buckets");
+      }
+      counts = counts.clone();
+    }
+
+    /** Returns the bucket index for a duration in nanoseconds. */
+    public static int bucketFor(long nanos) {
+      long micros = nanos / 1000;
+      return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /** Returns the exclusive upper bound of {@code bucket} in microseconds. */
+    public static long upperBoundMicros(int bucket) {
+      return 1L << bucket;
+    }
+
+    @Override
+    public long[] counts() {
+      return counts.clone();
+    }
+
+    /** Returns the number of recorded durations. */
+    public long count() {
+      long total = 0;
+      for (long c : counts) {
+        total += c;
+      }
+      return total;
+    }
+
+    /**
+     * Returns an upper bound in microseconds for the duration at the given percentile (between 0
+     * and 100), or 0 if the histogram is empty.
+     */
+    public long percentileMicros(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("percentile must be between 0 and 100");
+      }
+      long total = count();
+      if (total == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(total * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= Math.max(1, rank)) {
+          return upperBoundMicros(i);
+        }
+      }
+      return upperBoundMicros(BUCKETS - 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Histogram other && Arrays.equals(counts, other.counts);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+      return "Histogram" + Arrays.toString(counts);
+    }
+  }
+}
@@ -7,4 +7,16 @@ import java.io.IOException;
 public interface HttpHandler {
   void handle(Connection connection, HttpRequest request, HttpResponseWriter responseWriter)
       throws IOException;
+
+  /**
+   * Returns true if this handler reads request bodies as they arrive. Such a handler is called as
+   * soon as the first body bytes arrive, with a {@link HttpRequest.StreamingBody}, instead of after
+   * the whole body has been buffered in an {@link HttpRequest.InMemoryBody}. The default is false.
+   *
+   * <p>The handler may respond before it has read the whole body; the connection is then closed
+   * after the response.
+   */
+  default boolean streamsRequestBody() {
+    return false;
+  }
 }
@@ -2,6 +2,7 @@ package de.ofahrt.catfish.model.server;
 
 import de.ofahrt.catfish.model.HttpRequest;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Incrementally parses an HTTP request body from a byte stream.
@@ -26,6 +27,27 @@ public interface HttpRequestBodyParser {
    */
   int parse(byte[] input, int offset, int length);
 
+  /**
+   * Parses as much of the remaining bytes of {@code input}, which may be a direct buffer, as
+   * belongs to this body, and advances its position past the consumed bytes. The default
+   * implementation delegates to {@link #parse(byte[], int, int)}, copying the bytes of a direct
+   * buffer first.
+   *
+   * @return the number of bytes consumed
+   */
+  default int parse(ByteBuffer input) {
+    int consumed;
+    if (input.hasArray()) {
+      consumed = parse(input.array(), input.arrayOffset() + input.position(), input.remaining());
+    } else {
+      byte[] copy = new byte[input.remaining()];
+      input.get(input.position(), copy);
+      consumed = parse(copy, 0, copy.length);
+    }
+    input.position(input.position() + consumed);
+    return consumed;
+  }
+
   /** Returns {@code true} once the complete body has been received. */
   boolean isDone();
 
@@ -1,14 +1,72 @@
 package de.ofahrt.catfish.model.server;
 
+import de.ofahrt.catfish.model.HttpHeaderName;
+import de.ofahrt.catfish.model.HttpHeaders;
 import de.ofahrt.catfish.model.HttpResponse;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 public interface HttpResponseWriter {
   void commitBuffered(HttpResponse response) throws IOException;
 
   OutputStream commitStreamed(HttpResponse response) throws IOException;
 
+  /**
+   * Commits a response whose body is {@code length} bytes of {@code file}, starting at {@code
+   * position}. The Content-Length header is set accordingly, and any body of {@code response} is
+   * ignored. The writer takes ownership of {@code file} and closes it once the body has been sent
+   * or the response fails.
+   *
+   * <p>On plaintext HTTP/1.1 connections the body is sent with {@link FileChannel#transferTo}, so
+   * it never passes through user space. Elsewhere (TLS, HTTP/2, or if the response is compressed)
+   * it is read through a buffer. This default implementation always does the latter by copying the
+   * region into {@link #commitStreamed}.
+   */
+  default void commitFile(HttpResponse response, FileChannel file, long position, long length)
+      throws IOException {
+    try (FileChannel in = file) {
+      checkFileRegion(in, position, length);
+      try (OutputStream out =
+          commitStreamed(
+              response.withHeaderOverrides(
+                  HttpHeaders.of(HttpHeaderName.CONTENT_LENGTH, Long.toString(length))))) {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, 65536));
+        long end = position + length;
+        while (position < end) {
+          buffer.clear();
+          buffer.limit((int) Math.min(buffer.capacity(), end - position));
+          int read = in.read(buffer, position);
+          if (read < 0) {
+            throw new EOFException("File ended " + (end - position) + " bytes early");
+          }
+          out.write(buffer.array(), 0, read);
+          position += read;
+        }
+      }
+    }
+  }
+
+  /**
+   * Commits a response whose body is the entire file at {@code path}, like {@link
+   * #commitFile(HttpResponse, FileChannel, long, long)}.
+   */
+  default void commitFile(HttpResponse response, Path path) throws IOException {
+    FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+    long size;
+    try {
+      size = file.size();
+    } catch (IOException e) {
+      file.close();
+      throw e;
+    }
+    commitFile(response, file, 0, size);
+  }
+
   /**
    * Aborts the response. If no response has been committed yet, commits a 500 error response with
    * Connection: close. If a streamed response is already in flight, forces the connection closed so
@@ -16,4 +74,17 @@ public interface HttpResponseWriter {
    * if the response was already fully committed.
    */
   void abort();
+
+  /**
+   * Throws {@link IllegalArgumentException} unless {@code [position, position + length)} lies
+   * within {@code file}. For use by implementations of {@link #commitFile}.
+   */
+  static void checkFileRegion(FileChannel file, long position, long length) throws IOException {
+    if (position < 0 || length < 0 || position > file.size() - length) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Region [%d, +%d) is outside of the file (%d bytes)",
+              Long.valueOf(position), Long.valueOf(length), Long.valueOf(file.size())));
+    }
+  }
 }
@@ -7,6 +7,24 @@ import org.jspecify.annotations.Nullable;
 
 public interface HttpServerListener {
 
+  /** A listener that ignores all events. It doesn't look at ids, so none are generated for it. */
+  HttpServerListener NONE =
+      new HttpServerListener() {
+        @Override
+        public RequestIdGenerator requestIdGenerator() {
+          return RequestIdGenerator.none();
+        }
+      };
+
+  /**
+   * Returns the generator of the {@code requestId} and {@code connectId} values passed to the other
+   * methods. Called once per connection. Defaults to {@link RequestIdGenerator#random}; override it
+   * to get sequential or secure ids, or {@link RequestIdGenerator#none} if the ids are unused.
+   */
+  default RequestIdGenerator requestIdGenerator() {
+    return RequestIdGenerator.random();
+  }
+
   /** Called when a CONNECT request begins, before the upstream connection is established. */
   default void onConnect(UUID connectId, String host, int port) {}
 
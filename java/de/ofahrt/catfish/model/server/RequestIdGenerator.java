@@ -0,0 +1,50 @@
+package de.ofahrt.catfish.model.server;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the ids that correlate the {@link HttpServerListener} callbacks of a request or a
+ * CONNECT tunnel. Ids are {@link UUID}s so that existing listeners keep working, but unlike {@link
+ * UUID#randomUUID} the default ones don't go through {@link java.security.SecureRandom}: they only
+ * need to be unique, not unpredictable. Implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface RequestIdGenerator {
+
+  /** Returns a new id. */
+  UUID nextId();
+
+  /**
+   * Returns a generator of random version 4 UUIDs drawn from {@link ThreadLocalRandom}. This is the
+   * default; the ids are unique in practice, but not suitable as secrets.
+   */
+  static RequestIdGenerator random() {
+    return RequestIdGenerators.RANDOM;
+  }
+
+  /**
+   * Returns a generator of ids that share a random 64-bit prefix, chosen when this method is
+   * called, and end in a counter. Ids from one generator sort in the order they were generated,
+   * which can help when reading logs.
+   */
+  static RequestIdGenerator sequential() {
+    long prefix = ThreadLocalRandom.current().nextLong();
+    AtomicLong counter = new AtomicLong();
+    return () -> new UUID(prefix, counter.incrementAndGet());
+  }
+
+  /** Returns a generator that uses {@link UUID#randomUUID}, for listeners that need secure ids. */
+  static RequestIdGenerator secureRandom() {
+    return UUID::randomUUID;
+  }
+
+  /**
+   * Returns a generator that always returns the nil UUID. For listeners that ignore the ids, so
+   * that no ids are generated at all.
+   */
+  static RequestIdGenerator none() {
+    return RequestIdGenerators.NONE;
+  }
+}
@@ -0,0 +1,22 @@
+package de.ofahrt.catfish.model.server;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** The stateless {@link RequestIdGenerator}s. */
+final class RequestIdGenerators {
+  static final UUID NIL = new UUID(0, 0);
+
+  static final RequestIdGenerator NONE = () -> NIL;
+
+  static final RequestIdGenerator RANDOM =
+      () -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Set the version (4) and the IETF variant bits as UUID.randomUUID does.
+        long mostSigBits = (random.nextLong() & ~0xf000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & ~(0xcL << 60)) | (0x8L << 60);
+        return new UUID(mostSigBits, leastSigBits);
+      };
+
+  private RequestIdGenerators() {}
+}
@@ -3,6 +3,7 @@ package de.ofahrt.catfish.upload;
 import de.ofahrt.catfish.model.server.HttpRequestBodyParser;
 import de.ofahrt.catfish.utils.MediaType;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -153,14 +154,25 @@ public final class IncrementalMultipartParser implements HttpRequestBodyParser {
   }
 
   @Override
-  @SuppressWarnings("NullAway") // State machine guarantees fields are non-null when accessed.
   public int parse(byte[] data, int offset, int length) {
+    return parse(ByteBuffer.wrap(data), offset, length);
+  }
+
+  @Override
+  public int parse(ByteBuffer data) {
+    int consumed = parse(data, data.position(), data.remaining());
+    data.position(data.position() + consumed);
+    return consumed;
+  }
+
+  @SuppressWarnings("NullAway") // State machine guarantees fields are non-null when accessed.
+  private int parse(ByteBuffer data, int offset, int length) {
     if (isDone()) {
       return 0;
     }
 
     for (int i = 0; i < length; i++) {
-      final char c = (char) (data[offset + i] & 0xff);
+      final char c = (char) (data.get(offset + i) & 0xff);
       if (c == boundary[searchPosition]) {
         searchPosition++;
       } else if (c == boundary[0]) {
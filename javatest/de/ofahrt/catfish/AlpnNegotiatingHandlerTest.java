@@ -18,7 +18,8 @@ public class AlpnNegotiatingHandlerTest {
         (SSLSocketFactory) SSLSocketFactory.getDefault(),
         host -> null,
         new HttpServerListener() {},
-        protocols);
+        protocols,
+        HttpTimeouts.NONE);
   }
 
   @Test
@@ -3,9 +3,11 @@ package de.ofahrt.catfish;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import de.ofahrt.catfish.internal.network.BufferPool;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
 import de.ofahrt.catfish.internal.network.Stage.ConnectionControl;
+import de.ofahrt.catfish.internal.network.TimerWheel.Timeout;
 import de.ofahrt.catfish.model.network.Connection;
 import de.ofahrt.catfish.model.server.ConnectDecision;
 import de.ofahrt.catfish.model.server.ConnectHandler;
@@ -28,6 +30,8 @@ public class ConnectStageTest {
       };
 
   private final List<Runnable> queued = new ArrayList<>();
+  private final ByteBuffer in = ByteBuffer.allocate(1024).flip();
+  private final ByteBuffer out = ByteBuffer.allocate(1024).flip();
 
   private final Pipeline pipeline =
       new Pipeline() {
@@ -49,18 +53,29 @@ public class ConnectStageTest {
         public void replaceWith(Stage nextStage) {}
 
         @Override
-        public void log(String text, Object... params) {}
+        public ByteBuffer inputBuffer() {
+          return in;
+        }
+
+        @Override
+        public ByteBuffer outputBuffer() {
+          return out;
+        }
+
+        @Override
+        public BufferPool bufferPool() {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Timeout schedule(long delayMillis, Runnable task) {
+          throw new UnsupportedOperationException();
+        }
       };
 
   private ConnectStage buildStage(ConnectHandler handler, HttpServerListener listener) {
-    ByteBuffer in = ByteBuffer.allocate(1024);
-    in.flip();
-    ByteBuffer out = ByteBuffer.allocate(1024);
-    out.flip();
     return new ConnectStage(
         pipeline,
-        in,
-        out,
         Runnable::run,
         UUID.randomUUID(),
         "example.com",
@@ -68,7 +83,7 @@ public class ConnectStageTest {
         handler,
         listener,
         new SslInfoCache(),
-        (p, inBuf, outBuf, ch, ex, cHost, cPort) -> {
+        (p, ch, ex, cHost, cPort) -> {
           throw new UnsupportedOperationException();
         });
   }
@@ -193,17 +208,28 @@ public class ConnectStageTest {
           public void replaceWith(Stage nextStage) {}
 
           @Override
-          public void log(String text, Object... params) {}
+          public ByteBuffer inputBuffer() {
+            return in;
+          }
+
+          @Override
+          public ByteBuffer outputBuffer() {
+            return out;
+          }
+
+          @Override
+          public BufferPool bufferPool() {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public Timeout schedule(long delayMillis, Runnable task) {
+            throw new UnsupportedOperationException();
+          }
         };
-    ByteBuffer in = ByteBuffer.allocate(1024);
-    in.flip();
-    ByteBuffer out = ByteBuffer.allocate(1024);
-    out.flip();
     ConnectStage stage =
         new ConnectStage(
             closingPipeline,
-            in,
-            out,
             Runnable::run,
             UUID.randomUUID(),
             "example.com",
@@ -211,7 +237,7 @@ public class ConnectStageTest {
             DENY_ALL,
             new HttpServerListener() {},
             new SslInfoCache(),
-            (p, inBuf, outBuf, ch, ex, cHost, cPort) -> {
+            (p, ch, ex, cHost, cPort) -> {
               throw new UnsupportedOperationException();
             });
     stage.inputClosed();
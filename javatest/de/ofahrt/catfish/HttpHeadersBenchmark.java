@@ -0,0 +1,90 @@
+package de.ofahrt.catfish;
+
+import de.ofahrt.catfish.http.HttpResponseGeneratorBuffered;
+import de.ofahrt.catfish.http.IncrementalHttpRequestParser;
+import de.ofahrt.catfish.model.HttpHeaderName;
+import de.ofahrt.catfish.model.HttpHeaders;
+import de.ofahrt.catfish.model.HttpRequest;
+import de.ofahrt.catfish.model.HttpResponse;
+import de.ofahrt.catfish.model.MalformedRequestException;
+import de.ofahrt.catfish.model.StandardResponses;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Header handling on the request path: building the headers of a parsed request, looking them up,
+ * and adding the server headers to a response before encoding it. Run with {@code -prof gc} to see
+ * the allocations per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HttpHeadersBenchmark {
+
+  private final IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+  private byte[] requestBytes;
+  private HttpRequest request;
+  private HttpResponse response;
+
+  @Setup
+  public void setup() throws MalformedRequestException {
+    String text =
+        "GET /index.html HTTP/1.1\r\n"
+            + "Host: www.example.com\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101"
+            + " Firefox/128.0\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"
+            + "Accept-Language: en-US,en;q=0.5\r\n"
+            + "Accept-Encoding: gzip, deflate, br\r\n"
+            + "Cookie: session=abc\r\n"
+            + "Connection: keep-alive\r\n"
+            + "\r\n";
+    requestBytes = text.getBytes(StandardCharsets.US_ASCII);
+    parser.parse(requestBytes);
+    request = parser.getRequest();
+    response =
+        StandardResponses.OK
+            .withHeaderOverrides(
+                HttpHeaders.of(
+                    HttpHeaderName.CONTENT_TYPE, "text/html; charset=UTF-8",
+                    HttpHeaderName.CACHE_CONTROL, "no-cache"))
+            .withBody(new byte[0]);
+  }
+
+  @Benchmark
+  public HttpRequest parseRequest() throws MalformedRequestException {
+    parser.reset();
+    parser.parse(requestBytes);
+    return parser.getRequest();
+  }
+
+  @Benchmark
+  public int lookupRequestHeaders() {
+    HttpHeaders headers = request.getHeaders();
+    int result = 0;
+    result += headers.get(HttpHeaderName.HOST).length();
+    result += headers.get(HttpHeaderName.CONNECTION).length();
+    result += headers.containsKey(HttpHeaderName.CONTENT_LENGTH) ? 1 : 0;
+    result += headers.containsKey(HttpHeaderName.TRANSFER_ENCODING) ? 1 : 0;
+    result += headers.containsKey(HttpHeaderName.EXPECT) ? 1 : 0;
+    return result;
+  }
+
+  @Benchmark
+  public HttpResponseGeneratorBuffered addServerHeadersAndEncode() {
+    HttpResponse withServerHeaders =
+        response.withHeaderOverrides(
+            HttpHeaders.of(
+                HttpHeaderName.CONNECTION, "keep-alive",
+                HttpHeaderName.CONTENT_LENGTH, "0",
+                HttpHeaderName.DATE, "Sun, 06 Nov 1994 08:49:37 GMT"));
+    return HttpResponseGeneratorBuffered.create(request, withServerHeaders);
+  }
+}
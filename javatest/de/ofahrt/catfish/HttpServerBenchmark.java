@@ -1,7 +1,14 @@
 package de.ofahrt.catfish;
 
+import de.ofahrt.catfish.client.CatfishHttpClient;
+import de.ofahrt.catfish.model.HttpHeaderName;
 import de.ofahrt.catfish.model.HttpHeaders;
+import de.ofahrt.catfish.model.HttpMethodName;
+import de.ofahrt.catfish.model.HttpRequest;
 import de.ofahrt.catfish.model.HttpResponse;
+import de.ofahrt.catfish.model.HttpVersion;
+import de.ofahrt.catfish.model.MalformedRequestException;
+import de.ofahrt.catfish.model.SimpleHttpRequest;
 import de.ofahrt.catfish.model.StandardResponses;
 import de.ofahrt.catfish.model.network.NetworkEventListener;
 import java.io.IOException;
@@ -32,6 +39,7 @@ public class HttpServerBenchmark {
       "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
 
   private static final HttpResponse BLOB_RESPONSE;
+  private static final HttpRequest IN_MEMORY_REQUEST;
 
   static {
     byte[] body = new byte[1024];
@@ -42,9 +50,22 @@ public class HttpServerBenchmark {
         StandardResponses.OK
             .withHeaderOverrides(HttpHeaders.of("Content-Type", "application/octet-stream"))
             .withBody(body);
+    try {
+      IN_MEMORY_REQUEST =
+          new SimpleHttpRequest.Builder()
+              .setVersion(HttpVersion.HTTP_1_1)
+              .setMethod(HttpMethodName.GET)
+              .setUri("/")
+              .addHeader(HttpHeaderName.HOST, "localhost")
+              .build();
+    } catch (MalformedRequestException e) {
+      throw new ExceptionInInitializerError(e);
+    }
   }
 
   private CatfishHttpServer server;
+  private CatfishHttpClient client;
+  private String inMemoryName;
   private int port;
   private Socket socket;
   private OutputStream out;
@@ -67,12 +88,21 @@ public class HttpServerBenchmark {
               @Override
               public void shutdown() {}
             });
-    HttpEndpoint endpoint =
-        HttpEndpoint.onLocalhost(0)
-            .addHost(
-                "localhost",
-                new HttpVirtualHost((conn, req, writer) -> writer.commitBuffered(BLOB_RESPONSE)));
-    server.listen(endpoint);
+    HttpVirtualHost host =
+        new HttpVirtualHost((conn, req, writer) -> writer.commitBuffered(BLOB_RESPONSE));
+    server.listen(HttpEndpoint.onLocalhost(0).addHost("localhost", host));
+    // In-memory names are JVM-wide; keep them distinct in case JMH runs several threads.
+    inMemoryName = "benchmark-" + System.identityHashCode(this);
+    server.listen(HttpEndpoint.inMemory(inMemoryName).addHost("localhost", host));
+    client =
+        new CatfishHttpClient(
+            new NetworkEventListener() {
+              @Override
+              public void portOpened(int p, boolean ssl) {}
+
+              @Override
+              public void shutdown() {}
+            });
     if (!portLatch.await(5, TimeUnit.SECONDS)) {
       throw new IllegalStateException("Server did not start in time");
     }
@@ -85,6 +115,9 @@ public class HttpServerBenchmark {
     if (socket != null) {
       socket.close();
     }
+    if (client != null) {
+      client.shutdown();
+    }
     if (server != null) {
       server.stop();
     }
@@ -129,6 +162,18 @@ public class HttpServerBenchmark {
     return headerEnd + contentLength;
   }
 
+  /**
+   * Same exchange as {@link #serveBufferedBlob}, but over an in-memory connection, which takes the
+   * kernel's loopback and socket system calls out of the measurement. The client opens one
+   * connection per request.
+   */
+  @Benchmark
+  public int serveBufferedBlobInMemory() throws Exception {
+    HttpResponse response =
+        client.sendInMemory(inMemoryName, null, null, IN_MEMORY_REQUEST).get(5, TimeUnit.SECONDS);
+    return response.getStatusCode();
+  }
+
   private static int findHeaderEnd(byte[] buf, int len) {
     for (int i = 0; i <= len - 4; i++) {
       if (buf[i] == '\r' && buf[i + 1] == '\n' && buf[i + 2] == '\r' && buf[i + 3] == '\n') {
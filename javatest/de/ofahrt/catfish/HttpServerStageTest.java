@@ -1,10 +1,17 @@
 package de.ofahrt.catfish;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
 
+import de.ofahrt.catfish.internal.network.BufferPool;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
 import de.ofahrt.catfish.internal.network.Stage.ConnectionControl;
+import de.ofahrt.catfish.internal.network.TimerWheel;
+import de.ofahrt.catfish.internal.network.TimerWheel.Timeout;
 import de.ofahrt.catfish.model.HttpHeaderName;
 import de.ofahrt.catfish.model.HttpRequest;
 import de.ofahrt.catfish.model.HttpVersion;
@@ -14,41 +21,179 @@ import de.ofahrt.catfish.model.network.Connection;
 import de.ofahrt.catfish.model.server.CompressionPolicy;
 import de.ofahrt.catfish.model.server.ConnectHandler;
 import de.ofahrt.catfish.model.server.HttpHandler;
+import de.ofahrt.catfish.model.server.HttpResponseWriter;
 import de.ofahrt.catfish.model.server.HttpServerListener;
 import de.ofahrt.catfish.model.server.KeepAlivePolicy;
 import de.ofahrt.catfish.model.server.RequestAction;
+import de.ofahrt.catfish.model.server.RequestIdGenerator;
+import de.ofahrt.catfish.model.server.RequestOutcome;
 import de.ofahrt.catfish.model.server.UploadPolicy;
 import de.ofahrt.catfish.upload.SimpleUploadPolicy;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
 import javax.net.ssl.SSLSocketFactory;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jspecify.annotations.Nullable;
 import org.junit.Test;
 
 public class HttpServerStageTest {
 
-  private static final Pipeline STUB_PIPELINE =
-      new Pipeline() {
-        @Override
-        public void encourageWrites() {}
+  /** A timer wheel driven by a manual clock; tests move time forward explicitly. */
+  private static final class FakeTimers {
+    private long now;
+    private final TimerWheel wheel = new TimerWheel(10, 64, () -> now);
+
+    void advance(Duration duration) {
+      now += duration.toMillis();
+      wheel.advance(
+          e -> {
+            throw e;
+          });
+    }
+  }
 
-        @Override
-        public void encourageReads() {}
+  /** A pipeline that records whether it was closed. */
+  private static final class ClosablePipeline {
+    boolean closed;
+    final Pipeline pipeline;
 
-        @Override
-        public void close() {}
+    ClosablePipeline(ByteBuffer inputBuffer, ByteBuffer outputBuffer, FakeTimers timers) {
+      this.pipeline = stubPipeline(inputBuffer, outputBuffer, timers, () -> closed = true);
+    }
+  }
 
-        @Override
-        public void queue(Runnable runnable) {
-          runnable.run();
-        }
+  /**
+   * A pipeline that accepts direct writes, like a plaintext socket. Tests write the queued segments
+   * by advancing {@link #bytesWritten} and then call {@link HttpServerStage#write} again, like the
+   * network engine does once they are all written.
+   */
+  private static final class DirectWritePipeline implements Pipeline {
+    private final ByteBuffer outputBuffer = ByteBuffer.allocate(4096).flip();
+    private final ByteBuffer inputBuffer;
+    private final FakeTimers timers;
+    ByteBuffer @Nullable [] segments;
+    long bytesWritten;
+    boolean closed;
+
+    DirectWritePipeline(ByteBuffer inputBuffer, FakeTimers timers) {
+      this.inputBuffer = inputBuffer;
+      this.timers = timers;
+    }
 
-        @Override
-        public void replaceWith(Stage nextStage) {}
+    @Override
+    public void encourageWrites() {}
 
-        @Override
-        public void log(String text, Object... params) {}
-      };
+    @Override
+    public void encourageReads() {}
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public void queue(Runnable runnable) {
+      runnable.run();
+    }
+
+    @Override
+    public void replaceWith(Stage nextStage) {}
+
+    @Override
+    public ByteBuffer inputBuffer() {
+      return inputBuffer;
+    }
+
+    @Override
+    public ByteBuffer outputBuffer() {
+      return outputBuffer;
+    }
+
+    @Override
+    public BufferPool bufferPool() {
+      return new BufferPool(4096, 0);
+    }
+
+    @Override
+    public Timeout schedule(long delayMillis, Runnable task) {
+      return timers.wheel.schedule(delayMillis, task);
+    }
+
+    @Override
+    public boolean canWriteSegments() {
+      return true;
+    }
+
+    @Override
+    public void writeSegments(ByteBuffer[] segments) {
+      this.segments = segments;
+    }
+
+    @Override
+    public long bytesWritten() {
+      return bytesWritten;
+    }
+  }
+
+  private static Pipeline stubPipeline(ByteBuffer inputBuffer, ByteBuffer outputBuffer) {
+    return stubPipeline(inputBuffer, outputBuffer, new FakeTimers(), () -> {});
+  }
+
+  private static Pipeline stubPipeline(
+      ByteBuffer inputBuffer, ByteBuffer outputBuffer, FakeTimers timers, Runnable onClose) {
+    return new Pipeline() {
+      @Override
+      public void encourageWrites() {}
+
+      @Override
+      public void encourageReads() {}
+
+      @Override
+      public void close() {
+        onClose.run();
+      }
+
+      @Override
+      public void queue(Runnable runnable) {
+        runnable.run();
+      }
+
+      @Override
+      public void replaceWith(Stage nextStage) {}
+
+      @Override
+      public ByteBuffer inputBuffer() {
+        return inputBuffer;
+      }
+
+      @Override
+      public ByteBuffer outputBuffer() {
+        return outputBuffer;
+      }
+
+      @Override
+      public BufferPool bufferPool() {
+        return new BufferPool(4096, 0);
+      }
+
+      @Override
+      public Timeout schedule(long delayMillis, Runnable task) {
+        return timers.wheel.schedule(delayMillis, task);
+      }
+    };
+  }
 
   /** A handler that always returns 200 OK. */
   private static final HttpHandler OK_HANDLER =
@@ -65,8 +210,17 @@ public class HttpServerStageTest {
 
   private static HttpServerStage createStage(
       ByteBuffer inputBuffer, ByteBuffer outputBuffer, ConnectHandler connectHandler) {
+    return createStage(
+        stubPipeline(inputBuffer, outputBuffer), connectHandler, null, HttpTimeouts.NONE);
+  }
+
+  private static HttpServerStage createStage(
+      Pipeline pipeline,
+      ConnectHandler connectHandler,
+      @Nullable Executor executor,
+      HttpTimeouts timeouts) {
     return new HttpServerStage(
-        STUB_PIPELINE,
+        pipeline,
         (httpHandler, connection, request, responseWriter) -> {
           try {
             httpHandler.handle(connection, request, responseWriter);
@@ -78,9 +232,8 @@ public class HttpServerStageTest {
         new HttpServerListener() {},
         (SSLSocketFactory) SSLSocketFactory.getDefault(),
         new SslInfoCache(),
-        null,
-        inputBuffer,
-        outputBuffer);
+        executor,
+        timeouts);
   }
 
   private static HttpServerStage createStage(ByteBuffer inputBuffer, ByteBuffer outputBuffer) {
@@ -89,22 +242,8 @@ public class HttpServerStageTest {
 
   private static HttpServerStage createStageWithExecutor(
       ByteBuffer inputBuffer, ByteBuffer outputBuffer, ConnectHandler connectHandler) {
-    return new HttpServerStage(
-        STUB_PIPELINE,
-        (httpHandler, connection, request, responseWriter) -> {
-          try {
-            httpHandler.handle(connection, request, responseWriter);
-          } catch (IOException e) {
-            responseWriter.abort();
-          }
-        },
-        connectHandler,
-        new HttpServerListener() {},
-        (SSLSocketFactory) SSLSocketFactory.getDefault(),
-        new SslInfoCache(),
-        Runnable::run,
-        inputBuffer,
-        outputBuffer);
+    return createStage(
+        stubPipeline(inputBuffer, outputBuffer), connectHandler, Runnable::run, HttpTimeouts.NONE);
   }
 
   private static ByteBuffer inputBuffer(String request) {
@@ -144,6 +283,87 @@ public class HttpServerStageTest {
     assertTrue(response, response.contains("200"));
   }
 
+  @Test
+  public void listenerIdsComeFromItsGenerator() throws Exception {
+    UUID expected = new UUID(1, 2);
+    List<UUID> requestIds = new ArrayList<>();
+    List<UUID> completeIds = new ArrayList<>();
+    HttpServerListener listener =
+        new HttpServerListener() {
+          @Override
+          public RequestIdGenerator requestIdGenerator() {
+            return () -> expected;
+          }
+
+          @Override
+          public void onRequest(UUID requestId, HttpRequest request) {
+            requestIds.add(requestId);
+          }
+
+          @Override
+          public void onRequestComplete(
+              UUID requestId,
+              @Nullable String originHost,
+              int originPort,
+              @Nullable HttpRequest request,
+              RequestOutcome outcome) {
+            completeIds.add(requestId);
+          }
+        };
+    ByteBuffer input = inputBuffer("GET / HTTP/1.1\nHost: localhost\nConnection: close\n\n");
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    HttpServerStage stage =
+        new HttpServerStage(
+            stubPipeline(input, output),
+            (httpHandler, connection, request, responseWriter) -> {
+              try {
+                httpHandler.handle(connection, request, responseWriter);
+              } catch (IOException e) {
+                responseWriter.abort();
+              }
+            },
+            LOCAL_HANDLER,
+            listener,
+            (SSLSocketFactory) SSLSocketFactory.getDefault(),
+            new SslInfoCache(),
+            null,
+            HttpTimeouts.NONE);
+    stage.connect(new Connection(null, null, false));
+
+    stage.read();
+    drainOutput(stage, output);
+    assertEquals(List.of(expected), requestIds);
+    assertEquals(List.of(expected), completeIds);
+  }
+
+  @Test
+  public void basicGet_recordsJfrRequestEvent() throws Exception {
+    Path file = Files.createTempFile("catfish", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("de.ofahrt.catfish.HttpRequest");
+      recording.start();
+      ByteBuffer input = inputBuffer("GET /x HTTP/1.1\nHost: localhost\nConnection: close\n\n");
+      ByteBuffer output = ByteBuffer.allocate(4096);
+      output.flip();
+      HttpServerStage stage = createStage(input, output);
+      stage.connect(new Connection(null, null, false));
+      stage.read();
+      drainOutput(stage, output);
+      recording.stop();
+      recording.dump(file);
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      assertEquals(1, events.size());
+      RecordedEvent event = events.get(0);
+      assertEquals("HTTP/1.1", event.getString("protocol"));
+      assertEquals("GET", event.getString("method"));
+      assertEquals("/x", event.getString("uri"));
+      assertEquals(200, event.getInt("status"));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
   // ---- Malformed request ----
 
   @Test
@@ -819,6 +1039,377 @@ public class HttpServerStageTest {
     assertTrue("expected two 200 responses, got: " + response, count == 2);
   }
 
+  /** Serves every request locally with a handler that only records it; tests respond later. */
+  private static final class DeferredHandler implements ConnectHandler {
+    final List<String> uris = new ArrayList<>();
+    final List<HttpResponseWriter> writers = new ArrayList<>();
+
+    @Override
+    public RequestAction applyLocal(HttpRequest request) {
+      return new RequestAction.ServeLocally(
+          (connection, req, writer) -> {
+            uris.add(req.getUri());
+            writers.add(writer);
+          },
+          UploadPolicy.ALLOW,
+          KeepAlivePolicy.KEEP_ALIVE,
+          CompressionPolicy.NONE);
+    }
+
+    void respond(int index) throws IOException {
+      writers
+          .get(index)
+          .commitBuffered(
+              StandardResponses.OK.withBody(
+                  ("body" + uris.get(index)).getBytes(StandardCharsets.US_ASCII)));
+    }
+  }
+
+  @Test
+  public void pipelinedGets_dispatchedAhead_responsesInRequestOrder() throws Exception {
+    ByteBuffer input =
+        inputBuffer(
+            "GET /a HTTP/1.1\nHost: localhost\n\n"
+                + "GET /b HTTP/1.1\nHost: localhost\n\n"
+                + "GET /c HTTP/1.1\nHost: localhost\nConnection: close\n\n");
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    DeferredHandler handler = new DeferredHandler();
+    HttpServerStage stage = createStage(input, output, handler);
+    stage.connect(new Connection(null, null, false));
+
+    assertEquals(ConnectionControl.CONTINUE, stage.read());
+    assertEquals(ConnectionControl.CONTINUE, stage.read());
+    // The last request asks to close the connection, so reading stops after it.
+    assertEquals(ConnectionControl.PAUSE, stage.read());
+    assertEquals(List.of("/a", "/b", "/c"), handler.uris);
+
+    // Responses complete out of order, but are written in request order.
+    handler.respond(2);
+    handler.respond(1);
+    assertEquals("", drainOutput(stage, output));
+    handler.respond(0);
+    String response = drainOutput(stage, output);
+    int a = response.indexOf("body/a");
+    int b = response.indexOf("body/b");
+    int c = response.indexOf("body/c");
+    assertTrue(response, a >= 0 && a < b && b < c);
+  }
+
+  @Test
+  public void pipelinedRequestWithBody_heldUntilEarlierResponseSent() throws Exception {
+    ByteBuffer input =
+        inputBuffer(
+            "GET /a HTTP/1.1\nHost: localhost\n\n"
+                + "POST /b HTTP/1.1\nHost: localhost\nContent-Length: 2\n\nhi");
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    DeferredHandler handler = new DeferredHandler();
+    HttpServerStage stage = createStage(input, output, handler);
+    stage.connect(new Connection(null, null, false));
+
+    assertEquals(ConnectionControl.CONTINUE, stage.read());
+    assertEquals(ConnectionControl.PAUSE, stage.read());
+    assertEquals(List.of("/a"), handler.uris);
+
+    handler.respond(0);
+    String first = drainOutput(stage, output);
+    assertTrue(first, first.contains("body/a"));
+    // Once the first response is out, the held request is processed along with its body.
+    assertEquals(List.of("/a", "/b"), handler.uris);
+    handler.respond(1);
+    String second = drainOutput(stage, output);
+    assertTrue(second, second.contains("body/b"));
+  }
+
+  @Test
+  public void pipelinedRequests_limitedAheadOfWriteSide() throws Exception {
+    StringBuilder requests = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      requests.append("GET /").append(i).append(" HTTP/1.1\nHost: localhost\n\n");
+    }
+    ByteBuffer input = inputBuffer(requests.toString());
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    DeferredHandler handler = new DeferredHandler();
+    HttpServerStage stage = createStage(input, output, handler);
+    stage.connect(new Connection(null, null, false));
+
+    while (stage.read() == ConnectionControl.CONTINUE && input.hasRemaining()) {}
+    // The current request plus 16 pipelined ones.
+    assertEquals(17, handler.uris.size());
+
+    handler.respond(0);
+    drainOutput(stage, output);
+    while (stage.read() == ConnectionControl.CONTINUE && input.hasRemaining()) {}
+    assertEquals(18, handler.uris.size());
+  }
+
+  @Test
+  public void pipelinedMalformedRequest_errorSentAfterEarlierResponse() throws Exception {
+    ByteBuffer input = inputBuffer("GET /a HTTP/1.1\nHost: localhost\n\nINVALID\n\n");
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    DeferredHandler handler = new DeferredHandler();
+    HttpServerStage stage = createStage(input, output, handler);
+    stage.connect(new Connection(null, null, false));
+
+    assertEquals(ConnectionControl.CONTINUE, stage.read());
+    assertEquals(ConnectionControl.CLOSE_INPUT, stage.read());
+    handler.respond(0);
+    String response = drainOutput(stage, output);
+    int ok = response.indexOf("200");
+    int bad = response.indexOf("400");
+    assertTrue(response, ok >= 0 && ok < bad);
+  }
+
+  // ---- Connection deadlines ----
+
+  private static final HttpTimeouts SHORT_TIMEOUTS =
+      new HttpTimeouts(
+          Duration.ofSeconds(1),
+          Duration.ofSeconds(5),
+          Duration.ofSeconds(5),
+          Duration.ofSeconds(5));
+
+  @Test
+  public void idleConnection_closedAfterKeepAliveTimeout() throws Exception {
+    ByteBuffer input = ByteBuffer.allocate(4096);
+    input.flip();
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    FakeTimers timers = new FakeTimers();
+    ClosablePipeline pipeline = new ClosablePipeline(input, output, timers);
+    HttpServerStage stage = createStage(pipeline.pipeline, LOCAL_HANDLER, null, SHORT_TIMEOUTS);
+    stage.connect(new Connection(null, null, false));
+
+    timers.advance(Duration.ofMillis(999));
+    assertTrue("closed too early", !pipeline.closed);
+    timers.advance(Duration.ofMillis(1));
+    assertTrue("expected close after idle timeout", pipeline.closed);
+  }
+
+  @Test
+  public void idleTimeout_rearmedAfterKeepAliveResponse() throws Exception {
+    ByteBuffer input = inputBuffer("GET / HTTP/1.1\nHost: localhost\n\n");
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    FakeTimers timers = new FakeTimers();
+    ClosablePipeline pipeline = new ClosablePipeline(input, output, timers);
+    HttpServerStage stage = createStage(pipeline.pipeline, LOCAL_HANDLER, null, SHORT_TIMEOUTS);
+    stage.connect(new Connection(null, null, false));
+
+    stage.read();
+    String response = drainOutput(stage, output);
+    assertTrue(response, response.contains("200"));
+    assertTrue("closed too early", !pipeline.closed);
+    timers.advance(Duration.ofSeconds(1));
+    assertTrue("expected close after idle timeout", pipeline.closed);
+  }
+
+  @Test
+  public void incompleteHeaders_answeredWith408() throws Exception {
+    ByteBuffer input = inputBuffer("GET / HTTP/1.1\nHost: localhost\n");
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    FakeTimers timers = new FakeTimers();
+    ClosablePipeline pipeline = new ClosablePipeline(input, output, timers);
+    HttpServerStage stage = createStage(pipeline.pipeline, LOCAL_HANDLER, null, SHORT_TIMEOUTS);
+    stage.connect(new Connection(null, null, false));
+
+    stage.read();
+    // The first byte switched from the idle deadline to the (longer) header deadline.
+    timers.advance(Duration.ofSeconds(2));
+    assertTrue("closed by idle timeout", !pipeline.closed);
+    timers.advance(Duration.ofSeconds(3));
+    String response = drainOutput(stage, output);
+    assertTrue(response, response.contains("408"));
+    assertTrue(response, response.contains("Connection: close"));
+  }
+
+  @Test
+  public void stalledBody_answeredWith408() throws Exception {
+    ByteBuffer input = inputBuffer("POST / HTTP/1.1\nHost: localhost\nContent-Length: 10\n\nabc");
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    FakeTimers timers = new FakeTimers();
+    ClosablePipeline pipeline = new ClosablePipeline(input, output, timers);
+    HttpServerStage stage = createStage(pipeline.pipeline, LOCAL_HANDLER, null, SHORT_TIMEOUTS);
+    stage.connect(new Connection(null, null, false));
+
+    stage.read();
+    timers.advance(Duration.ofSeconds(5));
+    String response = drainOutput(stage, output);
+    assertTrue(response, response.contains("408"));
+    assertTrue("input after a 408 is rejected", stage.read() == ConnectionControl.CLOSE_INPUT);
+  }
+
+  @Test
+  public void stalledWrite_closesConnection() throws Exception {
+    ByteBuffer input = inputBuffer("GET / HTTP/1.1\nHost: localhost\n\n");
+    // Too small for the response head, so the generator keeps reporting CONTINUE.
+    ByteBuffer output = ByteBuffer.allocate(16);
+    output.flip();
+    FakeTimers timers = new FakeTimers();
+    ClosablePipeline pipeline = new ClosablePipeline(input, output, timers);
+    HttpServerStage stage = createStage(pipeline.pipeline, LOCAL_HANDLER, null, SHORT_TIMEOUTS);
+    stage.connect(new Connection(null, null, false));
+
+    stage.read();
+    assertTrue("expected a full buffer", stage.write() == ConnectionControl.CONTINUE);
+    timers.advance(Duration.ofMillis(4990));
+    assertTrue("closed too early", !pipeline.closed);
+    timers.advance(Duration.ofMillis(10));
+    assertTrue("expected close after write stall", pipeline.closed);
+  }
+
+  @Test
+  public void directWrite_keepAliveIdleStartsOnceSegmentsAreWritten() throws Exception {
+    FakeTimers timers = new FakeTimers();
+    DirectWritePipeline pipeline =
+        new DirectWritePipeline(inputBuffer("GET / HTTP/1.1\nHost: localhost\n\n"), timers);
+    HttpServerStage stage = createStage(pipeline, LOCAL_HANDLER, null, SHORT_TIMEOUTS);
+    stage.connect(new Connection(null, null, false));
+
+    stage.read();
+    assertEquals(ConnectionControl.CONTINUE, stage.write());
+    assertNotNull(pipeline.segments);
+    // The client reads slowly; longer than the idle timeout, but never stalls the write deadline.
+    pipeline.bytesWritten += 10;
+    timers.advance(Duration.ofSeconds(4));
+    pipeline.bytesWritten += 10;
+    timers.advance(Duration.ofSeconds(4));
+    assertTrue("closed while the response was being written", !pipeline.closed);
+    assertEquals(ConnectionControl.PAUSE, stage.write());
+    timers.advance(Duration.ofSeconds(1));
+    assertTrue("expected close after idle timeout", pipeline.closed);
+  }
+
+  @Test
+  public void directWrite_stalledWrite_closesConnection() throws Exception {
+    FakeTimers timers = new FakeTimers();
+    DirectWritePipeline pipeline =
+        new DirectWritePipeline(inputBuffer("GET / HTTP/1.1\nHost: localhost\n\n"), timers);
+    HttpServerStage stage = createStage(pipeline, LOCAL_HANDLER, null, SHORT_TIMEOUTS);
+    stage.connect(new Connection(null, null, false));
+
+    stage.read();
+    assertEquals(ConnectionControl.CONTINUE, stage.write());
+    pipeline.bytesWritten += 10;
+    timers.advance(Duration.ofSeconds(5));
+    assertTrue("closed although bytes were written", !pipeline.closed);
+    timers.advance(Duration.ofSeconds(5));
+    assertTrue("expected close after write stall", pipeline.closed);
+  }
+
+  @Test
+  public void close_cancelsDeadlines() throws Exception {
+    ByteBuffer input = ByteBuffer.allocate(4096);
+    input.flip();
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    FakeTimers timers = new FakeTimers();
+    ClosablePipeline pipeline = new ClosablePipeline(input, output, timers);
+    HttpServerStage stage = createStage(pipeline.pipeline, LOCAL_HANDLER, null, SHORT_TIMEOUTS);
+    stage.connect(new Connection(null, null, false));
+
+    stage.close();
+    timers.advance(Duration.ofSeconds(10));
+    assertTrue("timer fired after close", !pipeline.closed);
+    assertTrue("timers still scheduled", timers.wheel.size() == 0);
+  }
+
+  // ---- Streaming request bodies ----
+
+  /** A handler that streams request bodies; it only records the request, tests read and respond. */
+  private static final class StreamingHandler implements HttpHandler {
+    HttpRequest request;
+    HttpResponseWriter writer;
+
+    @Override
+    public void handle(Connection connection, HttpRequest request, HttpResponseWriter writer) {
+      this.request = request;
+      this.writer = writer;
+    }
+
+    @Override
+    public boolean streamsRequestBody() {
+      return true;
+    }
+
+    ConnectHandler connectHandler() {
+      return new ConnectHandler() {
+        @Override
+        public RequestAction applyLocal(HttpRequest request) {
+          return new RequestAction.ServeLocally(
+              StreamingHandler.this,
+              UploadPolicy.ALLOW,
+              KeepAlivePolicy.KEEP_ALIVE,
+              CompressionPolicy.NONE);
+        }
+      };
+    }
+  }
+
+  @Test
+  public void streamingHandler_readsDechunkedAndInflatedBody() throws Exception {
+    byte[] payload = "Wikipedia, the free encyclopedia".getBytes(StandardCharsets.US_ASCII);
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (GZIPOutputStream gz = new GZIPOutputStream(gzipped)) {
+      gz.write(payload);
+    }
+    ByteArrayOutputStream raw = new ByteArrayOutputStream();
+    raw.write(
+        ("POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n"
+                + "Content-Encoding: gzip\r\nConnection: close\r\n\r\n"
+                + Integer.toHexString(gzipped.size())
+                + "\r\n")
+            .getBytes(StandardCharsets.US_ASCII));
+    gzipped.writeTo(raw);
+    raw.write("\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+    ByteBuffer input = ByteBuffer.wrap(raw.toByteArray());
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    StreamingHandler handler = new StreamingHandler();
+    HttpServerStage stage = createStage(input, output, handler.connectHandler());
+    stage.connect(new Connection(null, null, false));
+
+    ConnectionControl cc = stage.read();
+    while (cc == ConnectionControl.CONTINUE || cc == ConnectionControl.NEED_MORE_DATA) {
+      cc = stage.read();
+    }
+    assertNotNull(handler.request);
+    assertNull(handler.request.getHeaders().get(HttpHeaderName.CONTENT_ENCODING));
+    HttpRequest.StreamingBody body = (HttpRequest.StreamingBody) handler.request.getBody();
+    assertArrayEquals(payload, body.getInputStream().readAllBytes());
+    handler.writer.commitBuffered(StandardResponses.OK);
+    String response = drainOutput(stage, output);
+    assertTrue(response, response.contains("200"));
+  }
+
+  @Test
+  public void streamingHandler_respondingBeforeBodyComplete_closesConnection() throws Exception {
+    ByteBuffer input = inputBuffer("POST / HTTP/1.1\nHost: localhost\nContent-Length: 10\n\nhello");
+    ByteBuffer output = ByteBuffer.allocate(4096);
+    output.flip();
+    StreamingHandler handler = new StreamingHandler();
+    HttpServerStage stage = createStage(input, output, handler.connectHandler());
+    stage.connect(new Connection(null, null, false));
+
+    stage.read();
+    // Dispatched with the first body bytes; the other 5 have not arrived.
+    assertNotNull(handler.request);
+    handler.writer.commitBuffered(StandardResponses.OK);
+    ConnectionControl cc;
+    do {
+      cc = stage.write();
+    } while (cc == ConnectionControl.CONTINUE);
+    // The rest of the body can't be told apart from a next request.
+    assertEquals(ConnectionControl.CLOSE_CONNECTION_AFTER_FLUSH, cc);
+    HttpRequest.StreamingBody body = (HttpRequest.StreamingBody) handler.request.getBody();
+    assertThrows(IOException.class, () -> body.getInputStream().readAllBytes());
+  }
+
   private static void assertTrue(String message, boolean condition) {
     if (!condition) {
       throw new AssertionError(message);
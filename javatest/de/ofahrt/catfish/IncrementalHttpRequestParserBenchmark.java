@@ -2,6 +2,7 @@ package de.ofahrt.catfish;
 
 import de.ofahrt.catfish.http.IncrementalHttpRequestParser;
 import de.ofahrt.catfish.model.MalformedRequestException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -19,6 +20,7 @@ public class IncrementalHttpRequestParserBenchmark {
 
   private final IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
   private byte[] requestBytes;
+  private ByteBuffer directBuffer;
 
   @Setup
   public void setup() {
@@ -33,6 +35,8 @@ public class IncrementalHttpRequestParserBenchmark {
             + "Connection: keep-alive\r\n"
             + "\r\n";
     requestBytes = request.getBytes(StandardCharsets.US_ASCII);
+    directBuffer = ByteBuffer.allocateDirect(requestBytes.length);
+    directBuffer.put(requestBytes).flip();
   }
 
   @Benchmark
@@ -40,4 +44,11 @@ public class IncrementalHttpRequestParserBenchmark {
     parser.reset();
     return parser.parse(requestBytes);
   }
+
+  @Benchmark
+  public int parseFullRequestFromDirectBuffer() throws MalformedRequestException {
+    parser.reset();
+    directBuffer.rewind();
+    return parser.parse(directBuffer);
+  }
 }
@@ -3,8 +3,10 @@ package de.ofahrt.catfish;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -213,4 +215,39 @@ public class PipeBufferTest {
       assertEquals("byte " + i, (byte) 0xBB, out2[i]);
     }
   }
+
+  @Test
+  public void spaceListener_runsOnceReadMakesRoomAfterStall() throws InterruptedException {
+    AtomicInteger notified = new AtomicInteger();
+    PipeBuffer pipe = new PipeBuffer(notified::incrementAndGet);
+    byte[] big = new byte[65536];
+    assertEquals(65536, pipe.tryWrite(big, 0, big.length));
+    byte[] out = new byte[100];
+    pipe.read(out, 0, out.length);
+    // No write was refused yet.
+    assertEquals(0, notified.get());
+    assertEquals(100, pipe.tryWrite(big, 0, 200));
+    pipe.read(out, 0, out.length);
+    assertEquals(1, notified.get());
+    pipe.read(out, 0, out.length);
+    assertEquals(1, notified.get());
+  }
+
+  @Test
+  public void inputStream_readsUntilCloseWrite() throws Exception {
+    PipeBuffer pipe = new PipeBuffer();
+    byte[] data = "hello".getBytes();
+    pipe.tryWrite(data, 0, data.length);
+    pipe.closeWrite();
+    assertArrayEquals(data, pipe.inputStream().readAllBytes());
+  }
+
+  @Test
+  public void inputStream_throwsAfterAbort() {
+    PipeBuffer pipe = new PipeBuffer();
+    byte[] data = "hello".getBytes();
+    pipe.tryWrite(data, 0, data.length);
+    pipe.abort();
+    assertThrows(IOException.class, () -> pipe.inputStream().read(new byte[10], 0, 10));
+  }
 }
@@ -4,14 +4,17 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
 import de.ofahrt.catfish.http.HttpResponseGenerator;
+import de.ofahrt.catfish.internal.network.BufferPool;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
+import de.ofahrt.catfish.internal.network.TimerWheel.Timeout;
 import de.ofahrt.catfish.model.HttpHeaderName;
 import de.ofahrt.catfish.model.HttpRequest;
 import de.ofahrt.catfish.model.HttpVersion;
 import de.ofahrt.catfish.model.MalformedRequestException;
 import de.ofahrt.catfish.model.SimpleHttpRequest;
 import de.ofahrt.catfish.model.server.HttpServerListener;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.net.SocketFactory;
@@ -39,7 +42,24 @@ public class ProxyRequestStageTest {
         public void replaceWith(Stage nextStage) {}
 
         @Override
-        public void log(String text, Object... params) {}
+        public ByteBuffer inputBuffer() {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ByteBuffer outputBuffer() {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BufferPool bufferPool() {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Timeout schedule(long delayMillis, Runnable task) {
+          throw new UnsupportedOperationException();
+        }
       };
 
   private static HttpRequest dummyRequest() {
@@ -0,0 +1,152 @@
+package de.ofahrt.catfish;
+
+import de.ofahrt.catfish.internal.network.SelectorTaskQueue;
+import java.io.IOException;
+import java.nio.channels.Selector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures selector wakeups caused by a handler thread that streams responses, flushing each in
+ * several pieces; each flush calls {@code encourageWrites()} and the selector thread drains the
+ * tasks concurrently. Compares the previous scheme ({@code legacy}: a {@link LinkedBlockingQueue}
+ * plus an unconditional {@code Selector.wakeup()} per task) with {@link SelectorTaskQueue} plus
+ * per-connection collapsing of encourage calls ({@code coalescing}).
+ *
+ * <p>The primary score is requests per microsecond; the {@code wakeups} secondary score is in the
+ * same unit, so {@code wakeups / score} is the number of wakeups per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SelectorWakeupBenchmark {
+
+  private static final int FLUSHES_PER_REQUEST = 8;
+  private static final int MAX_BACKLOG = 1024;
+
+  @Param({"legacy", "coalescing"})
+  public String mode;
+
+  private Selector selector;
+  private Thread selectorThread;
+  private volatile boolean running;
+  private final AtomicLong wakeups = new AtomicLong();
+  private final AtomicLong completedTasks = new AtomicLong();
+  private long submittedTasks;
+
+  private final BlockingQueue<Runnable> legacyQueue = new LinkedBlockingQueue<>();
+  private SelectorTaskQueue taskQueue;
+  // Mirrors the per-connection flag in NetworkEngine.SocketHandler.
+  private final AtomicBoolean writesEncouraged = new AtomicBoolean();
+  private final Runnable legacyTask = completedTasks::incrementAndGet;
+  private final Runnable coalescingTask =
+      () -> {
+        writesEncouraged.set(false);
+        completedTasks.incrementAndGet();
+      };
+
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Counters {
+    public long wakeups;
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    selector = Selector.open();
+    taskQueue =
+        new SelectorTaskQueue(
+            () -> {
+              wakeups.incrementAndGet();
+              selector.wakeup();
+            });
+    running = true;
+    boolean legacy = "legacy".equals(mode);
+    selectorThread = new Thread(legacy ? this::runLegacy : this::runCoalescing, "selector");
+    selectorThread.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    running = false;
+    selector.wakeup();
+    selectorThread.join();
+    selector.close();
+  }
+
+  private void runLegacy() {
+    try {
+      while (running) {
+        selector.select();
+        Runnable task;
+        while ((task = legacyQueue.poll()) != null) {
+          task.run();
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void runCoalescing() {
+    try {
+      while (running) {
+        if (taskQueue.enterSelect()) {
+          selector.select();
+        } else {
+          selector.selectNow();
+        }
+        taskQueue.exitSelect();
+        Runnable task;
+        while ((task = taskQueue.poll()) != null) {
+          task.run();
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void encourageWrites() {
+    if ("legacy".equals(mode)) {
+      legacyQueue.add(legacyTask);
+      wakeups.incrementAndGet();
+      selector.wakeup();
+      submittedTasks++;
+    } else {
+      if (writesEncouraged.get() || writesEncouraged.getAndSet(true)) {
+        return;
+      }
+      taskQueue.add(coalescingTask);
+      submittedTasks++;
+    }
+  }
+
+  @Benchmark
+  public void request(Counters counters) {
+    long wakeupsBefore = wakeups.get();
+    for (int i = 0; i < FLUSHES_PER_REQUEST; i++) {
+      encourageWrites();
+    }
+    // Like a real selector, the consumer runs concurrently with the handler threads; only bound
+    // the backlog so that the legacy queue cannot grow without limit.
+    while (submittedTasks - completedTasks.get() > MAX_BACKLOG) {
+      Thread.onSpinWait();
+    }
+    counters.wakeups += wakeups.get() - wakeupsBefore;
+  }
+}
@@ -8,10 +8,12 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import de.ofahrt.catfish.bridge.TestHelper;
+import de.ofahrt.catfish.internal.network.BufferPool;
 import de.ofahrt.catfish.internal.network.NetworkEngine;
 import de.ofahrt.catfish.internal.network.Stage;
 import de.ofahrt.catfish.internal.network.Stage.ConnectionControl;
 import de.ofahrt.catfish.internal.network.Stage.InitialConnectionState;
+import de.ofahrt.catfish.internal.network.TimerWheel.Timeout;
 import de.ofahrt.catfish.model.network.Connection;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -19,6 +21,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -60,14 +63,14 @@ public class SslServerStageTest {
   // ---- setup helpers ----
 
   private void buildStage(SslServerStage.SSLContextProvider provider, Executor taskExecutor) {
-    this.pipeline = new FakePipeline();
     this.netIn = flippedEmpty(BUF_SIZE);
     this.netOut = flippedEmpty(BUF_SIZE);
+    this.pipeline = new FakePipeline(netIn, netOut);
     this.stage =
         new SslServerStage(
             pipeline,
-            (innerPipeline, plainInBuf, plainOutBuf, negotiatedProtocol) -> {
-              CapturingNextStage created = new CapturingNextStage(plainInBuf, plainOutBuf);
+            (innerPipeline, negotiatedProtocol) -> {
+              CapturingNextStage created = new CapturingNextStage(innerPipeline);
               if (pendingInitialState != null) {
                 created.withInitialState(pendingInitialState);
               }
@@ -78,8 +81,7 @@ public class SslServerStageTest {
             new String[] {"http/1.1"},
             provider,
             taskExecutor,
-            netIn,
-            netOut);
+            Duration.ZERO);
   }
 
   private void buildStage(SslServerStage.SSLContextProvider provider) {
@@ -203,13 +205,14 @@ public class SslServerStageTest {
   // ---- 2. incomplete ClientHello ----
 
   @Test
-  public void findSni_incompleteClientHello_returnsContinue_staysInFindSni() throws Exception {
+  public void findSni_incompleteClientHello_returnsNeedMoreData_staysInFindSni() throws Exception {
     buildStage(staticProvider(TestHelper.getSSLInfo().sslContext()));
     stage.connect(DUMMY_CONNECTION);
     feedNetIn(new byte[] {0x16, 0x03, 0x01});
-    // SNIParser is not done yet; read() should not advance to HANDSHAKE.
+    // SNIParser is not done yet and consumes nothing; read() must ask for more data (so the engine
+    // can grow a full buffer) and not advance to HANDSHAKE.
     ConnectionControl cc = stage.read();
-    assertEquals(ConnectionControl.CONTINUE, cc);
+    assertEquals(ConnectionControl.NEED_MORE_DATA, cc);
     // Prove we're still in FIND_SNI: write() must throw IOException in that state.
     try {
       stage.write();
@@ -665,7 +668,14 @@ public class SslServerStageTest {
     boolean closed;
     Stage replacement;
     final List<Runnable> queued = new ArrayList<>();
-    final List<String> logLines = new ArrayList<>();
+    private final ByteBuffer inputBuffer;
+    private final ByteBuffer outputBuffer;
+    private final BufferPool bufferPool = new BufferPool(65536, 4);
+
+    FakePipeline(ByteBuffer inputBuffer, ByteBuffer outputBuffer) {
+      this.inputBuffer = inputBuffer;
+      this.outputBuffer = outputBuffer;
+    }
 
     @Override
     public void encourageWrites() {
@@ -688,8 +698,23 @@ public class SslServerStageTest {
     }
 
     @Override
-    public void log(String text, Object... params) {
-      logLines.add(String.format(text, params));
+    public ByteBuffer inputBuffer() {
+      return inputBuffer;
+    }
+
+    @Override
+    public ByteBuffer outputBuffer() {
+      return outputBuffer;
+    }
+
+    @Override
+    public BufferPool bufferPool() {
+      return bufferPool;
+    }
+
+    @Override
+    public Timeout schedule(long delayMillis, Runnable task) {
+      throw new UnsupportedOperationException();
     }
 
     @Override
@@ -700,8 +725,7 @@ public class SslServerStageTest {
 
   /** Configurable downstream {@link Stage} that records everything it sees. */
   private static final class CapturingNextStage implements Stage {
-    private final ByteBuffer inputBuffer;
-    private final ByteBuffer outputBuffer;
+    private final NetworkEngine.Pipeline pipeline;
 
     int connectCount;
     int readCount;
@@ -717,9 +741,8 @@ public class SslServerStageTest {
     private ConnectionControl readResponse = ConnectionControl.CONTINUE;
     private ConnectionControl writeResponse = ConnectionControl.CONTINUE;
 
-    CapturingNextStage(ByteBuffer inputBuffer, ByteBuffer outputBuffer) {
-      this.inputBuffer = inputBuffer;
-      this.outputBuffer = outputBuffer;
+    CapturingNextStage(NetworkEngine.Pipeline pipeline) {
+      this.pipeline = pipeline;
     }
 
     @SuppressWarnings("unused")
@@ -754,6 +777,7 @@ public class SslServerStageTest {
     @Override
     public ConnectionControl read() {
       readCount++;
+      ByteBuffer inputBuffer = pipeline.inputBuffer();
       while (inputBuffer.hasRemaining()) {
         received.write(inputBuffer.get());
       }
@@ -763,6 +787,7 @@ public class SslServerStageTest {
     @Override
     public ConnectionControl write() {
       writeCount++;
+      ByteBuffer outputBuffer = pipeline.outputBuffer();
       outputBuffer.compact();
       try {
         while (!sendQueue.isEmpty() && outputBuffer.hasRemaining()) {
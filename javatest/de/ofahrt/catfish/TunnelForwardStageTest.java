@@ -3,9 +3,11 @@ package de.ofahrt.catfish;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import de.ofahrt.catfish.internal.network.BufferPool;
 import de.ofahrt.catfish.internal.network.NetworkEngine;
 import de.ofahrt.catfish.internal.network.Stage;
 import de.ofahrt.catfish.internal.network.Stage.ConnectionControl;
+import de.ofahrt.catfish.internal.network.TimerWheel.Timeout;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -75,11 +77,10 @@ public class TunnelForwardStageTest {
     try (Socket origin = pair[0]) {
       ByteBuffer inputBuffer = flippedEmpty(BUF_SIZE);
       ByteBuffer outputBuffer = flippedEmpty(BUF_SIZE);
-      FakePipeline pipeline = new FakePipeline();
+      FakePipeline pipeline = new FakePipeline(inputBuffer, outputBuffer);
       ExecutorService exec = Executors.newSingleThreadExecutor();
       try {
-        TunnelForwardStage stage =
-            new TunnelForwardStage(pipeline, inputBuffer, outputBuffer, exec, pair[1], () -> {});
+        TunnelForwardStage stage = new TunnelForwardStage(pipeline, exec, pair[1], () -> {});
         stage.connect(null);
 
         byte[] sent = new byte[1024];
@@ -107,11 +108,10 @@ public class TunnelForwardStageTest {
     try (Socket origin = pair[0]) {
       ByteBuffer inputBuffer = flippedEmpty(BUF_SIZE);
       ByteBuffer outputBuffer = flippedEmpty(BUF_SIZE);
-      FakePipeline pipeline = new FakePipeline();
+      FakePipeline pipeline = new FakePipeline(inputBuffer, outputBuffer);
       ExecutorService exec = Executors.newSingleThreadExecutor();
       try {
-        TunnelForwardStage stage =
-            new TunnelForwardStage(pipeline, inputBuffer, outputBuffer, exec, pair[1], () -> {});
+        TunnelForwardStage stage = new TunnelForwardStage(pipeline, exec, pair[1], () -> {});
         stage.connect(null);
 
         // 2MB of data — exceeds the 1MB queue capacity, so backpressure must kick in.
@@ -150,12 +150,11 @@ public class TunnelForwardStageTest {
     try (Socket origin = pair[0]) {
       ByteBuffer inputBuffer = flippedEmpty(BUF_SIZE);
       ByteBuffer outputBuffer = flippedEmpty(BUF_SIZE);
-      FakePipeline pipeline = new FakePipeline();
+      FakePipeline pipeline = new FakePipeline(inputBuffer, outputBuffer);
       // Two threads: one for readFromTarget (started by connect), one for the write task from read.
       ExecutorService exec = Executors.newFixedThreadPool(2);
       try {
-        TunnelForwardStage stage =
-            new TunnelForwardStage(pipeline, inputBuffer, outputBuffer, exec, pair[1], () -> {});
+        TunnelForwardStage stage = new TunnelForwardStage(pipeline, exec, pair[1], () -> {});
         stage.connect(null);
 
         byte[] sent = "hello from client".getBytes();
@@ -184,11 +183,10 @@ public class TunnelForwardStageTest {
     try (Socket origin = pair[0]) {
       ByteBuffer inputBuffer = flippedEmpty(BUF_SIZE);
       ByteBuffer outputBuffer = flippedEmpty(BUF_SIZE);
-      FakePipeline pipeline = new FakePipeline();
+      FakePipeline pipeline = new FakePipeline(inputBuffer, outputBuffer);
       ExecutorService exec = Executors.newSingleThreadExecutor();
       try {
-        TunnelForwardStage stage =
-            new TunnelForwardStage(pipeline, inputBuffer, outputBuffer, exec, pair[1], () -> {});
+        TunnelForwardStage stage = new TunnelForwardStage(pipeline, exec, pair[1], () -> {});
         stage.connect(null);
         stage.close();
         // The target socket should be closed; reading from origin should get EOF.
@@ -204,6 +202,13 @@ public class TunnelForwardStageTest {
 
   private static final class FakePipeline implements NetworkEngine.Pipeline {
     private final List<Runnable> queued = new ArrayList<>();
+    private final ByteBuffer inputBuffer;
+    private final ByteBuffer outputBuffer;
+
+    FakePipeline(ByteBuffer inputBuffer, ByteBuffer outputBuffer) {
+      this.inputBuffer = inputBuffer;
+      this.outputBuffer = outputBuffer;
+    }
 
     synchronized void runQueued() {
       List<Runnable> snapshot = new ArrayList<>(queued);
@@ -226,7 +231,24 @@ public class TunnelForwardStageTest {
     }
 
     @Override
-    public void log(String text, Object... params) {}
+    public ByteBuffer inputBuffer() {
+      return inputBuffer;
+    }
+
+    @Override
+    public ByteBuffer outputBuffer() {
+      return outputBuffer;
+    }
+
+    @Override
+    public BufferPool bufferPool() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Timeout schedule(long delayMillis, Runnable task) {
+      throw new UnsupportedOperationException();
+    }
 
     @Override
     public void replaceWith(Stage nextStage) {}
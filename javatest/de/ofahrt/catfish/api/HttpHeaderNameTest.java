@@ -2,9 +2,15 @@ package de.ofahrt.catfish.api;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import de.ofahrt.catfish.model.HttpHeaderName;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import org.junit.Test;
 
 public class HttpHeaderNameTest {
@@ -101,4 +107,45 @@ public class HttpHeaderNameTest {
     assertFalse(HttpHeaderName.isValidContentLength("0x5"));
     assertFalse(HttpHeaderName.isValidContentLength("5.0"));
   }
+
+  private static String lookup(String name) {
+    byte[] bytes = name.getBytes(StandardCharsets.ISO_8859_1);
+    return HttpHeaderName.lookup(bytes, 0, bytes.length);
+  }
+
+  @Test
+  public void lookupFindsEveryConstantInAnyCase() throws Exception {
+    for (Field field : HttpHeaderName.class.getFields()) {
+      if (Modifier.isStatic(field.getModifiers()) && String.class.equals(field.getType())) {
+        String name = (String) field.get(null);
+        assertSame(name, lookup(name));
+        assertSame(name, lookup(name.toLowerCase(Locale.US)));
+        assertSame(name, lookup(name.toUpperCase(Locale.US)));
+      }
+    }
+  }
+
+  @Test
+  public void lookupUnknownName() {
+    assertNull(lookup("X-Custom"));
+    assertNull(lookup(""));
+  }
+
+  @Test
+  public void lookupRejectsPrefixAndSuffix() {
+    assertNull(lookup("Content-Typ"));
+    assertNull(lookup("Content-Types"));
+  }
+
+  @Test
+  public void lookupDoesNotFoldNonLetters() {
+    // A plain 'c | 0x20' case fold would map '\r' to '-'.
+    assertNull(lookup("Content\rType"));
+  }
+
+  @Test
+  public void lookupHonorsOffset() {
+    byte[] bytes = "xxHostyy".getBytes(StandardCharsets.US_ASCII);
+    assertSame(HttpHeaderName.HOST, HttpHeaderName.lookup(bytes, 2, 4));
+  }
 }
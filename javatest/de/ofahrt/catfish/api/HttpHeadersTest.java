@@ -4,12 +4,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import de.ofahrt.catfish.model.HttpHeaders;
 import java.util.AbstractMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.Test;
 
@@ -28,6 +31,13 @@ public class HttpHeadersTest {
     assertFalse(it.hasNext());
   }
 
+  @Test
+  public void isEmpty() {
+    assertTrue(HttpHeaders.NONE.isEmpty());
+    assertFalse(HttpHeaders.of("A", "1").isEmpty());
+    assertTrue(HttpHeaders.of("A", "1").without("A").isEmpty());
+  }
+
   @Test
   public void ofOnePair() {
     HttpHeaders h = HttpHeaders.of("A", "1");
@@ -73,6 +83,119 @@ public class HttpHeadersTest {
     assertEquals("3", merged.get("C"));
   }
 
+  @Test
+  public void get_isCaseInsensitive() {
+    HttpHeaders h = HttpHeaders.of("Content-Type", "text/html");
+    assertEquals("text/html", h.get("content-type"));
+    assertTrue(h.containsKey("CONTENT-TYPE"));
+  }
+
+  @Test
+  public void of_lastValueWins() {
+    HttpHeaders h = HttpHeaders.of("A", "1", "a", "2");
+    assertEquals(1, h.size());
+    assertEquals("2", h.get("A"));
+  }
+
+  @Test
+  public void builder_keepsRepeatedValuesInOrder() {
+    HttpHeaders h =
+        HttpHeaders.builder().add("Via", "1.1 a").add("Accept", "*/*").add("Via", "1.1 b").build();
+    assertEquals(3, h.size());
+    assertEquals(List.of("1.1 a", "1.1 b"), h.getAll("Via"));
+    assertEquals("1.1 a, 1.1 b", h.get("Via"));
+    assertEquals(List.of(), h.getAll("Missing"));
+  }
+
+  @Test
+  public void indexAccess_isSortedByName() {
+    HttpHeaders h = HttpHeaders.builder().add("B", "2").add("A", "1").add("B", "3").build();
+    assertEquals("A", h.name(0));
+    assertEquals("1", h.value(0));
+    assertEquals("B", h.name(1));
+    assertEquals("2", h.value(1));
+    assertEquals("B", h.name(2));
+    assertEquals("3", h.value(2));
+    assertThrows(IndexOutOfBoundsException.class, () -> h.name(3));
+  }
+
+  @Test
+  public void iterator_yieldsEachValue() {
+    HttpHeaders h = HttpHeaders.builder().add("A", "1").add("A", "2").build();
+    Iterator<Map.Entry<String, String>> it = h.iterator();
+    assertEquals(new AbstractMap.SimpleEntry<>("A", "1"), it.next());
+    assertEquals(new AbstractMap.SimpleEntry<>("A", "2"), it.next());
+    assertFalse(it.hasNext());
+  }
+
+  @Test
+  public void withOverrides_replacesAllValues() {
+    HttpHeaders base =
+        HttpHeaders.builder().add("A", "1").add("Via", "x").add("Via", "y").add("Z", "2").build();
+    HttpHeaders merged = base.withOverrides(HttpHeaders.of("via", "z"));
+    assertEquals(List.of("z"), merged.getAll("Via"));
+    assertEquals("{A=1, via=z, Z=2}", merged.toString());
+  }
+
+  @Test
+  public void withOverrides_emptySide_returnsOther() {
+    HttpHeaders h = HttpHeaders.of("A", "1");
+    assertSame(h, h.withOverrides(HttpHeaders.NONE));
+    assertSame(h, HttpHeaders.NONE.withOverrides(h));
+  }
+
+  @Test
+  public void without_removesAllValues() {
+    HttpHeaders h = HttpHeaders.builder().add("A", "1").add("B", "2").add("B", "3").build();
+    assertEquals(HttpHeaders.of("A", "1"), h.without("b"));
+    assertSame(h, h.without("Missing"));
+  }
+
+  @Test
+  public void builder_setReplacesAndClearResets() {
+    HttpHeaders.Builder builder = HttpHeaders.builder().add("A", "1").add("A", "2");
+    builder.set("A", "3");
+    assertEquals("3", builder.get("A"));
+    builder.clear();
+    assertTrue(builder.isEmpty());
+    assertSame(HttpHeaders.NONE, builder.build());
+  }
+
+  @Test
+  public void builder_reverseOrderedFields_areSorted() {
+    HttpHeaders.Builder builder = HttpHeaders.builder();
+    for (int i = 999; i >= 0; i--) {
+      String name = String.format("X-%04d", i);
+      assertNull(builder.get(name));
+      builder.add(name, Integer.toString(i));
+    }
+    HttpHeaders h = builder.build();
+    assertEquals(1000, h.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(String.format("X-%04d", i), h.name(i));
+      assertEquals(Integer.toString(i), h.value(i));
+    }
+    assertEquals("500", h.get("x-0500"));
+  }
+
+  @Test
+  public void builder_manyFields_keepRepeatedValuesInOrder() {
+    HttpHeaders.Builder builder = HttpHeaders.builder();
+    for (int i = 0; i < 40; i++) {
+      builder.add("Z-" + (i % 20), "v" + i);
+    }
+    assertEquals("v3, v23", builder.get("z-3"));
+    builder.remove("Z-3").add("z-3", "w");
+    assertEquals("w", builder.get("Z-3"));
+    builder.add("Z-3", "x");
+    assertEquals("w, x", builder.get("Z-3"));
+    assertTrue(builder.containsKey("Z-19"));
+    assertFalse(builder.containsKey("Z-20"));
+    HttpHeaders h = builder.build();
+    assertEquals(List.of("v4", "v24"), h.getAll("Z-4"));
+    assertEquals(List.of("w", "x"), h.getAll("Z-3"));
+  }
+
   @Test
   public void toStringContainsEntries() {
     String s = HttpHeaders.of("K", "V").toString();
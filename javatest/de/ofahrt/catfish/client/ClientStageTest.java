@@ -2,8 +2,10 @@ package de.ofahrt.catfish.client;
 
 import static org.junit.Assert.assertTrue;
 
+import de.ofahrt.catfish.internal.network.BufferPool;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
+import de.ofahrt.catfish.internal.network.TimerWheel.Timeout;
 import de.ofahrt.catfish.model.HttpHeaderName;
 import de.ofahrt.catfish.model.HttpMethodName;
 import de.ofahrt.catfish.model.HttpRequest;
@@ -22,6 +24,9 @@ public class ClientStageTest {
 
   private static final class FakePipeline implements Pipeline {
     boolean closed;
+    private final BufferPool bufferPool = new BufferPool(4096, 0);
+    private final ByteBuffer inputBuffer = bufferPool.acquire();
+    private final ByteBuffer outputBuffer = bufferPool.acquire();
 
     @Override
     public void encourageWrites() {}
@@ -38,7 +43,24 @@ public class ClientStageTest {
     public void queue(Runnable runnable) {}
 
     @Override
-    public void log(String text, Object... params) {}
+    public ByteBuffer inputBuffer() {
+      return inputBuffer;
+    }
+
+    @Override
+    public ByteBuffer outputBuffer() {
+      return outputBuffer;
+    }
+
+    @Override
+    public BufferPool bufferPool() {
+      return bufferPool;
+    }
+
+    @Override
+    public Timeout schedule(long delayMillis, Runnable task) {
+      throw new UnsupportedOperationException();
+    }
 
     @Override
     public void replaceWith(Stage nextStage) {}
@@ -83,10 +105,6 @@ public class ClientStageTest {
   @Test
   public void httpClientStage_inputClosed_callsPipelineClose() throws IOException {
     FakePipeline pipeline = new FakePipeline();
-    ByteBuffer inputBuffer = ByteBuffer.allocate(4096);
-    inputBuffer.flip();
-    ByteBuffer outputBuffer = ByteBuffer.allocate(4096);
-    outputBuffer.flip();
     HttpClientStage stage =
         new HttpClientStage(
             pipeline,
@@ -97,9 +115,7 @@ public class ClientStageTest {
 
               @Override
               public void failed(Exception exception) {}
-            },
-            inputBuffer,
-            outputBuffer);
+            });
     stage.inputClosed();
     assertTrue(pipeline.closed);
   }
@@ -111,11 +127,7 @@ public class ClientStageTest {
     SSLContext sslContext = SSLContext.getInstance("TLS");
     sslContext.init(null, null, null);
     SSLEngine sslEngine = sslContext.createSSLEngine();
-    ByteBuffer buf1 = ByteBuffer.allocate(32768);
-    buf1.flip();
-    ByteBuffer buf2 = ByteBuffer.allocate(32768);
-    buf2.flip();
-    SslClientStage stage = new SslClientStage(pipeline, (in, out) -> next, sslEngine, buf1, buf2);
+    SslClientStage stage = new SslClientStage(pipeline, innerPipeline -> next, sslEngine);
     try {
       stage.inputClosed();
     } catch (SSLException e) {
@@ -9,6 +9,7 @@ import org.junit.runners.Suite.SuiteClasses;
   ClientStageTest.class,
   RawHttpConnectionTest.class,
   HttpRequestGeneratorBufferedTest.class,
+  IncrementalHttpResponseParserDirectBufferTest.class,
   IncrementalHttpResponseParserTest.class,
   IncrementalHttpResponseParserExtraTest.class,
   IncrementalHttpResponseParserIncrementalTest.class,
@@ -0,0 +1,21 @@
+package de.ofahrt.catfish.client;
+
+import de.ofahrt.catfish.model.HttpResponse;
+import java.nio.ByteBuffer;
+
+/** Runs the parser tests through {@link IncrementalHttpResponseParser#parse(ByteBuffer)}. */
+public class IncrementalHttpResponseParserDirectBufferTest extends HttpResponseParserTest {
+
+  @Override
+  public HttpResponse parse(byte[] data) throws Exception {
+    // Start the data at a non-zero position to catch absolute/relative index mix-ups.
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 3);
+    buffer.position(3);
+    buffer.put(data);
+    buffer.flip();
+    buffer.position(3);
+    IncrementalHttpResponseParser parser = new IncrementalHttpResponseParser();
+    parser.parse(buffer);
+    return parser.getResponse();
+  }
+}
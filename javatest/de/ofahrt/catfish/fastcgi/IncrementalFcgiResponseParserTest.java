@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 
 import de.ofahrt.catfish.fastcgi.IncrementalFcgiResponseParser.MalformedResponseException;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -181,4 +182,17 @@ public class IncrementalFcgiResponseParserTest {
     IncrementalFcgiResponseParser parser = new IncrementalFcgiResponseParser(cb);
     parser.parse(bytes("Key\r\r"));
   }
+
+  @Test
+  public void directBuffer_headersThenBody() throws Exception {
+    byte[] data = bytes("Status: 200\r\n\r\nHello");
+    ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+    buf.put(data).flip();
+    TestCallback cb = new TestCallback();
+    IncrementalFcgiResponseParser parser = new IncrementalFcgiResponseParser(cb);
+    assertEquals(data.length, parser.parse(buf));
+    assertEquals(0, buf.remaining());
+    assertEquals("Status", cb.headers.get(0)[0]);
+    assertEquals("Hello", cb.data.toString(StandardCharsets.ISO_8859_1));
+  }
 }
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import org.junit.Test;
 
@@ -366,4 +367,18 @@ public class ChunkedBodyScannerTest {
     scanner.reset();
     assertEquals(0L, scanner.decodedByteCount());
   }
+
+  @Test
+  public void directBuffer_findEndAndAdvance() {
+    byte[] data = bytes("xx5\r\nhello\r\n0\r\n\r\nGET");
+    ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+    buf.put(data).flip();
+    ChunkedBodyScanner scanner = new ChunkedBodyScanner();
+    int end = scanner.findEnd(buf, 2, data.length - 2);
+    assertEquals(data.length - 5, end);
+    assertFalse(scanner.isDone());
+    assertEquals(end, scanner.advance(buf, 2, end));
+    assertTrue(scanner.isDone());
+    assertEquals(0, buf.position());
+  }
 }
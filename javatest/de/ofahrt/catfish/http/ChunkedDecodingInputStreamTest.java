@@ -0,0 +1,71 @@
+package de.ofahrt.catfish.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class ChunkedDecodingInputStreamTest {
+
+  private static InputStream stream(String chunked) {
+    return new ByteArrayInputStream(chunked.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Returns at most one byte per read, like a slow connection. */
+  private static InputStream trickle(InputStream in) {
+    return new FilterInputStream(in) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return super.read(b, off, Math.min(len, 1));
+      }
+    };
+  }
+
+  private static String decode(InputStream in) throws IOException {
+    return new String(new ChunkedDecodingInputStream(in).readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void multipleChunks() throws Exception {
+    assertEquals("hello world", decode(stream("5\r\nhello\r\n6\r\n world\r\n0\r\n\r\n")));
+  }
+
+  @Test
+  public void emptyBody() throws Exception {
+    assertEquals("", decode(stream("0\r\n\r\n")));
+  }
+
+  @Test
+  public void delegateReturnsOneByteAtATime() throws Exception {
+    assertEquals(
+        "Wikipedia", decode(trickle(stream("4\r\nWiki\r\n5;ext=x\r\npedia\r\n0\r\nT: v\r\n\r\n"))));
+  }
+
+  @Test
+  public void singleByteReads() throws Exception {
+    InputStream in = new ChunkedDecodingInputStream(stream("2\r\nab\r\n0\r\n\r\n"));
+    assertEquals('a', in.read());
+    assertEquals('b', in.read());
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void bytesAfterTerminalChunkAreIgnored() throws Exception {
+    assertEquals("abc", decode(stream("3\r\nabc\r\n0\r\n\r\nGET / HTTP/1.1\r\n")));
+  }
+
+  @Test
+  public void truncatedBody_throws() {
+    assertThrows(IOException.class, () -> decode(stream("5\r\nhel")));
+  }
+
+  @Test
+  public void malformedFraming_throws() {
+    assertThrows(IOException.class, () -> decode(stream("zz\r\nhello\r\n0\r\n\r\n")));
+  }
+}
@@ -19,7 +19,11 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.zip.GZIPInputStream;
 import org.junit.Test;
 
@@ -30,6 +34,7 @@ public class CompressingResponseWriterTest {
   /** Delegate that records the response it was handed and captures streamed bytes. */
   private static final class CapturingWriter implements HttpResponseWriter {
     HttpResponse committed;
+    FileChannel committedFile;
     final ByteArrayOutputStream streamedBody = new ByteArrayOutputStream();
 
     @Override
@@ -43,6 +48,12 @@ public class CompressingResponseWriterTest {
       return streamedBody;
     }
 
+    @Override
+    public void commitFile(HttpResponse response, FileChannel file, long position, long length) {
+      this.committed = response;
+      this.committedFile = file;
+    }
+
     @Override
     public void abort() {}
   }
@@ -117,6 +128,36 @@ public class CompressingResponseWriterTest {
     assertArrayEquals(BODY, delegate.committed.getBody());
   }
 
+  @Test
+  public void file_passesThroughToDelegateWhenNotCompressed() throws Exception {
+    Path path = Files.createTempFile("catfish", ".png");
+    try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+      CapturingWriter delegate = new CapturingWriter();
+      HttpResponse original = response("image/png", null);
+      writer(delegate, request("gzip")).commitFile(original, file, 0, 0);
+      assertSame(original, delegate.committed);
+      assertSame(file, delegate.committedFile);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void file_gzipsThroughStreamWhenCompressed() throws Exception {
+    Path path = Files.createTempFile("catfish", ".html");
+    try {
+      Files.write(path, BODY);
+      CapturingWriter delegate = new CapturingWriter();
+      writer(delegate, request("gzip")).commitFile(response("text/html", null), path);
+      assertNull(delegate.committedFile);
+      assertNull(delegate.committed.getHeaders().get(HttpHeaderName.CONTENT_LENGTH));
+      assertEquals("gzip", delegate.committed.getHeaders().get(HttpHeaderName.CONTENT_ENCODING));
+      assertArrayEquals(BODY, gunzip(delegate.streamedBody.toByteArray()));
+    } finally {
+      Files.delete(path);
+    }
+  }
+
   @Test
   public void buffered_passesThroughNonWhitelistedMime() throws Exception {
     CapturingWriter delegate = new CapturingWriter();
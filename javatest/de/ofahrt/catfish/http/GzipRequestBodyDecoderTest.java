@@ -4,7 +4,10 @@ import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertThrows;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.zip.GZIPOutputStream;
 import org.junit.Test;
@@ -72,4 +75,49 @@ public class GzipRequestBodyDecoderTest {
         GzipRequestBodyDecoder.MalformedBodyException.class,
         () -> GzipRequestBodyDecoder.decode(truncated, Long.MAX_VALUE));
   }
+
+  @Test
+  public void decodingStream_roundTrips() throws Exception {
+    byte[] original = "Wikipedia, the free encyclopedia".getBytes(US_ASCII);
+    InputStream in =
+        GzipRequestBodyDecoder.decodingStream(
+            new ByteArrayInputStream(gzip(original)), Long.MAX_VALUE);
+    assertArrayEquals(original, in.readAllBytes());
+  }
+
+  @Test
+  public void decodingStream_doesNotReadBeforeFirstRead() throws Exception {
+    InputStream failing =
+        new InputStream() {
+          @Override
+          public int read() {
+            throw new AssertionError("read too early");
+          }
+        };
+    GzipRequestBodyDecoder.decodingStream(failing, Long.MAX_VALUE);
+  }
+
+  @Test
+  public void decodingStream_atCeiling_isAccepted() throws Exception {
+    byte[] original = "Wikipedia".getBytes(US_ASCII); // 9 bytes
+    InputStream in =
+        GzipRequestBodyDecoder.decodingStream(new ByteArrayInputStream(gzip(original)), 9);
+    assertArrayEquals(original, in.readAllBytes());
+  }
+
+  @Test
+  public void decodingStream_bombBoundedByCeiling_throws() throws Exception {
+    byte[] bomb = gzip(new byte[1024 * 1024]);
+    InputStream in = GzipRequestBodyDecoder.decodingStream(new ByteArrayInputStream(bomb), 4096);
+    assertThrows(IOException.class, in::readAllBytes);
+  }
+
+  @Test
+  public void decodingStream_truncated_throws() throws Exception {
+    byte[] gz = gzip("Wikipedia, the free encyclopedia".getBytes(US_ASCII));
+    byte[] truncated = Arrays.copyOf(gz, gz.length / 2);
+    InputStream in =
+        GzipRequestBodyDecoder.decodingStream(new ByteArrayInputStream(truncated), Long.MAX_VALUE);
+    assertThrows(IOException.class, in::readAllBytes);
+  }
 }
@@ -3,6 +3,8 @@ package de.ofahrt.catfish.http;
 import static org.junit.Assert.assertEquals;
 
 import de.ofahrt.catfish.http.HttpResponseGenerator.ContinuationToken;
+import de.ofahrt.catfish.model.HttpHeaderName;
+import de.ofahrt.catfish.model.HttpHeaders;
 import de.ofahrt.catfish.model.HttpResponse;
 import de.ofahrt.catfish.model.HttpVersion;
 import de.ofahrt.catfish.model.StandardResponses;
@@ -73,6 +75,38 @@ public class HttpResponseGeneratorBufferedTest {
     assertEquals(0, buf.position());
   }
 
+  private static String concat(ByteBuffer[] segments) {
+    StringBuilder result = new StringBuilder();
+    for (ByteBuffer segment : segments) {
+      result.append(StandardCharsets.UTF_8.decode(segment));
+    }
+    return result.toString();
+  }
+
+  @Test
+  public void takeSegments_wrapsHeadAndBodyWithoutCopying() throws Exception {
+    byte[] body = new byte[] {'x', 'y'};
+    HttpResponse response = StandardResponses.OK.withVersion(HttpVersion.HTTP_1_0).withBody(body);
+    HttpResponseGeneratorBuffered generator = HttpResponseGeneratorBuffered.create(null, response);
+    ByteBuffer[] segments = generator.takeSegments();
+    assertEquals(2, segments.length);
+    Assert.assertSame(response.getBody(), segments[1].array());
+    assertEquals("HTTP/1.0 200 OK\r\n\r\nxy", concat(segments));
+    assertEquals(2, generator.getBodyBytesSent());
+    assertEquals(ContinuationToken.STOP, generator.generate(ByteBuffer.allocate(100)));
+  }
+
+  @Test
+  public void takeSegments_afterPartialGenerate_returnsRemainder() throws Exception {
+    HttpResponse response =
+        StandardResponses.OK.withVersion(HttpVersion.HTTP_1_0).withBody(new byte[] {'x', 'y'});
+    HttpResponseGeneratorBuffered generator = HttpResponseGeneratorBuffered.create(null, response);
+    ByteBuffer buffer = ByteBuffer.allocate(5);
+    assertEquals(ContinuationToken.CONTINUE, generator.generate(buffer));
+    assertEquals("1.0 200 OK\r\n\r\nxy", concat(generator.takeSegments()));
+    assertEquals(2, generator.getBodyBytesSent());
+  }
+
   // Conformance test #36: all line terminators in an HTTP response must be CRLF (RFC 7230 §3.5).
   @Test
   public void responsesUseCrlfLineTerminators() throws Exception {
@@ -91,4 +125,101 @@ public class HttpResponseGeneratorBufferedTest {
       }
     }
   }
+
+  @Test
+  public void headersAndCustomStatusMessage() throws Exception {
+    HttpResponse response =
+        new HttpResponse() {
+          @Override
+          public int getStatusCode() {
+            return 299;
+          }
+
+          @Override
+          public String getStatusMessage() {
+            return "Fine";
+          }
+
+          @Override
+          public HttpHeaders getHeaders() {
+            return HttpHeaders.of("A", "1", "B", "2");
+          }
+
+          @Override
+          public byte[] getBody() {
+            return new byte[] {'x'};
+          }
+        };
+    HttpResponseGeneratorBuffered generator = HttpResponseGeneratorBuffered.create(null, response);
+    assertEquals("HTTP/1.1 299 Fine\r\nA: 1\r\nB: 2\r\n\r\nx", toString(generator));
+  }
+
+  @Test
+  public void nonAsciiHeaderValueIsEncodedAsUtf8() throws Exception {
+    HttpResponse response =
+        StandardResponses.OK
+            .withHeaderOverrides(HttpHeaders.of("X-Name", "\u00e4\u20ac"))
+            .withBody(new byte[0]);
+    HttpResponseGeneratorBuffered generator = HttpResponseGeneratorBuffered.create(null, response);
+    assertEquals("HTTP/1.1 200 OK\r\nX-Name: \u00e4\u20ac\r\n\r\n", toString(generator));
+  }
+
+  @Test
+  public void createPreEncoded_bareResponse() throws Exception {
+    HttpResponseGeneratorBuffered generator =
+        HttpResponseGeneratorBuffered.createPreEncoded(null, StandardResponses.NOT_FOUND, false);
+    Assert.assertNotNull(generator);
+    HttpResponse response = generator.getResponse();
+    String date = response.getHeaders().get(HttpHeaderName.DATE);
+    Assert.assertNotNull(date);
+    assertEquals(
+        "HTTP/1.1 404 Not Found\r\n"
+            + "Connection: close\r\n"
+            + "Content-Length: 0\r\n"
+            + "Date: "
+            + date
+            + "\r\n\r\n",
+        toString(generator));
+    Assert.assertFalse(generator.keepAlive());
+    assertEquals(404, response.getStatusCode());
+    assertEquals("close", response.getHeaders().get(HttpHeaderName.CONNECTION));
+    assertEquals("0", response.getHeaders().get(HttpHeaderName.CONTENT_LENGTH));
+  }
+
+  @Test
+  public void createPreEncoded_matchesGeneralPath() throws Exception {
+    HttpResponseGeneratorBuffered generator =
+        HttpResponseGeneratorBuffered.createPreEncoded(
+            null, StandardResponses.SERVICE_UNAVAILABLE, true);
+    Assert.assertNotNull(generator);
+    Assert.assertTrue(generator.keepAlive());
+    HttpResponse expected =
+        StandardResponses.SERVICE_UNAVAILABLE
+            .withHeaderOverrides(generator.getResponse().getHeaders())
+            .withBody(new byte[0]);
+    assertEquals(
+        toString(HttpResponseGeneratorBuffered.create(null, expected)), toString(generator));
+  }
+
+  @Test
+  public void createPreEncoded_noContentLengthWithoutBody() throws Exception {
+    HttpResponseGeneratorBuffered generator =
+        HttpResponseGeneratorBuffered.createPreEncoded(null, StandardResponses.NOT_MODIFIED, true);
+    Assert.assertNotNull(generator);
+    Assert.assertFalse(toString(generator).contains(HttpHeaderName.CONTENT_LENGTH));
+    Assert.assertNull(generator.getResponse().getHeaders().get(HttpHeaderName.CONTENT_LENGTH));
+  }
+
+  @Test
+  public void createPreEncoded_returnsNullUnlessBare() {
+    Assert.assertNull(
+        HttpResponseGeneratorBuffered.createPreEncoded(
+            null, StandardResponses.methodNotAllowed().allowing("GET"), false));
+    Assert.assertNull(
+        HttpResponseGeneratorBuffered.createPreEncoded(
+            null, StandardResponses.OK.withBody(new byte[] {'x'}), false));
+    Assert.assertNull(
+        HttpResponseGeneratorBuffered.createPreEncoded(
+            null, StandardResponses.OK.withVersion(HttpVersion.HTTP_1_0), false));
+  }
 }
@@ -0,0 +1,127 @@
+package de.ofahrt.catfish.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import de.ofahrt.catfish.http.HttpResponseGenerator.ContinuationToken;
+import de.ofahrt.catfish.http.HttpResponseGenerator.FileRegion;
+import de.ofahrt.catfish.model.HttpResponse;
+import de.ofahrt.catfish.model.HttpVersion;
+import de.ofahrt.catfish.model.StandardResponses;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpResponseGeneratorFileTest {
+  private static final HttpResponse RESPONSE =
+      StandardResponses.OK.withVersion(HttpVersion.HTTP_1_0);
+  private static final String HEAD = "HTTP/1.0 200 OK\r\n\r\n";
+
+  private Path path;
+  private FileChannel file;
+
+  @Before
+  public void setUp() throws IOException {
+    path = Files.createTempFile("catfish", ".txt");
+    Files.writeString(path, "0123456789", StandardCharsets.UTF_8);
+    file = FileChannel.open(path, StandardOpenOption.READ);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    file.close();
+    Files.delete(path);
+  }
+
+  private static String readFully(HttpResponseGenerator generator) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteBuffer buffer = ByteBuffer.allocate(3);
+    ContinuationToken token;
+    do {
+      buffer.clear();
+      token = generator.generate(buffer);
+      buffer.flip();
+      out.write(buffer.array(), buffer.position(), buffer.remaining());
+    } while (token != ContinuationToken.STOP);
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void generate_readsRegionAndClosesFile() {
+    HttpResponseGeneratorFile generator =
+        HttpResponseGeneratorFile.create(null, RESPONSE, file, 2, 5);
+    assertEquals(HEAD + "23456", readFully(generator));
+    assertEquals(5, generator.getBodyBytesSent());
+    assertFalse(file.isOpen());
+  }
+
+  @Test
+  public void generate_fileShorterThanRegion_throws() throws IOException {
+    HttpResponseGeneratorFile generator =
+        HttpResponseGeneratorFile.create(null, RESPONSE, file, 8, 5);
+    try {
+      readFully(generator);
+      fail();
+    } catch (UncheckedIOException expected) {
+      // Expected.
+    }
+    assertFalse(file.isOpen());
+  }
+
+  @Test
+  public void createForHead_sendsHeadOnly() {
+    HttpResponseGeneratorFile generator =
+        HttpResponseGeneratorFile.createForHead(null, RESPONSE, file);
+    assertFalse(file.isOpen());
+    assertEquals(HEAD, readFully(generator));
+    assertEquals(0, generator.getBodyBytesSent());
+  }
+
+  @Test
+  public void takeFileRegion_handsOverChannel() {
+    HttpResponseGeneratorFile generator =
+        HttpResponseGeneratorFile.create(null, RESPONSE, file, 2, 5);
+    ByteBuffer[] segments = generator.takeSegments();
+    assertEquals(1, segments.length);
+    assertEquals(HEAD, StandardCharsets.UTF_8.decode(segments[0]).toString());
+    FileRegion region = generator.takeFileRegion();
+    assertSame(file, region.channel());
+    assertEquals(2, region.position());
+    assertEquals(5, region.count());
+    assertEquals(5, generator.getBodyBytesSent());
+    // The caller owns the channel now.
+    assertEquals(ContinuationToken.STOP, generator.generate(ByteBuffer.allocate(100)));
+    assertTrue(file.isOpen());
+  }
+
+  @Test
+  public void takeFileRegion_emptyRegion_returnsNull() {
+    HttpResponseGeneratorFile generator =
+        HttpResponseGeneratorFile.create(null, RESPONSE, file, 0, 0);
+    generator.takeSegments();
+    assertNull(generator.takeFileRegion());
+    assertFalse(file.isOpen());
+  }
+
+  @Test
+  public void abort_closesFile() {
+    HttpResponseGeneratorFile generator =
+        HttpResponseGeneratorFile.create(null, RESPONSE, file, 0, 10);
+    generator.abort();
+    assertFalse(file.isOpen());
+    assertEquals(ContinuationToken.STOP, generator.generate(ByteBuffer.allocate(100)));
+  }
+}
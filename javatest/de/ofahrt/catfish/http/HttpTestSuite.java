@@ -8,11 +8,14 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
   ChunkedBodyScannerTest.class,
   ChunkedBodyStateTest.class,
+  ChunkedDecodingInputStreamTest.class,
   ChunkedDecodingOutputStreamTest.class,
   CompressingResponseWriterTest.class,
   GzipRequestBodyDecoderTest.class,
   HttpResponseGeneratorBufferedTest.class,
+  HttpResponseGeneratorFileTest.class,
   HttpResponseGeneratorStreamedTest.class,
+  IncrementalHttpParserDirectBufferTest.class,
   IncrementalHttpParserIncrementalTest.class,
   IncrementalHttpParserTest.class,
 })
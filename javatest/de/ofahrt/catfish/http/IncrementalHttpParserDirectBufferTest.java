@@ -0,0 +1,25 @@
+package de.ofahrt.catfish.http;
+
+import static org.junit.Assert.assertTrue;
+
+import de.ofahrt.catfish.HttpParserTest;
+import de.ofahrt.catfish.model.HttpRequest;
+import java.nio.ByteBuffer;
+
+/** Runs the parser tests through {@link IncrementalHttpRequestParser#parse(ByteBuffer)}. */
+public class IncrementalHttpParserDirectBufferTest extends HttpParserTest {
+
+  @Override
+  public HttpRequest parse(byte[] data) throws Exception {
+    // Start the data at a non-zero position to catch absolute/relative index mix-ups.
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 3);
+    buffer.position(3);
+    buffer.put(data);
+    buffer.flip();
+    buffer.position(3);
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    parser.parse(buffer);
+    assertTrue(parser.isDone());
+    return parser.getRequest();
+  }
+}
@@ -1,15 +1,22 @@
 package de.ofahrt.catfish.http;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import de.ofahrt.catfish.model.HttpHeaderName;
+import de.ofahrt.catfish.model.HttpHeaders;
+import de.ofahrt.catfish.model.HttpMethodName;
 import de.ofahrt.catfish.model.HttpRequest;
 import de.ofahrt.catfish.model.HttpStatusCode;
+import de.ofahrt.catfish.model.HttpVersion;
 import de.ofahrt.catfish.model.MalformedRequestException;
 import de.ofahrt.catfish.utils.HttpContentTypeTest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import org.junit.Test;
 
 public class IncrementalHttpParserTest {
@@ -112,6 +119,23 @@ public class IncrementalHttpParserTest {
     assertEquals("431 Header block is too large", e.getMessage());
   }
 
+  @Test
+  public void manyFieldsInReverseOrder() throws MalformedRequestException {
+    // Within the header-section limit; arriving in reverse order must not make them costlier.
+    StringBuilder request = new StringBuilder("GET / HTTP/1.1\r\nHost: foo\r\n");
+    for (int i = 4999; i >= 0; i--) {
+      request.append(String.format("x%04d:\r\n", i));
+    }
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    parser.parse(request.append("\r\n").toString().getBytes());
+    HttpHeaders headers = parser.getRequest().getHeaders();
+    assertEquals(5001, headers.size());
+    assertEquals(HttpHeaderName.HOST, headers.name(0));
+    assertEquals("x0000", headers.name(1));
+    assertEquals("x4999", headers.name(5000));
+    assertEquals("", headers.get("X2500"));
+  }
+
   @Test
   public void versionNotSupported() {
     IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
@@ -178,6 +202,122 @@ public class IncrementalHttpParserTest {
     assertEquals("chunked", request.getHeaders().get(HttpHeaderName.TRANSFER_ENCODING));
   }
 
+  @Test
+  public void knownHeaderName_resolvesToConstant() throws MalformedRequestException {
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    parser.parse("GET / HTTP/1.1\r\nhOsT: foo\r\nCONTENT-length: 0\r\n\r\n".getBytes());
+    HttpRequest request = parser.getRequest();
+    assertEquals("foo", request.getHeaders().get(HttpHeaderName.HOST));
+    assertEquals("0", request.getHeaders().get(HttpHeaderName.CONTENT_LENGTH));
+  }
+
+  @Test
+  public void unknownHeaderName_isLowerCased() throws MalformedRequestException {
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    parser.parse("GET / HTTP/1.1\r\nHost: foo\r\nX-Custom-Header: Value\r\n\r\n".getBytes());
+    HttpRequest request = parser.getRequest();
+    assertEquals("Value", request.getHeaders().get("x-custom-header"));
+  }
+
+  @Test
+  public void knownMethod_resolvesToConstant() throws MalformedRequestException {
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    parser.parse("DELETE / HTTP/1.1\r\nHost: foo\r\n\r\n".getBytes());
+    assertSame(HttpMethodName.DELETE, parser.getRequest().getMethod());
+  }
+
+  @Test
+  public void unknownMethod_isPreserved() throws MalformedRequestException {
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    parser.parse("PROPFIND / HTTP/1.1\r\nHost: foo\r\n\r\n".getBytes());
+    assertEquals("PROPFIND", parser.getRequest().getMethod());
+  }
+
+  @Test
+  public void reset_reusesParserForNextRequest() throws MalformedRequestException {
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    parser.parse(
+        ("POST /" + repeat("a", 500) + " HTTP/1.1\r\nHost: foo\r\nA: b\r\n\r\n").getBytes());
+    parser.reset();
+    parser.parse("GET /x HTTP/1.0\r\nB: c\r\n\r\n".getBytes());
+    HttpRequest request = parser.getRequest();
+    assertEquals("GET", request.getMethod());
+    assertEquals("/x", request.getUri());
+    assertEquals(HttpVersion.HTTP_1_0, request.getVersion());
+    assertEquals("c", request.getHeaders().get("b"));
+    assertNull(request.getHeaders().get("a"));
+    assertNull(request.getHeaders().get(HttpHeaderName.HOST));
+  }
+
+  @Test
+  public void reset_releasesGrownElementBuffer() throws MalformedRequestException {
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    int initialCapacity = parser.elementCapacity();
+    parser.parse(
+        ("GET / HTTP/1.1\r\nHost: foo\r\nCookie: " + repeat("a", 20000) + "\r\n\r\n").getBytes());
+    assertTrue(parser.elementCapacity() > 20000);
+    parser.reset();
+    assertEquals(initialCapacity, parser.elementCapacity());
+  }
+
+  @Test
+  public void reset_keepsSmallElementBuffer() throws MalformedRequestException {
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    parser.parse(("GET /" + repeat("a", 500) + " HTTP/1.1\r\nHost: foo\r\n\r\n").getBytes());
+    int grownCapacity = parser.elementCapacity();
+    assertTrue(grownCapacity > 500);
+    parser.reset();
+    assertEquals(grownCapacity, parser.elementCapacity());
+  }
+
+  @Test
+  public void reset_reusesUnchangedKnownHeaderValue() throws MalformedRequestException {
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    byte[] data = "GET /a HTTP/1.1\r\nHost: foo\r\nUser-Agent: test/1.0\r\n\r\n".getBytes();
+    parser.parse(data);
+    HttpRequest first = parser.getRequest();
+    parser.reset();
+    parser.parse(data);
+    HttpRequest second = parser.getRequest();
+    assertSame(first.getUri(), second.getUri());
+    assertSame(
+        first.getHeaders().get(HttpHeaderName.USER_AGENT),
+        second.getHeaders().get(HttpHeaderName.USER_AGENT));
+  }
+
+  @Test
+  public void reset_doesNotReuseChangedValues() throws MalformedRequestException {
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    parser.parse("GET /a HTTP/1.1\r\nHost: foo\r\nUser-Agent: test/1.0\r\n\r\n".getBytes());
+    parser.reset();
+    parser.parse("GET /b HTTP/1.1\r\nHost: foo\r\nUser-Agent: test/1.1\r\n\r\n".getBytes());
+    HttpRequest request = parser.getRequest();
+    assertEquals("/b", request.getUri());
+    assertEquals("test/1.1", request.getHeaders().get(HttpHeaderName.USER_AGENT));
+  }
+
+  @Test
+  public void headerValueWithLatin1Bytes() throws MalformedRequestException {
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    byte[] data =
+        "GET / HTTP/1.1\r\nHost: foo\r\nX: \u00e4\u00ff\r\n\r\n"
+            .getBytes(StandardCharsets.ISO_8859_1);
+    parser.parse(data);
+    assertEquals("\u00e4\u00ff", parser.getRequest().getHeaders().get("x"));
+  }
+
+  @Test
+  public void parseBuffer_leavesBodyInBuffer() throws MalformedRequestException {
+    String head = "POST / HTTP/1.1\r\nHost: foo\r\nContent-Length: 4\r\n\r\n";
+    ByteBuffer buffer = ByteBuffer.allocateDirect(128);
+    buffer.put((head + "body").getBytes(StandardCharsets.US_ASCII)).flip();
+    IncrementalHttpRequestParser parser = new IncrementalHttpRequestParser();
+    assertEquals(head.length(), parser.parse(buffer));
+    assertTrue(parser.isDone());
+    assertEquals(head.length(), buffer.position());
+    assertEquals(4, buffer.remaining());
+  }
+
   private static String repeat(String s, int count) {
     StringBuilder result = new StringBuilder();
     for (int i = 0; i < count; i++) {
@@ -172,4 +172,42 @@ public class Http2FrameReaderTest {
     assertNotNull(reader.getPayload());
     assertEquals(0, reader.getPayload().length);
   }
+
+  @Test
+  public void parseDirectBuffer_exposesPayloadInPlace() {
+    byte[] data = "hello".getBytes();
+    ByteBuffer buf = ByteBuffer.allocateDirect(32);
+    Http2FrameWriter.writeData(buf, 1, data, 0, data.length, true);
+    buf.put((byte) 42);
+    buf.flip();
+
+    Http2FrameReader reader = new Http2FrameReader();
+    assertEquals(9 + data.length, reader.parse(buf));
+    assertTrue(reader.isComplete());
+    assertEquals(1, buf.remaining());
+    ByteBuffer payload = reader.payload();
+    assertTrue(payload.isDirect());
+    assertEquals(data.length, payload.limit());
+    assertArrayEquals(data, reader.getPayload());
+  }
+
+  @Test
+  public void parseBuffer_payloadSplitAcrossCalls() {
+    byte[] data = "split payload".getBytes();
+    ByteBuffer buf = ByteBuffer.allocate(32);
+    Http2FrameWriter.writeData(buf, 5, data, 0, data.length, false);
+    buf.flip();
+    ByteBuffer first = buf.duplicate();
+    first.limit(12);
+    buf.position(12);
+
+    Http2FrameReader reader = new Http2FrameReader();
+    assertEquals(12, reader.parse(first));
+    assertFalse(reader.isComplete());
+    reader.parse(buf);
+    assertTrue(reader.isComplete());
+    assertEquals(5, reader.getStreamId());
+    assertEquals(data.length, reader.payload().limit());
+    assertArrayEquals(data, reader.getPayload());
+  }
 }
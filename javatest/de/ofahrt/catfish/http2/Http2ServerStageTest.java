@@ -7,10 +7,13 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import de.ofahrt.catfish.http2.Hpack.Header;
+import de.ofahrt.catfish.internal.network.BufferPool;
 import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage;
 import de.ofahrt.catfish.internal.network.Stage.ConnectionControl;
 import de.ofahrt.catfish.internal.network.Stage.InitialConnectionState;
+import de.ofahrt.catfish.internal.network.TimerWheel.Timeout;
+import de.ofahrt.catfish.model.HttpDate;
 import de.ofahrt.catfish.model.HttpRequest;
 import de.ofahrt.catfish.model.HttpResponse;
 import de.ofahrt.catfish.model.SimpleHttpResponse;
@@ -85,9 +88,7 @@ public class Http2ServerStageTest {
               }
             },
             connectHandler,
-            null,
-            inputBuffer,
-            outputBuffer);
+            null);
 
     Connection conn =
         new Connection(
@@ -149,9 +150,7 @@ public class Http2ServerStageTest {
             true);
     // Already connected in setUp, but verify the return value.
     ConnectHandler noopHandler = new ConnectHandler() {};
-    Http2ServerStage fresh =
-        new Http2ServerStage(
-            pipeline, (h, c, r, w) -> {}, noopHandler, null, inputBuffer, outputBuffer);
+    Http2ServerStage fresh = new Http2ServerStage(pipeline, (h, c, r, w) -> {}, noopHandler, null);
     assertEquals(InitialConnectionState.READ_ONLY, fresh.connect(conn));
   }
 
@@ -570,6 +569,47 @@ public class Http2ServerStageTest {
     assertEquals(0, dispatchedRequests.size());
   }
 
+  @Test
+  public void drain_sendsGoawayAndClosesAfterInFlightStreams() throws IOException {
+    feedAndRead(concat(CLIENT_PREFACE, buildEmptySettings()));
+    drainOutput();
+    // The response for stream 1 is ready, but not written yet.
+    feedAndRead(buildGetHeadersFrame(1, "/"));
+
+    stage.drain();
+    assertTrue(pipeline.writesEncouraged);
+    byte[] output = drainOutput();
+
+    Http2FrameReader reader = new Http2FrameReader();
+    int offset = 0;
+    List<Integer> frameTypes = new ArrayList<>();
+    while (offset < output.length) {
+      offset += reader.parse(output, offset, output.length - offset);
+      if (reader.isComplete()) {
+        frameTypes.add(reader.getType());
+        if (reader.getType() == FrameType.GOAWAY) {
+          ByteBuffer payload = ByteBuffer.wrap(reader.getPayload());
+          assertEquals(1, payload.getInt()); // last stream ID
+          assertEquals(ErrorCode.NO_ERROR, payload.getInt());
+        }
+        reader.reset();
+      }
+    }
+    assertEquals(Integer.valueOf(FrameType.GOAWAY), frameTypes.get(0));
+    assertTrue("Expected the in-flight response", frameTypes.contains(FrameType.HEADERS));
+    assertEquals(ConnectionControl.CLOSE_CONNECTION_AFTER_FLUSH, stage.write());
+
+    // Streams opened after the GOAWAY are ignored.
+    feedAndRead(buildGetHeadersFrame(3, "/"));
+    assertEquals(1, dispatchedRequests.size());
+  }
+
+  @Test
+  public void drain_beforePreface_closesConnection() {
+    stage.drain();
+    assertTrue(pipeline.closed);
+  }
+
   @Test
   public void controlFrameFlood_pausesReads() throws IOException {
     feedAndRead(concat(CLIENT_PREFACE, buildEmptySettings()));
@@ -638,9 +678,7 @@ public class Http2ServerStageTest {
               }
             },
             ch,
-            null,
-            inputBuffer,
-            outputBuffer);
+            null);
     Connection conn =
         new Connection(
             new InetSocketAddress("127.0.0.1", 8443),
@@ -895,8 +933,6 @@ public class Http2ServerStageTest {
             },
             ch,
             null,
-            inputBuffer,
-            outputBuffer,
             /* maxConcurrentDispatches= */ 1);
     Connection conn =
         new Connection(
@@ -971,6 +1007,46 @@ public class Http2ServerStageTest {
     assertTrue("Expected 403 response", foundResponseHeaders);
   }
 
+  @Test
+  public void response_includesDateHeader() throws IOException {
+    rebuildStageWithConnectHandler(
+        new ConnectHandler() {
+          @Override
+          public RequestAction applyLocal(HttpRequest request) {
+            return RequestAction.deny();
+          }
+        });
+    feedAndRead(concat(CLIENT_PREFACE, buildEmptySettings()));
+    drainOutput();
+    feedAndRead(buildGetHeadersFrame(1, "/denied"));
+
+    byte[] output = drainOutput();
+    Http2FrameReader reader = new Http2FrameReader();
+    int offset = 0;
+    String date = null;
+    while (offset < output.length) {
+      int consumed = reader.parse(output, offset, output.length - offset);
+      offset += consumed;
+      if (reader.isComplete()) {
+        if (reader.getType() == FrameType.HEADERS) {
+          byte[] payload = reader.getPayload();
+          try {
+            for (Header h : new HpackDecoder().decode(payload, 0, payload.length)) {
+              if ("date".equals(h.name())) {
+                date = h.value();
+              }
+            }
+          } catch (HpackDecoder.HpackDecodingException e) {
+            throw new RuntimeException(e);
+          }
+        }
+        reader.reset();
+      }
+    }
+    assertNotNull("Expected a date header", date);
+    assertNotNull(HttpDate.parseDate(date));
+  }
+
   @Test
   public void connectHandlerForward_sendsNotImplemented() throws IOException {
     rebuildStageWithConnectHandler(
@@ -1389,8 +1465,6 @@ public class Http2ServerStageTest {
             },
             ch,
             null,
-            inputBuffer,
-            outputBuffer,
             /* maxConcurrentDispatches= */ 1);
     Connection conn =
         new Connection(
@@ -1555,9 +1629,7 @@ public class Http2ServerStageTest {
               }
             },
             ch,
-            null,
-            inputBuffer,
-            outputBuffer);
+            null);
     Connection conn =
         new Connection(
             new InetSocketAddress("127.0.0.1", 8443),
@@ -1591,9 +1663,7 @@ public class Http2ServerStageTest {
               }
             },
             ch,
-            null,
-            inputBuffer,
-            outputBuffer);
+            null);
     Connection conn =
         new Connection(
             new InetSocketAddress("127.0.0.1", 8443),
@@ -1684,9 +1754,7 @@ public class Http2ServerStageTest {
               }
             },
             ch,
-            executor,
-            inputBuffer,
-            outputBuffer);
+            executor);
     stage.connect(
         new Connection(
             new InetSocketAddress("127.0.0.1", 8443),
@@ -2012,8 +2080,6 @@ public class Http2ServerStageTest {
             },
             ch,
             null,
-            inputBuffer,
-            outputBuffer,
             /* maxConcurrentDispatches= */ 1);
     stage.connect(
         new Connection(
@@ -2170,9 +2236,10 @@ public class Http2ServerStageTest {
   }
 
   /** Minimal Pipeline implementation for testing. */
-  private static class TestPipeline implements Pipeline {
+  private class TestPipeline implements Pipeline {
     boolean writesEncouraged;
     boolean readsEncouraged;
+    boolean closed;
     final List<Runnable> queued = new ArrayList<>();
 
     @Override
@@ -2197,9 +2264,28 @@ public class Http2ServerStageTest {
     }
 
     @Override
-    public void close() {}
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public ByteBuffer inputBuffer() {
+      return inputBuffer;
+    }
 
     @Override
-    public void log(String text, Object... params) {}
+    public ByteBuffer outputBuffer() {
+      return outputBuffer;
+    }
+
+    @Override
+    public BufferPool bufferPool() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Timeout schedule(long delayMillis, Runnable task) {
+      throw new UnsupportedOperationException();
+    }
   }
 }
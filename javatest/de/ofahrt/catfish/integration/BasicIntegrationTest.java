@@ -153,6 +153,20 @@ public class BasicIntegrationTest {
     }
   }
 
+  @Test
+  public void manyPipelinedGets_allAnswered() throws Exception {
+    // More requests than the server dispatches ahead of its write side, in one packet.
+    String request = "GET / HTTP/1.1\nHost: localhost\n\n";
+    for (boolean ssl : new boolean[] {false, true}) {
+      try (RawHttpConnection connection = localServer.connect(ssl)) {
+        connection.write(toBytes(request.repeat(50)));
+        for (int i = 0; i < 50; i++) {
+          assertEquals(200, connection.readResponse().getStatusCode());
+        }
+      }
+    }
+  }
+
   @Test
   public void pipelinedMalformedSecondRequest_returns400() throws Exception {
     // Regression test: a valid keep-alive request followed by a malformed request in the same
@@ -1,8 +1,10 @@
 package de.ofahrt.catfish.integration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 
 import de.ofahrt.catfish.CatfishHttpServer;
+import de.ofahrt.catfish.HttpEndpoint;
 import de.ofahrt.catfish.HttpVirtualHost;
 import de.ofahrt.catfish.HttpsEndpoint;
 import de.ofahrt.catfish.bridge.TestHelper;
@@ -12,11 +14,13 @@ import de.ofahrt.catfish.model.HttpMethodName;
 import de.ofahrt.catfish.model.HttpRequest;
 import de.ofahrt.catfish.model.HttpResponse;
 import de.ofahrt.catfish.model.HttpVersion;
+import de.ofahrt.catfish.model.MalformedRequestException;
 import de.ofahrt.catfish.model.SimpleHttpRequest;
 import de.ofahrt.catfish.model.StandardResponses;
 import de.ofahrt.catfish.model.network.Connection;
 import de.ofahrt.catfish.model.network.NetworkEventListener;
 import de.ofahrt.catfish.utils.HttpConnectionHeader;
+import java.net.ConnectException;
 import java.util.List;
 import javax.net.ssl.SNIHostName;
 import javax.net.ssl.SSLContext;
@@ -30,6 +34,8 @@ public class CatfishHttpClientIntegrationTest {
 
   private static final String HOST = "localhost";
   private static final int HTTPS_PORT = 8082;
+  private static final String IN_MEMORY_NAME = "client-integration-test";
+  private static final String IN_MEMORY_TLS_NAME = "client-integration-test-tls";
 
   private CatfishHttpServer server;
   private CatfishHttpClient client;
@@ -50,14 +56,14 @@ public class CatfishHttpClientIntegrationTest {
                 throwable.printStackTrace();
               }
             });
+    HttpVirtualHost host =
+        new HttpVirtualHost((conn, req, writer) -> writer.commitBuffered(StandardResponses.OK));
     HttpsEndpoint listener =
-        HttpsEndpoint.onLocalhost(HTTPS_PORT)
-            .addHost(
-                HOST,
-                new HttpVirtualHost(
-                    (conn, req, writer) -> writer.commitBuffered(StandardResponses.OK)),
-                TestHelper.getSSLInfo());
+        HttpsEndpoint.onLocalhost(HTTPS_PORT).addHost(HOST, host, TestHelper.getSSLInfo());
     server.listen(listener);
+    server.listen(HttpEndpoint.inMemory(IN_MEMORY_NAME).addHost(HOST, host));
+    server.listen(
+        HttpsEndpoint.inMemory(IN_MEMORY_TLS_NAME).addHost(HOST, host, TestHelper.getSSLInfo()));
 
     client =
         new CatfishHttpClient(
@@ -87,16 +93,42 @@ public class CatfishHttpClientIntegrationTest {
     SSLParameters sslParameters = new SSLParameters();
     sslParameters.setServerNames(List.of(new SNIHostName(HOST)));
 
-    HttpRequest request =
-        new SimpleHttpRequest.Builder()
-            .setVersion(HttpVersion.HTTP_1_1)
-            .setMethod(HttpMethodName.GET)
-            .setUri("/")
-            .addHeader(HttpHeaderName.HOST, HOST)
-            .addHeader(HttpHeaderName.CONNECTION, HttpConnectionHeader.CLOSE)
-            .build();
+    HttpResponse response =
+        client.send(HOST, HTTPS_PORT, sslContext, sslParameters, newGetRequest()).get();
+    assertEquals(200, response.getStatusCode());
+  }
+
+  @Test
+  public void inMemoryGetReturns200() throws Exception {
+    HttpResponse response = client.sendInMemory(IN_MEMORY_NAME, null, null, newGetRequest()).get();
+    assertEquals(200, response.getStatusCode());
+  }
+
+  @Test
+  public void inMemoryHttpsGetReturns200() throws Exception {
+    SSLContext sslContext = TestHelper.getSSLInfo().sslContext();
+    SSLParameters sslParameters = new SSLParameters();
+    sslParameters.setServerNames(List.of(new SNIHostName(HOST)));
 
-    HttpResponse response = client.send(HOST, HTTPS_PORT, sslContext, sslParameters, request).get();
+    HttpResponse response =
+        client.sendInMemory(IN_MEMORY_TLS_NAME, sslContext, sslParameters, newGetRequest()).get();
     assertEquals(200, response.getStatusCode());
   }
+
+  @Test
+  public void inMemoryUnknownNameThrows() {
+    assertThrows(
+        ConnectException.class,
+        () -> client.sendInMemory("no-such-listener", null, null, newGetRequest()));
+  }
+
+  private static HttpRequest newGetRequest() throws MalformedRequestException {
+    return new SimpleHttpRequest.Builder()
+        .setVersion(HttpVersion.HTTP_1_1)
+        .setMethod(HttpMethodName.GET)
+        .setUri("/")
+        .addHeader(HttpHeaderName.HOST, HOST)
+        .addHeader(HttpHeaderName.CONNECTION, HttpConnectionHeader.CLOSE)
+        .build();
+  }
 }
@@ -21,6 +21,7 @@ import de.ofahrt.catfish.model.HttpVersion;
 import de.ofahrt.catfish.model.SimpleHttpRequest;
 import de.ofahrt.catfish.model.StandardResponses;
 import de.ofahrt.catfish.model.network.Connection;
+import de.ofahrt.catfish.model.network.DrainReport;
 import de.ofahrt.catfish.model.network.NetworkEventListener;
 import de.ofahrt.catfish.model.server.HttpHandler;
 import de.ofahrt.catfish.model.server.UploadPolicy;
@@ -32,12 +33,15 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.jspecify.annotations.Nullable;
 import org.junit.After;
 import org.junit.Test;
@@ -116,8 +120,10 @@ public class ConnectionHandlingTest {
 
   @After
   public void stopServer() throws Exception {
-    server.stop();
-    server = null;
+    if (server != null) {
+      server.stop();
+      server = null;
+    }
   }
 
   @Test
@@ -366,4 +372,74 @@ public class ConnectionHandlingTest {
       assertEquals(500, response.getStatusCode());
     }
   }
+
+  // ---- Graceful shutdown ----
+
+  @Test(timeout = 10000)
+  public void gracefulStop_finishesInFlightRequestAndClosesIdleConnection() throws Exception {
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    startServer(
+        (connection, request, responseWriter) -> {
+          entered.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+          responseWriter.commitBuffered(StandardResponses.OK);
+        });
+    try (RawHttpConnection busy = RawHttpConnection.connect(HTTP_SERVER_NAME, httpPort, null);
+        Socket idle = new Socket(InetAddress.getByName(HTTP_SERVER_NAME), httpPort)) {
+      busy.write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+      entered.await();
+      while (server.getOpenConnections() < 2) {
+        Thread.sleep(10);
+      }
+      CatfishHttpServer stopping = server;
+      server = null;
+      CompletableFuture<DrainReport> report =
+          CompletableFuture.supplyAsync(
+              () -> {
+                try {
+                  return stopping.stop(Duration.ofSeconds(5));
+                } catch (InterruptedException e) {
+                  throw new IllegalStateException(e);
+                }
+              });
+      // The idle connection closes right away, while the request is still in flight.
+      assertEquals(-1, idle.getInputStream().read());
+      release.countDown();
+      HttpResponse response = busy.readResponse();
+      assertEquals(200, response.getStatusCode());
+      assertEquals(
+          HttpConnectionHeader.CLOSE, response.getHeaders().get(HttpHeaderName.CONNECTION));
+      assertEquals(new DrainReport(2, 0), report.get(5, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void gracefulStop_killsConnectionsAfterTimeout() throws Exception {
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    startServer(
+        (connection, request, responseWriter) -> {
+          entered.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+          responseWriter.commitBuffered(StandardResponses.OK);
+        });
+    try (RawHttpConnection busy = RawHttpConnection.connect(HTTP_SERVER_NAME, httpPort, null)) {
+      busy.write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+      entered.await();
+      DrainReport report = server.stop(Duration.ofMillis(100));
+      server = null;
+      assertEquals(new DrainReport(0, 1), report);
+    } finally {
+      release.countDown();
+    }
+  }
 }
@@ -0,0 +1,141 @@
+package de.ofahrt.catfish.integration;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import de.ofahrt.catfish.CatfishHttpServer;
+import de.ofahrt.catfish.HttpEndpoint;
+import de.ofahrt.catfish.HttpVirtualHost;
+import de.ofahrt.catfish.HttpsEndpoint;
+import de.ofahrt.catfish.RawHttpConnection;
+import de.ofahrt.catfish.bridge.TestHelper;
+import de.ofahrt.catfish.model.HttpHeaderName;
+import de.ofahrt.catfish.model.HttpHeaders;
+import de.ofahrt.catfish.model.HttpRequest;
+import de.ofahrt.catfish.model.HttpResponse;
+import de.ofahrt.catfish.model.StandardResponses;
+import de.ofahrt.catfish.model.network.Connection;
+import de.ofahrt.catfish.model.network.NetworkEventListener;
+import de.ofahrt.catfish.model.server.HttpHandler;
+import de.ofahrt.catfish.model.server.HttpResponseWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.jspecify.annotations.Nullable;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FileResponseIntegrationTest {
+
+  private static final String HOST = "localhost";
+  private static final int HTTP_PORT = 8086;
+  private static final int HTTPS_PORT = 8087;
+
+  // Several times the size of the network engine's output buffer.
+  private static final byte[] CONTENT = new byte[300_000];
+
+  private static final HttpHeaders OCTET_STREAM =
+      HttpHeaders.of(HttpHeaderName.CONTENT_TYPE, "application/octet-stream");
+
+  private static Path path;
+  private static CatfishHttpServer server;
+
+  private static final HttpHandler HANDLER =
+      (Connection conn, HttpRequest req, HttpResponseWriter writer) -> {
+        HttpResponse response = StandardResponses.OK.withHeaderOverrides(OCTET_STREAM);
+        if ("/range".equals(req.getUri())) {
+          writer.commitFile(response, FileChannel.open(path, StandardOpenOption.READ), 1000, 5000);
+        } else {
+          writer.commitFile(response, path);
+        }
+      };
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    for (int i = 0; i < CONTENT.length; i++) {
+      CONTENT[i] = (byte) (i * 31);
+    }
+    path = Files.createTempFile("catfish", ".bin");
+    Files.write(path, CONTENT);
+    server =
+        new CatfishHttpServer(
+            new NetworkEventListener() {
+              @Override
+              public void shutdown() {}
+
+              @Override
+              public void portOpened(int port, boolean ssl) {}
+
+              @Override
+              public void notifyInternalError(@Nullable Connection id, Throwable t) {
+                t.printStackTrace();
+              }
+            });
+    HttpVirtualHost host = new HttpVirtualHost(HANDLER);
+    server.listen(HttpEndpoint.onLocalhost(HTTP_PORT).addHost(HOST, host));
+    server.listen(
+        HttpsEndpoint.onLocalhost(HTTPS_PORT).addHost(HOST, host, TestHelper.getSSLInfo()));
+  }
+
+  @AfterClass
+  public static void stopServer() throws Exception {
+    server.stop();
+    Files.delete(path);
+  }
+
+  private static byte[] toBytes(String rawRequest) {
+    return rawRequest.replace("\n", "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  private static void assertFileResponse(byte[] expected, HttpResponse response) {
+    assertEquals(200, response.getStatusCode());
+    assertEquals(
+        Integer.toString(expected.length),
+        response.getHeaders().get(HttpHeaderName.CONTENT_LENGTH));
+    assertArrayEquals(expected, response.getBody());
+  }
+
+  @Test
+  public void plaintext_wholeFile() throws IOException {
+    try (RawHttpConnection connection = RawHttpConnection.connect(HOST, HTTP_PORT)) {
+      connection.write(toBytes("GET /file HTTP/1.1\nHost: localhost\n\n"));
+      assertFileResponse(CONTENT, connection.readResponse());
+    }
+  }
+
+  @Test
+  public void plaintext_rangeThenKeepAlive() throws IOException {
+    try (RawHttpConnection connection = RawHttpConnection.connect(HOST, HTTP_PORT)) {
+      connection.write(toBytes("GET /range HTTP/1.1\nHost: localhost\n\n"));
+      assertFileResponse(Arrays.copyOfRange(CONTENT, 1000, 6000), connection.readResponse());
+      connection.write(toBytes("GET /file HTTP/1.1\nHost: localhost\n\n"));
+      assertFileResponse(CONTENT, connection.readResponse());
+    }
+  }
+
+  @Test
+  public void plaintext_head() throws IOException {
+    try (RawHttpConnection connection = RawHttpConnection.connect(HOST, HTTP_PORT)) {
+      connection.write(toBytes("HEAD /file HTTP/1.1\nHost: localhost\n\n"));
+      HttpResponse response = connection.readHeadResponse();
+      assertEquals(200, response.getStatusCode());
+      assertEquals(
+          Integer.toString(CONTENT.length),
+          response.getHeaders().get(HttpHeaderName.CONTENT_LENGTH));
+    }
+  }
+
+  @Test
+  public void tls_wholeFile() throws IOException {
+    try (RawHttpConnection connection =
+        RawHttpConnection.connect(HOST, HTTPS_PORT, TestHelper.getSSLInfo().sslContext())) {
+      connection.write(toBytes("GET /file HTTP/1.1\nHost: localhost\n\n"));
+      assertFileResponse(CONTENT, connection.readResponse());
+    }
+  }
+}
@@ -17,6 +17,8 @@ import org.junit.runners.Suite.SuiteClasses;
   ConnectionHandlingTest.class,
   MultiRunnerTest.class,
   CompressionIntegrationTest.class,
+  FileResponseIntegrationTest.class,
+  SlowReaderIntegrationTest.class,
   HttpParserIntegrationTest.class,
   SslHttpParserIntegrationTest.class,
   CatfishHttpClientIntegrationTest.class,
@@ -0,0 +1,157 @@
+package de.ofahrt.catfish.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.ofahrt.catfish.CatfishHttpServer;
+import de.ofahrt.catfish.HttpEndpoint;
+import de.ofahrt.catfish.HttpTimeouts;
+import de.ofahrt.catfish.HttpVirtualHost;
+import de.ofahrt.catfish.model.HttpHeaderName;
+import de.ofahrt.catfish.model.HttpHeaders;
+import de.ofahrt.catfish.model.HttpRequest;
+import de.ofahrt.catfish.model.HttpResponse;
+import de.ofahrt.catfish.model.StandardResponses;
+import de.ofahrt.catfish.model.network.Connection;
+import de.ofahrt.catfish.model.network.NetworkEventListener;
+import de.ofahrt.catfish.model.server.HttpHandler;
+import de.ofahrt.catfish.model.server.HttpResponseWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.jspecify.annotations.Nullable;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Large responses to a client that stops reading for longer than the keep-alive idle timeout. The
+ * idle timeout must only start once the whole response is written, so the client still gets all of
+ * it.
+ */
+public class SlowReaderIntegrationTest {
+
+  private static final String HOST = "localhost";
+  private static final int HTTP_PORT = 8088;
+
+  private static final Duration KEEP_ALIVE_IDLE = Duration.ofMillis(200);
+  // Far more than the socket buffers hold, so most of the body is still unsent while the client
+  // pauses.
+  private static final byte[] CONTENT = new byte[16 * 1024 * 1024];
+
+  private static final HttpHeaders OCTET_STREAM =
+      HttpHeaders.of(HttpHeaderName.CONTENT_TYPE, "application/octet-stream");
+
+  private static Path path;
+  private static CatfishHttpServer server;
+
+  private static final HttpHandler HANDLER =
+      (Connection conn, HttpRequest req, HttpResponseWriter writer) -> {
+        HttpResponse response = StandardResponses.OK.withHeaderOverrides(OCTET_STREAM);
+        if ("/file".equals(req.getUri())) {
+          writer.commitFile(response, path);
+        } else {
+          writer.commitBuffered(response.withBody(CONTENT));
+        }
+      };
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    for (int i = 0; i < CONTENT.length; i++) {
+      CONTENT[i] = (byte) (i * 31);
+    }
+    path = Files.createTempFile("catfish", ".bin");
+    Files.write(path, CONTENT);
+    server =
+        new CatfishHttpServer(
+            new NetworkEventListener() {
+              @Override
+              public void shutdown() {}
+
+              @Override
+              public void portOpened(int port, boolean ssl) {}
+
+              @Override
+              public void notifyInternalError(@Nullable Connection id, Throwable t) {
+                t.printStackTrace();
+              }
+            });
+    server.listen(
+        HttpEndpoint.onLocalhost(HTTP_PORT)
+            .timeouts(HttpTimeouts.DEFAULT.withKeepAliveIdle(KEEP_ALIVE_IDLE))
+            .addHost(HOST, new HttpVirtualHost(HANDLER)));
+  }
+
+  @AfterClass
+  public static void stopServer() throws Exception {
+    server.stop();
+    Files.delete(path);
+  }
+
+  /**
+   * Requests {@code uri}, reads the start of the body, pauses for several keep-alive idle timeouts,
+   * and then reads the rest. Returns the body.
+   */
+  private static byte[] readSlowly(String uri) throws Exception {
+    try (Socket socket = new Socket()) {
+      socket.setReceiveBufferSize(64 * 1024);
+      socket.connect(new InetSocketAddress(HOST, HTTP_PORT));
+      socket.setSoTimeout(10_000);
+      socket
+          .getOutputStream()
+          .write(
+              ("GET " + uri + " HTTP/1.1\r\nHost: localhost\r\n\r\n")
+                  .getBytes(StandardCharsets.ISO_8859_1));
+      InputStream in = socket.getInputStream();
+      String head = readHead(in);
+      assertTrue(head, head.startsWith("HTTP/1.1 200 "));
+      assertTrue(head, head.contains("Content-Length: " + CONTENT.length + "\r\n"));
+      ByteArrayOutputStream body = new ByteArrayOutputStream(CONTENT.length);
+      byte[] buffer = new byte[64 * 1024];
+      int n = in.read(buffer);
+      body.write(buffer, 0, n);
+      Thread.sleep(5 * KEEP_ALIVE_IDLE.toMillis());
+      while (body.size() < CONTENT.length && (n = in.read(buffer)) >= 0) {
+        body.write(buffer, 0, n);
+      }
+      return body.toByteArray();
+    }
+  }
+
+  private static String readHead(InputStream in) throws IOException {
+    StringBuilder head = new StringBuilder();
+    while (!head.toString().endsWith("\r\n\r\n")) {
+      int c = in.read();
+      if (c < 0) {
+        throw new IOException("Connection closed in response head: " + head);
+      }
+      head.append((char) c);
+    }
+    return head.toString();
+  }
+
+  private static void assertContent(byte[] body) {
+    assertEquals(CONTENT.length, body.length);
+    for (int i = 0; i < CONTENT.length; i++) {
+      if (body[i] != CONTENT[i]) {
+        assertEquals("byte " + i, CONTENT[i], body[i]);
+      }
+    }
+  }
+
+  @Test
+  public void bufferedBody_completesDespitePauseLongerThanKeepAliveIdle() throws Exception {
+    assertContent(readSlowly("/buffered"));
+  }
+
+  @Test
+  public void file_completesDespitePauseLongerThanKeepAliveIdle() throws Exception {
+    assertContent(readSlowly("/file"));
+  }
+}
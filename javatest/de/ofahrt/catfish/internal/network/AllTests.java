@@ -0,0 +1,21 @@
+package de.ofahrt.catfish.internal.network;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+  BufferPoolTest.class,
+  ConnectionLimitTest.class,
+  FlightRecorderTest.class,
+  InMemoryTransportTest.class,
+  NetworkEngineTest.class,
+  ReadBufferSizerTest.class,
+  SelectorLoadTest.class,
+  SelectorMetricsTest.class,
+  SelectorTaskQueueTest.class,
+  SelectorWorkersTest.class,
+  TimerWheelTest.class,
+})
+public class AllTests {}
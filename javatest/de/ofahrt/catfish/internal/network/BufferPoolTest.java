@@ -0,0 +1,111 @@
+package de.ofahrt.catfish.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+  @Test
+  public void acquire_returnsEmptyBufferInReadMode() {
+    BufferPool pool = new BufferPool(1024, 4);
+    ByteBuffer buffer = pool.acquire();
+    assertEquals(1024, buffer.capacity());
+    assertEquals(0, buffer.position());
+    assertEquals(0, buffer.limit());
+    assertFalse(buffer.hasRemaining());
+  }
+
+  @Test
+  public void release_recyclesBuffer() {
+    BufferPool pool = new BufferPool(1024, 4);
+    ByteBuffer buffer = pool.acquire();
+    pool.release(buffer);
+    assertEquals(1, pool.pooledBuffers());
+    assertSame(buffer, pool.acquire());
+    assertEquals(0, pool.pooledBuffers());
+  }
+
+  @Test
+  public void release_discardsRemainingContent() {
+    BufferPool pool = new BufferPool(1024, 4);
+    ByteBuffer buffer = pool.acquire();
+    buffer.compact();
+    buffer.put(new byte[] {1, 2, 3});
+    buffer.flip();
+    pool.release(buffer);
+    ByteBuffer recycled = pool.acquire();
+    assertSame(buffer, recycled);
+    assertFalse(recycled.hasRemaining());
+  }
+
+  @Test
+  public void release_isLifo() {
+    BufferPool pool = new BufferPool(1024, 4);
+    ByteBuffer first = pool.acquire();
+    ByteBuffer second = pool.acquire();
+    pool.release(first);
+    pool.release(second);
+    assertSame(second, pool.acquire());
+    assertSame(first, pool.acquire());
+  }
+
+  @Test
+  public void release_beyondBound_dropsBuffer() {
+    BufferPool pool = new BufferPool(1024, 1);
+    ByteBuffer first = pool.acquire();
+    ByteBuffer second = pool.acquire();
+    pool.release(first);
+    pool.release(second);
+    assertEquals(1, pool.pooledBuffers());
+    assertSame(first, pool.acquire());
+    assertNotSame(second, pool.acquire());
+  }
+
+  @Test
+  public void release_wrongSize_dropsBuffer() {
+    BufferPool pool = new BufferPool(1024, 4);
+    pool.release(ByteBuffer.allocate(512));
+    assertEquals(0, pool.pooledBuffers());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_rejectsNonPositiveSize() {
+    new BufferPool(0, 4);
+  }
+
+  @Test
+  public void sizeClasses_doubleFromSmallestUpToBufferSize() {
+    BufferPool pool = new BufferPool(20_000, 4);
+    assertEquals(4, pool.sizeClasses());
+    assertEquals(4096, pool.sizeOf(0));
+    assertEquals(8192, pool.sizeOf(1));
+    assertEquals(16384, pool.sizeOf(2));
+    assertEquals(20_000, pool.sizeOf(3));
+    assertEquals(20_000, pool.acquire().capacity());
+  }
+
+  @Test
+  public void sizeClasses_singleClassForSmallBuffers() {
+    BufferPool pool = new BufferPool(1024, 4);
+    assertEquals(1, pool.sizeClasses());
+    assertEquals(1024, pool.sizeOf(0));
+  }
+
+  @Test
+  public void release_recyclesIntoMatchingSizeClass() {
+    BufferPool pool = new BufferPool(65536, 4);
+    ByteBuffer small = pool.acquire(0);
+    ByteBuffer large = pool.acquire();
+    assertEquals(4096, small.capacity());
+    pool.release(small);
+    pool.release(large);
+    assertEquals(2, pool.pooledBuffers());
+    assertSame(small, pool.acquire(0));
+    assertSame(large, pool.acquire());
+  }
+}
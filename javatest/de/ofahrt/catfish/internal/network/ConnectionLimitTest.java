@@ -0,0 +1,41 @@
+package de.ofahrt.catfish.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConnectionLimitTest {
+
+  @Test
+  public void tryAcquire_failsAtLimitUntilReleased() {
+    ConnectionLimit limit = new ConnectionLimit(2);
+    assertTrue(limit.tryAcquire());
+    assertFalse(limit.isFull());
+    assertTrue(limit.tryAcquire());
+    assertTrue(limit.isFull());
+    assertFalse(limit.tryAcquire());
+    assertEquals(2, limit.open());
+    limit.release();
+    assertFalse(limit.isFull());
+    assertTrue(limit.tryAcquire());
+  }
+
+  @Test
+  public void unlimited_neverFull() {
+    ConnectionLimit limit = new ConnectionLimit(0);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(limit.tryAcquire());
+    }
+    assertFalse(limit.isFull());
+    limit.release();
+    assertEquals(0, limit.open());
+  }
+
+  @Test
+  public void negativeLimit_rejected() {
+    assertThrows(IllegalArgumentException.class, () -> new ConnectionLimit(-1));
+  }
+}
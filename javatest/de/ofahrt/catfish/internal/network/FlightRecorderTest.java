@@ -0,0 +1,76 @@
+package de.ofahrt.catfish.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import de.ofahrt.catfish.internal.network.Stage.ConnectionControl;
+import org.junit.Test;
+
+public class FlightRecorderTest {
+
+  private static String[] events(FlightRecorder recorder) {
+    String[] lines = recorder.dump(0).split("\n");
+    for (int i = 0; i < lines.length; i++) {
+      // Strip the timestamp.
+      lines[i] = lines[i].substring(lines[i].indexOf("ms ") + 3);
+    }
+    return lines;
+  }
+
+  @Test
+  public void capacity_isRoundedUpToPowerOfTwo() {
+    assertEquals(0, new FlightRecorder(0).capacity());
+    assertEquals(1, new FlightRecorder(1).capacity());
+    assertEquals(4, new FlightRecorder(3).capacity());
+    assertEquals(32, new FlightRecorder(32).capacity());
+  }
+
+  @Test
+  public void dump_formatsEventsLazily() {
+    FlightRecorder recorder = new FlightRecorder(8);
+    recorder.record("Connected");
+    recorder.record("Read %d bytes", 17);
+    recorder.record("Wrote %d bytes (%d buffered)", 3, 4);
+    recorder.record("read -> %s", ConnectionControl.PAUSE);
+    recorder.record("state=%s, net=%d", "HANDSHAKE", 5);
+    String[] events = events(recorder);
+    assertEquals(5, events.length);
+    assertEquals("Connected", events[0]);
+    assertEquals("Read 17 bytes", events[1]);
+    assertEquals("Wrote 3 bytes (4 buffered)", events[2]);
+    assertEquals("read -> PAUSE", events[3]);
+    assertEquals("state=HANDSHAKE, net=5", events[4]);
+  }
+
+  @Test
+  public void dump_keepsMostRecentEvents() {
+    FlightRecorder recorder = new FlightRecorder(2);
+    recorder.record("a");
+    recorder.record("b");
+    recorder.record("c");
+    String dump = recorder.dump(0);
+    assertTrue(dump, dump.startsWith("(1 earlier events dropped)\n"));
+    String[] lines = dump.split("\n");
+    assertEquals(3, lines.length);
+    assertTrue(lines[1].endsWith(" b"));
+    assertTrue(lines[2].endsWith(" c"));
+  }
+
+  @Test
+  public void dump_reportsBadFormatInsteadOfThrowing() {
+    FlightRecorder recorder = new FlightRecorder(2);
+    recorder.record("Read %d bytes", "not a number");
+    assertTrue(recorder.dump(0).contains("Read %d bytes <"));
+  }
+
+  @Test
+  public void disabled_keepsNothing() {
+    FlightRecorder.DISABLED.record("ignored", 1);
+    assertEquals("", FlightRecorder.DISABLED.dump(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_rejectsNegativeCapacity() {
+    new FlightRecorder(-1);
+  }
+}
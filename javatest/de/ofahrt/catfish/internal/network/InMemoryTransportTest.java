@@ -0,0 +1,159 @@
+package de.ofahrt.catfish.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class InMemoryTransportTest {
+
+  private static ByteBuffer bytes(String s) {
+    return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static String readAll(InMemoryTransport transport) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    transport.read(buffer);
+    buffer.flip();
+    return StandardCharsets.US_ASCII.decode(buffer).toString();
+  }
+
+  @Test
+  public void writeThenRead() throws Exception {
+    InMemoryTransport.Pair pair = InMemoryTransport.pair(16);
+    assertFalse(pair.server().isReadable());
+    assertEquals(5, pair.client().write(bytes("hello")));
+    assertTrue(pair.server().isReadable());
+    assertEquals("hello", readAll(pair.server()));
+    assertFalse(pair.server().isReadable());
+    assertEquals(0, pair.server().read(ByteBuffer.allocate(8)));
+  }
+
+  @Test
+  public void bothDirectionsAreIndependent() throws Exception {
+    InMemoryTransport.Pair pair = InMemoryTransport.pair(16);
+    pair.client().write(bytes("ping"));
+    pair.server().write(bytes("pong"));
+    assertEquals("pong", readAll(pair.client()));
+    assertEquals("ping", readAll(pair.server()));
+  }
+
+  @Test
+  public void writeStopsWhenFull_andWrapsAround() throws Exception {
+    InMemoryTransport.Pair pair = InMemoryTransport.pair(8);
+    ByteBuffer src = bytes("0123456789");
+    assertEquals(8, pair.client().write(src));
+    assertEquals(2, src.remaining());
+    assertFalse(pair.client().isWritable());
+    ByteBuffer dst = ByteBuffer.allocate(6);
+    assertEquals(6, pair.server().read(dst));
+    assertTrue(pair.client().isWritable());
+    assertEquals(2, pair.client().write(src));
+    assertEquals("67" + "89", readAll(pair.server()));
+  }
+
+  @Test
+  public void gatheringWrite_stopsAtFirstPartialBuffer() throws Exception {
+    InMemoryTransport.Pair pair = InMemoryTransport.pair(6);
+    ByteBuffer[] srcs = {bytes("abc"), bytes("defg"), bytes("h")};
+    assertEquals(6, pair.client().write(srcs, 0, 3));
+    assertEquals(1, srcs[1].remaining());
+    assertEquals(1, srcs[2].remaining());
+    assertEquals("abcdef", readAll(pair.server()));
+  }
+
+  @Test
+  public void shutdownOutput_readerSeesEndOfStreamAfterData() throws Exception {
+    InMemoryTransport.Pair pair = InMemoryTransport.pair(16);
+    pair.client().write(bytes("bye"));
+    pair.client().shutdownOutput();
+    assertEquals("bye", readAll(pair.server()));
+    assertTrue(pair.server().isReadable());
+    assertEquals(-1, pair.server().read(ByteBuffer.allocate(8)));
+    IOException e = assertThrows(IOException.class, () -> pair.client().write(bytes("x")));
+    assertEquals("Output already shut down", e.getMessage());
+  }
+
+  @Test
+  public void writeAfterPeerClosed_throws() throws Exception {
+    InMemoryTransport.Pair pair = InMemoryTransport.pair(16);
+    pair.server().close();
+    assertTrue(pair.client().isWritable());
+    IOException e = assertThrows(IOException.class, () -> pair.client().write(bytes("x")));
+    assertEquals("Connection closed by peer", e.getMessage());
+    assertEquals(-1, pair.client().read(ByteBuffer.allocate(8)));
+  }
+
+  @Test
+  public void writeAfterPeerShutdownInput_isDiscarded() throws Exception {
+    InMemoryTransport.Pair pair = InMemoryTransport.pair(4);
+    pair.server().shutdownInput();
+    assertEquals(10, pair.client().write(bytes("0123456789")));
+    assertEquals(0, pair.server().read(ByteBuffer.allocate(8)));
+  }
+
+  @Test
+  public void readinessListener_signalledOnEmptyToNonEmptyAndFullToNonFull() throws Exception {
+    InMemoryTransport.Pair pair = InMemoryTransport.pair(4);
+    AtomicInteger clientSignals = new AtomicInteger();
+    AtomicInteger serverSignals = new AtomicInteger();
+    pair.client().setReadinessListener(clientSignals::incrementAndGet);
+    pair.server().setReadinessListener(serverSignals::incrementAndGet);
+
+    pair.client().write(bytes("01"));
+    assertEquals(1, serverSignals.get());
+    pair.client().write(bytes("23"));
+    // The pipe was not empty, so the reader was already readable.
+    assertEquals(1, serverSignals.get());
+    assertEquals(0, clientSignals.get());
+
+    pair.server().read(ByteBuffer.allocate(1));
+    // The pipe was full; the writer can make progress again.
+    assertEquals(1, clientSignals.get());
+    pair.server().read(ByteBuffer.allocate(1));
+    assertEquals(1, clientSignals.get());
+
+    pair.client().shutdownOutput();
+    assertEquals(2, serverSignals.get());
+  }
+
+  @Test
+  public void hasPendingEvents_matchesInterestAndReadiness() throws Exception {
+    InMemoryTransport.Pair pair = InMemoryTransport.pair(4);
+    InMemoryTransport server = pair.server();
+    server.finishConnect();
+    server.interestOps(SelectionKey.OP_READ);
+    assertFalse(server.hasPendingEvents());
+    pair.client().write(bytes("x"));
+    assertTrue(server.hasPendingEvents());
+    server.interestOps(0);
+    assertFalse(server.hasPendingEvents());
+    server.interestOps(SelectionKey.OP_WRITE);
+    assertTrue(server.hasPendingEvents());
+  }
+
+  @Test
+  public void connectable_untilFinishConnect() throws Exception {
+    InMemoryTransport client = InMemoryTransport.pair(4).client();
+    assertTrue(client.isConnectable());
+    assertTrue(client.finishConnect());
+    assertFalse(client.isConnectable());
+  }
+
+  @Test
+  public void cancel_invalidatesAndClearsInterest() {
+    InMemoryTransport client = InMemoryTransport.pair(4).client();
+    client.interestOps(SelectionKey.OP_READ);
+    assertTrue(client.isValid());
+    client.cancel();
+    assertFalse(client.isValid());
+    assertEquals(0, client.interestOps());
+  }
+}
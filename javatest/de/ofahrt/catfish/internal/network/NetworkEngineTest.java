@@ -1,7 +1,12 @@
 package de.ofahrt.catfish.internal.network;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import de.ofahrt.catfish.internal.network.NetworkEngine.NetworkHandler;
@@ -9,20 +14,39 @@ import de.ofahrt.catfish.internal.network.NetworkEngine.Pipeline;
 import de.ofahrt.catfish.internal.network.Stage.ConnectionControl;
 import de.ofahrt.catfish.internal.network.Stage.InitialConnectionState;
 import de.ofahrt.catfish.model.network.Connection;
+import de.ofahrt.catfish.model.network.DrainReport;
 import de.ofahrt.catfish.model.network.NetworkEventListener;
 import de.ofahrt.catfish.model.network.NetworkServer;
+import de.ofahrt.catfish.model.network.SelectorStats;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.BindException;
+import java.net.ConnectException;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.jspecify.annotations.Nullable;
 import org.junit.After;
 import org.junit.Before;
@@ -88,6 +112,58 @@ public class NetworkEngineTest {
     assertTrue(stage.awaitClose(TIMEOUT_MS));
   }
 
+  @Test
+  public void writeSegments_writtenAfterBufferedOutput() throws Exception {
+    // Large enough that the gathering write cannot complete in one go.
+    byte[] large = new byte[4 * 1024 * 1024];
+    Arrays.fill(large, (byte) 'x');
+    ProgrammableStage stage =
+        new ProgrammableStage()
+            .withInitialState(InitialConnectionState.WRITE_ONLY)
+            .enqueueOutput("head:".getBytes())
+            .thenWriteSegments("a".getBytes(), new byte[0], large, "b".getBytes())
+            .withFinalWriteResponse(ConnectionControl.CLOSE_CONNECTION_AFTER_FLUSH);
+    int port = startListener(stage);
+    try (Socket client = connectClient(port)) {
+      assertEquals("head:a", new String(readExactly(client.getInputStream(), 6)));
+      assertArrayEquals(large, readExactly(client.getInputStream(), large.length));
+      assertEquals('b', client.getInputStream().read());
+      // The connection is only closed once all segments are flushed.
+      assertEquals(-1, client.getInputStream().read());
+    }
+    assertTrue(stage.awaitClose(TIMEOUT_MS));
+  }
+
+  @Test
+  public void transferFile_writtenAfterSegmentsAndClosed() throws Exception {
+    byte[] content = new byte[3 * 1024 * 1024];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    Path path = Files.createTempFile("catfish", ".bin");
+    try {
+      Files.write(path, content);
+      FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+      ProgrammableStage stage =
+          new ProgrammableStage()
+              .withInitialState(InitialConnectionState.WRITE_ONLY)
+              .enqueueOutput("head:".getBytes())
+              .thenWriteSegments("a".getBytes())
+              .thenTransferFile(file)
+              .withFinalWriteResponse(ConnectionControl.CLOSE_CONNECTION_AFTER_FLUSH);
+      int port = startListener(stage);
+      try (Socket client = connectClient(port)) {
+        assertEquals("head:a", new String(readExactly(client.getInputStream(), 6)));
+        assertArrayEquals(content, readExactly(client.getInputStream(), content.length));
+        assertEquals(-1, client.getInputStream().read());
+      }
+      assertTrue(stage.awaitClose(TIMEOUT_MS));
+      assertFalse(file.isOpen());
+    } finally {
+      Files.delete(path);
+    }
+  }
+
   // ---- 2. read() returning CLOSE_INPUT half-closes the input ----
 
   @Test
@@ -222,6 +298,103 @@ public class NetworkEngineTest {
     }
   }
 
+  @Test
+  public void internalError_reportsFlightRecord() throws Exception {
+    ProgrammableStage stage =
+        new ProgrammableStage()
+            .withInitialState(InitialConnectionState.WRITE_ONLY)
+            .withFinalWriteResponse(ConnectionControl.NEED_MORE_DATA);
+    int port = startListener(stage);
+    try (Socket ignored = connectClient(port)) {
+      String record = listener.awaitFlightRecord();
+      assertNotNull(record);
+      assertTrue(record, record.contains("write -> NEED_MORE_DATA"));
+      assertTrue(record, record.contains("Internal error: java.lang.IllegalStateException"));
+    }
+  }
+
+  @Test
+  public void dumpFlightRecords_includesOpenConnections() throws Exception {
+    ProgrammableStage stage =
+        new ProgrammableStage().withDefaultReadResponse(ConnectionControl.NEED_MORE_DATA);
+    int port = startListener(stage);
+    try (Socket client = connectClient(port)) {
+      client.getOutputStream().write("ping".getBytes());
+      String record = null;
+      long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while (System.currentTimeMillis() < deadline) {
+        Map<Connection, String> records = engine.dumpFlightRecords();
+        record = records.isEmpty() ? null : records.values().iterator().next();
+        if (record != null && record.contains("read -> NEED_MORE_DATA")) {
+          break;
+        }
+        Thread.sleep(10);
+      }
+      assertNotNull(record);
+      assertTrue(record, record.contains("Read 4 bytes (4 buffered)"));
+      assertTrue(record, record.contains("read -> NEED_MORE_DATA"));
+    }
+  }
+
+  @Test
+  public void dumpFlightRecords_emptyWhenDisabled() throws Exception {
+    engine.shutdown();
+    engine = NetworkEngine.builder().flightRecorderSize(0).build(listener);
+    ProgrammableStage stage = new ProgrammableStage();
+    int port = startListener(stage);
+    try (Socket client = connectClient(port)) {
+      Map<Connection, String> records = engine.dumpFlightRecords();
+      long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while (records.isEmpty() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+        records = engine.dumpFlightRecords();
+      }
+      assertEquals(1, records.size());
+      assertEquals("", records.values().iterator().next());
+    }
+  }
+
+  @Test
+  public void jfr_recordsConnectionOpenedAndClosed() throws Exception {
+    ProgrammableStage stage =
+        new ProgrammableStage()
+            .withInitialState(InitialConnectionState.READ_ONLY)
+            .withDefaultReadResponse(ConnectionControl.NEED_MORE_DATA)
+            .enqueueReadResponses(Arrays.asList(ConnectionControl.CLOSE_CONNECTION_IMMEDIATELY));
+    int port = startListener(stage);
+    Path file = Files.createTempFile("catfish", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("de.ofahrt.catfish.ConnectionOpened");
+      recording.enable("de.ofahrt.catfish.ConnectionClosed");
+      recording.start();
+      try (Socket client = connectClient(port)) {
+        client.getOutputStream().write("bye".getBytes());
+        client.getOutputStream().flush();
+        assertTrue(stage.awaitClose(TIMEOUT_MS));
+      }
+      recording.stop();
+      recording.dump(file);
+      List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      RecordedEvent opened = findEvent(events, "de.ofahrt.catfish.ConnectionOpened");
+      RecordedEvent closed = findEvent(events, "de.ofahrt.catfish.ConnectionClosed");
+      assertFalse(opened.getBoolean("outgoing"));
+      assertEquals(opened.getString("connectionId"), closed.getString("connectionId"));
+      assertEquals(3, closed.getLong("bytesRead"));
+      assertEquals(0, closed.getLong("bytesWritten"));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static RecordedEvent findEvent(List<RecordedEvent> events, String name) {
+    for (RecordedEvent event : events) {
+      if (event.getEventType().getName().equals(name)) {
+        return event;
+      }
+    }
+    throw new AssertionError("No " + name + " event in " + events);
+  }
+
   // ---- 10. write() returning illegal CLOSE_INPUT ----
 
   @Test
@@ -547,6 +720,396 @@ public class NetworkEngineTest {
     }
   }
 
+  @Test
+  public void selectorLoads_countConnections() throws Exception {
+    engine.shutdown();
+    engine =
+        NetworkEngine.builder()
+            .connectionAssignment(ConnectionAssignment.LEAST_LOADED)
+            .build(listener);
+    ProgrammableStage stage =
+        new ProgrammableStage().enqueueReadResponse(ConnectionControl.CLOSE_CONNECTION_IMMEDIATELY);
+    int port = startListener(stage);
+    try (Socket client = connectClient(port)) {
+      awaitSelectorConnections(1);
+      client.getOutputStream().write("ping".getBytes());
+      assertTrue(stage.awaitClose(TIMEOUT_MS));
+      awaitSelectorConnections(0);
+    }
+  }
+
+  @Test
+  public void maxConnections_endpointDefersAcceptUntilConnectionCloses() throws Exception {
+    StagePerConnectionHandler handler = new StagePerConnectionHandler();
+    engine.listenLocalhost(0, handler, /* reusePort= */ false, /* maxConnections= */ 1);
+    assertSecondConnectionWaitsForFirst(handler, listener.waitForPortOpened());
+  }
+
+  @Test
+  public void maxConnections_engineDefersAcceptUntilConnectionCloses() throws Exception {
+    engine.shutdown();
+    engine = NetworkEngine.builder().maxConnections(1).build(listener);
+    StagePerConnectionHandler handler = new StagePerConnectionHandler();
+    engine.listenLocalhost(0, handler);
+    assertSecondConnectionWaitsForFirst(handler, listener.waitForPortOpened());
+  }
+
+  private void assertSecondConnectionWaitsForFirst(StagePerConnectionHandler handler, int port)
+      throws Exception {
+    try (Socket first = connectClient(port)) {
+      ProgrammableStage firstStage = handler.awaitStage(0);
+      try (Socket second = connectClient(port)) {
+        // The second client completes the TCP handshake, but waits in the listen backlog.
+        Thread.sleep(100);
+        assertEquals(1, handler.stages.size());
+        first.getOutputStream().write("ping".getBytes());
+        assertTrue(firstStage.awaitClose(TIMEOUT_MS));
+        ProgrammableStage secondStage = handler.awaitStage(1);
+        second.getOutputStream().write("ping".getBytes());
+        assertTrue(secondStage.awaitClose(TIMEOUT_MS));
+      }
+    }
+    awaitSelectorConnections(0);
+    assertEquals(0, engine.getOpenConnections());
+  }
+
+  @Test
+  public void selectorStats_countTrafficAndReportPeriodically() throws Exception {
+    engine.shutdown();
+    engine =
+        NetworkEngine.builder()
+            .selectorThreads(1)
+            .statsInterval(Duration.ofMillis(100))
+            .build(listener);
+    ProgrammableStage stage =
+        new ProgrammableStage().enqueueReadResponse(ConnectionControl.CLOSE_CONNECTION_IMMEDIATELY);
+    int port = startListener(stage);
+    try (Socket client = connectClient(port)) {
+      client.getOutputStream().write("ping".getBytes());
+      assertTrue(stage.awaitClose(TIMEOUT_MS));
+    }
+    SelectorStats stats = engine.getSelectorStats().get(0);
+    assertEquals(0, stats.selector());
+    assertTrue(stats.wakeups() > 0);
+    assertTrue(stats.tasksRun() > 0);
+    assertTrue(stats.reads() > 0);
+    assertEquals(4, stats.bytesRead());
+    assertTrue(stats.selectTime().count() > 0);
+    assertTrue(listener.awaitSelectorStats());
+  }
+
+  @Test
+  public void inputBuffer_growsWhenStageNeedsMoreThanAFullBuffer() throws Exception {
+    int messageSize = 20_000;
+    CountDownLatch done = new CountDownLatch(1);
+    AtomicInteger initialCapacity = new AtomicInteger();
+    AtomicInteger capacity = new AtomicInteger();
+    engine.listenLocalhost(
+        0,
+        new NetworkHandler() {
+          @Override
+          public boolean usesSsl() {
+            return false;
+          }
+
+          @Override
+          public Stage connect(Pipeline pipeline) {
+            return new Stage() {
+              @Override
+              public InitialConnectionState connect(Connection connection) {
+                initialCapacity.set(pipeline.inputBuffer().capacity());
+                return InitialConnectionState.READ_ONLY;
+              }
+
+              @Override
+              public ConnectionControl read() {
+                // Only consumes the message once it is complete, like a frame parser would.
+                ByteBuffer input = pipeline.inputBuffer();
+                if (input.remaining() < messageSize) {
+                  return ConnectionControl.NEED_MORE_DATA;
+                }
+                capacity.set(input.capacity());
+                input.position(input.limit());
+                done.countDown();
+                return ConnectionControl.CLOSE_CONNECTION_IMMEDIATELY;
+              }
+
+              @Override
+              public void inputClosed() {}
+
+              @Override
+              public ConnectionControl write() {
+                return ConnectionControl.PAUSE;
+              }
+
+              @Override
+              public void close() {}
+            };
+          }
+        });
+    int port = listener.waitForPortOpened();
+    try (Socket client = connectClient(port)) {
+      client.getOutputStream().write(new byte[messageSize]);
+      assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+    assertEquals(BufferPool.SMALLEST_BUFFER_SIZE, initialCapacity.get());
+    assertTrue("capacity " + capacity.get(), capacity.get() >= messageSize);
+  }
+
+  @Test
+  public void stageCallsPerEvent_defersAndResumesBufferedInput() throws Exception {
+    engine.shutdown();
+    engine = NetworkEngine.builder().selectorThreads(1).stageCallsPerEvent(2).build(listener);
+    int messageSize = 10;
+    CountDownLatch done = new CountDownLatch(1);
+    AtomicInteger reads = new AtomicInteger();
+    engine.listenLocalhost(
+        0,
+        new NetworkHandler() {
+          @Override
+          public boolean usesSsl() {
+            return false;
+          }
+
+          @Override
+          public Stage connect(Pipeline pipeline) {
+            return new Stage() {
+              @Override
+              public InitialConnectionState connect(Connection connection) {
+                return InitialConnectionState.READ_ONLY;
+              }
+
+              @Override
+              public ConnectionControl read() {
+                // One byte per call, like a parser handling many tiny pipelined messages.
+                pipeline.inputBuffer().get();
+                if (reads.incrementAndGet() == messageSize) {
+                  done.countDown();
+                }
+                return ConnectionControl.CONTINUE;
+              }
+
+              @Override
+              public void inputClosed() {}
+
+              @Override
+              public ConnectionControl write() {
+                return ConnectionControl.PAUSE;
+              }
+
+              @Override
+              public void close() {}
+            };
+          }
+        });
+    int port = listener.waitForPortOpened();
+    try (Socket client = connectClient(port)) {
+      // The client sends nothing else, so only deferral brings the connection back.
+      client.getOutputStream().write(new byte[messageSize]);
+      assertTrue(done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      // Resuming only processes the buffered input; it does not read from the socket again.
+      assertEquals(1, engine.getSelectorStats().get(0).reads());
+    }
+    assertEquals(messageSize, reads.get());
+    assertTrue(engine.getSelectorStats().get(0).deferredConnections() > 0);
+  }
+
+  @Test
+  public void shutdownGracefully_countsDrainedConnections() throws Exception {
+    ProgrammableStage stage = new ProgrammableStage().closeOnDrain();
+    int port = startListener(stage);
+    try (Socket client = connectClient(port)) {
+      awaitSelectorConnections(1);
+      DrainReport report = engine.shutdownGracefully(Duration.ofSeconds(5));
+      engine = null; // prevent @After from shutting down again
+      assertEquals(new DrainReport(1, 0), report);
+      assertTrue(stage.drainedWhileDraining);
+      assertEquals(-1, client.getInputStream().read());
+    }
+    assertThrows(IOException.class, () -> connectClient(port).close());
+  }
+
+  @Test
+  public void shutdownGracefully_killsConnectionsAtDeadline() throws Exception {
+    ProgrammableStage stage = new ProgrammableStage();
+    int port = startListener(stage);
+    try (Socket client = connectClient(port)) {
+      awaitSelectorConnections(1);
+      DrainReport report = engine.shutdownGracefully(Duration.ofMillis(100));
+      engine = null; // prevent @After from shutting down again
+      assertEquals(new DrainReport(0, 1), report);
+      assertTrue(stage.awaitClose(TIMEOUT_MS));
+    }
+  }
+
+  @Test
+  public void shutdownGracefully_doesNotCountConnectionsOpenedWhileDraining() throws Exception {
+    try (java.net.ServerSocket origin = new java.net.ServerSocket(0)) {
+      NetworkEngine draining = engine;
+      ProgrammableStage originStage = new ProgrammableStage();
+      CountDownLatch originConnected = new CountDownLatch(1);
+      // Like a proxy that opens an origin connection to finish its work in flight. The connect
+      // must not run on the selector thread, which it waits for.
+      ProgrammableStage stage =
+          new ProgrammableStage()
+              .onDrain(
+                  () ->
+                      new Thread(
+                              () -> {
+                                try {
+                                  draining.connect(
+                                      InetAddress.getLoopbackAddress(),
+                                      origin.getLocalPort(),
+                                      new ProgrammableHandler(originStage));
+                                  originConnected.countDown();
+                                } catch (IOException | InterruptedException e) {
+                                  throw new RuntimeException(e);
+                                }
+                              })
+                          .start());
+      int port = startListener(stage);
+      try (Socket client = connectClient(port)) {
+        awaitSelectorConnections(1);
+        CompletableFuture<DrainReport> report = new CompletableFuture<>();
+        new Thread(
+                () -> {
+                  try {
+                    report.complete(draining.shutdownGracefully(Duration.ofMillis(500)));
+                  } catch (Throwable e) {
+                    report.completeExceptionally(e);
+                  }
+                })
+            .start();
+        engine = null; // prevent @After from shutting down again
+        try (Socket accepted = origin.accept()) {
+          assertTrue(originConnected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+          // The drained connection closes; the origin connection is open until the deadline.
+          stage.pipeline.close();
+          assertEquals(new DrainReport(1, 0), report.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+          assertTrue(originStage.awaitClose(TIMEOUT_MS));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void builder_appliesSelectorCountAndSocketOptions() throws Exception {
+    engine.shutdown();
+    engine =
+        NetworkEngine.builder()
+            .selectorThreads(3)
+            .bufferSize(32 * 1024)
+            .maxPooledBuffers(4)
+            .backlog(16)
+            .receiveBufferSize(256 * 1024)
+            .sendBufferSize(256 * 1024)
+            .tcpQuickAck(true)
+            .tcpKeepAlive(Duration.ofSeconds(30), Duration.ofSeconds(5), 3)
+            .build(listener);
+    assertEquals(3, engine.getSelectorLoads().size());
+    ProgrammableStage stage =
+        new ProgrammableStage()
+            .withInitialState(InitialConnectionState.WRITE_ONLY)
+            .enqueueOutput("hello".getBytes())
+            .withFinalWriteResponse(ConnectionControl.CLOSE_CONNECTION_AFTER_FLUSH);
+    int port = startListener(stage);
+    try (Socket client = connectClient(port)) {
+      assertEquals("hello", new String(readExactly(client.getInputStream(), 5)));
+    }
+    assertTrue(stage.awaitClose(TIMEOUT_MS));
+    assertNull(listener.internalError.get());
+  }
+
+  /** Returns the worker executor the engine hands to a new connection for {@code shared}. */
+  private Executor connectionWorkerExecutor(Executor shared) throws Exception {
+    AtomicReference<Executor> result = new AtomicReference<>();
+    CountDownLatch connected = new CountDownLatch(1);
+    engine.listenInMemory(
+        "workers",
+        new NetworkHandler() {
+          @Override
+          public boolean usesSsl() {
+            return false;
+          }
+
+          @Override
+          public Stage connect(Pipeline pipeline) {
+            result.set(pipeline.workerExecutor(shared));
+            connected.countDown();
+            return new CollectingStage().connect(pipeline);
+          }
+        });
+    engine.connectInMemory("workers", new CollectingStage());
+    assertTrue(connected.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    return result.get();
+  }
+
+  @Test
+  public void workerExecutor_withoutWorkerPools_isShared() throws Exception {
+    Executor shared = Runnable::run;
+    assertSame(shared, connectionWorkerExecutor(shared));
+  }
+
+  @Test
+  public void workerExecutor_runsOnPoolOfOwningSelector() throws Exception {
+    engine.shutdown();
+    engine = NetworkEngine.builder().selectorThreads(1).workerThreadsPerSelector(2).build(listener);
+    Executor executor =
+        connectionWorkerExecutor(
+            task -> {
+              throw new AssertionError("unexpected overflow");
+            });
+    AtomicReference<String> threadName = new AtomicReference<>();
+    CountDownLatch ran = new CountDownLatch(1);
+    executor.execute(
+        () -> {
+          threadName.set(Thread.currentThread().getName());
+          ran.countDown();
+        });
+    assertTrue(ran.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertTrue(threadName.get(), threadName.get().startsWith("catfish-select-0-worker-"));
+  }
+
+  @Test
+  public void builder_rejectsInvalidSettings() {
+    assertThrows(IllegalArgumentException.class, () -> NetworkEngine.builder().selectorThreads(0));
+    assertThrows(IllegalArgumentException.class, () -> NetworkEngine.builder().bufferSize(4096));
+    assertThrows(IllegalArgumentException.class, () -> NetworkEngine.builder().backlog(-1));
+    assertThrows(IllegalArgumentException.class, () -> NetworkEngine.builder().maxConnections(-1));
+    assertThrows(
+        IllegalArgumentException.class, () -> NetworkEngine.builder().flightRecorderSize(-1));
+    assertThrows(
+        IllegalArgumentException.class, () -> NetworkEngine.builder().stageCallsPerEvent(0));
+    assertThrows(
+        IllegalArgumentException.class, () -> NetworkEngine.builder().workerThreadsPerSelector(-1));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> NetworkEngine.builder().statsInterval(Duration.ofMillis(1)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> NetworkEngine.builder().tcpKeepAlive(Duration.ZERO, Duration.ofSeconds(1), 1));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            NetworkEngine.builder().tcpKeepAlive(Duration.ofSeconds(1), Duration.ofSeconds(1), 0));
+  }
+
+  private void awaitSelectorConnections(int expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (totalSelectorConnections() != expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, totalSelectorConnections());
+  }
+
+  private int totalSelectorConnections() {
+    int total = 0;
+    for (SelectorLoad load : engine.getSelectorLoads()) {
+      total += load.connections();
+    }
+    return total;
+  }
+
   // ---- 20. Shutdown closes outgoing connections ----
 
   @Test
@@ -615,8 +1178,104 @@ public class NetworkEngineTest {
     }
   }
 
+  // ---- 23. SO_REUSEPORT: one listener per selector, announced once ----
+
+  @Test
+  public void reusePort_acceptsConnectionsAndAnnouncesOnce() throws Exception {
+    ProgrammableStage stage =
+        new ProgrammableStage()
+            .withInitialState(InitialConnectionState.WRITE_ONLY)
+            .enqueueOutput("hello".getBytes())
+            .withFinalWriteResponse(ConnectionControl.CLOSE_CONNECTION_AFTER_FLUSH);
+    engine.listenLocalhost(0, new ProgrammableHandler(stage), /* reusePort= */ true);
+    int port = listener.waitForPortOpened();
+    try (Socket client = connectClient(port)) {
+      assertEquals("hello", new String(readExactly(client.getInputStream(), 5)));
+    }
+    assertTrue(stage.awaitClose(TIMEOUT_MS));
+    assertEquals(1, listener.portOpenedCount());
+  }
+
   // ---- helpers ----
 
+  // ---- In-memory transport ----
+
+  @Test
+  public void inMemory_serverWritesSegmentsAndFile_clientReadsAll() throws Exception {
+    byte[] large = new byte[1024 * 1024];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) i;
+    }
+    Path path = Files.createTempFile("catfish", ".bin");
+    try {
+      Files.write(path, large);
+      FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+      ProgrammableStage stage =
+          new ProgrammableStage()
+              .withInitialState(InitialConnectionState.WRITE_ONLY)
+              .enqueueOutput("head:".getBytes())
+              .thenWriteSegments("a".getBytes(), large)
+              .thenTransferFile(file)
+              .withFinalWriteResponse(ConnectionControl.CLOSE_CONNECTION_AFTER_FLUSH);
+      engine.listenInMemory("segments", new ProgrammableHandler(stage));
+      CollectingStage client = new CollectingStage();
+      engine.connectInMemory("segments", client);
+
+      byte[] received = client.awaitInputClosed();
+      assertEquals(6 + 2 * large.length, received.length);
+      assertEquals("head:a", new String(received, 0, 6));
+      assertArrayEquals(large, Arrays.copyOfRange(received, 6, 6 + large.length));
+      assertArrayEquals(large, Arrays.copyOfRange(received, 6 + large.length, received.length));
+      assertTrue(stage.awaitClose(TIMEOUT_MS));
+      assertTrue(client.awaitClose());
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void inMemory_clientWritesToOtherEngine() throws Exception {
+    NetworkEngine clientEngine = new NetworkEngine(new TestListener());
+    try {
+      CollectingStage server = new CollectingStage();
+      engine.listenInMemory("other-engine", server);
+      byte[] data = new byte[256 * 1024];
+      Arrays.fill(data, (byte) 'x');
+      ProgrammableStage stage =
+          new ProgrammableStage()
+              .withInitialState(InitialConnectionState.WRITE_ONLY)
+              .enqueueOutput(data)
+              .withFinalWriteResponse(ConnectionControl.CLOSE_CONNECTION_AFTER_FLUSH);
+      clientEngine.connectInMemory("other-engine", new ProgrammableHandler(stage));
+
+      assertArrayEquals(data, server.awaitInputClosed());
+      assertTrue(stage.awaitClose(TIMEOUT_MS));
+    } finally {
+      clientEngine.shutdown();
+    }
+  }
+
+  @Test
+  public void inMemory_duplicateName_throws() throws Exception {
+    engine.listenInMemory("duplicate", new CollectingStage());
+    assertThrows(
+        BindException.class, () -> engine.listenInMemory("duplicate", new CollectingStage()));
+  }
+
+  @Test
+  public void inMemory_unknownName_throws() {
+    assertThrows(
+        ConnectException.class, () -> engine.connectInMemory("unknown", new CollectingStage()));
+  }
+
+  @Test
+  public void inMemory_nameReleasedOnShutdown() throws Exception {
+    engine.listenInMemory("released", new CollectingStage());
+    engine.shutdown();
+    engine = new NetworkEngine(listener);
+    engine.listenInMemory("released", new CollectingStage());
+  }
+
   private static byte[] readExactly(InputStream in, int n) throws IOException {
     byte[] buf = new byte[n];
     int read = 0;
@@ -638,6 +1297,7 @@ public class NetworkEngineTest {
   private static final class TestListener implements NetworkEventListener {
     private final CountDownLatch portOpenedLatch = new CountDownLatch(1);
     private volatile int boundPort = -1;
+    private final AtomicInteger portOpenedCount = new AtomicInteger();
 
     private final CountDownLatch internalErrorLatch = new CountDownLatch(1);
     private final AtomicReference<Throwable> internalError = new AtomicReference<>();
@@ -646,6 +1306,11 @@ public class NetworkEngineTest {
     private final CountDownLatch warningLatch = new CountDownLatch(1);
     private final AtomicReference<Throwable> warning = new AtomicReference<>();
 
+    private final CountDownLatch selectorStatsLatch = new CountDownLatch(1);
+
+    private final CountDownLatch flightRecordLatch = new CountDownLatch(1);
+    private final AtomicReference<String> flightRecord = new AtomicReference<>();
+
     @Override
     public void portOpened(int port, boolean ssl) {
       this.boundPort = port;
@@ -655,12 +1320,37 @@ public class NetworkEngineTest {
     @Override
     public void portOpened(NetworkServer server) {
       this.boundPort = server.port();
+      portOpenedCount.incrementAndGet();
       portOpenedLatch.countDown();
     }
 
+    int portOpenedCount() {
+      return portOpenedCount.get();
+    }
+
     @Override
     public void shutdown() {}
 
+    @Override
+    public void selectorStats(SelectorStats stats) {
+      selectorStatsLatch.countDown();
+    }
+
+    boolean awaitSelectorStats() throws InterruptedException {
+      return selectorStatsLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void flightRecord(Connection connection, String events) {
+      flightRecord.compareAndSet(null, events);
+      flightRecordLatch.countDown();
+    }
+
+    @Nullable String awaitFlightRecord() throws InterruptedException {
+      flightRecordLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      return flightRecord.get();
+    }
+
     @Override
     public void notifyInternalError(@Nullable Connection connection, Throwable throwable) {
       internalError.compareAndSet(null, throwable);
@@ -710,25 +1400,122 @@ public class NetworkEngineTest {
     }
 
     @Override
-    public Stage connect(Pipeline pipeline, ByteBuffer inputBuffer, ByteBuffer outputBuffer) {
-      stage.attach(pipeline, inputBuffer, outputBuffer);
+    public Stage connect(Pipeline pipeline) {
+      stage.attach(pipeline);
       return stage;
     }
   }
 
+  /**
+   * Creates a new {@link ProgrammableStage} for every connection, which closes the connection on
+   * the first read.
+   */
+  private static final class StagePerConnectionHandler implements NetworkHandler {
+    private final List<ProgrammableStage> stages = new CopyOnWriteArrayList<>();
+
+    @Override
+    public boolean usesSsl() {
+      return false;
+    }
+
+    @Override
+    public Stage connect(Pipeline pipeline) {
+      ProgrammableStage stage =
+          new ProgrammableStage()
+              .enqueueReadResponse(ConnectionControl.CLOSE_CONNECTION_IMMEDIATELY);
+      stage.attach(pipeline);
+      stages.add(stage);
+      return stage;
+    }
+
+    ProgrammableStage awaitStage(int index) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+      while (stages.size() <= index && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertTrue("connection " + index + " was not accepted", stages.size() > index);
+      return stages.get(index);
+    }
+  }
+
   /** Test {@link Stage} whose behaviour is driven by the test. */
+  /** A read-only handler and stage that collects all input of a single connection. */
+  private static final class CollectingStage implements NetworkHandler, Stage {
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private final CountDownLatch inputClosedLatch = new CountDownLatch(1);
+    private final CountDownLatch closeLatch = new CountDownLatch(1);
+    private Pipeline pipeline;
+
+    byte[] awaitInputClosed() throws InterruptedException {
+      assertTrue(inputClosedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+      synchronized (received) {
+        return received.toByteArray();
+      }
+    }
+
+    boolean awaitClose() throws InterruptedException {
+      return closeLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean usesSsl() {
+      return false;
+    }
+
+    @Override
+    public Stage connect(Pipeline pipeline) {
+      this.pipeline = pipeline;
+      return this;
+    }
+
+    @Override
+    public InitialConnectionState connect(Connection connection) {
+      return InitialConnectionState.READ_ONLY;
+    }
+
+    @Override
+    public ConnectionControl read() {
+      ByteBuffer inputBuffer = pipeline.inputBuffer();
+      byte[] chunk = new byte[inputBuffer.remaining()];
+      inputBuffer.get(chunk);
+      synchronized (received) {
+        received.write(chunk, 0, chunk.length);
+      }
+      return ConnectionControl.CONTINUE;
+    }
+
+    @Override
+    public ConnectionControl write() {
+      return ConnectionControl.PAUSE;
+    }
+
+    @Override
+    public void inputClosed() {
+      inputClosedLatch.countDown();
+      pipeline.close();
+    }
+
+    @Override
+    public void close() {
+      closeLatch.countDown();
+    }
+  }
+
   private static final class ProgrammableStage implements Stage {
     private Pipeline pipeline;
-    private ByteBuffer inputBuffer;
-    private ByteBuffer outputBuffer;
 
     private InitialConnectionState initialState = InitialConnectionState.READ_AND_WRITE;
     private boolean throwOnConnect;
     private boolean throwOnClose;
     private boolean drainInput = true;
     private Stage replaceWithStage;
+    private boolean closeOnDrain;
+    private @Nullable Runnable onDrain;
+    volatile boolean drainedWhileDraining;
 
     private final Deque<byte[]> sendQueue = new ArrayDeque<>();
+    private ByteBuffer @Nullable [] segments;
+    private @Nullable FileChannel fileToTransfer;
     private final Deque<ConnectionControl> readResponses = new ArrayDeque<>();
     private ConnectionControl defaultReadResponse = ConnectionControl.PAUSE;
     private ConnectionControl finalWriteResponse = ConnectionControl.PAUSE;
@@ -737,10 +1524,8 @@ public class NetworkEngineTest {
     private final CountDownLatch inputClosedLatch = new CountDownLatch(1);
     private final CountDownLatch readCallLatch = new CountDownLatch(1);
 
-    void attach(Pipeline pipeline, ByteBuffer in, ByteBuffer out) {
+    void attach(Pipeline pipeline) {
       this.pipeline = pipeline;
-      this.inputBuffer = in;
-      this.outputBuffer = out;
     }
 
     ProgrammableStage withInitialState(InitialConnectionState s) {
@@ -763,6 +1548,19 @@ public class NetworkEngineTest {
       return this;
     }
 
+    ProgrammableStage thenWriteSegments(byte[]... data) {
+      segments = new ByteBuffer[data.length];
+      for (int i = 0; i < data.length; i++) {
+        segments[i] = ByteBuffer.wrap(data[i]);
+      }
+      return this;
+    }
+
+    ProgrammableStage thenTransferFile(FileChannel file) {
+      fileToTransfer = file;
+      return this;
+    }
+
     ProgrammableStage enqueueReadResponse(ConnectionControl cc) {
       readResponses.add(cc);
       return this;
@@ -788,6 +1586,16 @@ public class NetworkEngineTest {
       return this;
     }
 
+    ProgrammableStage closeOnDrain() {
+      this.closeOnDrain = true;
+      return this;
+    }
+
+    ProgrammableStage onDrain(Runnable onDrain) {
+      this.onDrain = onDrain;
+      return this;
+    }
+
     ProgrammableStage withFinalWriteResponse(ConnectionControl cc) {
       this.finalWriteResponse = cc;
       return this;
@@ -805,6 +1613,17 @@ public class NetworkEngineTest {
       return readCallLatch.await(timeoutMs, TimeUnit.MILLISECONDS);
     }
 
+    @Override
+    public void drain() {
+      drainedWhileDraining = pipeline.isDraining();
+      if (onDrain != null) {
+        onDrain.run();
+      }
+      if (closeOnDrain) {
+        pipeline.close();
+      }
+    }
+
     @Override
     public InitialConnectionState connect(Connection connection) {
       if (throwOnConnect) {
@@ -820,12 +1639,13 @@ public class NetworkEngineTest {
         Stage replacement = replaceWithStage;
         replaceWithStage = null;
         if (replacement instanceof ProgrammableStage ps) {
-          ps.attach(pipeline, inputBuffer, outputBuffer);
+          ps.attach(pipeline);
         }
         pipeline.replaceWith(replacement);
         return ConnectionControl.CONTINUE;
       }
       if (drainInput) {
+        ByteBuffer inputBuffer = pipeline.inputBuffer();
         while (inputBuffer.hasRemaining()) {
           inputBuffer.get();
         }
@@ -836,6 +1656,7 @@ public class NetworkEngineTest {
 
     @Override
     public ConnectionControl write() {
+      ByteBuffer outputBuffer = pipeline.outputBuffer();
       outputBuffer.compact();
       try {
         while (!sendQueue.isEmpty() && outputBuffer.hasRemaining()) {
@@ -853,6 +1674,19 @@ public class NetworkEngineTest {
       } finally {
         outputBuffer.flip();
       }
+      if (sendQueue.isEmpty() && segments != null) {
+        assertTrue(pipeline.canWriteSegments());
+        pipeline.writeSegments(segments);
+        segments = null;
+      }
+      if (sendQueue.isEmpty() && fileToTransfer != null) {
+        try {
+          pipeline.transferFile(fileToTransfer, 0, fileToTransfer.size());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        fileToTransfer = null;
+      }
       return sendQueue.isEmpty() ? finalWriteResponse : ConnectionControl.CONTINUE;
     }
 
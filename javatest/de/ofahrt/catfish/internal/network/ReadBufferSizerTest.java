@@ -0,0 +1,71 @@
+package de.ofahrt.catfish.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ReadBufferSizerTest {
+  // Size classes: 4 KiB, 8 KiB, 16 KiB, 32 KiB, 64 KiB.
+  private final BufferPool pool = new BufferPool(65536, 4);
+
+  @Test
+  public void startsWithSmallestClass() {
+    assertEquals(0, new ReadBufferSizer(pool).sizeClass());
+  }
+
+  @Test
+  public void filledRead_grows() {
+    ReadBufferSizer sizer = new ReadBufferSizer(pool);
+    sizer.recordRead(4096, 4096, true);
+    assertEquals(1, sizer.sizeClass());
+    sizer.recordRead(8192, 8192, true);
+    assertEquals(2, sizer.sizeClass());
+  }
+
+  @Test
+  public void partialRead_keepsSize() {
+    ReadBufferSizer sizer = new ReadBufferSizer(pool);
+    sizer.recordRead(100, 4096, false);
+    assertEquals(0, sizer.sizeClass());
+  }
+
+  @Test
+  public void grow_stopsAtLargestClass() {
+    ReadBufferSizer sizer = new ReadBufferSizer(pool);
+    assertTrue(sizer.grow(32768));
+    assertEquals(4, sizer.sizeClass());
+    assertFalse(sizer.grow(65536));
+    assertEquals(4, sizer.sizeClass());
+  }
+
+  @Test
+  public void smallReads_shrinkOneClassAtATime() {
+    ReadBufferSizer sizer = new ReadBufferSizer(pool);
+    sizer.grow(8192);
+    assertEquals(2, sizer.sizeClass());
+    for (int i = 0; i < ReadBufferSizer.SHRINK_AFTER_READS - 1; i++) {
+      sizer.recordRead(100, 16384, false);
+    }
+    assertEquals(2, sizer.sizeClass());
+    sizer.recordRead(100, 16384, false);
+    assertEquals(1, sizer.sizeClass());
+    for (int i = 0; i < ReadBufferSizer.SHRINK_AFTER_READS; i++) {
+      sizer.recordRead(100, 8192, false);
+    }
+    assertEquals(0, sizer.sizeClass());
+  }
+
+  @Test
+  public void largeRead_resetsShrinkCount() {
+    ReadBufferSizer sizer = new ReadBufferSizer(pool);
+    sizer.grow(4096);
+    for (int i = 0; i < ReadBufferSizer.SHRINK_AFTER_READS - 1; i++) {
+      sizer.recordRead(100, 8192, false);
+    }
+    sizer.recordRead(6000, 8192, false);
+    sizer.recordRead(100, 8192, false);
+    assertEquals(1, sizer.sizeClass());
+  }
+}
@@ -0,0 +1,66 @@
+package de.ofahrt.catfish.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SelectorLoadTest {
+  private static final long WINDOW = SelectorLoad.WINDOW_NANOS;
+
+  @Test
+  public void score_growsWithConnections() {
+    SelectorLoad load = new SelectorLoad(0, 0);
+    long empty = load.score(0);
+    load.connectionAssigned();
+    load.connectionAssigned();
+    assertEquals(2, load.connections());
+    assertTrue(load.score(0) > empty);
+    load.connectionClosed();
+    load.connectionClosed();
+    assertEquals(empty, load.score(0));
+  }
+
+  @Test
+  public void score_weighsConnectionsOnBusySelectorHigher() {
+    SelectorLoad idle = new SelectorLoad(0, 0);
+    SelectorLoad busy = new SelectorLoad(1, 0);
+    idle.connectionAssigned();
+    busy.connectionAssigned();
+    idle.addBusy(WINDOW - 1, WINDOW);
+    busy.addBusy(0, WINDOW);
+    assertTrue(busy.score(WINDOW) > idle.score(WINDOW));
+  }
+
+  @Test
+  public void busyTime_publishedOncePerWindow() {
+    SelectorLoad load = new SelectorLoad(0, 0);
+    load.connectionAssigned();
+    long before = load.score(0);
+    load.addBusy(0, WINDOW / 2);
+    assertEquals(before, load.score(WINDOW / 2));
+    load.addBusy(WINDOW / 2, WINDOW);
+    // Busy for the whole window: one connection counts twice.
+    assertEquals(2 * before, load.score(WINDOW));
+  }
+
+  @Test
+  public void staleFigures_treatedAsIdle() {
+    SelectorLoad load = new SelectorLoad(0, 0);
+    load.addBusy(0, WINDOW);
+    long busy = load.score(WINDOW);
+    // The selector has been blocked in select() for a long time since.
+    assertTrue(load.score(10 * WINDOW) < busy);
+  }
+
+  @Test
+  public void bytesPerSecond_computedOverWindow() {
+    long start = System.nanoTime();
+    SelectorLoad load = new SelectorLoad(0, start);
+    load.addBytes(1000);
+    load.addBytes(500);
+    load.addBusy(start, start + 1_000_000_000L);
+    assertEquals(1500, load.bytesPerSecond());
+    assertEquals(1.0, load.busyFraction(), 0.0);
+  }
+}
@@ -0,0 +1,57 @@
+package de.ofahrt.catfish.internal.network;
+
+import static org.junit.Assert.assertEquals;
+
+import de.ofahrt.catfish.model.network.SelectorStats;
+import org.junit.Test;
+
+public class SelectorMetricsTest {
+
+  @Test
+  public void snapshot_reportsCounters() {
+    SelectorMetrics metrics = new SelectorMetrics(3);
+    metrics.selected(0, 5_000);
+    metrics.busy(5_000, 6_000);
+    metrics.read(100);
+    metrics.read(-1);
+    metrics.written(40);
+    metrics.needMoreData();
+    metrics.registeredKeys(7);
+    SelectorStats stats = metrics.snapshot();
+    assertEquals(3, stats.selector());
+    assertEquals(1, stats.wakeups());
+    assertEquals(5_000, stats.selectNanos());
+    assertEquals(1_000, stats.busyNanos());
+    assertEquals(2, stats.reads());
+    assertEquals(100, stats.bytesRead());
+    assertEquals(40, stats.bytesWritten());
+    assertEquals(1, stats.needMoreDataReads());
+    assertEquals(7, stats.registeredKeys());
+    assertEquals(1, stats.selectTime().count());
+    assertEquals(1, stats.busyTime().count());
+  }
+
+  @Test
+  public void taskQueueDepth_countsQueuedButNotRunTasks() {
+    SelectorMetrics metrics = new SelectorMetrics(0);
+    metrics.taskQueued();
+    metrics.taskQueued();
+    metrics.taskQueued();
+    metrics.taskRun();
+    assertEquals(2, metrics.snapshot().taskQueueDepth());
+    assertEquals(1, metrics.snapshot().tasksRun());
+  }
+
+  @Test
+  public void taskWaitTime_recordedOncePerDrain() {
+    SelectorMetrics metrics = new SelectorMetrics(0);
+    metrics.drainingTasks(System.nanoTime());
+    assertEquals(0, metrics.snapshot().taskWaitTime().count());
+    metrics.taskQueued();
+    metrics.taskQueued();
+    metrics.drainingTasks(System.nanoTime());
+    assertEquals(1, metrics.snapshot().taskWaitTime().count());
+    metrics.drainingTasks(System.nanoTime());
+    assertEquals(1, metrics.snapshot().taskWaitTime().count());
+  }
+}
@@ -0,0 +1,112 @@
+package de.ofahrt.catfish.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class SelectorTaskQueueTest {
+  private final AtomicInteger wakeups = new AtomicInteger();
+  private final SelectorTaskQueue queue = new SelectorTaskQueue(wakeups::incrementAndGet);
+
+  @Test
+  public void poll_returnsTasksInOrder() {
+    Runnable a = () -> {};
+    Runnable b = () -> {};
+    assertTrue(queue.isEmpty());
+    queue.add(a);
+    queue.add(b);
+    assertFalse(queue.isEmpty());
+    assertSame(a, queue.poll());
+    assertSame(b, queue.poll());
+    assertNull(queue.poll());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void add_whileAwake_doesNotWakeUp() {
+    queue.add(() -> {});
+    queue.add(() -> {});
+    assertEquals(0, wakeups.get());
+  }
+
+  @Test
+  public void add_whileSelecting_wakesUpOnce() {
+    assertTrue(queue.enterSelect());
+    queue.add(() -> {});
+    queue.add(() -> {});
+    queue.add(() -> {});
+    assertEquals(1, wakeups.get());
+    queue.exitSelect();
+    queue.add(() -> {});
+    assertEquals(1, wakeups.get());
+  }
+
+  @Test
+  public void enterSelect_withPendingTasks_mustNotBlock() {
+    queue.add(() -> {});
+    assertFalse(queue.enterSelect());
+    // Tasks added before the consumer selects again don't need a wakeup.
+    queue.add(() -> {});
+    assertEquals(0, wakeups.get());
+  }
+
+  @Test
+  public void eachSelectRound_wakesUpAtMostOnce() {
+    for (int round = 1; round <= 3; round++) {
+      assertTrue(queue.enterSelect());
+      queue.add(() -> {});
+      queue.add(() -> {});
+      queue.exitSelect();
+      while (queue.poll() != null) {}
+      assertEquals(round, wakeups.get());
+    }
+  }
+
+  @Test
+  public void concurrentProducers_allTasksDelivered() throws Exception {
+    int producers = 4;
+    int perProducer = 10_000;
+    Set<Integer> seen = new HashSet<>();
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      int base = p * perProducer;
+      threads[p] =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  throw new AssertionError(e);
+                }
+                for (int i = 0; i < perProducer; i++) {
+                  int value = base + i;
+                  queue.add(() -> seen.add(Integer.valueOf(value)));
+                }
+              });
+      threads[p].start();
+    }
+    start.countDown();
+    int consumed = 0;
+    while (consumed < producers * perProducer) {
+      Runnable task = queue.poll();
+      if (task != null) {
+        task.run();
+        consumed++;
+      }
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(producers * perProducer, seen.size());
+    assertNull(queue.poll());
+  }
+}
@@ -0,0 +1,85 @@
+package de.ofahrt.catfish.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class SelectorWorkersTest {
+
+  private static final Executor NO_OVERFLOW =
+      task -> {
+        throw new AssertionError("unexpected overflow");
+      };
+
+  @Test
+  public void execute_runsOnNamedWorkerThread() throws Exception {
+    SelectorWorkers workers = new SelectorWorkers(3, 1);
+    try {
+      CountDownLatch ran = new CountDownLatch(1);
+      String[] name = new String[1];
+      workers.execute(
+          () -> {
+            name[0] = Thread.currentThread().getName();
+            ran.countDown();
+          },
+          NO_OVERFLOW);
+      assertTrue(ran.await(2, TimeUnit.SECONDS));
+      assertEquals("catfish-select-3-worker-0", name[0]);
+    } finally {
+      workers.shutdown();
+    }
+  }
+
+  @Test
+  public void execute_overflowsWhenSaturated() throws Exception {
+    SelectorWorkers workers = new SelectorWorkers(0, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      List<Runnable> overflow = new ArrayList<>();
+      // One task occupies the only thread; the rest fill the queue and then overflow.
+      for (int i = 0; i < 100; i++) {
+        workers.execute(
+            () -> {
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            },
+            overflow::add);
+      }
+      assertTrue(overflow.size() >= 100 - 1 - 64);
+    } finally {
+      release.countDown();
+      workers.shutdown();
+    }
+  }
+
+  @Test
+  public void execute_afterShutdown_overflows() {
+    SelectorWorkers workers = new SelectorWorkers(0, 1);
+    workers.shutdown();
+    List<Runnable> overflow = new ArrayList<>();
+    Runnable task = () -> {};
+    workers.execute(task, overflow::add);
+    assertEquals(List.of(task), overflow);
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void execute_overflowRejects_throws() {
+    SelectorWorkers workers = new SelectorWorkers(0, 1);
+    workers.shutdown();
+    workers.execute(
+        () -> {},
+        task -> {
+          throw new RejectedExecutionException();
+        });
+  }
+}
@@ -0,0 +1,166 @@
+package de.ofahrt.catfish.internal.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class TimerWheelTest {
+  private static final TimerWheel.ErrorHandler RETHROW =
+      e -> {
+        throw e;
+      };
+
+  private long now;
+  private final List<String> fired = new ArrayList<>();
+
+  private TimerWheel newWheel() {
+    return new TimerWheel(10, 8, () -> now);
+  }
+
+  private void advanceTo(TimerWheel wheel, long millis) {
+    now = millis;
+    wheel.advance(RETHROW);
+  }
+
+  @Test
+  public void schedule_firesAtDeadlineNotBefore() {
+    TimerWheel wheel = newWheel();
+    TimerWheel.Timeout timeout = wheel.schedule(25, () -> fired.add("a"));
+    advanceTo(wheel, 24);
+    assertTrue(fired.isEmpty());
+    assertTrue(timeout.isPending());
+    advanceTo(wheel, 30);
+    assertEquals(List.of("a"), fired);
+    assertFalse(timeout.isPending());
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void cancel_preventsTask() {
+    TimerWheel wheel = newWheel();
+    TimerWheel.Timeout timeout = wheel.schedule(10, () -> fired.add("a"));
+    timeout.cancel();
+    assertEquals(0, wheel.size());
+    advanceTo(wheel, 100);
+    assertTrue(fired.isEmpty());
+    assertFalse(timeout.isPending());
+  }
+
+  @Test
+  public void cancel_isIdempotent() {
+    TimerWheel wheel = newWheel();
+    TimerWheel.Timeout timeout = wheel.schedule(10, () -> fired.add("a"));
+    wheel.schedule(10, () -> fired.add("b"));
+    timeout.cancel();
+    timeout.cancel();
+    assertEquals(1, wheel.size());
+    advanceTo(wheel, 10);
+    assertEquals(List.of("b"), fired);
+  }
+
+  @Test
+  public void timeoutsBeyondOneRevolution_waitForTheirRound() {
+    // 8 buckets of 10ms: one revolution is 80ms.
+    TimerWheel wheel = newWheel();
+    wheel.schedule(20, () -> fired.add("near"));
+    wheel.schedule(260, () -> fired.add("far"));
+    advanceTo(wheel, 20);
+    assertEquals(List.of("near"), fired);
+    advanceTo(wheel, 100);
+    advanceTo(wheel, 180);
+    advanceTo(wheel, 259);
+    assertEquals(List.of("near"), fired);
+    advanceTo(wheel, 260);
+    assertEquals(List.of("near", "far"), fired);
+  }
+
+  @Test
+  public void advance_runsAllOverdueTimeouts() {
+    TimerWheel wheel = newWheel();
+    wheel.schedule(10, () -> fired.add("a"));
+    wheel.schedule(50, () -> fired.add("b"));
+    wheel.schedule(500, () -> fired.add("c"));
+    advanceTo(wheel, 1000);
+    assertEquals(3, fired.size());
+    assertTrue(fired.containsAll(List.of("a", "b", "c")));
+  }
+
+  @Test
+  public void task_mayCancelAnotherExpiringTimeout() {
+    TimerWheel wheel = newWheel();
+    TimerWheel.Timeout[] timeouts = new TimerWheel.Timeout[2];
+    timeouts[0] =
+        wheel.schedule(
+            10,
+            () -> {
+              fired.add("a");
+              timeouts[1].cancel();
+            });
+    timeouts[1] =
+        wheel.schedule(
+            10,
+            () -> {
+              fired.add("b");
+              timeouts[0].cancel();
+            });
+    advanceTo(wheel, 10);
+    // Whichever runs first cancels the other, even though both expired in the same tick.
+    assertEquals(1, fired.size());
+  }
+
+  @Test
+  public void task_mayScheduleNewTimeout() {
+    TimerWheel wheel = newWheel();
+    wheel.schedule(10, () -> wheel.schedule(10, () -> fired.add("again")));
+    advanceTo(wheel, 10);
+    assertTrue(fired.isEmpty());
+    assertEquals(1, wheel.size());
+    advanceTo(wheel, 20);
+    assertEquals(List.of("again"), fired);
+  }
+
+  @Test
+  public void millisUntilNextTick() {
+    TimerWheel wheel = newWheel();
+    assertEquals(0, wheel.millisUntilNextTick());
+    now = 3;
+    wheel.schedule(100, () -> {});
+    assertEquals(7, wheel.millisUntilNextTick());
+    now = 10;
+    assertEquals(1, wheel.millisUntilNextTick());
+  }
+
+  @Test
+  public void schedule_afterLongIdle_doesNotFireImmediately() {
+    TimerWheel wheel = newWheel();
+    now = 10_000;
+    wheel.schedule(50, () -> fired.add("a"));
+    advanceTo(wheel, 10_049);
+    assertTrue(fired.isEmpty());
+    advanceTo(wheel, 10_050);
+    assertEquals(List.of("a"), fired);
+  }
+
+  @Test
+  public void taskException_passedToHandler() {
+    TimerWheel wheel = newWheel();
+    IllegalStateException failure = new IllegalStateException();
+    wheel.schedule(
+        10,
+        () -> {
+          throw failure;
+        });
+    wheel.schedule(10, () -> fired.add("b"));
+    List<RuntimeException> errors = new ArrayList<>();
+    now = 10;
+    wheel.advance(errors::add);
+    assertEquals(1, errors.size());
+    assertSame(failure, errors.get(0));
+    assertEquals(List.of("b"), fired);
+  }
+}
@@ -0,0 +1,73 @@
+package de.ofahrt.catfish.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class CoarseClockTest {
+  private long wallMillis = 784111777000L; // Sun, 06 Nov 1994 08:49:37 GMT
+  private long nanos = 5_000_000L;
+
+  private CoarseClock newClock() {
+    return new CoarseClock(() -> wallMillis, () -> nanos);
+  }
+
+  @Test
+  public void httpDate() {
+    assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", newClock().httpDate());
+  }
+
+  @Test
+  public void dateValueIsCachedWithinSecond() {
+    CoarseClock clock = newClock();
+    CoarseClock.DateValue first = clock.dateValue();
+    wallMillis += 999;
+    assertSame(first, clock.dateValue());
+  }
+
+  @Test
+  public void dateValueChangesWithSecondWithoutTick() {
+    CoarseClock clock = newClock();
+    wallMillis += 1000;
+    assertEquals("Sun, 06 Nov 1994 08:49:38 GMT", clock.httpDate());
+  }
+
+  @Test
+  public void dateValueBytes() {
+    CoarseClock.DateValue value = newClock().dateValue();
+    byte[] expected = "Sun, 06 Nov 1994 08:49:37 GMT".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(expected.length, value.length());
+    byte[] copy = new byte[expected.length + 2];
+    assertEquals(expected.length, value.copyTo(copy, 2));
+    assertEquals(
+        "Sun, 06 Nov 1994 08:49:37 GMT",
+        new String(copy, 2, expected.length, StandardCharsets.US_ASCII));
+    ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+    value.putTo(buffer);
+    assertArrayEquals(expected, buffer.array());
+  }
+
+  @Test
+  public void monotonicMillisOnlyChangesOnTick() {
+    CoarseClock clock = newClock();
+    assertEquals(5, clock.monotonicMillis());
+    nanos += 7_000_000L;
+    assertEquals(5, clock.monotonicMillis());
+    clock.tick();
+    assertEquals(12, clock.monotonicMillis());
+  }
+
+  @Test
+  public void monotonicMillisNeverGoesBackwards() {
+    CoarseClock clock = newClock();
+    nanos += 7_000_000L;
+    clock.tick();
+    nanos -= 3_000_000L;
+    clock.tick();
+    assertEquals(12, clock.monotonicMillis());
+  }
+}
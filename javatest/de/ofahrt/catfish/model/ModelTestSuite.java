@@ -6,6 +6,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
+  CoarseClockTest.class,
   HtmlEscapeTest.class,
   HttpDateTest.class,
   HttpMessagesTest.class,
@@ -3,6 +3,7 @@ package de.ofahrt.catfish.model;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 
+import java.util.List;
 import org.junit.Test;
 
 public class SimpleHttpResponseBuilderTest {
@@ -22,8 +23,8 @@ public class SimpleHttpResponseBuilderTest {
 
   @Test
   public void addHeaderMergesManyRepeatsInOrder() throws Exception {
-    // Repeated list-valued headers accumulate via a StringBuilder (O(n) total, not O(n^2)); the
-    // merged value must still read back in original order.
+    // Repeated list-valued headers are kept as separate fields; the joined value must still read
+    // back in original order.
     SimpleHttpResponse.Builder builder = new SimpleHttpResponse.Builder().setStatusCode(200);
     StringBuilder expected = new StringBuilder();
     for (int i = 0; i < 50; i++) {
@@ -37,7 +38,7 @@ public class SimpleHttpResponseBuilderTest {
   @Test
   public void getHeaderReturnsMergedValueBeforeBuild() {
     // The origin-response parser reads Content-Length/Transfer-Encoding via getHeader mid-parse, so
-    // the accumulator must be visible before build()/materialize().
+    // the repeated values must be visible before build().
     SimpleHttpResponse.Builder builder =
         new SimpleHttpResponse.Builder()
             .setStatusCode(200)
@@ -46,6 +47,21 @@ public class SimpleHttpResponseBuilderTest {
     assertEquals("a, b", builder.getHeader(HttpHeaderName.CONTENT_TYPE));
   }
 
+  @Test
+  public void addHeaderKeepsSetCookieValuesSeparate() throws Exception {
+    // Set-Cookie values can't be joined with ", " since cookie values may contain commas.
+    HttpResponse response =
+        new SimpleHttpResponse.Builder()
+            .setStatusCode(200)
+            .addHeader(HttpHeaderName.SET_COOKIE, "a=1; Expires=Sun, 06 Nov 1994 08:49:37 GMT")
+            .addHeader(HttpHeaderName.SET_COOKIE, "b=2")
+            .build();
+    assertEquals(
+        List.of("a=1; Expires=Sun, 06 Nov 1994 08:49:37 GMT", "b=2"),
+        response.getHeaders().getAll(HttpHeaderName.SET_COOKIE));
+    assertEquals(2, response.getHeaders().size());
+  }
+
   @Test
   public void addHeaderThrowsOnDuplicateHost() throws Exception {
     // Host is in the non-list blacklist; adding it twice must throw.
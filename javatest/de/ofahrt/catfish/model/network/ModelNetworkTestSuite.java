@@ -8,5 +8,6 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
   ConnectionTest.class,
   NetworkEventListenerTest.class,
+  SelectorStatsTest.class,
 })
 public class ModelNetworkTestSuite {}
@@ -0,0 +1,57 @@
+package de.ofahrt.catfish.model.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import de.ofahrt.catfish.model.network.SelectorStats.Histogram;
+import org.junit.Test;
+
+public class SelectorStatsTest {
+
+  @Test
+  public void bucketFor_powerOfTwoMicros() {
+    assertEquals(0, Histogram.bucketFor(0));
+    assertEquals(0, Histogram.bucketFor(999));
+    assertEquals(1, Histogram.bucketFor(1_000));
+    assertEquals(2, Histogram.bucketFor(2_000));
+    assertEquals(2, Histogram.bucketFor(3_999));
+    assertEquals(11, Histogram.bucketFor(1_024_000));
+    assertEquals(Histogram.BUCKETS - 1, Histogram.bucketFor(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void percentile_returnsBucketUpperBound() {
+    long[] counts = new long[Histogram.BUCKETS];
+    counts[1] = 90;
+    counts[10] = 10;
+    Histogram histogram = new Histogram(counts);
+    assertEquals(100, histogram.count());
+    assertEquals(2, histogram.percentileMicros(50));
+    assertEquals(2, histogram.percentileMicros(90));
+    assertEquals(1024, histogram.percentileMicros(99));
+    assertEquals(0, new Histogram(new long[Histogram.BUCKETS]).percentileMicros(99));
+  }
+
+  @Test
+  public void histogram_copiesCounts() {
+    long[] counts = new long[Histogram.BUCKETS];
+    Histogram histogram = new Histogram(counts);
+    counts[0] = 5;
+    assertEquals(0, histogram.count());
+    histogram.counts()[0] = 5;
+    assertEquals(0, histogram.count());
+  }
+
+  @Test
+  public void histogram_rejectsWrongBucketCount() {
+    assertThrows(IllegalArgumentException.class, () -> new Histogram(new long[3]));
+  }
+
+  @Test
+  public void busyFraction() {
+    Histogram empty = new Histogram(new long[Histogram.BUCKETS]);
+    SelectorStats stats =
+        new SelectorStats(0, 1, 300, 100, 0, 0, 0, 0, 0, 0, 0, 0, empty, empty, empty);
+    assertEquals(0.25, stats.busyFraction(), 0.0);
+  }
+}
@@ -10,6 +10,7 @@ import org.junit.runners.Suite.SuiteClasses;
   DenyUploadPolicyTest.class,
   KeepAlivePolicyTest.class,
   RequestActionTest.class,
+  RequestIdGeneratorTest.class,
   RequestOutcomeTest.class,
   RouterTest.class,
 })
@@ -0,0 +1,73 @@
+package de.ofahrt.catfish.model.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.Test;
+
+public class RequestIdGeneratorTest {
+
+  @Test
+  public void random_isVersion4WithIetfVariant() {
+    for (int i = 0; i < 100; i++) {
+      UUID id = RequestIdGenerator.random().nextId();
+      assertEquals(4, id.version());
+      assertEquals(2, id.variant());
+    }
+  }
+
+  @Test
+  public void random_roundTripsThroughString() {
+    UUID id = RequestIdGenerator.random().nextId();
+    assertEquals(id, UUID.fromString(id.toString()));
+  }
+
+  @Test
+  public void random_isUnique() {
+    RequestIdGenerator generator = RequestIdGenerator.random();
+    Set<UUID> ids = new HashSet<>();
+    for (int i = 0; i < 10000; i++) {
+      ids.add(generator.nextId());
+    }
+    assertEquals(10000, ids.size());
+  }
+
+  @Test
+  public void sequential_sharesPrefixAndCounts() {
+    RequestIdGenerator generator = RequestIdGenerator.sequential();
+    UUID first = generator.nextId();
+    UUID second = generator.nextId();
+    assertEquals(first.getMostSignificantBits(), second.getMostSignificantBits());
+    assertEquals(first.getLeastSignificantBits() + 1, second.getLeastSignificantBits());
+    assertEquals(-1, first.compareTo(second));
+  }
+
+  @Test
+  public void sequential_generatorsHaveDifferentPrefixes() {
+    // Two random 64-bit prefixes collide with negligible probability.
+    assertNotEquals(
+        RequestIdGenerator.sequential().nextId(), RequestIdGenerator.sequential().nextId());
+  }
+
+  @Test
+  public void secureRandom_isVersion4() {
+    assertEquals(4, RequestIdGenerator.secureRandom().nextId().version());
+  }
+
+  @Test
+  public void none_returnsNilUuid() {
+    UUID id = RequestIdGenerator.none().nextId();
+    assertEquals(new UUID(0, 0), id);
+    assertSame(id, RequestIdGenerator.none().nextId());
+  }
+
+  @Test
+  public void listenerDefaultsToRandomAndNoneToNone() {
+    assertSame(RequestIdGenerator.random(), new HttpServerListener() {}.requestIdGenerator());
+    assertSame(RequestIdGenerator.none(), HttpServerListener.NONE.requestIdGenerator());
+  }
+}
@@ -7,6 +7,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.TreeMap;
 import org.junit.Test;
@@ -386,4 +387,22 @@ public class IncrementalMultipartParserTest {
     parser.parse(data, 0, data.length);
     parser.getParsedBody();
   }
+
+  @Test
+  public void parseDirectBuffer() throws Exception {
+    byte[] data =
+        "--abc\r\nContent-Disposition: form-data; name=\"foo\"\r\n\r\nbar\r\n--abc--\r\n"
+            .getBytes(StandardCharsets.ISO_8859_1);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+    buffer.put(data).flip();
+    IncrementalMultipartParser parser =
+        new IncrementalMultipartParser("multipart/form-data; boundary=abc");
+    assertEquals(data.length, parser.parse(buffer));
+    assertTrue(parser.isDone());
+    assertEquals(0, buffer.remaining());
+    FormDataBody container = parser.getParsedBody();
+    assertEquals(1, container.size());
+    assertEquals("foo", container.get(0).getName());
+    assertEquals("bar", container.get(0).getValue());
+  }
 }